@@ -86,6 +86,9 @@ public interface JobExecution {
     /** Get the current transaction Id from the heartbeat */
     public UUID getTransactionId();
 
+    /** Get the job queue the execution was read from, null for the default queue */
+    public String getQueueName();
+
     public enum Status {
         NOT_STARTED, IN_PROGRESS, COMPLETED, FAILED, DEAD, DELAYED
     }
@@ -38,6 +38,7 @@ public class JobExecutionImpl implements JobExecution, JobRuntime {
     private final UUID jobId;
     private final UUID runId;
     private final String jobName;
+    private final String queueName;
     private long duration;
     private Status status = Status.NOT_STARTED;
     private long startTime;
@@ -53,6 +54,7 @@ public class JobExecutionImpl implements JobExecution, JobRuntime {
         this.jobId = jobDescriptor.getJobId();
         this.runtime = jobDescriptor.getRuntime();
         this.jobName = jobDescriptor.getJobName();
+        this.queueName = jobDescriptor.getQueueName();
         this.transactionId = jobDescriptor.getTransactionId();
         this.data = jobDescriptor.getData();
         this.stats = jobDescriptor.getStats();
@@ -208,6 +210,12 @@ public class JobExecutionImpl implements JobExecution, JobRuntime {
     }
 
 
+    @Override
+    public String getQueueName() {
+        return queueName;
+    }
+
+
     /* (non-Javadoc)
      * @see org.apache.usergrid.batch.JobRuntime#getExecution()
      */
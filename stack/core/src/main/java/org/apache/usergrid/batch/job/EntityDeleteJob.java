@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.batch.job;
+
+
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.SimpleEntityRef;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl.DeletePhase;
+import org.apache.usergrid.persistence.entities.JobData;
+
+import static org.apache.usergrid.utils.ConversionUtils.string;
+import static org.apache.usergrid.utils.ConversionUtils.uuid;
+
+
+/**
+ * Removes a tombstoned entity from the graph in the background. Each execution runs one {@link DeletePhase} and then
+ * delays itself, so the phase reached is saved with the job data between runs and a restarted job resumes where it
+ * left off. The delay between phases throttles how fast a burst of deletes is cleaned up.
+ *
+ * @see EntityManagerImpl#PROPERTY_TOMBSTONE
+ */
+@Component("entityDeleteJob")
+public class EntityDeleteJob extends OnlyOnceJob {
+
+    public static final String JOB_NAME = "entityDeleteJob";
+
+    public static final String APPLICATION_ID = "applicationId";
+    public static final String ENTITY_ID = "entityId";
+    public static final String ENTITY_TYPE = "entityType";
+    public static final String PHASE = "phase";
+
+    private static final Logger logger = LoggerFactory.getLogger( EntityDeleteJob.class );
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private long phaseDelay = 1000;
+
+
+    public EntityDeleteJob() {
+    }
+
+
+    /** The data for a job that cleans up the entity, starting with the first phase */
+    public static JobData createJobData( UUID applicationId, EntityRef entity ) {
+        JobData jobData = new JobData();
+        jobData.setProperty( APPLICATION_ID, applicationId );
+        jobData.setProperty( ENTITY_ID, entity.getUuid() );
+        jobData.setProperty( ENTITY_TYPE, entity.getType() );
+        jobData.setProperty( PHASE, DeletePhase.values()[0].name() );
+        return jobData;
+    }
+
+
+    @Override
+    protected void doJob( JobExecution execution ) throws Exception {
+        JobData data = execution.getJobData();
+
+        UUID applicationId = uuid( data.getProperty( APPLICATION_ID ) );
+        EntityRef entity = new SimpleEntityRef( string( data.getProperty( ENTITY_TYPE ) ),
+                uuid( data.getProperty( ENTITY_ID ) ) );
+        DeletePhase phase = DeletePhase.valueOf( string( data.getProperty( PHASE ) ) );
+
+        EntityManagerImpl em = ( ( EntityManagerImpl ) emf.getEntityManager( applicationId ) ).withTombstones();
+
+        if ( em.getEntityType( entity.getUuid() ) == null ) {
+            logger.info( "Entity {} in app {} is already removed", entity.getUuid(), applicationId );
+            return;
+        }
+
+        logger.info( "Running delete phase {} for entity {} in app {}", new Object[] {
+                phase, entity.getUuid(), applicationId
+        } );
+
+        em.deleteEntityPhase( entity, phase );
+
+        DeletePhase next = phase.next();
+        if ( next == null ) {
+            return;
+        }
+
+        data.setProperty( PHASE, next.name() );
+        execution.delay( phaseDelay );
+    }
+
+
+    @Override
+    protected long getDelay( JobExecution execution ) throws Exception {
+        return phaseDelay;
+    }
+
+
+    /** Milliseconds to wait between the phases of a cleanup */
+    @Value( "${usergrid.entity.delete.async.phase.delay:1000}" )
+    public void setPhaseDelay( long phaseDelay ) {
+        this.phaseDelay = phaseDelay;
+    }
+
+
+    @Override
+    public void dead( JobExecution execution ) throws Exception {
+        logger.error( "Gave up cleaning up deleted entity {} in app {}", execution.getJobData().getProperty( ENTITY_ID ),
+                execution.getJobData().getProperty( APPLICATION_ID ) );
+    }
+}
@@ -27,6 +27,9 @@ public interface JobAccessor {
     /** Get new jobs, with a max return value of size */
     List<JobDescriptor> getJobs( int size );
 
+    /** Get new jobs from the job queue, with a max return value of size */
+    List<JobDescriptor> getJobs( String queueName, int size );
+
     /** Save job execution information */
     void save( JobExecution bulkJobExecution );
 
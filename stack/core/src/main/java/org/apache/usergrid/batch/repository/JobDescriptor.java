@@ -39,10 +39,18 @@ public class JobDescriptor extends TypedEntity {
     private final JobData data;
     private final JobStat stats;
     private final JobRuntimeService runtime;
+    private final String queueName;
 
 
     public JobDescriptor( String jobName, UUID jobId, UUID transactionId, JobData data, JobStat stats,
                           JobRuntimeService runtime ) {
+        this( jobName, jobId, transactionId, data, stats, runtime, null );
+    }
+
+
+    /** @param queueName The job queue the job was read from, null for the default queue */
+    public JobDescriptor( String jobName, UUID jobId, UUID transactionId, JobData data, JobStat stats,
+                          JobRuntimeService runtime, String queueName ) {
         Assert.notNull( jobName, "Job name cannot be null" );
         Assert.notNull( jobId != null, "A JobId is required" );
         Assert.notNull( transactionId != null, "A transactionId is required" );
@@ -56,6 +64,7 @@ public class JobDescriptor extends TypedEntity {
         this.data = data;
         this.stats = stats;
         this.runtime = runtime;
+        this.queueName = queueName;
     }
 
 
@@ -93,4 +102,9 @@ public class JobDescriptor extends TypedEntity {
     public JobStat getStats() {
         return stats;
     }
+
+
+    public String getQueueName() {
+        return queueName;
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.batch.service;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+
+/**
+ * A job queue with its own pool of workers. Jobs are routed to a lane by name, so long running jobs such as exports
+ * can be kept off the default queue, where they would hold every worker and starve the short jobs. Lanes with a
+ * higher priority are polled first.
+ * <p/>
+ * Lanes are configured as a comma separated list of "queuePath=workers:priority:jobName|jobName...". Jobs that aren't
+ * listed in any lane go to the default queue, which has priority 0.
+ */
+public class JobLane {
+
+    private final String queueName;
+    private final int workers;
+    private final int priority;
+    private final Set<String> jobNames;
+
+
+    public JobLane( String queueName, int workers, int priority, Set<String> jobNames ) {
+        if ( workers < 1 ) {
+            throw new IllegalArgumentException( "Job lane " + queueName + " needs at least 1 worker" );
+        }
+
+        this.queueName = queueName;
+        this.workers = workers;
+        this.priority = priority;
+        this.jobNames = jobNames;
+    }
+
+
+    /** Parse the lanes, an empty list if there are none */
+    public static List<JobLane> parse( String lanes ) {
+        if ( StringUtils.isBlank( lanes ) ) {
+            return Collections.emptyList();
+        }
+
+        List<JobLane> parsed = new ArrayList<JobLane>();
+
+        for ( String lane : StringUtils.split( lanes, ',' ) ) {
+            String[] queueAndValue = StringUtils.split( lane.trim(), '=' );
+            String[] values = queueAndValue.length == 2 ? StringUtils.split( queueAndValue[1], ':' ) : null;
+
+            if ( values == null || values.length != 3 ) {
+                throw new IllegalArgumentException( "Invalid job lane " + lane );
+            }
+
+            parsed.add( new JobLane( queueAndValue[0].trim(), Integer.parseInt( values[0].trim() ),
+                    Integer.parseInt( values[1].trim() ),
+                    new HashSet<String>( Arrays.asList( StringUtils.split( values[2].trim(), '|' ) ) ) ) );
+        }
+
+        return parsed;
+    }
+
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+
+    public int getWorkers() {
+        return workers;
+    }
+
+
+    public int getPriority() {
+        return priority;
+    }
+
+
+    public Set<String> getJobNames() {
+        return jobNames;
+    }
+
+
+    @Override
+    public String toString() {
+        return "JobLane [queueName=" + queueName + ", workers=" + workers + ", priority=" + priority + ", jobNames="
+                + jobNames + "]";
+    }
+}
@@ -17,6 +17,9 @@
 package org.apache.usergrid.batch.service;
 
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
@@ -51,10 +54,12 @@ import com.yammer.metrics.annotation.Timed;
 
 
 /**
- * Service that schedules itself, then schedules jobs in the same pool
+ * Service that schedules itself, then schedules jobs in the same pool. Every job lane is polled with its own pool, and
+ * the service polls again right away while it finds jobs, backing off to the interval when the queues are idle.
  */
 public class JobSchedulerService extends AbstractScheduledService {
     protected static final long DEFAULT_DELAY = 1000;
+    protected static final long DEFAULT_MIN_DELAY = 100;
 
     private static final Logger LOG = LoggerFactory.getLogger( JobSchedulerService.class );
 
@@ -65,9 +70,14 @@ public class JobSchedulerService extends AbstractScheduledService {
     private JobAccessor jobAccessor;
     private JobFactory jobFactory;
 
-    private Semaphore capacitySemaphore;
+    private long minInterval = DEFAULT_MIN_DELAY;
+    private String jobLanes;
+
+    private List<Lane> lanes;
+
+    /** The wait before the next iteration */
+    private volatile long currentDelay = DEFAULT_MIN_DELAY;
 
-    private ListeningScheduledExecutorService service;
     private JobListener jobListener;
 
     private Timer jobTimer;
@@ -86,45 +96,64 @@ public class JobSchedulerService extends AbstractScheduledService {
     @Override
     protected void runOneIteration() throws Exception {
 
+        boolean busy = false;
+
         try {
-            LOG.info( "Running one check iteration ..." );
-            List<JobDescriptor> activeJobs;
+            LOG.debug( "Running one check iteration ..." );
+
+            for ( Lane lane : lanes ) {
+                busy |= pollLane( lane );
+            }
+        }
+        catch ( Throwable t ) {
+            LOG.error( "Scheduler run failed, error is", t );
+        }
 
-            // run until there are no more active jobs
-            while ( true ) {
+        // drain continuously while there's work, back off when idle
+        currentDelay = busy ? minInterval : Math.min( currentDelay * 2, interval );
 
-                // get the semaphore if we can. This means we have space for at least 1
-                // job
-                if ( LOG.isDebugEnabled() ) {
-                    LOG.debug( "About to acquire semaphore.  Capacity is {}", capacitySemaphore.availablePermits() );
-                }
+        LOG.debug( "Next check iteration in {} ms", currentDelay );
+    }
 
-                capacitySemaphore.acquire();
-                // release the sempaphore we only need to acquire as a way to stop the
-                // loop if there's no capacity
-                capacitySemaphore.release();
 
-                int capacity = capacitySemaphore.availablePermits();
+    /**
+     * Read jobs for the free workers of the lane until its queue is empty or its workers are busy
+     *
+     * @return true if jobs were read from the lane, so the next iteration shouldn't wait. A lane whose workers are all
+     *         busy doesn't count, polling it again right away can't start anything
+     */
+    private boolean pollLane( Lane lane ) {
 
-                LOG.debug( "Capacity is {}", capacity );
+        boolean busy = false;
 
-                activeJobs = jobAccessor.getJobs( capacity );
+        // run until there are no more active jobs or no more capacity
+        while ( true ) {
 
-                // nothing to do, we don't have any jobs to run
-                if ( activeJobs.size() == 0 ) {
-                    LOG.debug( "No jobs returned. Exiting run loop" );
-                    return;
-                }
+            int capacity = lane.capacitySemaphore.availablePermits();
 
-                for ( JobDescriptor jd : activeJobs ) {
-                    LOG.info( "Submitting work for {}", jd );
-                    submitWork( jd );
-                    LOG.info( "Work submitted for {}", jd );
-                }
+            LOG.debug( "Capacity of {} is {}", lane, capacity );
+
+            // every worker is running a job, leave the rest in the queue until one is free
+            if ( capacity == 0 ) {
+                return busy;
+            }
+
+            List<JobDescriptor> activeJobs = lane.queueName == null ? jobAccessor.getJobs( capacity ) :
+                                             jobAccessor.getJobs( lane.queueName, capacity );
+
+            // nothing to do, we don't have any jobs to run
+            if ( activeJobs.size() == 0 ) {
+                LOG.debug( "No jobs returned for {}. Exiting run loop", lane );
+                return busy;
+            }
+
+            busy = true;
+
+            for ( JobDescriptor jd : activeJobs ) {
+                LOG.info( "Submitting work for {}", jd );
+                submitWork( lane, jd );
+                LOG.info( "Work submitted for {}", jd );
             }
-        }
-        catch ( Throwable t ) {
-            LOG.error( "Scheduler run failed, error is", t );
         }
     }
 
@@ -136,7 +165,12 @@ public class JobSchedulerService extends AbstractScheduledService {
      */
     @Override
     protected Scheduler scheduler() {
-        return Scheduler.newFixedDelaySchedule( 0, interval, TimeUnit.MILLISECONDS );
+        return new CustomScheduler() {
+            @Override
+            protected Schedule getNextSchedule() throws Exception {
+                return new Schedule( currentDelay, TimeUnit.MILLISECONDS );
+            }
+        };
     }
 
 
@@ -144,7 +178,7 @@ public class JobSchedulerService extends AbstractScheduledService {
      * Use the provided BulkJobFactory to build and submit BulkJob items as ListenableFuture objects
      */
     @ExceptionMetered( name = "BulkJobScheduledService_submitWork_exceptions", group = "scheduler" )
-    private void submitWork( final JobDescriptor jobDescriptor ) {
+    private void submitWork( final Lane lane, final JobDescriptor jobDescriptor ) {
         final Job job;
 
         try {
@@ -170,7 +204,7 @@ public class JobSchedulerService extends AbstractScheduledService {
          * stuck in the queue for the scheduler and then time out their distributed heartbeat
          */
         try {
-            capacitySemaphore.acquire();
+            lane.capacitySemaphore.acquire();
         }
         catch ( InterruptedException e ) {
             LOG.error( "Unable to acquire semaphore capacity before submitting job", e );
@@ -182,7 +216,7 @@ public class JobSchedulerService extends AbstractScheduledService {
         final Timer.Context timer = jobTimer.time();
 
 
-        ListenableFuture<Void> future = service.submit( new Callable<Void>() {
+        ListenableFuture<Void> future = lane.service.submit( new Callable<Void>() {
             @Override
             public Void call() throws Exception {
 
@@ -234,7 +268,7 @@ public class JobSchedulerService extends AbstractScheduledService {
                  */
 
                 LOG.debug( "Job succeeded with the job id {}", execution.getJobId() );
-                capacitySemaphore.release();
+                lane.capacitySemaphore.release();
                 timer.stop();
                 runCounter.dec();
                 successCounter.inc();
@@ -262,7 +296,7 @@ public class JobSchedulerService extends AbstractScheduledService {
                  * Release semaphore first in case there are other problems with communicating with Cassandra
                  */
                 LOG.error( "Job failed with the job id {}", execution.getJobId() );
-                capacitySemaphore.release();
+                lane.capacitySemaphore.release();
                 timer.stop();
                 runCounter.dec();
                 failCounter.inc();
@@ -298,6 +332,20 @@ public class JobSchedulerService extends AbstractScheduledService {
     }
 
 
+    /**
+     * @param milliseconds the milliseconds to wait after an iteration that found work, the wait doubles after every
+     * idle iteration until it reaches the interval
+     */
+    public void setMinInterval( long milliseconds ) {
+        this.minInterval = milliseconds;
+    }
+
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+
     /**
      * @param listeners the listeners to set
      */
@@ -311,6 +359,16 @@ public class JobSchedulerService extends AbstractScheduledService {
     }
 
 
+    /**
+     * @param jobLanes the job queues polled besides the default one
+     *
+     * @see JobLane
+     */
+    public void setJobLanes( String jobLanes ) {
+        this.jobLanes = jobLanes;
+    }
+
+
     /**
      * @param jobAccessor the jobAccessor to set
      */
@@ -353,11 +411,31 @@ public class JobSchedulerService extends AbstractScheduledService {
      */
     @Override
     protected void startUp() throws Exception {
-        service = MoreExecutors
-                .listeningDecorator( Executors.newScheduledThreadPool( workerSize, JobThreadFactory.INSTANCE ) );
-        capacitySemaphore = new Semaphore( workerSize );
+        List<Lane> started = new ArrayList<Lane>();
+        started.add( new Lane( null, workerSize, 0 ) );
+
+        for ( JobLane jobLane : JobLane.parse( jobLanes ) ) {
+            started.add( new Lane( jobLane.getQueueName(), jobLane.getWorkers(), jobLane.getPriority() ) );
 
-        LOG.info( "Starting executor pool.  Capacity is {}", workerSize );
+            // the default queue runs whatever it holds, so nothing queued before a job was moved is lost
+            LOG.info( "New {} jobs are queued in {}, those already in the default queue still run from there",
+                    jobLane.getJobNames(), jobLane.getQueueName() );
+        }
+
+        // poll the lanes with the highest priority first
+        Collections.sort( started, new Comparator<Lane>() {
+            @Override
+            public int compare( Lane o1, Lane o2 ) {
+                return o2.priority - o1.priority;
+            }
+        } );
+
+        lanes = started;
+        currentDelay = minInterval;
+
+        for ( Lane lane : lanes ) {
+            LOG.info( "Starting executor pool for {}.  Capacity is {}", lane, lane.workers );
+        }
 
         super.startUp();
 
@@ -374,7 +452,9 @@ public class JobSchedulerService extends AbstractScheduledService {
     protected void shutDown() throws Exception {
         LOG.info( "Shutting down job scheduler" );
 
-        service.shutdown();
+        for ( Lane lane : lanes ) {
+            lane.service.shutdown();
+        }
 
         LOG.info( "Job scheduler shut down" );
         super.shutDown();
@@ -405,6 +485,35 @@ public class JobSchedulerService extends AbstractScheduledService {
     }
 
 
+    /**
+     * A job queue with its own workers. The default queue has a null name
+     */
+    private static final class Lane {
+
+        private final String queueName;
+        private final int workers;
+        private final int priority;
+        private final Semaphore capacitySemaphore;
+        private final ListeningScheduledExecutorService service;
+
+
+        private Lane( String queueName, int workers, int priority ) {
+            this.queueName = queueName;
+            this.workers = workers;
+            this.priority = priority;
+            this.capacitySemaphore = new Semaphore( workers );
+            this.service = MoreExecutors
+                    .listeningDecorator( Executors.newScheduledThreadPool( workers, JobThreadFactory.INSTANCE ) );
+        }
+
+
+        @Override
+        public String toString() {
+            return "Lane [queueName=" + ( queueName != null ? queueName : "default" ) + ", priority=" + priority + "]";
+        }
+    }
+
+
     /**
      * Simple factory for labeling job worker threads for easier debugging
      */
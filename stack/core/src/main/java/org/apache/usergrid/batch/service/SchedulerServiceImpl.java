@@ -18,7 +18,12 @@ package org.apache.usergrid.batch.service;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.PostConstruct;
@@ -34,6 +39,7 @@ import org.apache.usergrid.mq.QueueManager;
 import org.apache.usergrid.mq.QueueManagerFactory;
 import org.apache.usergrid.mq.QueueQuery;
 import org.apache.usergrid.mq.QueueResults;
+import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.persistence.Query;
@@ -82,6 +88,9 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
 
     private String jobQueueName = DEFAULT_QUEUE_NAME;
 
+    /** The queue of each job that isn't posted to the default queue */
+    private Map<String, String> laneQueues = Collections.emptyMap();
+
     private QueueManager qm;
     private EntityManager em;
 
@@ -136,7 +145,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
         message.setProperty( JOB_ID, jobDataId );
         message.setProperty( STATS_ID, jobStatId );
 
-        qm.postToQueue( jobQueueName, message );
+        qm.postToQueue( getJobQueueName( jobName ), message );
     }
 
 
@@ -169,14 +178,55 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
      */
     @Override
     public List<JobDescriptor> getJobs( int size ) {
+        return getJobs( jobQueueName, size );
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.usergrid.batch.repository.JobAccessor#getJobs(java.lang.String, int)
+     */
+    @Override
+    public List<JobDescriptor> getJobs( String queueName, int size ) {
         QueueQuery query = new QueueQuery();
         query.setTimeout( jobTimeout );
         query.setLimit( size );
 
-        QueueResults jobs = qm.getFromQueue( jobQueueName, query );
+        QueueResults jobs = qm.getFromQueue( queueName, query );
 
         List<JobDescriptor> results = new ArrayList<JobDescriptor>( jobs.size() );
 
+        if ( jobs.size() == 0 ) {
+            return results;
+        }
+
+        // load the data and stats of every job in one multiget
+        Set<UUID> ids = new LinkedHashSet<UUID>( jobs.size() * 2 );
+
+        for ( Message job : jobs.getMessages() ) {
+            ids.add( UUID.fromString( job.getStringProperty( JOB_ID ) ) );
+            ids.add( UUID.fromString( job.getStringProperty( STATS_ID ) ) );
+        }
+
+        Map<UUID, Entity> entities;
+
+        try {
+            entities = em.get( ids ).getEntitiesMap();
+        }
+        catch ( Exception e ) {
+            // log and skip. This is a catastrophic runtime error if we see an
+            // exception here. We don't want to cause job loss, so leave the jobs in
+            // the Q.
+            LOG.error( "Unable to retrieve job data for {} jobs from queue {}.  Skipping to avoid job loss",
+                    new Object[] { jobs.size(), queueName, e } );
+            return results;
+        }
+
+        if ( entities == null ) {
+            entities = Collections.emptyMap();
+        }
+
         for ( Message job : jobs.getMessages() ) {
 
             UUID jobUuid = UUID.fromString( job.getStringProperty( JOB_ID ) );
@@ -184,9 +234,9 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
             String jobName = job.getStringProperty( JOB_NAME );
 
             try {
-                JobData data = em.get( jobUuid, JobData.class );
+                JobData data = ( JobData ) entities.get( jobUuid );
 
-                JobStat stats = em.get( statsUuid, JobStat.class );
+                JobStat stats = ( JobStat ) entities.get( statsUuid );
 
                 /**
                  * no job data, which is required even if empty to signal the job should
@@ -195,7 +245,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
                 if ( data == null || stats == null ) {
                     LOG.info( "Received job with data id '{}' from the queue, but no data was found.  Dropping job",
                             jobUuid );
-                    qm.deleteTransaction( jobQueueName, job.getTransaction(), null );
+                    qm.deleteTransaction( queueName, job.getTransaction(), null );
 
                     if ( data != null ) {
                         em.delete( data );
@@ -208,7 +258,8 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
                     continue;
                 }
 
-                results.add( new JobDescriptor( jobName, job.getUuid(), job.getTransaction(), data, stats, this ) );
+                results.add( new JobDescriptor( jobName, job.getUuid(), job.getTransaction(), data, stats, this,
+                        queueName ) );
             }
             catch ( Exception e ) {
                 // log and skip. This is a catastrophic runtime error if we see an
@@ -230,8 +281,8 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
         try {
             // @TODO - what's the point to this sychronized block on an argument?
             synchronized ( execution ) {
-                UUID newId = qm.renewTransaction( jobQueueName, execution.getTransactionId(),
-                        new QueueQuery().withTimeout( delay ) );
+                UUID newId = qm.renewTransaction( getQueueName( execution.getExecution() ),
+                        execution.getTransactionId(), new QueueQuery().withTimeout( delay ) );
 
                 execution.setTransactionId( newId );
                 LOG.debug( "renewed transaction {}", newId );
@@ -285,7 +336,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
             // we're done. Mark the transaction as complete and delete the job info
             if ( jobStatus == Status.COMPLETED ) {
                 LOG.info( "Job {} is complete id: {}", data.getJobName(), bulkJobExecution.getTransactionId() );
-                qm.deleteTransaction( jobQueueName, bulkJobExecution.getTransactionId(), null );
+                qm.deleteTransaction( getQueueName( bulkJobExecution ), bulkJobExecution.getTransactionId(), null );
                 LOG.debug( "delete job data {}", data.getUuid() );
                 em.delete( data );
             }
@@ -294,7 +345,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
             // running again and save it for querying later
             else if ( jobStatus == Status.DEAD ) {
                 LOG.warn( "Job {} is dead.  Removing", data.getJobName() );
-                qm.deleteTransaction( jobQueueName, bulkJobExecution.getTransactionId(), null );
+                qm.deleteTransaction( getQueueName( bulkJobExecution ), bulkJobExecution.getTransactionId(), null );
                 em.update( data );
             }
 
@@ -348,7 +399,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
 
             // if it's a dead status, it's failed too many times, just kill the job
             if ( execution.getStatus() == Status.DEAD ) {
-                qm.deleteTransaction( jobQueueName, execution.getTransactionId(), null );
+                qm.deleteTransaction( getQueueName( execution ), execution.getTransactionId(), null );
                 em.update( data );
                 em.update( stat );
                 return;
@@ -358,7 +409,7 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
             scheduleJob( execution.getJobName(), System.currentTimeMillis() + delay, data.getUuid(), stat.getUuid() );
 
             // delete the pending transaction
-            qm.deleteTransaction( jobQueueName, execution.getTransactionId(), null );
+            qm.deleteTransaction( getQueueName( execution ), execution.getTransactionId(), null );
 
             // update the data for the next run
 
@@ -394,6 +445,19 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
     }
 
 
+    /** The queue jobs with the name are posted to */
+    private String getJobQueueName( String jobName ) {
+        String queueName = laneQueues.get( jobName );
+        return queueName != null ? queueName : jobQueueName;
+    }
+
+
+    /** The queue the execution was read from */
+    private String getQueueName( JobExecution execution ) {
+        return execution.getQueueName() != null ? execution.getQueueName() : jobQueueName;
+    }
+
+
     @PostConstruct
     public void init() {
         qm = qmf.getQueueManager( CassandraService.MANAGEMENT_APPLICATION_ID );
@@ -423,6 +487,24 @@ public class SchedulerServiceImpl implements SchedulerService, JobAccessor, JobR
     }
 
 
+    /**
+     * @param jobLanes the job queues besides the default one, and the jobs posted to them
+     *
+     * @see JobLane
+     */
+    public void setJobLanes( String jobLanes ) {
+        Map<String, String> queues = new HashMap<String, String>();
+
+        for ( JobLane lane : JobLane.parse( jobLanes ) ) {
+            for ( String jobName : lane.getJobNames() ) {
+                queues.put( jobName, lane.getQueueName() );
+            }
+        }
+
+        laneQueues = queues;
+    }
+
+
     /** @param timeout the timeout to set */
     public void setJobTimeout( long timeout ) {
         this.jobTimeout = timeout;
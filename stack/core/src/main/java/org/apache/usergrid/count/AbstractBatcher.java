@@ -21,7 +21,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -35,7 +38,8 @@ import com.yammer.metrics.core.TimerContext;
 
 
 /**
- * Base batcher implementation, handles concurrency and locking throughput throttling.
+ * Base batcher implementation, handles concurrency and locking throughput throttling. A batch is submitted when it's
+ * full, and once started, at least every batch interval, so a count is never queued longer than the interval.
  *
  * @author zznate
  */
@@ -52,6 +56,8 @@ public abstract class AbstractBatcher implements Batcher {
     protected int batchSize = 500;
     private final AtomicLong batchSubmissionCount = new AtomicLong();
     private final AtomicBoolean lock = new AtomicBoolean( false );
+    private int batchInterval = 0;
+    private ScheduledExecutorService flusher;
 
 
     public void setBatchSize( int batchSize ) {
@@ -59,6 +65,52 @@ public abstract class AbstractBatcher implements Batcher {
     }
 
 
+    /** Seconds between the submissions of a batch that isn't full, 0 only submits full batches */
+    public void setBatchInterval( int batchInterval ) {
+        this.batchInterval = batchInterval;
+    }
+
+
+    /** Start submitting the batch every batch interval */
+    public void start() {
+        if ( batchInterval <= 0 || flusher != null ) {
+            return;
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor( FlushThreadFactory.INSTANCE );
+        flusher.scheduleWithFixedDelay( new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, batchInterval, batchInterval, TimeUnit.SECONDS );
+    }
+
+
+    /** Stop the timed submissions, and submit what's queued */
+    public void stop() {
+        if ( flusher != null ) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+
+        flush();
+    }
+
+
+    /** Submit the counts queued so far, if any */
+    public void flush() {
+        Batch active = batch;
+        if ( active != null && batchSize > 1 ) {
+            synchronized ( this ) {
+                if ( active.getCapacity() < batchSize ) {
+                    active.flush();
+                }
+            }
+        }
+    }
+
+
     public void setBatchSubmitter( BatchSubmitter batchSubmitter ) {
         this.batchSubmitter = batchSubmitter;
     }
@@ -173,4 +225,22 @@ public abstract class AbstractBatcher implements Batcher {
             return localCallCounter.get();
         }
     }
+
+
+    private static final class FlushThreadFactory implements ThreadFactory {
+
+        public static final FlushThreadFactory INSTANCE = new FlushThreadFactory();
+
+        private static final String NAME = "CounterBatchFlush";
+
+
+        @Override
+        public Thread newThread( final Runnable r ) {
+
+            Thread newThread = new Thread( r, NAME );
+            newThread.setDaemon( true );
+
+            return newThread;
+        }
+    }
 }
@@ -27,11 +27,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.usergrid.count.common.Count;
+import org.apache.usergrid.persistence.cassandra.CassandraService;
 
 import me.prettyprint.cassandra.model.HCounterColumnImpl;
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 
 
@@ -77,7 +80,7 @@ public class CassandraCounterStore implements CounterStore {
                             count.getColumnNameSerializer() ) );
         }
         try {
-            mutator.execute();
+            batchExecute( mutator, CassandraService.RETRY_COUNT );
         }
         catch ( Exception e ) {
 
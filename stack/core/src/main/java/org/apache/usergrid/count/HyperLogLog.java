@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.count;
+
+
+import org.apache.usergrid.persistence.CounterResolution;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+
+/**
+ * A HyperLogLog sketch of the distinct values added to a counter, with a standard error of about 2.3%. Sketches are
+ * stored in counter columns, one column for each register and rank observed in a bucket, so concurrent writers never
+ * read before they write. The register of a bucket is the highest rank with a column, which is the same as merging the
+ * sketches of every write.
+ */
+public class HyperLogLog {
+
+    /** The number of hash bits that select the register */
+    public static final int PRECISION = 11;
+
+    public static final int REGISTERS = 1 << PRECISION;
+
+    /** The bits of a column that hold the register and the rank, the bucket is in the bits above them */
+    private static final int RANK_BITS = 6;
+    private static final int COLUMN_BITS = PRECISION + RANK_BITS;
+
+    private static final long MINUTE = CounterResolution.MINUTE.interval();
+
+    private static final double ALPHA = 0.7213 / ( 1 + 1.079 / REGISTERS );
+
+    private final byte[] registers = new byte[REGISTERS];
+
+
+    public static long hash( String value ) {
+        return Hashing.murmur3_128().hashString( value, Charsets.UTF_8 ).asLong();
+    }
+
+
+    /** The column of the hashed value in the bucket */
+    public static long toColumn( long bucket, long hash ) {
+        int register = ( int ) ( hash >>> ( 64 - PRECISION ) );
+        int rank = Long.numberOfLeadingZeros( ( hash << PRECISION ) | ( 1L << ( PRECISION - 1 ) ) ) + 1;
+
+        return ( ( bucket / MINUTE ) << COLUMN_BITS ) | ( register << RANK_BITS ) | rank;
+    }
+
+
+    /** The first column of the bucket */
+    public static long firstColumn( long bucket ) {
+        return ( bucket / MINUTE ) << COLUMN_BITS;
+    }
+
+
+    /** The last column of the bucket */
+    public static long lastColumn( long bucket ) {
+        return firstColumn( bucket + MINUTE ) - 1;
+    }
+
+
+    /** The time of the bucket of the column, to the minute */
+    public static long getTime( long column ) {
+        return ( column >>> COLUMN_BITS ) * MINUTE;
+    }
+
+
+    /** Add the observation of a column */
+    public void addColumn( long column ) {
+        int register = ( int ) ( column >>> RANK_BITS ) & ( REGISTERS - 1 );
+        byte rank = ( byte ) ( column & ( ( 1 << RANK_BITS ) - 1 ) );
+
+        if ( rank > registers[register] ) {
+            registers[register] = rank;
+        }
+    }
+
+
+    public void add( String value ) {
+        addColumn( toColumn( 0, hash( value ) ) );
+    }
+
+
+    /** Add the values of the other sketch to this one */
+    public void merge( HyperLogLog other ) {
+        for ( int i = 0; i < REGISTERS; i++ ) {
+            if ( other.registers[i] > registers[i] ) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+
+    /** The estimated number of distinct values */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+
+        for ( byte register : registers ) {
+            sum += 1.0 / ( 1L << register );
+
+            if ( register == 0 ) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+
+        //small cardinalities are counted from the empty registers
+        if ( estimate <= 2.5 * REGISTERS && zeros > 0 ) {
+            estimate = REGISTERS * Math.log( ( double ) REGISTERS / zeros );
+        }
+
+        return Math.round( estimate );
+    }
+}
@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.locking.LockManager;
 import org.apache.usergrid.mq.QueueManager;
 import org.apache.usergrid.mq.QueueManagerFactory;
+import org.apache.usergrid.mq.cassandra.io.QueueShardDirectory;
 import org.apache.usergrid.persistence.cassandra.CassandraService;
 import org.apache.usergrid.persistence.cassandra.CounterUtils;
 
@@ -40,6 +41,7 @@ public class QueueManagerFactoryImpl implements QueueManagerFactory {
     private CounterUtils counterUtils;
     private LockManager lockManager;
     private int lockTimeout;
+    private QueueSharding sharding = new QueueSharding();
 
     /**
      * Must be constructed with a CassandraClientPool.
@@ -55,6 +57,39 @@ public class QueueManagerFactoryImpl implements QueueManagerFactory {
     }
 
 
+    /**
+     * Set the queues with their own shard interval and sub shards
+     *
+     * @param overrides A comma separated list of "path=intervalMillis[:subShards]"
+     *
+     * @see QueueSharding
+     */
+    public void setShardOverrides( String overrides ) {
+        sharding = QueueSharding.parse( overrides );
+    }
+
+
+    /**
+     * Set whether queue reads also scan the day rows that aren't in the shard directory. Leave it on until no node of
+     * a version older than the directory posts to queues any more.
+     *
+     * @see QueueShardDirectory
+     */
+    public void setShardLegacyScan( boolean legacyScan ) {
+        QueueShardDirectory.setLegacyScan( legacyScan );
+    }
+
+
+    /**
+     * Set the seconds shards are kept in the shard directory, 0 keeps them forever
+     *
+     * @see QueueShardDirectory
+     */
+    public void setShardDirectoryTtl( int ttl ) {
+        QueueShardDirectory.setTtl( ttl );
+    }
+
+
     @Override
     public String getImpementationDescription() throws Exception {
         return IMPLEMENTATION_DESCRIPTION;
@@ -64,7 +99,7 @@ public class QueueManagerFactoryImpl implements QueueManagerFactory {
     @Override
     public QueueManager getQueueManager( UUID applicationId ) {
         QueueManagerImpl qm = new QueueManagerImpl();
-        qm.init( cass, counterUtils, lockManager, applicationId, lockTimeout );
+        qm.init( cass, counterUtils, lockManager, applicationId, lockTimeout, sharding );
         return qm;
         //return applicationContext.getAutowireCapableBeanFactory()
         //		.createBean(QueueManagerImpl.class)
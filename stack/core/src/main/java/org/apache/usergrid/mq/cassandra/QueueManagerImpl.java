@@ -51,6 +51,7 @@ import org.apache.usergrid.mq.cassandra.io.FilterSearch;
 import org.apache.usergrid.mq.cassandra.io.NoTransactionSearch;
 import org.apache.usergrid.mq.cassandra.io.QueueBounds;
 import org.apache.usergrid.mq.cassandra.io.QueueSearch;
+import org.apache.usergrid.mq.cassandra.io.QueueShardDirectory;
 import org.apache.usergrid.mq.cassandra.io.StartSearch;
 import org.apache.usergrid.persistence.AggregateCounter;
 import org.apache.usergrid.persistence.AggregateCounterSet;
@@ -69,15 +70,11 @@ import com.fasterxml.uuid.UUIDComparator;
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.AbstractComposite.ComponentEquality;
 import me.prettyprint.hector.api.beans.ColumnSlice;
-import me.prettyprint.hector.api.beans.CounterRow;
-import me.prettyprint.hector.api.beans.CounterRows;
 import me.prettyprint.hector.api.beans.CounterSlice;
 import me.prettyprint.hector.api.beans.DynamicComposite;
 import me.prettyprint.hector.api.beans.HColumn;
 import me.prettyprint.hector.api.beans.HCounterColumn;
-import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
-import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
 import me.prettyprint.hector.api.query.QueryResult;
 import me.prettyprint.hector.api.query.SliceCounterQuery;
 import me.prettyprint.hector.api.query.SliceQuery;
@@ -115,7 +112,6 @@ import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_PROPERTIES;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_SUBSCRIBERS;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_SUBSCRIPTIONS;
 import static org.apache.usergrid.persistence.Schema.DICTIONARY_COUNTERS;
-import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.RETRY_COUNT;
@@ -124,7 +120,6 @@ import static org.apache.usergrid.utils.CompositeUtils.setGreaterThanEqualityFla
 import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
 import static org.apache.usergrid.utils.IndexUtils.getKeyValueList;
 import static org.apache.usergrid.utils.MapUtils.emptyMapWithKeys;
-import static org.apache.usergrid.utils.NumberUtils.roundLong;
 import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMicros;
 import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
@@ -148,6 +143,7 @@ public class QueueManagerImpl implements QueueManager {
     private CounterUtils counterUtils;
     private LockManager lockManager;
     private int lockTimeout;
+    private QueueSharding sharding = new QueueSharding();
 
 
 
@@ -166,6 +162,14 @@ public class QueueManagerImpl implements QueueManager {
     }
 
 
+    public QueueManagerImpl init( CassandraService cass, CounterUtils counterUtils, LockManager lockManager,
+                                  UUID applicationId, int lockTimeout, QueueSharding sharding ) {
+        init( cass, counterUtils, lockManager, applicationId, lockTimeout );
+        this.sharding = sharding;
+        return this;
+    }
+
+
     @Override
     public Message getMessage( UUID messageId ) {
         SliceQuery<UUID, String, ByteBuffer> q =
@@ -190,13 +194,19 @@ public class QueueManagerImpl implements QueueManager {
 
         addMessageToMutator( batch, message, timestamp );
 
-        long shard_ts = roundLong( message.getTimestamp(), QUEUE_SHARD_INTERVAL );
+        QueueSharding.Settings shardSettings = sharding.getSettings( queuePath );
+
+        long shard_ts = shardSettings.getShardTimestamp( message.getTimestamp() );
 
         logger.debug( "Adding message with id '{}' to queue '{}'", message.getUuid(), queueId );
 
-        batch.addInsertion( getQueueShardRowKey( queueId, shard_ts ), QUEUE_INBOX.getColumnFamily(),
+        long sub_shard_ts = shardSettings.getSubShardTimestamp( shard_ts, message.getUuid() );
+
+        batch.addInsertion( getQueueShardRowKey( queueId, sub_shard_ts ), QUEUE_INBOX.getColumnFamily(),
                 createColumn( message.getUuid(), ByteBuffer.allocate( 0 ), timestamp, ue, be ) );
 
+        QueueShardDirectory.addToMutation( batch, queueId, shard_ts, shardSettings.getSubShards(), message.getUuid() );
+
         long oldest_ts = Long.MAX_VALUE - getTimestampInMicros( message.getUuid() );
         batch.addInsertion( bytebuffer( queueId ), QUEUE_PROPERTIES.getColumnFamily(),
                 createColumn( QUEUE_OLDEST, message.getUuid(), oldest_ts, se, ue ) );
@@ -745,15 +755,11 @@ public class QueueManagerImpl implements QueueManager {
         finish = resolution.round( finish );
         long expected_time = start;
         Keyspace ko = cass.getApplicationKeyspace( applicationId );
-        SliceCounterQuery<String, Long> q = createCounterSliceQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.getColumnFamily() );
-        q.setRange( start, finish, false, ALL_COUNT );
-        QueryResult<CounterSlice<Long>> r = q.setKey(
-                counterUtils.getAggregateCounterRow( counterName, null, null, queueId, category, resolution ) )
-                                             .execute();
+        String row = counterUtils.getAggregateCounterRow( counterName, null, null, queueId, category, resolution );
         List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-        for ( HCounterColumn<Long> column : r.get().getColumns() ) {
-            AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
+        for ( AggregateCounter count : counterUtils
+                .getAggregateCounters( ko, applicationId, Collections.singletonList( row ), resolution, start, finish )
+                .get( row ) ) {
             if ( pad && !( resolution == CounterResolution.ALL ) ) {
                 while ( count.getTimestamp() != expected_time ) {
                     counters.add( new AggregateCounter( expected_time, 0 ) );
@@ -813,17 +819,14 @@ public class QueueManagerImpl implements QueueManager {
             selections.put( selection.getRow( resolution ), selection );
         }
 
-        MultigetSliceCounterQuery<String, Long> q = HFactory.createMultigetSliceCounterQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.getColumnFamily() );
-        q.setRange( start, finish, false, ALL_COUNT );
-        QueryResult<CounterRows<String, Long>> rows = q.setKeys( selections.keySet() ).execute();
+        Map<String, List<AggregateCounter>> rows =
+                counterUtils.getAggregateCounters( ko, applicationId, selections.keySet(), resolution, start, finish );
 
         List<AggregateCounterSet> countSets = new ArrayList<AggregateCounterSet>();
-        for ( CounterRow<String, Long> r : rows.get() ) {
+        for ( Map.Entry<String, List<AggregateCounter>> r : rows.entrySet() ) {
             expected_time = start;
             List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-            for ( HCounterColumn<Long> column : r.getColumnSlice().getColumns() ) {
-                AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
+            for ( AggregateCounter count : r.getValue() ) {
                 if ( pad && ( resolution != CounterResolution.ALL ) ) {
                     while ( count.getTimestamp() != expected_time ) {
                         counters.add( new AggregateCounter( expected_time, 0 ) );
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.mq.cassandra;
+
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang.StringUtils;
+
+import static org.apache.usergrid.mq.Queue.normalizeQueuePath;
+import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
+import static org.apache.usergrid.utils.NumberUtils.roundLong;
+
+
+/**
+ * How the inbox of a queue is split into rows. Messages are bucketed by time into shards of the queue's interval, and
+ * each shard is split into sub shards by a hash of the message id, so the posts to a hot queue are spread over several
+ * rows instead of growing one wide row per day.
+ * <p/>
+ * Queues use a single sub shard per day unless overridden with a list of "path=interval[:subShards]" entries, e.g.
+ * "/jobs=3600000:4". Intervals are in milliseconds, must be whole seconds and can't be longer than a day, so readers
+ * never have to look further back than {@link QueueManagerImpl#QUEUE_SHARD_INTERVAL} for the shard holding a
+ * message. Changing the interval of a queue that still holds unread messages can return the messages posted around
+ * the change out of order.
+ */
+public class QueueSharding {
+
+    /** Sub shards are addressed by adding their number to the shard time, so it must stay below a second */
+    public static final int MAX_SUB_SHARDS = 1000;
+
+    public static final Settings DEFAULT_SETTINGS = new Settings( QUEUE_SHARD_INTERVAL, 1 );
+
+    private final Map<String, Settings> overrides;
+
+
+    public QueueSharding() {
+        overrides = Collections.emptyMap();
+    }
+
+
+    public QueueSharding( Map<String, Settings> overrides ) {
+        this.overrides = overrides;
+    }
+
+
+    /** Parse a comma separated list of "path=interval[:subShards]" overrides */
+    public static QueueSharding parse( String overrides ) {
+        if ( StringUtils.isBlank( overrides ) ) {
+            return new QueueSharding();
+        }
+
+        Map<String, Settings> settings = new HashMap<String, Settings>();
+
+        for ( String override : StringUtils.split( overrides, ',' ) ) {
+            String[] pathAndValue = StringUtils.split( override.trim(), '=' );
+            if ( pathAndValue.length != 2 ) {
+                throw new IllegalArgumentException( "Invalid queue shard override " + override );
+            }
+
+            String[] intervalAndSubShards = StringUtils.split( pathAndValue[1], ':' );
+            long interval = Long.parseLong( intervalAndSubShards[0].trim() );
+            int subShards = intervalAndSubShards.length > 1 ? Integer.parseInt( intervalAndSubShards[1].trim() ) : 1;
+
+            settings.put( normalizeQueuePath( pathAndValue[0].trim() ), new Settings( interval, subShards ) );
+        }
+
+        return new QueueSharding( settings );
+    }
+
+
+    /** Get the sharding of the queue */
+    public Settings getSettings( String queuePath ) {
+        Settings settings = overrides.get( normalizeQueuePath( queuePath ) );
+        return settings != null ? settings : DEFAULT_SETTINGS;
+    }
+
+
+    /** The shard interval and sub shard count of a queue */
+    public static class Settings {
+
+        private final long interval;
+        private final int subShards;
+
+
+        public Settings( long interval, int subShards ) {
+            if ( ( interval < 1000 ) || ( interval > QUEUE_SHARD_INTERVAL ) || ( interval % 1000 != 0 ) ) {
+                throw new IllegalArgumentException(
+                        "Queue shard interval must be whole seconds of at most a day, not " + interval );
+            }
+            if ( ( subShards < 1 ) || ( subShards >= MAX_SUB_SHARDS ) ) {
+                throw new IllegalArgumentException(
+                        "Queue sub shards must be between 1 and " + ( MAX_SUB_SHARDS - 1 ) + ", not " + subShards );
+            }
+            this.interval = interval;
+            this.subShards = subShards;
+        }
+
+
+        public long getInterval() {
+            return interval;
+        }
+
+
+        public int getSubShards() {
+            return subShards;
+        }
+
+
+        /** The time of the shard holding a message posted at the timestamp */
+        public long getShardTimestamp( long timestamp ) {
+            return roundLong( timestamp, interval );
+        }
+
+
+        /** The time in the inbox row key of the sub shard the message is written to */
+        public long getSubShardTimestamp( long shardTimestamp, UUID messageId ) {
+            return getSubShardTimestamp( shardTimestamp, ( messageId.hashCode() & Integer.MAX_VALUE ) % subShards );
+        }
+
+
+        /**
+         * Shard times are multiples of a second, so adding the sub shard number can't collide with another shard. The
+         * first sub shard uses the shard time itself, which is the row key queues used before sub shards.
+         */
+        public static long getSubShardTimestamp( long shardTimestamp, int subShard ) {
+            return shardTimestamp + subShard;
+        }
+    }
+}
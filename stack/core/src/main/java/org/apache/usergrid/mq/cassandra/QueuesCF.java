@@ -37,6 +37,9 @@ public enum QueuesCF implements CFEnum {
 
     QUEUE_INBOX( "Queue_Inbox", "UUIDType" ),
 
+    /** The inbox shards of each queue by shard time, with their oldest and newest message and sub shard count */
+    QUEUE_SHARDS( "Queue_Shards", "LongType" ),
+
     QUEUE_DICTIONARIES( "Queue_Dictionaries", "BytesType" ),
 
     QUEUE_SUBSCRIBERS( "Queue_Subscribers", "BytesType" ),
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -32,10 +33,13 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.mq.Message;
 import org.apache.usergrid.mq.QueueResults;
 import org.apache.usergrid.mq.cassandra.io.NoTransactionSearch.SearchParam;
+import org.apache.usergrid.persistence.cassandra.CassandraService;
 import org.apache.usergrid.persistence.exceptions.QueueException;
 import org.apache.usergrid.persistence.hector.CountingMutator;
 import org.apache.usergrid.utils.UUIDUtils;
 
+import com.fasterxml.uuid.UUIDComparator;
+
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.ColumnSlice;
 import me.prettyprint.hector.api.beans.HColumn;
@@ -52,17 +56,12 @@ import static me.prettyprint.hector.api.factory.HFactory.createSliceQuery;
 import static org.apache.usergrid.mq.Queue.QUEUE_NEWEST;
 import static org.apache.usergrid.mq.Queue.QUEUE_OLDEST;
 import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.deserializeMessage;
-import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getQueueShardRowKey;
 import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.ALL_COUNT;
-import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.CONSUMERS;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.MESSAGE_PROPERTIES;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_INBOX;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_PROPERTIES;
-import static org.apache.usergrid.utils.NumberUtils.roundLong;
-import static org.apache.usergrid.utils.UUIDUtils.MAX_TIME_UUID;
-import static org.apache.usergrid.utils.UUIDUtils.MIN_TIME_UUID;
-import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMillis;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 
 
@@ -72,6 +71,10 @@ public abstract class AbstractSearch implements QueueSearch
 
     private static final Logger logger = LoggerFactory.getLogger( AbstractSearch.class );
 
+    private static final Comparator<UUID> UUID_COMPARATOR = new UUIDComparator();
+
+    private static final Comparator<UUID> REVERSED_UUID_COMPARATOR = Collections.reverseOrder( UUID_COMPARATOR );
+
     protected Keyspace ko;
 
 
@@ -184,51 +187,28 @@ public abstract class AbstractSearch implements QueueSearch
             return results;
         }
 
-        long start_ts_shard = roundLong( getTimestampInMillis( start ), QUEUE_SHARD_INTERVAL );
-
-        long finish_ts_shard = roundLong( getTimestampInMillis( finish_uuid ), QUEUE_SHARD_INTERVAL );
+        Comparator<UUID> comparator = params.reversed ? REVERSED_UUID_COMPARATOR : UUID_COMPARATOR;
 
-        long current_ts_shard = start_ts_shard;
-        if ( params.reversed )
+        if ( comparator.compare( start, finish_uuid ) > 0 )
         {
-            current_ts_shard = finish_ts_shard;
+            return results;
         }
 
-        while ( ( current_ts_shard >= start_ts_shard ) && ( current_ts_shard <= finish_ts_shard ) )
-        {
-
-            UUID slice_start = MIN_TIME_UUID;
-            UUID slice_end = MAX_TIME_UUID;
-
-            if ( current_ts_shard == start_ts_shard )
-            {
-                slice_start = start;
-            }
-
-            if ( current_ts_shard == finish_ts_shard )
-            {
-                slice_end = finish_uuid;
-            }
+        Iterator<QueueShard> shards =
+                new QueueShardDirectory( ko ).getShards( queueId, start, finish_uuid, params.reversed );
 
-            SliceQuery<ByteBuffer, UUID, ByteBuffer> q = createSliceQuery( ko, be, ue, be );
-            q.setColumnFamily( QUEUE_INBOX.getColumnFamily() );
-            q.setKey( getQueueShardRowKey( queueId, current_ts_shard ) );
-            q.setRange( slice_start, slice_end, params.reversed, params.limit + 1 );
-
-            List<HColumn<UUID, ByteBuffer>> cassResults = q.execute().get().getColumns();
+        while ( shards.hasNext() )
+        {
+            QueueShard shard = shards.next();
 
-            for ( int i = 0; i < cassResults.size(); i++ )
+            for ( UUID id : getShardRange( queueId, shard, start, finish_uuid, params, comparator ) )
             {
-                HColumn<UUID, ByteBuffer> column = cassResults.get( i );
-
                 // skip the first one, we've already read it
-                if ( i == 0 && params.skipFirst && params.startId.equals( column.getName() ) )
+                if ( params.skipFirst && params.startId.equals( id ) )
                 {
                     continue;
                 }
 
-                UUID id = column.getName();
-
                 results.add( id );
 
                 logger.debug( "Added id '{}' to result set for queue id '{}'", id, queueId );
@@ -238,21 +218,58 @@ public abstract class AbstractSearch implements QueueSearch
                     return results;
                 }
             }
-
-            if ( params.reversed )
-            {
-                current_ts_shard -= QUEUE_SHARD_INTERVAL;
-            }
-            else
-            {
-                current_ts_shard += QUEUE_SHARD_INTERVAL;
-            }
         }
 
         return results;
     }
 
 
+    /** Read the ids between start and finish from every sub shard of the shard, merged into reading order */
+    private List<UUID> getShardRange( UUID queueId, QueueShard shard, UUID start, UUID finish, SearchParam params,
+                                      Comparator<UUID> comparator )
+    {
+        List<ByteBuffer> keys = shard.getRowKeys( queueId );
+
+        if ( keys.size() == 1 )
+        {
+            SliceQuery<ByteBuffer, UUID, ByteBuffer> q = createSliceQuery( ko, be, ue, be );
+            q.setColumnFamily( QUEUE_INBOX.getColumnFamily() );
+            q.setKey( keys.get( 0 ) );
+            q.setRange( start, finish, params.reversed, params.limit + 1 );
+
+            return getColumnNames( q.execute().get().getColumns() );
+        }
+
+        Rows<ByteBuffer, UUID, ByteBuffer> rows =
+                createMultigetSliceQuery( ko, be, ue, be ).setColumnFamily( QUEUE_INBOX.getColumnFamily() )
+                        .setKeys( keys ).setRange( start, finish, params.reversed, params.limit + 1 ).execute().get();
+
+        List<UUID> ids = new ArrayList<UUID>();
+
+        for ( Row<ByteBuffer, UUID, ByteBuffer> row : rows )
+        {
+            ids.addAll( getColumnNames( row.getColumnSlice().getColumns() ) );
+        }
+
+        Collections.sort( ids, comparator );
+
+        return ids;
+    }
+
+
+    private static List<UUID> getColumnNames( List<HColumn<UUID, ByteBuffer>> columns )
+    {
+        List<UUID> names = new ArrayList<UUID>( columns.size() );
+
+        for ( HColumn<UUID, ByteBuffer> column : columns )
+        {
+            names.add( column.getName() );
+        }
+
+        return names;
+    }
+
+
     /**
      * Get the bounds for the queue
      *
@@ -314,7 +331,7 @@ public abstract class AbstractSearch implements QueueSearch
         mutator.addInsertion( consumerId, CONSUMERS.getColumnFamily(),
                 createColumn( queueId, lastReturnedId, colTimestamp, ue, ue ) );
 
-        mutator.execute();
+        batchExecute( mutator, CassandraService.RETRY_COUNT );
     }
 
 
@@ -50,6 +50,7 @@ import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getConsumerId;
 import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getQueueClientTransactionKey;
 import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getQueueId;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.CONSUMER_QUEUE_TIMEOUTS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 
 /**
@@ -135,7 +136,7 @@ public class ConsumerTransaction extends NoTransactionSearch
         mutator.addInsertion( key, CONSUMER_QUEUE_TIMEOUTS.getColumnFamily(),
                 createColumn( expirationId, messageId, cass.createTimestamp(), ue, ue ) );
 
-        mutator.execute();
+        batchExecute( mutator, CassandraService.RETRY_COUNT );
 
         // now delete the old value
         deleteTransaction( queueId, consumerId, origTrans );
@@ -170,7 +171,7 @@ public class ConsumerTransaction extends NoTransactionSearch
         mutator.addDeletion( key, CONSUMER_QUEUE_TIMEOUTS.getColumnFamily(), transactionId, ue,
                 cass.createTimestamp() );
 
-        mutator.execute();
+        batchExecute( mutator, CassandraService.RETRY_COUNT );
     }
 
 
@@ -393,7 +394,7 @@ public class ConsumerTransaction extends NoTransactionSearch
             mutator.addDeletion( key, CONSUMER_QUEUE_TIMEOUTS.getColumnFamily(), pointer, ue, cass.createTimestamp() );
         }
 
-        mutator.execute();
+        batchExecute( mutator, CassandraService.RETRY_COUNT );
     }
 
 
@@ -438,7 +439,7 @@ public class ConsumerTransaction extends NoTransactionSearch
             counter++;
         }
 
-        mutator.execute();
+        batchExecute( mutator, CassandraService.RETRY_COUNT );
     }
 
 
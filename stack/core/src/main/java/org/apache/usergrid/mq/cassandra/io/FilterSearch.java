@@ -43,13 +43,10 @@ import static me.prettyprint.hector.api.factory.HFactory.createSliceQuery;
 import static org.apache.usergrid.mq.Queue.getQueueId;
 import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getConsumerId;
 import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.DEFAULT_SEARCH_COUNT;
-import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
 import static org.apache.usergrid.mq.cassandra.QueuesCF.PROPERTY_INDEX;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
 import static org.apache.usergrid.utils.CompositeUtils.setEqualityFlag;
 import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
-import static org.apache.usergrid.utils.NumberUtils.roundLong;
-import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMillis;
 
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 
@@ -164,17 +161,6 @@ public class FilterSearch extends NoTransactionSearch
             return uuid_set;
         }
 
-        long start_ts_shard = roundLong( getTimestampInMillis( start_uuid ), QUEUE_SHARD_INTERVAL );
-
-        long finish_ts_shard = roundLong( getTimestampInMillis( finish_uuid ), QUEUE_SHARD_INTERVAL );
-
-        long current_ts_shard = start_ts_shard;
-
-        if ( reversed )
-        {
-            current_ts_shard = finish_ts_shard;
-        }
-
         ByteBuffer start = null;
         if ( slice.getCursor() != null )
         {
@@ -201,9 +187,13 @@ public class FilterSearch extends NoTransactionSearch
             finish = f.serialize();
         }
 
-        while ( ( current_ts_shard >= start_ts_shard ) && ( current_ts_shard <= finish_ts_shard ) && ( uuid_set.size()
-                < DEFAULT_SEARCH_COUNT ) )
+        Iterator<QueueShard> shards =
+                new QueueShardDirectory( ko ).getShards( queueId, start_uuid, finish_uuid, reversed );
+
+        while ( shards.hasNext() && ( uuid_set.size() < DEFAULT_SEARCH_COUNT ) )
         {
+            // the index rows of a shard aren't split into sub shards
+            long current_ts_shard = shards.next().getTimestamp();
 
             while ( true )
             {
@@ -227,15 +217,6 @@ public class FilterSearch extends NoTransactionSearch
 
                 start = results.get( results.size() - 1 ).getName().duplicate();
             }
-
-            if ( reversed )
-            {
-                current_ts_shard -= QUEUE_SHARD_INTERVAL;
-            }
-            else
-            {
-                current_ts_shard += QUEUE_SHARD_INTERVAL;
-            }
         }
 
         // trim the results
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.mq.cassandra.io;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.usergrid.mq.cassandra.QueueSharding;
+
+import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getQueueShardRowKey;
+
+
+/** An inbox shard of a queue, as recorded in the shard directory */
+public class QueueShard
+{
+
+    private final long timestamp;
+    private final int subShards;
+    private final UUID oldest;
+    private final UUID newest;
+
+
+    /**
+     * @param timestamp The shard time
+     * @param subShards The number of sub shards messages were written to
+     * @param oldest The oldest message in the shard, null if unknown
+     * @param newest The newest message in the shard, null if unknown
+     */
+    public QueueShard( long timestamp, int subShards, UUID oldest, UUID newest )
+    {
+        this.timestamp = timestamp;
+        this.subShards = subShards;
+        this.oldest = oldest;
+        this.newest = newest;
+    }
+
+
+    /** The shard time, also used in the keys of the property index rows of the shard */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    public int getSubShards()
+    {
+        return subShards;
+    }
+
+
+    public UUID getOldest()
+    {
+        return oldest;
+    }
+
+
+    public UUID getNewest()
+    {
+        return newest;
+    }
+
+
+    /** The inbox row keys of every sub shard */
+    public List<ByteBuffer> getRowKeys( UUID queueId )
+    {
+        List<ByteBuffer> keys = new ArrayList<ByteBuffer>( subShards );
+
+        for ( int i = 0; i < subShards; i++ )
+        {
+            keys.add( getQueueShardRowKey( queueId, QueueSharding.Settings.getSubShardTimestamp( timestamp, i ) ) );
+        }
+
+        return keys;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "QueueShard [timestamp=" + timestamp + ", subShards=" + subShards + ", oldest=" + oldest + ", newest="
+                + newest + "]";
+    }
+}
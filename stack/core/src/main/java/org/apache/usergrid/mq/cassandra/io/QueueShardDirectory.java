@@ -0,0 +1,463 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.mq.cassandra.io;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.uuid.UUIDComparator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.beans.HColumn;
+import me.prettyprint.hector.api.beans.Row;
+import me.prettyprint.hector.api.beans.Rows;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createMultigetSliceQuery;
+import static me.prettyprint.hector.api.factory.HFactory.createSliceQuery;
+import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
+import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_SHARDS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
+import static org.apache.usergrid.utils.NumberUtils.roundLong;
+import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMicros;
+import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMillis;
+import static org.apache.usergrid.persistence.cassandra.Serializers.*;
+
+
+/**
+ * The directory of the inbox shards of each queue. Every post records its shard along with the oldest and newest
+ * message in it, using the same column timestamp trick as the queue bounds so the extremes win whatever the order of
+ * the writes. Readers page through the shards that exist in the range they read instead of stepping through every
+ * interval, so the empty intervals of a quiet queue or of a queue with short shards cost nothing.
+ * <p/>
+ * Queues written before the directory existed have no entries for their older shards. Those are read the old way, a
+ * day at a time, up to the first shard in the directory. During a rolling upgrade nodes of the older version keep
+ * posting to the day rows without adding them to the directory, so by default the day row of every day in the range
+ * that has no directory entry is read as well. Once every node is upgraded this can be turned off with {@link
+ * #setLegacyScan(boolean)}, so the empty days of a quiet queue are skipped.
+ * <p/>
+ * Directory entries expire after {@link #setTtl(int)} seconds. Day rows stay readable after that through the day
+ * scan, but the older shards of a queue with its own interval or sub shards can't be read any more.
+ */
+public class QueueShardDirectory
+{
+
+    private static final Logger logger = LoggerFactory.getLogger( QueueShardDirectory.class );
+
+    public static final String SHARD_OLDEST = "shard_oldest";
+    public static final String SHARD_NEWEST = "shard_newest";
+    public static final String SHARD_SUB_SHARDS = "shard_sub_shards";
+
+    private static final int PAGE_SIZE = 100;
+
+    /** The first shard in the directory of a queue only moves when its entries expire */
+    private static final Cache<String, Long> firstShards =
+            CacheBuilder.newBuilder().maximumSize( 10000 ).expireAfterWrite( 1, TimeUnit.HOURS ).build();
+
+    private static volatile boolean legacyScan = true;
+
+    private static volatile int ttl = 0;
+
+    private final Keyspace ko;
+
+
+    public QueueShardDirectory( Keyspace ko )
+    {
+        this.ko = ko;
+    }
+
+
+    /** Set whether the day rows of days without a directory entry are read, true while older nodes still post */
+    public static void setLegacyScan( boolean legacyScan )
+    {
+        QueueShardDirectory.legacyScan = legacyScan;
+    }
+
+
+    /** Set the seconds the directory entries are kept, 0 keeps them forever */
+    public static void setTtl( int ttl )
+    {
+        QueueShardDirectory.ttl = ttl;
+    }
+
+
+    /** Record that the message was written to the shard */
+    public static void addToMutation( Mutator<ByteBuffer> batch, UUID queueId, long shardTimestamp, int subShards,
+                                      UUID messageId )
+    {
+        long micros = getTimestampInMicros( messageId );
+
+        batch.addInsertion( bytebuffer( key( queueId, SHARD_OLDEST ) ), QUEUE_SHARDS.getColumnFamily(),
+                withTtl( createColumn( shardTimestamp, messageId, Long.MAX_VALUE - micros, le, ue ) ) );
+
+        batch.addInsertion( bytebuffer( key( queueId, SHARD_NEWEST ) ), QUEUE_SHARDS.getColumnFamily(),
+                withTtl( createColumn( shardTimestamp, messageId, micros, le, ue ) ) );
+
+        // the highest count wins, so readers don't miss a sub shard if the count is raised during a shard
+        batch.addInsertion( bytebuffer( key( queueId, SHARD_SUB_SHARDS ) ), QUEUE_SHARDS.getColumnFamily(),
+                withTtl( createColumn( shardTimestamp, ( long ) subShards, subShards, le, le ) ) );
+    }
+
+
+    private static <V> HColumn<Long, V> withTtl( HColumn<Long, V> column )
+    {
+        if ( ttl > 0 )
+        {
+            column.setTtl( ttl );
+        }
+        return column;
+    }
+
+
+    /**
+     * Get the shards that can hold messages between start and finish, in the order they should be read
+     *
+     * @param queueId The queue
+     * @param start The message reading starts from
+     * @param finish The message reading ends at
+     * @param reversed True if reading from the newest message to the oldest
+     */
+    public Iterator<QueueShard> getShards( UUID queueId, UUID start, UUID finish, boolean reversed )
+    {
+        return new ShardIterator( queueId, start, finish, reversed );
+    }
+
+
+    /** Get the time of the first shard in the directory of the queue, or null if it has none */
+    protected Long getFirstShard( UUID queueId )
+    {
+        String cacheKey = ko.getKeyspaceName() + "/" + queueId;
+
+        Long first = firstShards.getIfPresent( cacheKey );
+
+        if ( first != null )
+        {
+            return first;
+        }
+
+        List<HColumn<Long, ByteBuffer>> columns =
+                createSliceQuery( ko, be, le, be ).setColumnFamily( QUEUE_SHARDS.getColumnFamily() )
+                        .setKey( bytebuffer( key( queueId, SHARD_NEWEST ) ) ).setRange( null, null, false, 1 )
+                        .execute().get().getColumns();
+
+        if ( columns.isEmpty() )
+        {
+            return null;
+        }
+
+        first = columns.get( 0 ).getName();
+        firstShards.put( cacheKey, first );
+
+        return first;
+    }
+
+
+    /**
+     * Pages through the directory. Shards are sorted by their oldest (or newest, when reversed) message within a page,
+     * which keeps the order when a queue's interval was changed and its shards overlap in time.
+     */
+    private class ShardIterator implements Iterator<QueueShard>
+    {
+
+        private final UUID queueId;
+        private final UUID low;
+        private final UUID high;
+        private final boolean reversed;
+
+        /** A shard is never longer than a day, one starting a day or more before the low message can't hold it */
+        private final long lowColumn;
+        private final long highColumn;
+
+        private final ByteBuffer oldestKey;
+        private final ByteBuffer newestKey;
+        private final ByteBuffer subShardsKey;
+
+        /** The next day row to read the old way, and the last one, in reading order */
+        private long legacyDay;
+        private final long legacyEnd;
+
+        private long cursor;
+        private boolean directoryDone;
+        private Iterator<QueueShard> page;
+        private QueueShard pending;
+        private final Set<Long> directoryDays = new HashSet<Long>();
+        private QueueShard next;
+
+
+        private ShardIterator( UUID queueId, UUID start, UUID finish, boolean reversed )
+        {
+            this.queueId = queueId;
+            this.reversed = reversed;
+
+            low = reversed ? finish : start;
+            high = reversed ? start : finish;
+
+            lowColumn = getTimestampInMillis( low ) - QUEUE_SHARD_INTERVAL + 1;
+            highColumn = getTimestampInMillis( high );
+
+            cursor = reversed ? highColumn : lowColumn;
+
+            oldestKey = bytebuffer( key( queueId, SHARD_OLDEST ) );
+            newestKey = bytebuffer( key( queueId, SHARD_NEWEST ) );
+            subShardsKey = bytebuffer( key( queueId, SHARD_SUB_SHARDS ) );
+
+            Long firstShard = getFirstShard( queueId );
+
+            directoryDone = firstShard == null;
+
+            long firstDay = roundLong( getTimestampInMillis( low ), QUEUE_SHARD_INTERVAL );
+            long lastDay = roundLong( highColumn, QUEUE_SHARD_INTERVAL );
+
+            // without the scan, only the days before the directory are read the old way
+            if ( !legacyScan && ( firstShard != null ) )
+            {
+                lastDay = Math.min( lastDay, roundLong( firstShard - 1, QUEUE_SHARD_INTERVAL ) );
+            }
+
+            legacyDay = reversed ? lastDay : firstDay;
+            legacyEnd = reversed ? firstDay : lastDay;
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( next == null )
+            {
+                next = advance();
+            }
+
+            return next != null;
+        }
+
+
+        @Override
+        public QueueShard next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+
+            QueueShard shard = next;
+            next = null;
+            return shard;
+        }
+
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException( "Shards can't be removed" );
+        }
+
+
+        /** Merge the day rows read the old way into the directory shards, by time in reading order */
+        private QueueShard advance()
+        {
+            QueueShard shard = peekDirectory();
+
+            while ( reversed ? legacyDay >= legacyEnd : legacyDay <= legacyEnd )
+            {
+                long day = legacyDay;
+
+                if ( ( shard != null ) && ( reversed ? day < shard.getTimestamp() : day > shard.getTimestamp() ) )
+                {
+                    break;
+                }
+
+                legacyDay = reversed ? day - QUEUE_SHARD_INTERVAL : day + QUEUE_SHARD_INTERVAL;
+
+                // a day in the directory is read from there
+                if ( !directoryDays.contains( day ) )
+                {
+                    return new QueueShard( day, 1, null, null );
+                }
+            }
+
+            pending = null;
+            return shard;
+        }
+
+
+        private QueueShard peekDirectory()
+        {
+            while ( pending == null )
+            {
+                if ( ( page != null ) && page.hasNext() )
+                {
+                    pending = page.next();
+                }
+                else if ( !directoryDone )
+                {
+                    page = loadPage().iterator();
+                }
+                else
+                {
+                    break;
+                }
+            }
+
+            return pending;
+        }
+
+
+        private List<QueueShard> loadPage()
+        {
+            if ( reversed ? cursor < lowColumn : cursor > highColumn )
+            {
+                directoryDone = true;
+                return Collections.emptyList();
+            }
+
+            Rows<ByteBuffer, Long, ByteBuffer> rows =
+                    createMultigetSliceQuery( ko, be, le, be ).setColumnFamily( QUEUE_SHARDS.getColumnFamily() )
+                            .setKeys( oldestKey, newestKey, subShardsKey )
+                            .setRange( cursor, reversed ? lowColumn : highColumn, reversed, PAGE_SIZE ).execute()
+                            .get();
+
+            List<HColumn<Long, ByteBuffer>> newest = getColumns( rows, newestKey );
+            Map<Long, ByteBuffer> oldest = getColumnMap( rows, oldestKey );
+            Map<Long, ByteBuffer> subShards = getColumnMap( rows, subShardsKey );
+
+            if ( newest.size() < PAGE_SIZE )
+            {
+                directoryDone = true;
+            }
+            else
+            {
+                long last = newest.get( newest.size() - 1 ).getName();
+                cursor = reversed ? last - 1 : last + 1;
+            }
+
+            List<QueueShard> shards = new ArrayList<QueueShard>( newest.size() );
+
+            for ( HColumn<Long, ByteBuffer> column : newest )
+            {
+                long timestamp = column.getName();
+
+                UUID shardNewest = ue.fromByteBuffer( column.getValue() );
+                UUID shardOldest = null;
+                int shardSubShards = 1;
+
+                if ( oldest.containsKey( timestamp ) )
+                {
+                    shardOldest = ue.fromByteBuffer( oldest.get( timestamp ) );
+                }
+
+                if ( subShards.containsKey( timestamp ) )
+                {
+                    shardSubShards = le.fromByteBuffer( subShards.get( timestamp ) ).intValue();
+                }
+
+                // nothing in the range we read
+                if ( UUIDComparator.staticCompare( shardNewest, low ) < 0 || ( shardOldest != null
+                        && UUIDComparator.staticCompare( shardOldest, high ) > 0 ) )
+                {
+                    continue;
+                }
+
+                shards.add( new QueueShard( timestamp, shardSubShards, shardOldest, shardNewest ) );
+                directoryDays.add( timestamp );
+            }
+
+            Collections.sort( shards, new ReadOrderComparator( reversed ) );
+
+            if ( logger.isDebugEnabled() )
+            {
+                logger.debug( "Read {} shards for queue '{}' from the directory", shards.size(), queueId );
+            }
+
+            return shards;
+        }
+    }
+
+
+    private static List<HColumn<Long, ByteBuffer>> getColumns( Rows<ByteBuffer, Long, ByteBuffer> rows,
+                                                               ByteBuffer key )
+    {
+        Row<ByteBuffer, Long, ByteBuffer> row = rows.getByKey( key );
+
+        if ( row == null )
+        {
+            return Collections.emptyList();
+        }
+
+        return row.getColumnSlice().getColumns();
+    }
+
+
+    private static Map<Long, ByteBuffer> getColumnMap( Rows<ByteBuffer, Long, ByteBuffer> rows, ByteBuffer key )
+    {
+        Map<Long, ByteBuffer> columns = new HashMap<Long, ByteBuffer>();
+
+        for ( HColumn<Long, ByteBuffer> column : getColumns( rows, key ) )
+        {
+            columns.put( column.getName(), column.getValue() );
+        }
+
+        return columns;
+    }
+
+
+    /** Oldest message first, or newest message first when reversed */
+    private static class ReadOrderComparator implements Comparator<QueueShard>
+    {
+
+        private final boolean reversed;
+
+
+        private ReadOrderComparator( boolean reversed )
+        {
+            this.reversed = reversed;
+        }
+
+
+        @Override
+        public int compare( QueueShard s1, QueueShard s2 )
+        {
+            if ( reversed )
+            {
+                return UUIDComparator.staticCompare( s2.getNewest(), s1.getNewest() );
+            }
+
+            UUID o1 = s1.getOldest() != null ? s1.getOldest() : s1.getNewest();
+            UUID o2 = s2.getOldest() != null ? s2.getOldest() : s2.getNewest();
+
+            return UUIDComparator.staticCompare( o1, o2 );
+        }
+    }
+}
@@ -84,6 +84,21 @@ public interface EntityManager {
      */
     public Entity create( UUID importId, String entityType, Map<String, Object> properties ) throws Exception;
 
+    /**
+     * Creates several entities of the specified type with grouped mutations instead of a round trip per entity.
+     * All the entities are validated, including their unique properties against each other, before anything is
+     * written. A large batch is written in several mutations of whole entities, if one of them fails the entities
+     * written by the mutations before it are kept.
+     *
+     * @param entityType the type of the entities to create.
+     * @param properties the property values of each new entity.
+     *
+     * @return the newly created entity objects, in the order of the property maps.
+     *
+     * @throws Exception the exception
+     */
+    public List<Entity> createEntities( String entityType, List<Map<String, Object>> properties ) throws Exception;
+
     public void createApplicationCollection( String entityType ) throws Exception;
 
     public EntityRef getAlias( String aliasType, String alias ) throws Exception;
@@ -109,6 +124,17 @@ public interface EntityManager {
     public Map<String, EntityRef> getAlias( UUID ownerId, String collectionName, List<String> aliases )
             throws Exception;
 
+    /**
+     * Get the entities of the application's collection that have the given values of a unique property, read from the
+     * unique index with one multiget
+     *
+     * @param collectionName The name of the collection
+     * @param propertyName The unique property
+     * @param values The values of the property
+     */
+    public Map<String, EntityRef> getUniqueRefs( String collectionName, String propertyName, List<String> values )
+            throws Exception;
+
     /**
      * Validates that the entity exists in the datastore meaning that it exists and the type has been loaded if not
      * already provided.
@@ -261,6 +287,19 @@ public interface EntityManager {
      */
     public Set<Object> getDictionaryAsSet( EntityRef entityRef, String dictionaryName ) throws Exception;
 
+    /**
+     * Gets several dictionaries of the entity, the dictionaries are read in parallel.
+     *
+     * @param entityRef an entity reference
+     * @param dictionaryNames the dictionaries to retrieve
+     *
+     * @return the values of each dictionary by dictionary name
+     *
+     * @throws Exception the exception
+     */
+    public Map<String, Set<Object>> getDictionariesAsSets( EntityRef entityRef, Collection<String> dictionaryNames )
+            throws Exception;
+
     /**
      * Adds the specified value to the named entity list property. Lists are a special type of entity property that can
      * contain an unordered set of non-duplicate values.
@@ -331,6 +370,16 @@ public interface EntityManager {
      */
     public boolean isCollectionMember( EntityRef owner, String collectionName, EntityRef entity ) throws Exception;
 
+    /**
+     * Return the ids of the entities that are in the owner's collection, checked for all of them at once
+     *
+     * @param owner The owner of the collection
+     * @param collectionName The collection name
+     * @param entityIds The entities to check
+     */
+    public Set<UUID> getCollectionMembers( EntityRef owner, String collectionName, List<UUID> entityIds )
+            throws Exception;
+
     /**
      * Return true if the owner entity ref is an owner of the entity;
      *
@@ -372,6 +421,20 @@ public interface EntityManager {
     public Results getCollection( UUID entityId, String collectionName, Query query, Results.Level resultsLevel )
             throws Exception;
 
+    /**
+     * Gets the first page of the same collection of several entities, the collections are read in parallel.
+     *
+     * @param entityRefs the owners of the collections
+     * @param collectionName the collection name
+     * @param count the maximum number of members read per owner
+     *
+     * @return the collection of each owner by owner id
+     *
+     * @throws Exception the exception
+     */
+    public Map<UUID, Results> getCollections( List<? extends EntityRef> entityRefs, String collectionName, int count,
+                                              Results.Level resultsLevel ) throws Exception;
+
     /**
      * Adds an entity to the specified collection belonging to the specified entity entity.
      *
@@ -469,6 +532,23 @@ public interface EntityManager {
     public Results getConnectedEntities( UUID entityId, String connectionType, String connectedEntityType,
                                          Results.Level resultsLevel ) throws Exception;
 
+    /**
+     * Gets the entities connected to any of the specified entities with the connection type, reading the connections
+     * of all of them at once. Each connected entity is returned once, and the entities are loaded with one read when
+     * the results level asks for them.
+     *
+     * @param entityIds the entities to follow the connections from
+     * @param connectionType type of connection.
+     * @param connectedEntityType type of entity or null.
+     * @param count the most connections followed from each entity.
+     *
+     * @return the connections, or the connected entities with their properties.
+     *
+     * @throws Exception the exception
+     */
+    public Results getConnectedEntities( List<UUID> entityIds, String connectionType, String connectedEntityType,
+                                         Results.Level resultsLevel, int count ) throws Exception;
+
     /**
      * Gets the entities connecting to this entity, optionally with the specified connection type and/or entity type.
      * <p/>
@@ -517,6 +597,9 @@ public interface EntityManager {
 
     public Set<String> getRolePermissions( String roleName ) throws Exception;
 
+    /** Get the permissions of every role, the roles are read in parallel */
+    public Map<String, Set<String>> getRolesPermissions( Collection<String> roleNames ) throws Exception;
+
     public void deleteRole( String roleName ) throws Exception;
 
     // Group roles
@@ -22,6 +22,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -55,6 +56,9 @@ import org.apache.usergrid.persistence.query.tree.QueryFilterLexer;
 import org.apache.usergrid.persistence.query.tree.QueryFilterParser;
 import org.apache.usergrid.utils.JsonUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import static org.apache.commons.codec.binary.Base64.decodeBase64;
 import static org.apache.commons.lang.StringUtils.isBlank;
 import static org.apache.commons.lang.StringUtils.split;
@@ -78,6 +82,16 @@ public class Query {
 
     public static final int MAX_LIMIT = 1000;
 
+    /** The number of parsed ql strings that are kept */
+    public static final int QL_CACHE_SIZE = 1000;
+
+    /**
+     * Queries parsed from ql, keyed by the text the parser reads. These are never handed out, only copies of them.
+     * The copies share the operand trees, which are only read once parsed.
+     */
+    private static final Cache<String, Query> PARSED_QL =
+            CacheBuilder.newBuilder().maximumSize( QL_CACHE_SIZE ).build();
+
     private String type;
     private List<SortPredicate> sortPredicates = new ArrayList<SortPredicate>();
     private Operand rootOperand;
@@ -95,11 +109,13 @@ public class Query {
     private Long startTime;
     private Long finishTime;
     private boolean pad;
+    private boolean distinct;
     private CounterResolution resolution = CounterResolution.ALL;
     private List<Identifier> identifiers;
     private List<CounterFilterPredicate> counterFilters;
     private String collection;
     private String ql;
+    private long parseTime;
 
 
     public Query() {
@@ -125,11 +141,13 @@ public class Query {
             finishTime = q.finishTime;
             resolution = q.resolution;
             pad = q.pad;
+            distinct = q.distinct;
             rootOperand = q.rootOperand;
             identifiers = q.identifiers != null ? new ArrayList<Identifier>( q.identifiers ) : null;
             counterFilters =
                     q.counterFilters != null ? new ArrayList<CounterFilterPredicate>( q.counterFilters ) : null;
             collection = q.collection;
+            parseTime = q.parseTime;
         }
     }
 
@@ -138,6 +156,7 @@ public class Query {
         if ( ql == null ) {
             return null;
         }
+        long startTime = System.nanoTime();
         String originalQl = ql;
         ql = ql.trim();
 
@@ -152,29 +171,41 @@ public class Query {
             }
         }
 
-        ANTLRStringStream in = new ANTLRStringStream( qlt.trim() );
-        QueryFilterLexer lexer = new QueryFilterLexer( in );
-        CommonTokenStream tokens = new CommonTokenStream( lexer );
-        QueryFilterParser parser = new QueryFilterParser( tokens );
+        // the parser reads the lower cased ql, so queries that only differ in case share an entry
+        String parsedQl = qlt.trim();
 
-        try {
-            Query q = parser.ql().query;
-            q.setQl( originalQl );
-            return q;
-        }
-        catch ( RecognitionException e ) {
-            logger.error( "Unable to parse \"{}\"", ql, e );
+        Query parsed = PARSED_QL.getIfPresent( parsedQl );
+
+        if ( parsed == null ) {
+            ANTLRStringStream in = new ANTLRStringStream( parsedQl );
+            QueryFilterLexer lexer = new QueryFilterLexer( in );
+            CommonTokenStream tokens = new CommonTokenStream( lexer );
+            QueryFilterParser parser = new QueryFilterParser( tokens );
+
+            try {
+                parsed = parser.ql().query;
+            }
+            catch ( RecognitionException e ) {
+                logger.error( "Unable to parse \"{}\"", ql, e );
 
-            int index = e.index;
-            int lineNumber = e.line;
-            Token token = e.token;
+                int index = e.index;
+                int lineNumber = e.line;
+                Token token = e.token;
 
-            String message = String.format(
-                    "The query cannot be parsed. The token '%s' at column %d on line %d cannot be " + "parsed",
-                    token.getText(), index, lineNumber );
+                String message = String.format(
+                        "The query cannot be parsed. The token '%s' at column %d on line %d cannot be " + "parsed",
+                        token.getText(), index, lineNumber );
 
-            throw new QueryParseException( message, e );
+                throw new QueryParseException( message, e );
+            }
+
+            PARSED_QL.put( parsedQl, parsed );
         }
+
+        Query q = new Query( parsed );
+        q.setQl( originalQl );
+        q.parseTime = System.nanoTime() - startTime;
+        return q;
     }
 
 
@@ -226,6 +257,7 @@ public class Query {
         }
 
         Boolean pad = firstBoolean( params.get( "pad" ) );
+        Boolean distinct = firstBoolean( params.get( "distinct" ) );
 
         for ( Entry<String, List<String>> param : params.entrySet() ) {
             Identifier identifier = Identifier.from( param.getKey() );
@@ -315,6 +347,11 @@ public class Query {
             q.setPad( pad );
         }
 
+        if ( distinct != null ) {
+            q = newQueryIfNull( q );
+            q.setDistinct( distinct );
+        }
+
         if ( identifiers != null ) {
             q = newQueryIfNull( q );
             q.setIdentifiers( identifiers );
@@ -358,6 +395,19 @@ public class Query {
     }
 
 
+    /** A query for the entities with any of the uuids, names or emails, which are read at once */
+    public static Query fromIdentifiers( List<?> ids ) {
+        Query q = new Query();
+        for ( Object id : ids ) {
+            Identifier identifier = Identifier.from( id );
+            if ( identifier != null ) {
+                q.addIdentifier( identifier );
+            }
+        }
+        return q;
+    }
+
+
     public boolean hasQueryPredicates() {
         return rootOperand != null;
     }
@@ -575,6 +625,19 @@ public class Query {
     }
 
 
+    /** The entity properties the select reads, the first segment of every selected path */
+    @JsonIgnore
+    public Set<String> getSelectProperties() {
+        Set<String> properties = new LinkedHashSet<String>();
+
+        for ( String path : mergeSelectResults ? selectAssignments.values() : selectAssignments.keySet() ) {
+            properties.add( StringUtils.substringBefore( path, "." ) );
+        }
+
+        return properties;
+    }
+
+
     public Query addSort( String propertyName ) {
         if ( isBlank( propertyName ) ) {
             return this;
@@ -892,6 +955,17 @@ public class Query {
     }
 
 
+    /** True if the counters are the estimated number of distinct values added to them, instead of summed increments */
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+
+    public void setDistinct( boolean distinct ) {
+        this.distinct = distinct;
+    }
+
+
     public void setResolution( CounterResolution resolution ) {
         this.resolution = resolution;
     }
@@ -1291,6 +1365,13 @@ public class Query {
     }
 
 
+    /** The nanoseconds it took to parse the ql, 0 if the query wasn't parsed from ql */
+    @JsonIgnore
+    public long getParseTime() {
+        return parseTime;
+    }
+
+
     public List<Identifier> getIdentifiers() {
         return identifiers;
     }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The time spent in each stage of a single query execution, and how much work it took. A query is executed by one
+ * thread, so this isn't thread safe.
+ */
+public class QueryStats {
+
+    public enum Stage {
+        /** Parsing the ql into the operand tree */
+        PARSE( "parseTime" ),
+        /** Building the node tree from the operands */
+        PLAN( "planTime" ),
+        /** Reading the index slices */
+        INDEX_SCAN( "indexScanTime" ),
+        /** Intersecting, unioning and subtracting the slices in memory */
+        MERGE( "mergeTime" ),
+        /** Loading the partial entities of a secondary sort and sorting them */
+        SORT( "sortTime" ),
+        /** Loading the entities or refs of the results */
+        LOAD( "loadTime" );
+
+        private final String key;
+
+
+        Stage( String key ) {
+            this.key = key;
+        }
+
+
+        /** The name of the stage in the stats map and the metrics */
+        public String getKey() {
+            return key;
+        }
+    }
+
+
+    private final long[] times = new long[Stage.values().length];
+
+    private long indexRows;
+    private long indexColumns;
+    private long sortEntities;
+    private long candidates;
+    private long returned;
+    private boolean indexOnly;
+
+
+    /** Add the time since the given {@link System#nanoTime()} to the stage */
+    public void addTime( Stage stage, long startNanos ) {
+        addNanos( stage, System.nanoTime() - startNanos );
+    }
+
+
+    public void addNanos( Stage stage, long nanos ) {
+        times[stage.ordinal()] += nanos;
+    }
+
+
+    /** The time spent in the stage in nanoseconds */
+    public long getNanos( Stage stage ) {
+        return times[stage.ordinal()];
+    }
+
+
+    /** The time spent in all stages in nanoseconds */
+    public long getTotalNanos() {
+        long total = 0;
+
+        for ( long time : times ) {
+            total += time;
+        }
+
+        return total;
+    }
+
+
+    /** Record a page read from the index, with the number of rows it was read from */
+    public void addIndexPage( int rows, int columns ) {
+        indexRows += rows;
+        indexColumns += columns;
+    }
+
+
+    /** The number of index rows (buckets) read */
+    public long getIndexRows() {
+        return indexRows;
+    }
+
+
+    /** The number of index columns read */
+    public long getIndexColumns() {
+        return indexColumns;
+    }
+
+
+    public void addSortEntities( int count ) {
+        sortEntities += count;
+    }
+
+
+    /** The number of partial entities loaded to sort by secondary properties */
+    public long getSortEntities() {
+        return sortEntities;
+    }
+
+
+    public void setCandidates( long candidates ) {
+        this.candidates = candidates;
+    }
+
+
+    /** The number of ids that came out of the node tree, before the limit was applied */
+    public long getCandidates() {
+        return candidates;
+    }
+
+
+    public void setReturned( long returned ) {
+        this.returned = returned;
+    }
+
+
+    /** The number of results returned */
+    public long getReturned() {
+        return returned;
+    }
+
+
+    public void setIndexOnly( boolean indexOnly ) {
+        this.indexOnly = indexOnly;
+    }
+
+
+    /** True if the results were built from the index columns, without loading the entities */
+    public boolean isIndexOnly() {
+        return indexOnly;
+    }
+
+
+    /** The stage times in milliseconds and the counters, as returned to a client */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+        for ( Stage stage : Stage.values() ) {
+            map.put( stage.getKey(), toMillis( getNanos( stage ) ) );
+        }
+
+        map.put( "totalTime", toMillis( getTotalNanos() ) );
+        map.put( "indexRows", indexRows );
+        map.put( "indexColumns", indexColumns );
+        map.put( "sortEntities", sortEntities );
+        map.put( "candidates", candidates );
+        map.put( "returned", returned );
+        map.put( "indexOnly", indexOnly );
+
+        return map;
+    }
+
+
+    private static double toMillis( long nanos ) {
+        return ( double ) nanos / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    @Override
+    public String toString() {
+        return "QueryStats " + toMap();
+    }
+}
@@ -30,6 +30,7 @@ import java.util.UUID;
 
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.map.annotate.JsonSerialize.Inclusion;
 import org.apache.usergrid.persistence.cassandra.QueryProcessor;
@@ -84,6 +85,8 @@ public class Results implements Iterable<Entity> {
     Object data;
     String dataName;
 
+    QueryStats queryStats;
+
     private QueryProcessor queryProcessor;
     private SearchVisitor searchVisitor;
 
@@ -126,6 +129,8 @@ public class Results implements Iterable<Entity> {
             query = r.query;
             data = r.data;
             dataName = r.dataName;
+
+            queryStats = r.queryStats;
         }
     }
 
@@ -1278,6 +1283,18 @@ public class Results implements Iterable<Entity> {
     }
 
 
+    /** The stats of the query execution these results came from, null if they didn't come from a query */
+    @JsonIgnore
+    public QueryStats getQueryStats() {
+        return queryStats;
+    }
+
+
+    public void setQueryStats( QueryStats queryStats ) {
+        this.queryStats = queryStats;
+    }
+
+
     /** uses cursor to get next batch of Results (returns null if no cursor) */
     public Results getNextPageResults() throws Exception {
         if ( !hasCursor() ) {
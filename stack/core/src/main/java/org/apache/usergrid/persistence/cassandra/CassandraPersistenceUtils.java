@@ -32,6 +32,7 @@ import java.util.UUID;
 import org.codehaus.jackson.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.cassandra.util.OpLatencyTracker;
 import org.apache.usergrid.utils.JsonUtils;
 
 import org.apache.cassandra.thrift.ColumnDef;
@@ -99,6 +100,8 @@ public class CassandraPersistenceUtils {
      */
     public static final UUID NULL_ID = new UUID( 0, 0 );
 
+    private static volatile OpLatencyTracker opTracker = new OpLatencyTracker();
+
     /**
      * @param operation
      * @param columnFamily
@@ -327,9 +330,31 @@ public class CassandraPersistenceUtils {
     }
 
 
+    /**
+     * Set the tracker that records the latency of every {@link #batchExecute}. Static like the mutators that use it,
+     * so it's set once by the {@link CassandraService}
+     */
+    public static void setOpTracker( OpLatencyTracker tracker ) {
+        opTracker = tracker;
+    }
+
+
     public static MutationResult batchExecute( Mutator<?> m, int retries ) {
-        return m.execute();
+        int mutations = m.getPendingMutationCount();
+        long startTime = System.nanoTime();
+
+        try {
+            return m.execute();
+        }
+        finally {
+            recordExecute( "batchExecute", mutations, startTime );
+        }
+    }
+
 
+    /** Record a mutator execution that started at the given {@link System#nanoTime()} */
+    public static void recordExecute( String operation, int mutations, long startNanos ) {
+        opTracker.record( null, "mutator", operation, mutations + " mutations", startNanos );
     }
 
 
@@ -28,19 +28,32 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.locking.LockManager;
+import org.apache.usergrid.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.IndexBucketLocator;
 import org.apache.usergrid.persistence.IndexBucketLocator.IndexType;
 import org.apache.usergrid.persistence.cassandra.index.IndexBucketScanner;
 import org.apache.usergrid.persistence.cassandra.index.IndexScanner;
+import org.apache.usergrid.persistence.cassandra.util.OpLatencyTracker;
+import org.apache.usergrid.persistence.hector.ApplicationKeyspace;
 import org.apache.usergrid.persistence.hector.CountingMutator;
 
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
 import me.prettyprint.cassandra.connection.HConnectionManager;
 import me.prettyprint.cassandra.model.ConfigurableConsistencyLevel;
 import me.prettyprint.cassandra.serializers.ByteBufferSerializer;
@@ -79,7 +92,6 @@ import static me.prettyprint.hector.api.factory.HFactory.createMultigetSliceQuer
 
 import static me.prettyprint.hector.api.factory.HFactory.createRangeSlicesQuery;
 import static me.prettyprint.hector.api.factory.HFactory.createSliceQuery;
-import static me.prettyprint.hector.api.factory.HFactory.createVirtualKeyspace;
 import static org.apache.commons.collections.MapUtils.getIntValue;
 import static org.apache.commons.collections.MapUtils.getString;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_ID_SETS;
@@ -135,6 +147,14 @@ public class CassandraService {
 
     private Map<String, String> accessMap;
 
+    /** Runs the async reads, bounded so a burst of reads can't exhaust the Hector pool */
+    private ListeningExecutorService readExecutor;
+
+    private MetricsFactory metricsFactory;
+
+    /** Records the latency of every operation, replaced by the configured tracker */
+    private OpLatencyTracker opTracker = new OpLatencyTracker();
+
     public static final StringSerializer se = new StringSerializer();
     public static final ByteBufferSerializer be = new ByteBufferSerializer();
     public static final UUIDSerializer ue = new UUIDSerializer();
@@ -171,7 +191,15 @@ public class CassandraService {
 
         final int flushSize = getIntValue( properties, "cassandra.mutation.flushsize", 2000 );
         CountingMutator.MAX_SIZE = flushSize;
+        CassandraPersistenceUtils.setOpTracker( opTracker );
 
+        // when the queue is full the caller runs the read itself, which throttles it to the pool's pace
+        final int readThreads = getIntValue( properties, "cassandra.read.async.threads", 32 );
+        final int readQueueSize = getIntValue( properties, "cassandra.read.async.queue", 1000 );
+        readExecutor = MoreExecutors.listeningDecorator(
+                new ThreadPoolExecutor( readThreads, readThreads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>( readQueueSize ), ReadThreadFactory.INSTANCE,
+                        new ThreadPoolExecutor.CallerRunsPolicy() ) );
 
     }
 
@@ -229,6 +257,21 @@ public class CassandraService {
     }
 
 
+    public void setMetricsFactory( MetricsFactory metricsFactory ) {
+        this.metricsFactory = metricsFactory;
+    }
+
+
+    public OpLatencyTracker getOpTracker() {
+        return opTracker;
+    }
+
+
+    public void setOpTracker( OpLatencyTracker opTracker ) {
+        this.opTracker = opTracker;
+    }
+
+
     public void setConsistencyLevelPolicy( ConsistencyLevelPolicy consistencyLevelPolicy ) {
         this.consistencyLevelPolicy = consistencyLevelPolicy;
     }
@@ -258,8 +301,8 @@ public class CassandraService {
     public Keyspace getKeyspace( String keyspace, UUID prefix ) {
         Keyspace ko = null;
         if ( USE_VIRTUAL_KEYSPACES && ( prefix != null ) ) {
-            ko = createVirtualKeyspace( keyspace, prefix, ue, cluster, consistencyLevelPolicy,
-                    ON_FAIL_TRY_ALL_AVAILABLE, accessMap );
+            ko = new ApplicationKeyspace( keyspace, prefix, cluster, consistencyLevelPolicy, ON_FAIL_TRY_ALL_AVAILABLE,
+                    accessMap );
         }
         else {
             ko = HFactory.createKeyspace( keyspace, cluster, consistencyLevelPolicy, ON_FAIL_TRY_ALL_AVAILABLE,
@@ -422,29 +465,35 @@ public class CassandraService {
     public <N, V> List<HColumn<N, V>> getAllColumns( Keyspace ko, Object columnFamily, Object key,
                                                      Serializer<N> nameSerializer, Serializer<V> valueSerializer )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isInfoEnabled() ) {
-            db_logger.info( "getColumns cf={} key={}", columnFamily, key );
-        }
-
-        SliceQuery<ByteBuffer, N, V> q = createSliceQuery( ko, be, nameSerializer, valueSerializer );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKey( bytebuffer( key ) );
-        q.setRange( null, null, false, ALL_COUNT );
-        QueryResult<ColumnSlice<N, V>> r = q.execute();
-        ColumnSlice<N, V> slice = r.get();
-        List<HColumn<N, V>> results = slice.getColumns();
-
-        if ( db_logger.isInfoEnabled() ) {
-            if ( results == null ) {
-                db_logger.info( "getColumns returned null" );
+        try {
+            if ( db_logger.isInfoEnabled() ) {
+                db_logger.info( "getColumns cf={} key={}", columnFamily, key );
             }
-            else {
-                db_logger.info( "getColumns returned {} columns", results.size() );
+
+            SliceQuery<ByteBuffer, N, V> q = createSliceQuery( ko, be, nameSerializer, valueSerializer );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKey( bytebuffer( key ) );
+            q.setRange( null, null, false, ALL_COUNT );
+            QueryResult<ColumnSlice<N, V>> r = q.execute();
+            ColumnSlice<N, V> slice = r.get();
+            List<HColumn<N, V>> results = slice.getColumns();
+
+            if ( db_logger.isInfoEnabled() ) {
+                if ( results == null ) {
+                    db_logger.info( "getColumns returned null" );
+                }
+                else {
+                    db_logger.info( "getColumns returned {} columns", results.size() );
+                }
             }
-        }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getAllColumns", key, startTime );
+        }
     }
 
 
@@ -482,57 +531,63 @@ public class CassandraService {
     public List<HColumn<ByteBuffer, ByteBuffer>> getColumns( Keyspace ko, Object columnFamily, Object key, Object start,
                                                              Object finish, int count, boolean reversed )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumns cf=" + columnFamily + " key=" + key + " start=" + start + " finish=" + finish
-                    + " count=" + count + " reversed=" + reversed );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumns cf=" + columnFamily + " key=" + key + " start=" + start + " finish="
+                        + finish + " count=" + count + " reversed=" + reversed );
+            }
 
-        SliceQuery<ByteBuffer, ByteBuffer, ByteBuffer> q = createSliceQuery( ko, be, be, be );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKey( bytebuffer( key ) );
+            SliceQuery<ByteBuffer, ByteBuffer, ByteBuffer> q = createSliceQuery( ko, be, be, be );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKey( bytebuffer( key ) );
 
-        ByteBuffer start_bytes = null;
-        if ( start instanceof DynamicComposite ) {
-            start_bytes = ( ( DynamicComposite ) start ).serialize();
-        }
-        else if ( start instanceof List ) {
-            start_bytes = DynamicComposite.toByteBuffer( ( List<?> ) start );
-        }
-        else {
-            start_bytes = bytebuffer( start );
-        }
-
-        ByteBuffer finish_bytes = null;
-        if ( finish instanceof DynamicComposite ) {
-            finish_bytes = ( ( DynamicComposite ) finish ).serialize();
-        }
-        else if ( finish instanceof List ) {
-            finish_bytes = DynamicComposite.toByteBuffer( ( List<?> ) finish );
-        }
-        else {
-            finish_bytes = bytebuffer( finish );
-        }
+            ByteBuffer start_bytes = null;
+            if ( start instanceof DynamicComposite ) {
+                start_bytes = ( ( DynamicComposite ) start ).serialize();
+            }
+            else if ( start instanceof List ) {
+                start_bytes = DynamicComposite.toByteBuffer( ( List<?> ) start );
+            }
+            else {
+                start_bytes = bytebuffer( start );
+            }
 
-    /*
-     * if (reversed) { q.setRange(finish_bytes, start_bytes, reversed, count); }
-     * else { q.setRange(start_bytes, finish_bytes, reversed, count); }
-     */
-        q.setRange( start_bytes, finish_bytes, reversed, count );
-        QueryResult<ColumnSlice<ByteBuffer, ByteBuffer>> r = q.execute();
-        ColumnSlice<ByteBuffer, ByteBuffer> slice = r.get();
-        List<HColumn<ByteBuffer, ByteBuffer>> results = slice.getColumns();
-
-        if ( db_logger.isDebugEnabled() ) {
-            if ( results == null ) {
-                db_logger.debug( "getColumns returned null" );
+            ByteBuffer finish_bytes = null;
+            if ( finish instanceof DynamicComposite ) {
+                finish_bytes = ( ( DynamicComposite ) finish ).serialize();
+            }
+            else if ( finish instanceof List ) {
+                finish_bytes = DynamicComposite.toByteBuffer( ( List<?> ) finish );
             }
             else {
-                db_logger.debug( "getColumns returned " + results.size() + " columns" );
+                finish_bytes = bytebuffer( finish );
             }
-        }
 
-        return results;
+        /*
+         * if (reversed) { q.setRange(finish_bytes, start_bytes, reversed, count); }
+         * else { q.setRange(start_bytes, finish_bytes, reversed, count); }
+         */
+            q.setRange( start_bytes, finish_bytes, reversed, count );
+            QueryResult<ColumnSlice<ByteBuffer, ByteBuffer>> r = q.execute();
+            ColumnSlice<ByteBuffer, ByteBuffer> slice = r.get();
+            List<HColumn<ByteBuffer, ByteBuffer>> results = slice.getColumns();
+
+            if ( db_logger.isDebugEnabled() ) {
+                if ( results == null ) {
+                    db_logger.debug( "getColumns returned null" );
+                }
+                else {
+                    db_logger.debug( "getColumns returned " + results.size() + " columns" );
+                }
+            }
+
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getColumns", key, startTime );
+        }
     }
 
 
@@ -540,49 +595,55 @@ public class CassandraService {
                                                                                    List<?> keys, Object start,
                                                                                    Object finish, int count,
                                                                                    boolean reversed ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "multiGetColumns cf=" + columnFamily + " keys=" + keys + " start=" + start + " finish="
-                    + finish + " count=" + count + " reversed=" + reversed );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "multiGetColumns cf=" + columnFamily + " keys=" + keys + " start=" + start + " finish="
+                        + finish + " count=" + count + " reversed=" + reversed );
+            }
 
-        MultigetSliceQuery<ByteBuffer, ByteBuffer, ByteBuffer> q = createMultigetSliceQuery( ko, be, be, be );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKeys( bytebuffers( keys ) );
+            MultigetSliceQuery<ByteBuffer, ByteBuffer, ByteBuffer> q = createMultigetSliceQuery( ko, be, be, be );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKeys( bytebuffers( keys ) );
 
-        ByteBuffer start_bytes = null;
-        if ( start instanceof DynamicComposite ) {
-            start_bytes = ( ( DynamicComposite ) start ).serialize();
-        }
-        else if ( start instanceof List ) {
-            start_bytes = DynamicComposite.toByteBuffer( ( List<?> ) start );
-        }
-        else {
-            start_bytes = bytebuffer( start );
-        }
+            ByteBuffer start_bytes = null;
+            if ( start instanceof DynamicComposite ) {
+                start_bytes = ( ( DynamicComposite ) start ).serialize();
+            }
+            else if ( start instanceof List ) {
+                start_bytes = DynamicComposite.toByteBuffer( ( List<?> ) start );
+            }
+            else {
+                start_bytes = bytebuffer( start );
+            }
 
-        ByteBuffer finish_bytes = null;
-        if ( finish instanceof DynamicComposite ) {
-            finish_bytes = ( ( DynamicComposite ) finish ).serialize();
-        }
-        else if ( finish instanceof List ) {
-            finish_bytes = DynamicComposite.toByteBuffer( ( List<?> ) finish );
-        }
-        else {
-            finish_bytes = bytebuffer( finish );
-        }
+            ByteBuffer finish_bytes = null;
+            if ( finish instanceof DynamicComposite ) {
+                finish_bytes = ( ( DynamicComposite ) finish ).serialize();
+            }
+            else if ( finish instanceof List ) {
+                finish_bytes = DynamicComposite.toByteBuffer( ( List<?> ) finish );
+            }
+            else {
+                finish_bytes = bytebuffer( finish );
+            }
 
-        q.setRange( start_bytes, finish_bytes, reversed, count );
-        QueryResult<Rows<ByteBuffer, ByteBuffer, ByteBuffer>> r = q.execute();
-        Rows<ByteBuffer, ByteBuffer, ByteBuffer> rows = r.get();
+            q.setRange( start_bytes, finish_bytes, reversed, count );
+            QueryResult<Rows<ByteBuffer, ByteBuffer, ByteBuffer>> r = q.execute();
+            Rows<ByteBuffer, ByteBuffer, ByteBuffer> rows = r.get();
 
-        Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> results =
-                new LinkedHashMap<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>();
-        for ( Row<ByteBuffer, ByteBuffer, ByteBuffer> row : rows ) {
-            results.put( row.getKey(), row.getColumnSlice().getColumns() );
-        }
+            Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> results =
+                    new LinkedHashMap<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>();
+            for ( Row<ByteBuffer, ByteBuffer, ByteBuffer> row : rows ) {
+                results.put( row.getKey(), row.getColumnSlice().getColumns() );
+            }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "multiGetColumns", keys, startTime );
+        }
     }
 
 
@@ -600,28 +661,35 @@ public class CassandraService {
     public <K, N, V> Rows<K, N, V> getRows( Keyspace ko, Object columnFamily, Collection<K> keys,
                                             Serializer<K> keySerializer, Serializer<N> nameSerializer,
                                             Serializer<V> valueSerializer ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumns cf=" + columnFamily + " keys=" + keys );
-        }
-
-        MultigetSliceQuery<K, N, V> q = createMultigetSliceQuery( ko, keySerializer, nameSerializer, valueSerializer );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKeys( keys );
-        q.setRange( null, null, false, ALL_COUNT );
-        QueryResult<Rows<K, N, V>> r = q.execute();
-        Rows<K, N, V> results = r.get();
-
-        if ( db_logger.isInfoEnabled() ) {
-            if ( results == null ) {
-                db_logger.info( "getColumns returned null" );
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumns cf=" + columnFamily + " keys=" + keys );
             }
-            else {
-                db_logger.info( "getColumns returned " + results.getCount() + " columns" );
+
+            MultigetSliceQuery<K, N, V> q =
+                    createMultigetSliceQuery( ko, keySerializer, nameSerializer, valueSerializer );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKeys( keys );
+            q.setRange( null, null, false, ALL_COUNT );
+            QueryResult<Rows<K, N, V>> r = q.execute();
+            Rows<K, N, V> results = r.get();
+
+            if ( db_logger.isInfoEnabled() ) {
+                if ( results == null ) {
+                    db_logger.info( "getColumns returned null" );
+                }
+                else {
+                    db_logger.info( "getColumns returned " + results.getCount() + " columns" );
+                }
             }
-        }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getRows", keys, startTime );
+        }
     }
 
 
@@ -641,32 +709,39 @@ public class CassandraService {
     public <N, V> List<HColumn<N, V>> getColumns( Keyspace ko, Object columnFamily, Object key, Set<String> columnNames,
                                                   Serializer<N> nameSerializer, Serializer<V> valueSerializer )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumns cf=" + columnFamily + " key=" + key + " names=" + columnNames );
-        }
-
-        SliceQuery<ByteBuffer, N, V> q = createSliceQuery( ko, be, nameSerializer, valueSerializer );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKey( bytebuffer( key ) );
-        // q.setColumnNames(columnNames.toArray(new String[0]));
-        q.setColumnNames( ( N[] ) nameSerializer.fromBytesSet( se.toBytesSet( new ArrayList<String>( columnNames ) ) )
-                                                .toArray() );
-
-        QueryResult<ColumnSlice<N, V>> r = q.execute();
-        ColumnSlice<N, V> slice = r.get();
-        List<HColumn<N, V>> results = slice.getColumns();
-
-        if ( db_logger.isInfoEnabled() ) {
-            if ( results == null ) {
-                db_logger.info( "getColumns returned null" );
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumns cf=" + columnFamily + " key=" + key + " names=" + columnNames );
             }
-            else {
-                db_logger.info( "getColumns returned " + results.size() + " columns" );
+
+            SliceQuery<ByteBuffer, N, V> q = createSliceQuery( ko, be, nameSerializer, valueSerializer );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKey( bytebuffer( key ) );
+            // q.setColumnNames(columnNames.toArray(new String[0]));
+            q.setColumnNames(
+                    ( N[] ) nameSerializer.fromBytesSet( se.toBytesSet( new ArrayList<String>( columnNames ) ) )
+                                          .toArray() );
+
+            QueryResult<ColumnSlice<N, V>> r = q.execute();
+            ColumnSlice<N, V> slice = r.get();
+            List<HColumn<N, V>> results = slice.getColumns();
+
+            if ( db_logger.isInfoEnabled() ) {
+                if ( results == null ) {
+                    db_logger.info( "getColumns returned null" );
+                }
+                else {
+                    db_logger.info( "getColumns returned " + results.size() + " columns" );
+                }
             }
-        }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getColumns", key, startTime );
+        }
     }
 
 
@@ -687,29 +762,37 @@ public class CassandraService {
                                             Collection<String> columnNames, Serializer<K> keySerializer,
                                             Serializer<N> nameSerializer, Serializer<V> valueSerializer )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumns cf=" + columnFamily + " keys=" + keys + " names=" + columnNames );
-        }
-
-        MultigetSliceQuery<K, N, V> q = createMultigetSliceQuery( ko, keySerializer, nameSerializer, valueSerializer );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKeys( keys );
-        q.setColumnNames( ( N[] ) nameSerializer.fromBytesSet( se.toBytesSet( new ArrayList<String>( columnNames ) ) )
-                                                .toArray() );
-        QueryResult<Rows<K, N, V>> r = q.execute();
-        Rows<K, N, V> results = r.get();
-
-        if ( db_logger.isInfoEnabled() ) {
-            if ( results == null ) {
-                db_logger.info( "getColumns returned null" );
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumns cf=" + columnFamily + " keys=" + keys + " names=" + columnNames );
             }
-            else {
-                db_logger.info( "getColumns returned " + results.getCount() + " columns" );
+
+            MultigetSliceQuery<K, N, V> q =
+                    createMultigetSliceQuery( ko, keySerializer, nameSerializer, valueSerializer );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKeys( keys );
+            q.setColumnNames(
+                    ( N[] ) nameSerializer.fromBytesSet( se.toBytesSet( new ArrayList<String>( columnNames ) ) )
+                                          .toArray() );
+            QueryResult<Rows<K, N, V>> r = q.execute();
+            Rows<K, N, V> results = r.get();
+
+            if ( db_logger.isInfoEnabled() ) {
+                if ( results == null ) {
+                    db_logger.info( "getColumns returned null" );
+                }
+                else {
+                    db_logger.info( "getColumns returned " + results.getCount() + " columns" );
+                }
             }
-        }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getRows", keys, startTime );
+        }
     }
 
 
@@ -728,59 +811,72 @@ public class CassandraService {
     public <N, V> HColumn<N, V> getColumn( Keyspace ko, Object columnFamily, Object key, N column,
                                            Serializer<N> nameSerializer, Serializer<V> valueSerializer )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumn cf=" + columnFamily + " key=" + key + " column=" + column );
-        }
-
-    /*
-     * ByteBuffer column_bytes = null; if (column instanceof List) {
-     * column_bytes = Composite.serializeToByteBuffer((List<?>) column); } else
-     * { column_bytes = bytebuffer(column); }
-     */
-
-        ColumnQuery<ByteBuffer, N, V> q = HFactory.createColumnQuery( ko, be, nameSerializer, valueSerializer );
-        QueryResult<HColumn<N, V>> r =
-                q.setKey( bytebuffer( key ) ).setName( column ).setColumnFamily( columnFamily.toString() ).execute();
-        HColumn<N, V> result = r.get();
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumn cf=" + columnFamily + " key=" + key + " column=" + column );
+            }
 
-        if ( db_logger.isInfoEnabled() ) {
-            if ( result == null ) {
-                db_logger.info( "getColumn returned null" );
+        /*
+         * ByteBuffer column_bytes = null; if (column instanceof List) {
+         * column_bytes = Composite.serializeToByteBuffer((List<?>) column); } else
+         * { column_bytes = bytebuffer(column); }
+         */
+
+            ColumnQuery<ByteBuffer, N, V> q = HFactory.createColumnQuery( ko, be, nameSerializer, valueSerializer );
+            QueryResult<HColumn<N, V>> r =
+                    q.setKey( bytebuffer( key ) ).setName( column ).setColumnFamily( columnFamily.toString() )
+                     .execute();
+            HColumn<N, V> result = r.get();
+
+            if ( db_logger.isInfoEnabled() ) {
+                if ( result == null ) {
+                    db_logger.info( "getColumn returned null" );
+                }
             }
-        }
 
-        return result;
+            return result;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getColumn", key, startTime );
+        }
     }
 
 
     public <N, V> ColumnSlice<N, V> getColumns( Keyspace ko, Object columnFamily, Object key, N[] columns,
                                                 Serializer<N> nameSerializer, Serializer<V> valueSerializer )
             throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getColumn cf=" + columnFamily + " key=" + key + " column=" + columns );
-        }
-
-    /*
-     * ByteBuffer column_bytes = null; if (column instanceof List) {
-     * column_bytes = Composite.serializeToByteBuffer((List<?>) column); } else
-     * { column_bytes = bytebuffer(column); }
-     */
-
-        SliceQuery<ByteBuffer, N, V> q = HFactory.createSliceQuery( ko, be, nameSerializer, valueSerializer );
-        QueryResult<ColumnSlice<N, V>> r =
-                q.setKey( bytebuffer( key ) ).setColumnNames( columns ).setColumnFamily( columnFamily.toString() )
-                 .execute();
-        ColumnSlice<N, V> result = r.get();
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getColumn cf=" + columnFamily + " key=" + key + " column=" + columns );
+            }
 
-        if ( db_logger.isDebugEnabled() ) {
-            if ( result == null ) {
-                db_logger.debug( "getColumn returned null" );
+        /*
+         * ByteBuffer column_bytes = null; if (column instanceof List) {
+         * column_bytes = Composite.serializeToByteBuffer((List<?>) column); } else
+         * { column_bytes = bytebuffer(column); }
+         */
+
+            SliceQuery<ByteBuffer, N, V> q = HFactory.createSliceQuery( ko, be, nameSerializer, valueSerializer );
+            QueryResult<ColumnSlice<N, V>> r =
+                    q.setKey( bytebuffer( key ) ).setColumnNames( columns ).setColumnFamily( columnFamily.toString() )
+                     .execute();
+            ColumnSlice<N, V> result = r.get();
+
+            if ( db_logger.isDebugEnabled() ) {
+                if ( result == null ) {
+                    db_logger.debug( "getColumn returned null" );
+                }
             }
-        }
 
-        return result;
+            return result;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getColumns", key, startTime );
+        }
     }
 
 
@@ -798,34 +894,40 @@ public class CassandraService {
 
     public void setColumn( Keyspace ko, Object columnFamily, Object key, Object columnName, Object columnValue,
                            int ttl ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "setColumn cf=" + columnFamily + " key=" + key + " name=" + columnName + " value="
-                    + columnValue );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "setColumn cf=" + columnFamily + " key=" + key + " name=" + columnName + " value="
+                        + columnValue );
+            }
 
-        ByteBuffer name_bytes = null;
-        if ( columnName instanceof List ) {
-            name_bytes = DynamicComposite.toByteBuffer( ( List<?> ) columnName );
-        }
-        else {
-            name_bytes = bytebuffer( columnName );
-        }
+            ByteBuffer name_bytes = null;
+            if ( columnName instanceof List ) {
+                name_bytes = DynamicComposite.toByteBuffer( ( List<?> ) columnName );
+            }
+            else {
+                name_bytes = bytebuffer( columnName );
+            }
 
-        ByteBuffer value_bytes = null;
-        if ( columnValue instanceof List ) {
-            value_bytes = DynamicComposite.toByteBuffer( ( List<?> ) columnValue );
-        }
-        else {
-            value_bytes = bytebuffer( columnValue );
-        }
+            ByteBuffer value_bytes = null;
+            if ( columnValue instanceof List ) {
+                value_bytes = DynamicComposite.toByteBuffer( ( List<?> ) columnValue );
+            }
+            else {
+                value_bytes = bytebuffer( columnValue );
+            }
 
-        HColumn<ByteBuffer, ByteBuffer> col = createColumn( name_bytes, value_bytes, be, be );
-        if ( ttl != 0 ) {
-            col.setTtl( ttl );
+            HColumn<ByteBuffer, ByteBuffer> col = createColumn( name_bytes, value_bytes, be, be );
+            if ( ttl != 0 ) {
+                col.setTtl( ttl );
+            }
+            Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+            m.insert( bytebuffer( key ), columnFamily.toString(), col );
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "setColumn", key, startTime );
         }
-        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
-        m.insert( bytebuffer( key ), columnFamily.toString(), col );
     }
 
 
@@ -845,44 +947,51 @@ public class CassandraService {
 
 
     public void setColumns( Keyspace ko, Object columnFamily, byte[] key, Map<?, ?> map, int ttl ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "setColumns cf=" + columnFamily + " key=" + key + " map=" + map + ( ttl != 0 ?
-                                                                                                 " ttl=" + ttl : "" ) );
-        }
-
-        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
-        long timestamp = createTimestamp();
-
-        for ( Object name : map.keySet() ) {
-            Object value = map.get( name );
-            if ( value != null ) {
-
-                ByteBuffer name_bytes = null;
-                if ( name instanceof List ) {
-                    name_bytes = DynamicComposite.toByteBuffer( ( List<?> ) name );
-                }
-                else {
-                    name_bytes = bytebuffer( name );
-                }
-
-                ByteBuffer value_bytes = null;
-                if ( value instanceof List ) {
-                    value_bytes = DynamicComposite.toByteBuffer( ( List<?> ) value );
-                }
-                else {
-                    value_bytes = bytebuffer( value );
-                }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "setColumns cf=" + columnFamily + " key=" + key + " map=" + map + ( ttl != 0 ?
+                                                                                                 " ttl=" + ttl :
+                                                                                                 "" ) );
+            }
 
-                HColumn<ByteBuffer, ByteBuffer> col = createColumn( name_bytes, value_bytes, timestamp, be, be );
-                if ( ttl != 0 ) {
-                    col.setTtl( ttl );
+            Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+            long timestamp = createTimestamp();
+
+            for ( Object name : map.keySet() ) {
+                Object value = map.get( name );
+                if ( value != null ) {
+
+                    ByteBuffer name_bytes = null;
+                    if ( name instanceof List ) {
+                        name_bytes = DynamicComposite.toByteBuffer( ( List<?> ) name );
+                    }
+                    else {
+                        name_bytes = bytebuffer( name );
+                    }
+
+                    ByteBuffer value_bytes = null;
+                    if ( value instanceof List ) {
+                        value_bytes = DynamicComposite.toByteBuffer( ( List<?> ) value );
+                    }
+                    else {
+                        value_bytes = bytebuffer( value );
+                    }
+
+                    HColumn<ByteBuffer, ByteBuffer> col = createColumn( name_bytes, value_bytes, timestamp, be, be );
+                    if ( ttl != 0 ) {
+                        col.setTtl( ttl );
+                    }
+                    m.addInsertion( bytebuffer( key ), columnFamily.toString(),
+                            createColumn( name_bytes, value_bytes, timestamp, be, be ) );
                 }
-                m.addInsertion( bytebuffer( key ), columnFamily.toString(),
-                        createColumn( name_bytes, value_bytes, timestamp, be, be ) );
             }
+            batchExecute( m, CassandraService.RETRY_COUNT );
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "setColumns", key, startTime );
         }
-        batchExecute( m, CassandraService.RETRY_COUNT );
     }
 
 
@@ -907,13 +1016,19 @@ public class CassandraService {
      * @throws Exception the exception
      */
     public void deleteColumn( Keyspace ko, Object columnFamily, Object key, Object column ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "deleteColumn cf=" + columnFamily + " key=" + key + " name=" + column );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "deleteColumn cf=" + columnFamily + " key=" + key + " name=" + column );
+            }
 
-        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
-        m.delete( bytebuffer( key ), columnFamily.toString(), bytebuffer( column ), be );
+            Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+            m.delete( bytebuffer( key ), columnFamily.toString(), bytebuffer( column ), be );
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "deleteColumn", key, startTime );
+        }
     }
 
 
@@ -928,30 +1043,36 @@ public class CassandraService {
      * @throws Exception the exception
      */
     public <K> Set<K> getRowKeySet( Keyspace ko, Object columnFamily, Serializer<K> keySerializer ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "getRowKeys cf=" + columnFamily );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "getRowKeys cf=" + columnFamily );
+            }
 
-        RangeSlicesQuery<K, ByteBuffer, ByteBuffer> q = createRangeSlicesQuery( ko, keySerializer, be, be );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKeys( null, null );
-        q.setColumnNames( new ByteBuffer[0] );
-        QueryResult<OrderedRows<K, ByteBuffer, ByteBuffer>> r = q.execute();
-        OrderedRows<K, ByteBuffer, ByteBuffer> rows = r.get();
+            RangeSlicesQuery<K, ByteBuffer, ByteBuffer> q = createRangeSlicesQuery( ko, keySerializer, be, be );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKeys( null, null );
+            q.setColumnNames( new ByteBuffer[0] );
+            QueryResult<OrderedRows<K, ByteBuffer, ByteBuffer>> r = q.execute();
+            OrderedRows<K, ByteBuffer, ByteBuffer> rows = r.get();
 
-        Set<K> results = new LinkedHashSet<K>();
-        for ( Row<K, ByteBuffer, ByteBuffer> row : rows ) {
-            results.add( row.getKey() );
-        }
+            Set<K> results = new LinkedHashSet<K>();
+            for ( Row<K, ByteBuffer, ByteBuffer> row : rows ) {
+                results.add( row.getKey() );
+            }
 
-        if ( db_logger.isDebugEnabled() ) {
-            {
-                db_logger.debug( "getRowKeys returned " + results.size() + " rows" );
+            if ( db_logger.isDebugEnabled() ) {
+                {
+                    db_logger.debug( "getRowKeys returned " + results.size() + " rows" );
+                }
             }
-        }
 
-        return results;
+            return results;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getRowKeySet", null, startTime );
+        }
     }
 
 
@@ -966,24 +1087,30 @@ public class CassandraService {
      * @throws Exception the exception
      */
     public <K> List<K> getRowKeyList( Keyspace ko, Object columnFamily, Serializer<K> keySerializer ) throws Exception {
+        long startTime = System.nanoTime();
 
-        RangeSlicesQuery<K, ByteBuffer, ByteBuffer> q = createRangeSlicesQuery( ko, keySerializer, be, be );
-        q.setColumnFamily( columnFamily.toString() );
-        q.setKeys( null, null );
-        q.setColumnNames( new ByteBuffer[0] );
-        QueryResult<OrderedRows<K, ByteBuffer, ByteBuffer>> r = q.execute();
-        OrderedRows<K, ByteBuffer, ByteBuffer> rows = r.get();
-
-        List<K> list = new ArrayList<K>();
-        for ( Row<K, ByteBuffer, ByteBuffer> row : rows ) {
-            list.add( row.getKey() );
-            // K uuid = row.getKey();
-            // if (uuid != UUIDUtils.ZERO_UUID) {
-            // list.add(uuid);
-            // }
-        }
+        try {
+            RangeSlicesQuery<K, ByteBuffer, ByteBuffer> q = createRangeSlicesQuery( ko, keySerializer, be, be );
+            q.setColumnFamily( columnFamily.toString() );
+            q.setKeys( null, null );
+            q.setColumnNames( new ByteBuffer[0] );
+            QueryResult<OrderedRows<K, ByteBuffer, ByteBuffer>> r = q.execute();
+            OrderedRows<K, ByteBuffer, ByteBuffer> rows = r.get();
+
+            List<K> list = new ArrayList<K>();
+            for ( Row<K, ByteBuffer, ByteBuffer> row : rows ) {
+                list.add( row.getKey() );
+                // K uuid = row.getKey();
+                // if (uuid != UUIDUtils.ZERO_UUID) {
+                // list.add(uuid);
+                // }
+            }
 
-        return list;
+            return list;
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "getRowKeyList", null, startTime );
+        }
     }
 
 
@@ -997,12 +1124,19 @@ public class CassandraService {
      * @throws Exception the exception
      */
     public void deleteRow( Keyspace ko, final Object columnFamily, final Object key ) throws Exception {
+        long startTime = System.nanoTime();
 
-        if ( db_logger.isDebugEnabled() ) {
-            db_logger.debug( "deleteRow cf=" + columnFamily + " key=" + key );
-        }
+        try {
+            if ( db_logger.isDebugEnabled() ) {
+                db_logger.debug( "deleteRow cf=" + columnFamily + " key=" + key );
+            }
 
-        CountingMutator.createFlushingMutator( ko, be ).addDeletion( bytebuffer( key ), columnFamily.toString() ).execute();
+            CountingMutator.createFlushingMutator( ko, be ).addDeletion( bytebuffer( key ), columnFamily.toString() )
+                           .execute();
+        }
+        finally {
+            opTracker.record( ko, columnFamily, "deleteRow", key, startTime );
+        }
     }
 
 
@@ -1048,8 +1182,102 @@ public class CassandraService {
 
 
 
+    /**
+     * Run a read on the async read pool. The latency of every read is recorded in a timer named after the operation
+     * when metrics are configured. Reads run in the calling thread if the service was never initialized.
+     */
+    private <T> ListenableFuture<T> submitRead( final String operation, final Callable<T> read ) {
+
+        final Timer timer =
+                metricsFactory != null ? metricsFactory.getTimer( CassandraService.class, operation ) : null;
+
+        Callable<T> timed = new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Timer.Context context = timer != null ? timer.time() : null;
+
+                try {
+                    return read.call();
+                }
+                finally {
+                    if ( context != null ) {
+                        context.stop();
+                    }
+                }
+            }
+        };
+
+        if ( readExecutor == null ) {
+            return MoreExecutors.sameThreadExecutor().submit( timed );
+        }
+
+        return readExecutor.submit( timed );
+    }
+
+
+    /** Async version of {@link #getAllColumns(Keyspace, Object, Object, Serializer, Serializer)} */
+    public <N, V> ListenableFuture<List<HColumn<N, V>>> getAllColumnsAsync( final Keyspace ko,
+                                                                          final Object columnFamily, final Object key,
+                                                                          final Serializer<N> nameSerializer,
+                                                                          final Serializer<V> valueSerializer ) {
+        return submitRead( "getAllColumnsAsync", new Callable<List<HColumn<N, V>>>() {
+            @Override
+            public List<HColumn<N, V>> call() throws Exception {
+                return getAllColumns( ko, columnFamily, key, nameSerializer, valueSerializer );
+            }
+        } );
+    }
+
+
+    /** Async version of {@link #getColumns(Keyspace, Object, Object, Object, Object, int, boolean)} */
+    public ListenableFuture<List<HColumn<ByteBuffer, ByteBuffer>>> getColumnsAsync( final Keyspace ko,
+                                                                                  final Object columnFamily,
+                                                                                  final Object key, final Object start,
+                                                                                  final Object finish, final int count,
+                                                                                  final boolean reversed ) {
+        return submitRead( "getColumnsAsync", new Callable<List<HColumn<ByteBuffer, ByteBuffer>>>() {
+            @Override
+            public List<HColumn<ByteBuffer, ByteBuffer>> call() throws Exception {
+                return getColumns( ko, columnFamily, key, start, finish, count, reversed );
+            }
+        } );
+    }
+
+
+    /** Async version of {@link #multiGetColumns(Keyspace, Object, List, Object, Object, int, boolean)} */
+    public ListenableFuture<Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>> multiGetColumnsAsync(
+            final Keyspace ko, final Object columnFamily, final List<?> keys, final Object start, final Object finish,
+            final int count, final boolean reversed ) {
+        return submitRead( "multiGetColumnsAsync",
+                new Callable<Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>>() {
+                    @Override
+                    public Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> call() throws Exception {
+                        return multiGetColumns( ko, columnFamily, keys, start, finish, count, reversed );
+                    }
+                } );
+    }
+
+
+    /** Async version of {@link #getRows(Keyspace, Object, Collection, Serializer, Serializer, Serializer)} */
+    public <K, N, V> ListenableFuture<Rows<K, N, V>> getRowsAsync( final Keyspace ko, final Object columnFamily,
+                                                                 final Collection<K> keys,
+                                                                 final Serializer<K> keySerializer,
+                                                                 final Serializer<N> nameSerializer,
+                                                                 final Serializer<V> valueSerializer ) {
+        return submitRead( "getRowsAsync", new Callable<Rows<K, N, V>>() {
+            @Override
+            public Rows<K, N, V> call() throws Exception {
+                return getRows( ko, columnFamily, keys, keySerializer, nameSerializer, valueSerializer );
+            }
+        } );
+    }
+
+
     
     public void destroy() throws Exception {
+        if ( readExecutor != null ) {
+            readExecutor.shutdown();
+        }
     	if (cluster != null) {
     		HConnectionManager connectionManager = cluster.getConnectionManager();
     		if (connectionManager != null) {
@@ -1058,4 +1286,24 @@ public class CassandraService {
     	}
     	cluster = null;
     }
+
+
+    /** Names the async read threads */
+    private static final class ReadThreadFactory implements ThreadFactory {
+
+        public static final ReadThreadFactory INSTANCE = new ReadThreadFactory();
+
+        private static final String NAME = "CassandraRead-";
+        private final AtomicLong counter = new AtomicLong();
+
+
+        @Override
+        public Thread newThread( final Runnable r ) {
+
+            Thread newThread = new Thread( r, NAME + counter.incrementAndGet() );
+            newThread.setDaemon( true );
+
+            return newThread;
+        }
+    }
 }
@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.locking.Lock;
+import org.apache.usergrid.locking.LockManager;
+import org.apache.usergrid.persistence.CounterResolution;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.hector.CountingMutator;
+
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.beans.HColumn;
+import me.prettyprint.hector.api.factory.HFactory;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createCounterColumn;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_DICTIONARIES;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.persistence.cassandra.CassandraService.MANAGEMENT_APPLICATION_ID;
+import static org.apache.usergrid.persistence.cassandra.CounterUtils.COUNTER_ROLLUPS;
+import static org.apache.usergrid.persistence.cassandra.CounterUtils.ROLLED_UP_TO;
+import static org.apache.usergrid.persistence.cassandra.CounterUtils.isRolledUp;
+import static org.apache.usergrid.persistence.cassandra.CounterUtils.toResolutionRow;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
+import static org.apache.usergrid.persistence.cassandra.Serializers.*;
+
+
+/**
+ * In rollup mode, recent increments are written only to the ALL and MINUTE resolutions, and this service periodically
+ * adds the closed minutes to the coarser resolutions. Each application has a watermark, the minutes before it have been
+ * rolled up, and readers add the minutes after it themselves. The minute rows written in each hour are listed in a
+ * row of the application, so only the counters that changed are read.
+ * <p/>
+ * The minutes of each hour are rolled up a run of minutes at a time, each run's increments written in one batch of
+ * bounded size with the watermark at its end. That's as close as Cassandra gets to atomic: counters can't be in a
+ * logged batch. Counter increments can't be made idempotent either, so a run whose batch fails part way is counted
+ * twice when it's run again, but a failure doesn't repeat the runs before it. Rollup mode should be turned on for
+ * every node at once, the time it was first turned on is kept as a service property.
+ */
+public class CounterRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger( CounterRollupService.class );
+
+    /** The service property with the time rollup mode started */
+    public static final String ROLLUP_SINCE = "counter.rollup.since";
+
+    /** The most minutes rolled up in one run, so an application that fell behind catches up in steps */
+    private static final long MAX_ROLLUP = CounterResolution.DAY.interval();
+
+    /** The most minute rows read at once */
+    private static final int ROLLUP_BATCH = 100;
+
+    private final CassandraService cass;
+    private final EntityManagerFactory emf;
+    private final CounterUtils counterUtils;
+    private final LockManager lockManager;
+
+    private boolean enabled;
+    private long interval = 60 * 1000;
+
+    private ScheduledExecutorService executor;
+
+
+    public CounterRollupService( CassandraService cass, EntityManagerFactory emf, CounterUtils counterUtils,
+                                 LockManager lockManager ) {
+        this.cass = cass;
+        this.emf = emf;
+        this.counterUtils = counterUtils;
+        this.lockManager = lockManager;
+    }
+
+
+    public void setEnabled( boolean enabled ) {
+        this.enabled = enabled;
+    }
+
+
+    /** Milliseconds between the rollups */
+    public void setInterval( long interval ) {
+        this.interval = interval;
+    }
+
+
+    /** Switch the counters to rollup mode and start rolling up, if enabled */
+    public void start() {
+        if ( !enabled ) {
+            return;
+        }
+
+        Map<String, String> properties = emf.getServiceProperties();
+        String since = properties != null ? properties.get( ROLLUP_SINCE ) : null;
+
+        long rollupSince;
+
+        if ( since != null ) {
+            rollupSince = Long.parseLong( since );
+        }
+        else {
+            rollupSince = CounterResolution.MINUTE.round( System.currentTimeMillis() );
+
+            if ( !emf.setServiceProperty( ROLLUP_SINCE, Long.toString( rollupSince ) ) ) {
+                logger.error( "Unable to save the start of counter rollups, counters are written to every resolution" );
+                return;
+            }
+        }
+
+        counterUtils.setRollupSince( rollupSince );
+
+        executor = Executors.newSingleThreadScheduledExecutor( RollupThreadFactory.INSTANCE );
+        executor.scheduleWithFixedDelay( new Runnable() {
+            @Override
+            public void run() {
+                rollupAll();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS );
+
+        logger.info( "Rolling up counters every {} ms since {}", interval, rollupSince );
+    }
+
+
+    public void stop() {
+        if ( executor != null ) {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /** Roll up the counters of every application */
+    public void rollupAll() {
+        Set<UUID> applicationIds = new LinkedHashSet<UUID>();
+        applicationIds.add( MANAGEMENT_APPLICATION_ID );
+
+        try {
+            applicationIds.addAll( emf.getApplications().values() );
+        }
+        catch ( Exception e ) {
+            logger.error( "Unable to load the applications to roll up", e );
+            return;
+        }
+
+        for ( UUID applicationId : applicationIds ) {
+            try {
+                rollup( applicationId, System.currentTimeMillis() );
+            }
+            catch ( Exception e ) {
+                logger.error( "Unable to roll up the counters of app " + applicationId, e );
+            }
+        }
+    }
+
+
+    /** Roll up the closed minutes of the application, unless another node is doing it */
+    public void rollup( UUID applicationId, long now ) throws Exception {
+        Lock lock = lockManager.createLock( applicationId, COUNTER_ROLLUPS );
+
+        if ( !lock.tryLock( 0, TimeUnit.MILLISECONDS ) ) {
+            return;
+        }
+
+        try {
+            doRollup( applicationId, now );
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void doRollup( UUID applicationId, long now ) throws Exception {
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        long from = counterUtils.getRolledUpTo( ko, applicationId );
+        long until = Math.min( CounterResolution.MINUTE.round( now - 2 * counterUtils.getRollupDelay() ),
+                from + MAX_ROLLUP );
+
+        if ( until <= from ) {
+            return;
+        }
+
+        int rows = 0;
+
+        long hourInterval = CounterResolution.HOUR.interval();
+
+        for ( long hour = CounterResolution.HOUR.round( from ); hour < until; hour += hourInterval ) {
+            Object listKey = key( applicationId, COUNTER_ROLLUPS, hour );
+
+            List<HColumn<String, ByteBuffer>> listed = cass.getAllColumns( ko, ENTITY_DICTIONARIES, listKey, se, be );
+
+            long start = Math.max( from, hour );
+            long finish = Math.min( until, hour + hourInterval );
+
+            SortedMap<Long, Map<String, Long>> minutes = readMinutes( ko, listed, start, finish - 1 );
+
+            //no more increments can be listed in an hour the rollup has passed
+            rollupHour( ko, applicationId, minutes, finish, hour + hourInterval <= until ? listKey : null );
+
+            rows += listed.size();
+        }
+
+        logger.debug( "Rolled up {} counter rows of app {} until {}", new Object[] { rows, applicationId, until } );
+    }
+
+
+    /** The minutes of the listed rows between start and finish, by minute and row */
+    private static SortedMap<Long, Map<String, Long>> readMinutes( Keyspace ko,
+                                                                   List<HColumn<String, ByteBuffer>> listed,
+                                                                   long start, long finish ) {
+        SortedMap<Long, Map<String, Long>> minutes = new TreeMap<Long, Map<String, Long>>();
+
+        for ( int i = 0; i < listed.size(); i += ROLLUP_BATCH ) {
+            List<String> minuteRows = new ArrayList<String>( ROLLUP_BATCH );
+
+            for ( HColumn<String, ByteBuffer> column : listed.subList( i, Math.min( i + ROLLUP_BATCH,
+                    listed.size() ) ) ) {
+                minuteRows.add( column.getName() );
+            }
+
+            //read past the cache, each minute is rolled up once
+            for ( Entry<String, SortedMap<Long, Long>> row : CounterUtils.readCounts( ko, minuteRows, start, finish )
+                                                                          .entrySet() ) {
+                for ( Entry<Long, Long> minute : row.getValue().entrySet() ) {
+                    Map<String, Long> minuteCounts = minutes.get( minute.getKey() );
+
+                    if ( minuteCounts == null ) {
+                        minuteCounts = new HashMap<String, Long>();
+                        minutes.put( minute.getKey(), minuteCounts );
+                    }
+
+                    minuteCounts.put( row.getKey(), minute.getValue() );
+                }
+            }
+        }
+
+        return minutes;
+    }
+
+
+    /**
+     * Add the minutes of an hour to the buckets of the coarser resolutions, a run of minutes at a time so each batch
+     * stays under the mutation size. The watermark moves to the end of each run in the batch of its increments.
+     *
+     * @param finish The watermark once every minute is rolled up
+     * @param closedHour The list of the hour's rows to delete with the last batch, null if the hour isn't over
+     */
+    private static void rollupHour( Keyspace ko, UUID applicationId, SortedMap<Long, Map<String, Long>> minutes,
+                                    long finish, Object closedHour ) {
+        Map<String, SortedMap<Long, Long>> run = new HashMap<String, SortedMap<Long, Long>>();
+        Set<String> buckets = new HashSet<String>();
+
+        for ( Entry<Long, Map<String, Long>> minute : minutes.entrySet() ) {
+            Set<String> minuteBuckets = new HashSet<String>();
+
+            for ( String row : minute.getValue().keySet() ) {
+                for ( CounterResolution resolution : CounterResolution.values() ) {
+                    if ( isRolledUp( resolution ) ) {
+                        minuteBuckets.add( toResolutionRow( row, resolution ) + ":" + resolution
+                                .round( minute.getKey() ) );
+                    }
+                }
+            }
+
+            minuteBuckets.removeAll( buckets );
+
+            if ( !run.isEmpty() && buckets.size() + minuteBuckets.size() >= CountingMutator.MAX_SIZE ) {
+                executeRollup( ko, applicationId, run, minute.getKey(), null );
+                run.clear();
+                buckets.clear();
+            }
+
+            for ( Entry<String, Long> row : minute.getValue().entrySet() ) {
+                SortedMap<Long, Long> rowMinutes = run.get( row.getKey() );
+
+                if ( rowMinutes == null ) {
+                    rowMinutes = new TreeMap<Long, Long>();
+                    run.put( row.getKey(), rowMinutes );
+                }
+
+                rowMinutes.put( minute.getKey(), row.getValue() );
+            }
+
+            buckets.addAll( minuteBuckets );
+        }
+
+        executeRollup( ko, applicationId, run, finish, closedHour );
+    }
+
+
+    /** Add a run of minutes to the buckets of the coarser resolutions and move the watermark to its end */
+    private static void executeRollup( Keyspace ko, UUID applicationId, Map<String, SortedMap<Long, Long>> minutes,
+                                       long rolledUpTo, Object closedHour ) {
+        //not flushing, the watermark must go out with the increments
+        Mutator<ByteBuffer> m = HFactory.createMutator( ko, be );
+
+        for ( Entry<String, SortedMap<Long, Long>> row : minutes.entrySet() ) {
+            for ( CounterResolution resolution : CounterResolution.values() ) {
+                if ( !isRolledUp( resolution ) ) {
+                    continue;
+                }
+
+                Map<Long, Long> buckets = new HashMap<Long, Long>();
+
+                for ( Entry<Long, Long> minute : row.getValue().entrySet() ) {
+                    long bucket = resolution.round( minute.getKey() );
+                    Long current = buckets.get( bucket );
+                    buckets.put( bucket, current != null ? current + minute.getValue() : minute.getValue() );
+                }
+
+                ByteBuffer rowKey = bytebuffer( toResolutionRow( row.getKey(), resolution ) );
+
+                for ( Entry<Long, Long> bucket : buckets.entrySet() ) {
+                    m.addCounter( rowKey, APPLICATION_AGGREGATE_COUNTERS.toString(),
+                            createCounterColumn( bucket.getKey(), bucket.getValue(), le ) );
+                }
+            }
+        }
+
+        //readers add the minutes after the watermark, so it moves in the same batch as the increments
+        m.addInsertion( bytebuffer( key( applicationId, COUNTER_ROLLUPS ) ), ENTITY_DICTIONARIES.toString(),
+                createColumn( ROLLED_UP_TO, rolledUpTo, se, le ) );
+
+        if ( closedHour != null ) {
+            m.addDeletion( bytebuffer( closedHour ), ENTITY_DICTIONARIES.toString() );
+        }
+
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    private static final class RollupThreadFactory implements ThreadFactory {
+
+        public static final RollupThreadFactory INSTANCE = new RollupThreadFactory();
+
+        private static final String NAME = "CounterRollup";
+
+
+        @Override
+        public Thread newThread( final Runnable r ) {
+
+            Thread newThread = new Thread( r, NAME );
+            newThread.setDaemon( true );
+
+            return newThread;
+        }
+    }
+}
@@ -19,35 +19,60 @@ package org.apache.usergrid.persistence.cassandra;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.mq.Message;
 import org.apache.usergrid.mq.cassandra.QueuesCF;
+import org.apache.usergrid.persistence.AggregateCounter;
 import org.apache.usergrid.persistence.CounterResolution;
 import org.apache.usergrid.persistence.entities.Event;
 
 import org.apache.commons.lang.StringUtils;
 
 import org.apache.usergrid.count.Batcher;
+import org.apache.usergrid.count.HyperLogLog;
 import org.apache.usergrid.count.common.Count;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 import me.prettyprint.cassandra.serializers.PrefixedSerializer;
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.beans.CounterRow;
+import me.prettyprint.hector.api.beans.CounterRows;
+import me.prettyprint.hector.api.beans.HColumn;
 import me.prettyprint.hector.api.beans.HCounterColumn;
+import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
+import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
+import me.prettyprint.hector.api.query.QueryResult;
+import me.prettyprint.hector.api.query.SliceCounterQuery;
 
 import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createColumnQuery;
 import static me.prettyprint.hector.api.factory.HFactory.createCounterColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createCounterSliceQuery;
 import static org.apache.usergrid.persistence.Schema.DICTIONARY_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_DICTIONARIES;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.addInsertToMutator;
+import static org.apache.usergrid.persistence.cassandra.CassandraService.ALL_COUNT;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
 import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
@@ -57,10 +82,40 @@ public class CounterUtils {
 
     public static final Logger logger = LoggerFactory.getLogger( CounterUtils.class );
 
+    /**
+     * The dictionary of an application that holds its rollup watermark, and the prefix of the rows that list the
+     * minute rows written in each hour
+     */
+    public static final String COUNTER_ROLLUPS = "counter_rollups";
+
+    /** Every minute before the watermark has been added to the coarser resolutions */
+    public static final String ROLLED_UP_TO = "rolledUpTo";
+
+    /** The suffix of the rows that hold the sketches of a distinct counter */
+    public static final String DISTINCT = "DISTINCT";
+
+    /** The suffix of the minute rows that hold the late increments of rollup mode */
+    public static final String LATE = "LATE";
+
+    /** The most sketch columns read at once */
+    private static final int DISTINCT_PAGE = 10000;
+
     private String counterType = "o";
 
     private Batcher batcher;
 
+    private long rollupSince;
+
+    private long rollupDelay = 5 * 60 * 1000;
+
+    private long cacheDelay = 5 * 60 * 1000;
+
+    private long cacheTtl = 60 * 1000;
+
+    private long cacheSize = 100000;
+
+    private Cache<String, CachedCounts> counterCache = createCache( cacheSize, cacheTtl );
+
 
     public void setBatcher( Batcher batcher ) {
         this.batcher = batcher;
@@ -83,6 +138,149 @@ public class CounterUtils {
     }
 
 
+    /**
+     * Set by the {@link CounterRollupService} to the time increments started being written only to the ALL and
+     * MINUTE resolutions. Before it, every resolution was written with each increment.
+     */
+    public void setRollupSince( long rollupSince ) {
+        this.rollupSince = rollupSince;
+    }
+
+
+    public long getRollupSince() {
+        return rollupSince;
+    }
+
+
+    /** True if the coarser resolutions are written by the rollup */
+    public boolean isRollup() {
+        return rollupSince > 0;
+    }
+
+
+    /**
+     * Increments older than the delay are written to the coarser resolutions, since the rollup may have passed them,
+     * and their minutes to late rows the rollup doesn't read. The rollup only closes minutes older than twice the
+     * delay, so increments still queued in the batcher are not missed
+     */
+    public void setRollupDelay( long rollupDelay ) {
+        this.rollupDelay = rollupDelay;
+    }
+
+
+    public long getRollupDelay() {
+        return rollupDelay;
+    }
+
+
+    /**
+     * The most buckets kept by the counter read cache, 0 to turn it off. An increment to a cached bucket that isn't
+     * written through this node, flushed late by another node, is only seen once the cached counts expire
+     */
+    public void setCacheSize( long cacheSize ) {
+        this.cacheSize = cacheSize;
+        counterCache = cacheSize > 0 ? createCache( cacheSize, cacheTtl ) : null;
+    }
+
+
+    /** Milliseconds the counts of a row are cached for, counted from the first of its buckets being cached */
+    public void setCacheTtl( long cacheTtl ) {
+        this.cacheTtl = cacheTtl;
+        counterCache = cacheSize > 0 ? createCache( cacheSize, cacheTtl ) : null;
+    }
+
+
+    /** Buckets that ended more than the delay ago are cached, the increments still queued in the batcher are older */
+    public void setCacheDelay( long cacheDelay ) {
+        this.cacheDelay = cacheDelay;
+    }
+
+
+    private static Cache<String, CachedCounts> createCache( long cacheSize, long cacheTtl ) {
+        return CacheBuilder.newBuilder().maximumWeight( cacheSize ).weigher( new Weigher<String, CachedCounts>() {
+            @Override
+            public int weigh( String key, CachedCounts counts ) {
+                return counts.buckets.size() + 1;
+            }
+        } ).expireAfterWrite( cacheTtl, TimeUnit.MILLISECONDS ).build();
+    }
+
+
+    /** True if the resolution is written by the rollup in rollup mode, instead of with each increment */
+    public static boolean isRolledUp( CounterResolution resolution ) {
+        return resolution != CounterResolution.ALL && resolution != CounterResolution.MINUTE;
+    }
+
+
+    /** The row of the same counter selection at another resolution */
+    public static String toResolutionRow( String row, CounterResolution resolution ) {
+        return StringUtils.substringBeforeLast( row, AggregateCounterSelection.COLON ) + AggregateCounterSelection.COLON
+                + resolution.name();
+    }
+
+
+    /** The counts of a row in a range of closed buckets */
+    static final class CachedCounts {
+        /** The first bucket of the range */
+        final long start;
+        /** The bucket after the range */
+        final long end;
+        final SortedMap<Long, Long> buckets;
+        /** When the oldest of the counts were read */
+        final long cachedAt;
+
+
+        CachedCounts( long start, long end, SortedMap<Long, Long> buckets, long cachedAt ) {
+            this.start = start;
+            this.end = end;
+            this.buckets = Collections.unmodifiableSortedMap( new TreeMap<Long, Long>( buckets ) );
+            this.cachedAt = cachedAt;
+        }
+
+
+        /** True if the oldest counts were read less than the ttl ago */
+        boolean isFresh( long now, long ttl ) {
+            return now - cachedAt < ttl;
+        }
+
+
+        /** True if the range has every bucket from the given one on, up to its end */
+        boolean covers( long bucket ) {
+            return start <= bucket && bucket <= end;
+        }
+
+
+        /** The union of the ranges if they overlap or touch, otherwise the other range */
+        CachedCounts merge( CachedCounts other ) {
+            if ( other.start > end || start > other.end ) {
+                return other;
+            }
+
+            SortedMap<Long, Long> merged = new TreeMap<Long, Long>( buckets );
+            merged.putAll( other.buckets );
+
+            //merging doesn't renew the counts already cached
+            return new CachedCounts( Math.min( start, other.start ), Math.max( end, other.end ), merged,
+                    Math.min( cachedAt, other.cachedAt ) );
+        }
+    }
+
+
+    /** The row of the sketches of a distinct counter, next to the row of its summed counter */
+    public static String toDistinctRow( String row ) {
+        return row + AggregateCounterSelection.COLON + DISTINCT;
+    }
+
+
+    /**
+     * The row of the late increments of a minute row. They're also written to the coarser resolutions, so they're
+     * kept apart from the minutes that the rollup and the readers of the coarser resolutions add
+     */
+    public static String toLateRow( String row ) {
+        return row + AggregateCounterSelection.COLON + LATE;
+    }
+
+
     public static class AggregateCounterSelection {
         public static final String COLON = ":";
         public static final String STAR = "*";
@@ -186,6 +384,12 @@ public class CounterUtils {
                         timestamp );
             }
         }
+        if ( event.getDistinctCounters() != null ) {
+            for ( Entry<String, String> value : event.getDistinctCounters().entrySet() ) {
+                batchAddDistinctCounter( m, applicationId, event.getUser(), event.getGroup(), null,
+                        event.getCategory(), value.getKey().toLowerCase(), value.getValue(), event.getTimestamp() );
+            }
+        }
     }
 
 
@@ -223,10 +427,18 @@ public class CounterUtils {
     public void batchIncrementAggregateCounters( Mutator<ByteBuffer> m, UUID applicationId, UUID userId, UUID groupId,
                                                  UUID queueId, String category, String name, long value,
                                                  long counterTimestamp, long cassandraTimestamp ) {
+        // in rollup mode, recent increments are rolled up from the minutes. Late ones may be behind the rollup, so
+        // they go to the coarser resolutions directly, and to the late minute rows that the rollup doesn't add
+        boolean rollup = isRollup();
+        boolean recent = counterTimestamp > System.currentTimeMillis() - rollupDelay;
+
         for ( CounterResolution resolution : CounterResolution.values() ) {
+            if ( rollup && recent && isRolledUp( resolution ) ) {
+                continue;
+            }
             logger.debug( "BIAC for resolution {}", resolution );
             batchIncrementAggregateCounters( m, userId, groupId, queueId, category, resolution, name, value,
-                    counterTimestamp, applicationId );
+                    counterTimestamp, applicationId, rollup && recent ? cassandraTimestamp : 0, rollup && !recent );
             logger.debug( "DONE BIAC for resolution {}", resolution );
         }
         batchIncrementEntityCounter( m, applicationId, name, value, cassandraTimestamp, applicationId );
@@ -239,9 +451,63 @@ public class CounterUtils {
     }
 
 
+    /**
+     * Add a value to the sketches of a distinct counter, in every resolution. Adding a value again doesn't change the
+     * sketches, so they aren't rolled up in rollup mode
+     */
+    public void batchAddDistinctCounter( Mutator<ByteBuffer> m, UUID applicationId, UUID userId, UUID groupId,
+                                         UUID queueId, String category, String name, String value,
+                                         long counterTimestamp ) {
+        if ( value == null ) {
+            return;
+        }
+
+        long hash = HyperLogLog.hash( value );
+
+        for ( CounterResolution resolution : CounterResolution.values() ) {
+            long column = HyperLogLog.toColumn( resolution.round( counterTimestamp ), hash );
+
+            for ( String row : getSelectionRows( name, userId, groupId, queueId, category, resolution ) ) {
+                handleAggregateCounterRow( m, toDistinctRow( row ), column, 1, applicationId );
+            }
+        }
+    }
+
+
+    /**
+     * @param rollupTimestamp When not 0, the minute rows are listed for the rollup with this timestamp
+     * @param late True to write the minutes to the late rows
+     */
     private void batchIncrementAggregateCounters( Mutator<ByteBuffer> m, UUID userId, UUID groupId, UUID queueId,
                                                   String category, CounterResolution resolution, String name,
-                                                  long value, long counterTimestamp, UUID applicationId ) {
+                                                  long value, long counterTimestamp, UUID applicationId,
+                                                  long rollupTimestamp, boolean late ) {
+
+        boolean listForRollup = rollupTimestamp != 0 && resolution == CounterResolution.MINUTE && m != null;
+        boolean lateRow = late && resolution == CounterResolution.MINUTE;
+        Object rollupKey = key( applicationId, COUNTER_ROLLUPS, CounterResolution.HOUR.round( counterTimestamp ) );
+
+        for ( String row : getSelectionRows( name, userId, groupId, queueId, category, resolution ) ) {
+            if ( lateRow ) {
+                //the late rows are read and cached with their minute row
+                invalidateCached( applicationId, row, resolution.round( counterTimestamp ) );
+            }
+            handleAggregateCounterRow( m, lateRow ? toLateRow( row ) : row, resolution.round( counterTimestamp ),
+                    value, applicationId );
+            if ( listForRollup ) {
+                addInsertToMutator( m, ENTITY_DICTIONARIES, rollupKey, row, null, rollupTimestamp );
+            }
+        }
+    }
+
+
+    /**
+     * The rows of every selection an increment counts in, for each segment of the dotted name and each combination of
+     * the user, group, queue and category
+     */
+    private static Set<String> getSelectionRows( String name, UUID userId, UUID groupId, UUID queueId, String category,
+                                                 CounterResolution resolution ) {
+        Set<String> rows = new LinkedHashSet<String>();
 
         String[] segments = StringUtils.split( name, '.' );
         for ( int j = 0; j < segments.length; j++ ) {
@@ -252,11 +518,7 @@ public class CounterUtils {
             }
 
             // *:*:*:*
-            handleAggregateCounterRow( m,
-                    AggregateCounterSelection.rowBuilder( name, null, null, null, null, resolution ),
-                    resolution.round( counterTimestamp ), value, applicationId );
-            String currentRow = null;
-            HashSet<String> rowSet = new HashSet<String>( 16 );
+            rows.add( AggregateCounterSelection.rowBuilder( name, null, null, null, null, resolution ) );
             for ( int i = 0; i < 16; i++ ) {
 
                 boolean include_user = ( i & 0x01 ) != 0;
@@ -274,17 +536,16 @@ public class CounterUtils {
                         non_null++;
                     }
                 }
-                currentRow = AggregateCounterSelection
-                        .rowBuilder( name, ( UUID ) parameters[0], ( UUID ) parameters[1], ( UUID ) parameters[2],
-                                ( String ) parameters[3], resolution );
-
-                if ( non_null > 0 && !rowSet.contains( currentRow ) ) {
-                    rowSet.add( currentRow );
-                    handleAggregateCounterRow( m, currentRow, resolution.round( counterTimestamp ), value,
-                            applicationId );
+
+                if ( non_null > 0 ) {
+                    rows.add( AggregateCounterSelection
+                            .rowBuilder( name, ( UUID ) parameters[0], ( UUID ) parameters[1], ( UUID ) parameters[2],
+                                    ( String ) parameters[3], resolution ) );
                 }
             }
         }
+
+        return rows;
     }
 
 
@@ -294,6 +555,7 @@ public class CounterUtils {
             logger.info( "HACR: aggregateRow for app {} with key {} column {} and value {}",
                     new Object[] { applicationId, key, column, value } );
         }
+        invalidateCached( applicationId, key, column );
         if ( "o".equals( counterType ) || "p".equals( counterType ) ) {
             if ( m != null ) {
                 HCounterColumn<Long> c = createCounterColumn( column, value, le );
@@ -310,6 +572,19 @@ public class CounterUtils {
     }
 
 
+    /** Drop the cached counts of a row if the increment is to one of its cached buckets */
+    private void invalidateCached( UUID applicationId, String row, long column ) {
+        Cache<String, CachedCounts> cache = counterCache;
+        if ( cache != null ) {
+            // a late increment to a cached bucket
+            CachedCounts cached = cache.getIfPresent( cacheKey( applicationId, row ) );
+            if ( cached != null && column < cached.end ) {
+                cache.invalidate( cacheKey( applicationId, row ) );
+            }
+        }
+    }
+
+
     public AggregateCounterSelection getAggregateCounterSelection( String name, UUID userId, UUID groupId, UUID queueId,
                                                                    String category ) {
         return new AggregateCounterSelection( name, userId, groupId, queueId, category );
@@ -332,6 +607,269 @@ public class CounterUtils {
     }
 
 
+    /**
+     * Read the counts of the rows between the start and finish buckets, by row. In rollup mode, the minutes the rollup
+     * hasn't reached yet are added to the buckets of the coarser resolutions, and the late rows to the minutes.
+     * Buckets that closed more than the cache delay ago are cached for the cache ttl, and only the buckets after the
+     * cached ones are read again.
+     *
+     * @param rows The rows of the resolution
+     */
+    public Map<String, List<AggregateCounter>> getAggregateCounters( Keyspace ko, UUID applicationId,
+                                                                     Collection<String> rows,
+                                                                     CounterResolution resolution, long start,
+                                                                     long finish ) {
+        long rolledUpTo = isRollup() && isRolledUp( resolution ) ? getRolledUpTo( ko, applicationId ) : Long.MAX_VALUE;
+
+        //the last bucket ends before its next one
+        long end = resolution.next( finish );
+
+        Cache<String, CachedCounts> cache = resolution != CounterResolution.ALL ? counterCache : null;
+        long now = System.currentTimeMillis();
+        long closed = cache != null ? Math.min( getClosedBefore( resolution, now - cacheDelay, rolledUpTo ), end ) :
+                      start;
+
+        Map<String, CachedCounts> cached = new HashMap<String, CachedCounts>();
+        long readStart = end;
+
+        for ( String row : rows ) {
+            CachedCounts rowCache = cache != null ? cache.getIfPresent( cacheKey( applicationId, row ) ) : null;
+
+            //another node's late flush is seen once the counts expire
+            if ( rowCache != null && rowCache.isFresh( now, cacheTtl ) && rowCache.covers( start ) ) {
+                cached.put( row, rowCache );
+                readStart = Math.min( readStart, rowCache.end );
+            }
+            else {
+                readStart = start;
+            }
+        }
+
+        Map<String, SortedMap<Long, Long>> counts;
+
+        if ( readStart < end ) {
+            counts = readCounts( ko, rows, resolution, readStart, finish, rolledUpTo,
+                    isRollup() && resolution == CounterResolution.MINUTE );
+        }
+        else {
+            counts = new LinkedHashMap<String, SortedMap<Long, Long>>();
+
+            for ( String row : rows ) {
+                counts.put( row, new TreeMap<Long, Long>() );
+            }
+        }
+
+        Map<String, List<AggregateCounter>> counters = new LinkedHashMap<String, List<AggregateCounter>>();
+
+        for ( Entry<String, SortedMap<Long, Long>> row : counts.entrySet() ) {
+            SortedMap<Long, Long> buckets = row.getValue();
+            CachedCounts rowCache = cached.get( row.getKey() );
+
+            if ( rowCache != null ) {
+                buckets = new TreeMap<Long, Long>( rowCache.buckets.subMap( start, Math.min( rowCache.end, end ) ) );
+                buckets.putAll( row.getValue().tailMap( rowCache.end ) );
+            }
+
+            if ( closed > ( rowCache != null ? rowCache.end : start ) ) {
+                CachedCounts closedCounts = new CachedCounts( start, closed, buckets.subMap( start, closed ), now );
+                cache.put( cacheKey( applicationId, row.getKey() ),
+                        rowCache != null ? rowCache.merge( closedCounts ) : closedCounts );
+            }
+
+            List<AggregateCounter> rowCounters = new ArrayList<AggregateCounter>( buckets.size() );
+
+            for ( Entry<Long, Long> count : buckets.entrySet() ) {
+                rowCounters.add( new AggregateCounter( count.getKey(), count.getValue() ) );
+            }
+
+            counters.put( row.getKey(), rowCounters );
+        }
+
+        return counters;
+    }
+
+
+    /**
+     * The counts of the rows between the start and finish buckets, with the minutes the rollup hasn't reached
+     *
+     * @param withLate True to add the late rows of minute rows
+     */
+    private static Map<String, SortedMap<Long, Long>> readCounts( Keyspace ko, Collection<String> rows,
+                                                                  CounterResolution resolution, long start,
+                                                                  long finish, long rolledUpTo, boolean withLate ) {
+        Map<String, SortedMap<Long, Long>> counts = readCounts( ko, rows, start, finish );
+
+        if ( withLate ) {
+            Map<String, String> lateRows = new HashMap<String, String>();
+
+            for ( String row : rows ) {
+                lateRows.put( toLateRow( row ), row );
+            }
+
+            for ( Entry<String, SortedMap<Long, Long>> late : readCounts( ko, lateRows.keySet(), start, finish )
+                    .entrySet() ) {
+                SortedMap<Long, Long> buckets = counts.get( lateRows.get( late.getKey() ) );
+
+                for ( Entry<Long, Long> minute : late.getValue().entrySet() ) {
+                    add( buckets, minute.getKey(), minute.getValue() );
+                }
+            }
+        }
+
+        //the last bucket ends before its next one
+        long end = resolution.next( finish ) - 1;
+
+        if ( rolledUpTo <= end ) {
+            Map<String, String> minuteRows = new HashMap<String, String>();
+
+            for ( String row : rows ) {
+                minuteRows.put( toResolutionRow( row, CounterResolution.MINUTE ), row );
+            }
+
+            for ( Entry<String, SortedMap<Long, Long>> minutes : readCounts( ko, minuteRows.keySet(),
+                    Math.max( start, rolledUpTo ), end ).entrySet() ) {
+
+                SortedMap<Long, Long> buckets = counts.get( minuteRows.get( minutes.getKey() ) );
+
+                for ( Entry<Long, Long> minute : minutes.getValue().entrySet() ) {
+                    add( buckets, resolution.round( minute.getKey() ), minute.getValue() );
+                }
+            }
+        }
+
+        return counts;
+    }
+
+
+    /**
+     * The first bucket of the resolution that may still change. Buckets before it ended before the given time, and in
+     * rollup mode, before the watermark of the rollup
+     *
+     * @param rolledUpTo The watermark, or {@link Long#MAX_VALUE} if the resolution isn't rolled up
+     */
+    static long getClosedBefore( CounterResolution resolution, long settled, long rolledUpTo ) {
+        return resolution.round( Math.min( settled, rolledUpTo ) );
+    }
+
+
+    private static String cacheKey( UUID applicationId, String row ) {
+        return applicationId + AggregateCounterSelection.COLON + row;
+    }
+
+
+    /**
+     * Estimate the distinct values added to the rows in each bucket between the start and finish buckets, by row
+     *
+     * @param rows The rows of the resolution, as for summed counters
+     */
+    public Map<String, List<AggregateCounter>> getDistinctCounters( Keyspace ko, Collection<String> rows,
+                                                                    CounterResolution resolution, long start,
+                                                                    long finish ) {
+        Map<String, List<AggregateCounter>> counters = new LinkedHashMap<String, List<AggregateCounter>>();
+
+        for ( String row : rows ) {
+            List<AggregateCounter> rowCounters = new ArrayList<AggregateCounter>();
+
+            for ( Entry<Long, HyperLogLog> sketch : readSketches( ko, toDistinctRow( row ), resolution, start,
+                    finish ).entrySet() ) {
+                rowCounters.add( new AggregateCounter( sketch.getKey(), sketch.getValue().estimate() ) );
+            }
+
+            counters.put( row, rowCounters );
+        }
+
+        return counters;
+    }
+
+
+    /** The sketches of a row by bucket, read a page at a time so each bucket only holds its registers */
+    private static SortedMap<Long, HyperLogLog> readSketches( Keyspace ko, String row, CounterResolution resolution,
+                                                              long start, long finish ) {
+        SortedMap<Long, HyperLogLog> sketches = new TreeMap<Long, HyperLogLog>();
+
+        SliceCounterQuery<String, Long> q = createCounterSliceQuery( ko, se, le );
+        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
+        q.setKey( row );
+
+        long from = HyperLogLog.firstColumn( start );
+        long to = HyperLogLog.lastColumn( finish );
+
+        while ( from <= to ) {
+            q.setRange( from, to, false, DISTINCT_PAGE );
+            List<HCounterColumn<Long>> columns = q.execute().get().getColumns();
+
+            for ( HCounterColumn<Long> column : columns ) {
+                if ( column.getValue() <= 0 ) {
+                    continue;
+                }
+
+                long bucket = resolution.round( HyperLogLog.getTime( column.getName() ) );
+                HyperLogLog sketch = sketches.get( bucket );
+
+                if ( sketch == null ) {
+                    sketch = new HyperLogLog();
+                    sketches.put( bucket, sketch );
+                }
+
+                sketch.addColumn( column.getName() );
+            }
+
+            if ( columns.size() < DISTINCT_PAGE ) {
+                break;
+            }
+
+            from = columns.get( columns.size() - 1 ).getName() + 1;
+        }
+
+        return sketches;
+    }
+
+
+    /** The counts of every row, by bucket */
+    static Map<String, SortedMap<Long, Long>> readCounts( Keyspace ko, Collection<String> rows, long start,
+                                                                  long finish ) {
+        MultigetSliceCounterQuery<String, Long> q = HFactory.createMultigetSliceCounterQuery( ko, se, le );
+        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
+        q.setRange( start, finish, false, ALL_COUNT );
+        QueryResult<CounterRows<String, Long>> result = q.setKeys( rows ).execute();
+
+        Map<String, SortedMap<Long, Long>> counts = new LinkedHashMap<String, SortedMap<Long, Long>>();
+
+        for ( String row : rows ) {
+            counts.put( row, new TreeMap<Long, Long>() );
+        }
+
+        for ( CounterRow<String, Long> row : result.get() ) {
+            SortedMap<Long, Long> buckets = counts.get( row.getKey() );
+
+            for ( HCounterColumn<Long> column : row.getColumnSlice().getColumns() ) {
+                add( buckets, column.getName(), column.getValue() );
+            }
+        }
+
+        return counts;
+    }
+
+
+    private static void add( SortedMap<Long, Long> buckets, long bucket, long value ) {
+        Long current = buckets.get( bucket );
+        buckets.put( bucket, current != null ? current + value : value );
+    }
+
+
+    /**
+     * The time before which every minute of the application has been added to the coarser resolutions. It's the time
+     * rollup mode started if the application hasn't been rolled up yet
+     */
+    public long getRolledUpTo( Keyspace ko, UUID applicationId ) {
+        HColumn<String, Long> column = createColumnQuery( ko, be, se, le ).setColumnFamily(
+                ENTITY_DICTIONARIES.toString() ).setKey( bytebuffer( key( applicationId, COUNTER_ROLLUPS ) ) )
+                .setName( ROLLED_UP_TO ).execute().get();
+
+        return column != null ? Math.max( column.getValue(), rollupSince ) : rollupSince;
+    }
+
+
     private Mutator<ByteBuffer> batchIncrementEntityCounter( Mutator<ByteBuffer> m, UUID entityId, String name,
                                                              Long value, long timestamp, UUID applicationId ) {
         if ( logger.isDebugEnabled() ) {
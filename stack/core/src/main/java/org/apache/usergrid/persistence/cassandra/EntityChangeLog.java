@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Schema;
+
+import me.prettyprint.hector.api.beans.DynamicComposite;
+import me.prettyprint.hector.api.beans.HColumn;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static java.util.Arrays.asList;
+import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_ID_SETS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.logBatchOperation;
+import static org.apache.usergrid.persistence.cassandra.Serializers.*;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
+import static org.apache.usergrid.utils.ConversionUtils.uuid;
+import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMicros;
+import static org.apache.usergrid.utils.UUIDUtils.getTimestampInMillis;
+import static org.apache.usergrid.utils.UUIDUtils.maxTimeUUID;
+import static org.apache.usergrid.utils.UUIDUtils.minTimeUUID;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+
+
+/**
+ * The entities created, updated and deleted in each collection of an application, in the order of the changes, so an
+ * export can read what changed since its last run instead of scanning the collections. The changes of a collection
+ * are split into a row for each hour, ordered by a time uuid for each change. Changes expire after the retention set
+ * with usergrid.entity.changelog.retention.seconds, so exports must run more often than that.
+ */
+public class EntityChangeLog {
+
+    /** The prefix of the rows that list the changes of a collection */
+    public static final String DICTIONARY_CHANGES = "changes";
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    private static final long SHARD_INTERVAL = 60 * 60 * 1000;
+
+
+    private EntityChangeLog() {
+    }
+
+
+    /**
+     * Add a change of the entity, made at the time of the timestamp uuid, to the mutator
+     *
+     * @param ttl The seconds the change is kept, 0 keeps it until the row is removed
+     */
+    public static void addChangeToMutator( Mutator<ByteBuffer> m, UUID applicationId, EntityRef entity,
+                                           String operation, UUID timestampUuid, int ttl ) {
+        UUID changeId = newTimeUUID();
+
+        Object key = getShardKey( applicationId, getCollectionName( entity.getType() ),
+                getTimestampInMillis( changeId ) );
+        List<?> value = asList( entity.getUuid(), entity.getType(), operation );
+
+        logBatchOperation( "Insert", ENTITY_ID_SETS, key, changeId, value, getTimestampInMicros( timestampUuid ) );
+
+        HColumn<ByteBuffer, ByteBuffer> column =
+                createColumn( bytebuffer( changeId ), DynamicComposite.toByteBuffer( value ),
+                        getTimestampInMicros( timestampUuid ), be, be );
+        if ( ttl > 0 ) {
+            column.setTtl( ttl );
+        }
+        m.addInsertion( bytebuffer( key ), ENTITY_ID_SETS.toString(), column );
+    }
+
+
+    /**
+     * Read the changes of a collection made after the given change and before the given time, in the order they were
+     * made
+     *
+     * @param after The last change already read, or a time uuid of the time to read from
+     * @param until The time of the last change to read
+     * @param count The most changes to read
+     */
+    public static List<Change> getChanges( CassandraService cass, UUID applicationId, String collectionName,
+                                           UUID after, long until, int count ) throws Exception {
+        List<Change> changes = new ArrayList<Change>();
+
+        UUID finish = maxTimeUUID( until );
+
+        for ( long shard = getShard( getTimestampInMillis( after ) ); shard <= until && changes.size() < count;
+              shard += SHARD_INTERVAL ) {
+
+            UUID start = after;
+
+            while ( changes.size() < count ) {
+                //the start of a slice is inclusive, so read one more and skip it
+                int limit = count - changes.size() + 1;
+
+                List<HColumn<ByteBuffer, ByteBuffer>> columns =
+                        cass.getColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_ID_SETS,
+                                getShardKey( applicationId, collectionName, shard ), start, finish, limit, false );
+
+                for ( HColumn<ByteBuffer, ByteBuffer> column : columns ) {
+                    UUID changeId = uuid( column.getName() );
+
+                    if ( changeId.equals( start ) ) {
+                        continue;
+                    }
+
+                    DynamicComposite value = DynamicComposite.fromByteBuffer( column.getValue() );
+                    changes.add( new Change( changeId, value.get( 0, ue ), value.get( 1, se ), value.get( 2, se ) ) );
+                    start = changeId;
+                }
+
+                if ( columns.size() < limit ) {
+                    break;
+                }
+            }
+
+            after = minTimeUUID( shard + SHARD_INTERVAL );
+        }
+
+        return changes;
+    }
+
+
+    /** The collection the changes of entities of the type are listed in */
+    public static String getCollectionName( String entityType ) {
+        return Schema.defaultCollectionName( entityType );
+    }
+
+
+    private static long getShard( long timestamp ) {
+        return ( timestamp / SHARD_INTERVAL ) * SHARD_INTERVAL;
+    }
+
+
+    private static Object getShardKey( UUID applicationId, String collectionName, long timestamp ) {
+        return key( applicationId, DICTIONARY_CHANGES, collectionName, getShard( timestamp ) );
+    }
+
+
+    /** A change of an entity */
+    public static class Change {
+
+        private final UUID id;
+        private final UUID entityId;
+        private final String entityType;
+        private final String operation;
+
+
+        public Change( UUID id, UUID entityId, String entityType, String operation ) {
+            this.id = id;
+            this.entityId = entityId;
+            this.entityType = entityType;
+            this.operation = operation;
+        }
+
+
+        /** The time uuid of the change, in the order of the changes */
+        public UUID getId() {
+            return id;
+        }
+
+
+        public UUID getEntityId() {
+            return entityId;
+        }
+
+
+        public String getEntityType() {
+            return entityType;
+        }
+
+
+        /** {@link #UPSERT} or {@link #DELETE} */
+        public String getOperation() {
+            return operation;
+        }
+
+
+        public boolean isDelete() {
+            return DELETE.equals( operation );
+        }
+    }
+}
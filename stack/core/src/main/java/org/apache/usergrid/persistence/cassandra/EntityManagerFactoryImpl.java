@@ -21,6 +21,8 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +39,7 @@ import org.apache.usergrid.utils.UUIDUtils;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -97,6 +100,32 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
                 }
             } );
 
+    /** The key of the only entry of {@link #applicationsCache} */
+    private static final String ALL_APPLICATIONS = "*";
+
+    /**
+     * How long application names and ids are cached. Creates through this factory invalidate the cache immediately,
+     * other nodes of the cluster see them once their own entries expire. Names that are not found are never cached,
+     * so an application is usable as soon as it exists.
+     */
+    private long applicationCacheTtlSeconds = 30;
+
+    private Cache<String, UUID> applicationIdCache;
+
+    private LoadingCache<String, Map<String, UUID>> applicationsCache;
+
+    /**
+     * When set, deletes write a tombstone and leave the rest of the cleanup to an
+     * {@link org.apache.usergrid.batch.job.EntityDeleteJob}
+     */
+    private boolean asyncEntityDelete;
+
+    /** When set, entity writes are listed in the {@link EntityChangeLog} for incremental exports */
+    private boolean entityChangeLog;
+
+    /** Seconds the changes stay in the {@link EntityChangeLog}, 0 keeps them */
+    private int entityChangeLogRetention;
+
 
     /**
      * Must be constructed with a CassandraClientPool.
@@ -110,6 +139,65 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
         if ( skipAggregateCounters ) {
             logger.warn( "NOTE: Counters have been disabled by configuration..." );
         }
+        initApplicationCaches();
+    }
+
+
+    private void initApplicationCaches() {
+        applicationIdCache = CacheBuilder.newBuilder().maximumSize( 10000 )
+                                         .expireAfterWrite( applicationCacheTtlSeconds, TimeUnit.SECONDS ).build();
+
+        applicationsCache = CacheBuilder.newBuilder().maximumSize( 1 )
+                                        .expireAfterWrite( applicationCacheTtlSeconds, TimeUnit.SECONDS )
+                                        .build( new CacheLoader<String, Map<String, UUID>>() {
+                                            public Map<String, UUID> load( String key ) throws Exception {
+                                                return loadApplications();
+                                            }
+                                        } );
+    }
+
+
+    /** Set how many seconds application names and ids are cached, 0 disables caching */
+    public void setApplicationCacheTtlSeconds( long applicationCacheTtlSeconds ) {
+        this.applicationCacheTtlSeconds = applicationCacheTtlSeconds;
+        initApplicationCaches();
+    }
+
+
+    public void setAsyncEntityDelete( boolean asyncEntityDelete ) {
+        this.asyncEntityDelete = asyncEntityDelete;
+    }
+
+
+    public boolean isAsyncEntityDelete() {
+        return asyncEntityDelete;
+    }
+
+
+    public void setEntityChangeLog( boolean entityChangeLog ) {
+        this.entityChangeLog = entityChangeLog;
+    }
+
+
+    public boolean isEntityChangeLog() {
+        return entityChangeLog;
+    }
+
+
+    public void setEntityChangeLogRetention( int entityChangeLogRetention ) {
+        this.entityChangeLogRetention = entityChangeLogRetention;
+    }
+
+
+    public int getEntityChangeLogRetention() {
+        return entityChangeLogRetention;
+    }
+
+
+    /** Drop the cached id of the application, and the cached list of all applications */
+    public void invalidateApplication( String name ) {
+        applicationIdCache.invalidate( name.toLowerCase() );
+        applicationsCache.invalidateAll();
     }
 
 
@@ -251,6 +339,9 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
 
         batchExecute( m, RETRY_COUNT );
 
+        // the cached list of all applications doesn't have the new one yet, names that are missing aren't cached
+        invalidateApplication( appName );
+
         EntityManager em = getEntityManager( applicationId );
         em.create( TYPE_APPLICATION, APPLICATION_ENTITY_CLASS, properties );
 
@@ -281,7 +372,20 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
     @Override
     @Metered(group = "core", name = "EntityManagerFactory_lookupApplication_byName")
     public UUID lookupApplication( String name ) throws Exception {
-        name = name.toLowerCase();
+        String key = name.toLowerCase();
+
+        UUID applicationId = applicationIdCache.getIfPresent( key );
+        if ( applicationId == null ) {
+            applicationId = loadApplicationId( key );
+            if ( applicationId != null ) {
+                applicationIdCache.put( key, applicationId );
+            }
+        }
+        return applicationId;
+    }
+
+
+    private UUID loadApplicationId( String name ) throws Exception {
         HColumn<String, ByteBuffer> column =
                 cass.getColumn( cass.getSystemKeyspace(), APPLICATIONS_CF, name, PROPERTY_UUID );
         if ( column != null ) {
@@ -291,6 +395,14 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
     }
 
 
+    private static Exception unwrap( ExecutionException e ) {
+        if ( e.getCause() instanceof Exception ) {
+            return ( Exception ) e.getCause();
+        }
+        return e;
+    }
+
+
     /**
      * Gets the application.
      *
@@ -302,15 +414,11 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
      */
     @Metered(group = "core", name = "EntityManagerFactory_getApplication")
     public Application getApplication( String name ) throws Exception {
-        name = name.toLowerCase();
-        HColumn<String, ByteBuffer> column =
-                cass.getColumn( cass.getSystemKeyspace(), APPLICATIONS_CF, name, PROPERTY_UUID );
-        if ( column == null ) {
+        UUID applicationId = lookupApplication( name );
+        if ( applicationId == null ) {
             return null;
         }
 
-        UUID applicationId = uuid( column.getValue() );
-
         EntityManager em = getEntityManager( applicationId );
         return ( ( EntityManagerImpl ) em ).getEntity( applicationId, Application.class );
     }
@@ -318,6 +426,18 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory, Applicati
 
     @Override
     public Map<String, UUID> getApplications() throws Exception {
+        Map<String, UUID> applications = new TreeMap<String, UUID>( CASE_INSENSITIVE_ORDER );
+        try {
+            applications.putAll( applicationsCache.get( ALL_APPLICATIONS ) );
+        }
+        catch ( ExecutionException e ) {
+            throw unwrap( e );
+        }
+        return applications;
+    }
+
+
+    private Map<String, UUID> loadApplications() throws Exception {
         Map<String, UUID> applications = new TreeMap<String, UUID>( CASE_INSENSITIVE_ORDER );
         Keyspace ko = cass.getSystemKeyspace();
         RangeSlicesQuery<String, String, UUID> q = createRangeSlicesQuery( ko, se, se, ue );
@@ -33,6 +33,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Resource;
 
@@ -40,6 +41,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.util.Assert;
+import org.apache.usergrid.batch.job.EntityDeleteJob;
+import org.apache.usergrid.batch.service.SchedulerService;
 import org.apache.usergrid.locking.Lock;
 import org.apache.usergrid.mq.Message;
 import org.apache.usergrid.mq.QueueManager;
@@ -69,6 +72,7 @@ import org.apache.usergrid.persistence.SimpleEntityRef;
 import org.apache.usergrid.persistence.SimpleRoleRef;
 import org.apache.usergrid.persistence.TypedEntity;
 import org.apache.usergrid.persistence.cassandra.CounterUtils.AggregateCounterSelection;
+import org.apache.usergrid.persistence.cassandra.index.IndexMultiBucketSetLoader;
 import org.apache.usergrid.persistence.cassandra.util.TraceParticipant;
 import org.apache.usergrid.persistence.entities.Application;
 import org.apache.usergrid.persistence.entities.Event;
@@ -81,18 +85,18 @@ import org.apache.usergrid.persistence.exceptions.RequiredPropertyNotFoundExcept
 import org.apache.usergrid.persistence.exceptions.UnexpectedEntityTypeException;
 import org.apache.usergrid.persistence.hector.CountingMutator;
 import org.apache.usergrid.persistence.schema.CollectionInfo;
+import org.apache.usergrid.persistence.schema.EntityInfo;
 import org.apache.usergrid.utils.ClassUtils;
 import org.apache.usergrid.utils.CompositeUtils;
 import org.apache.usergrid.utils.UUIDUtils;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.yammer.metrics.annotation.Metered;
 
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.ColumnSlice;
-import me.prettyprint.hector.api.beans.CounterRow;
-import me.prettyprint.hector.api.beans.CounterRows;
 import me.prettyprint.hector.api.beans.CounterSlice;
 import me.prettyprint.hector.api.beans.DynamicComposite;
 import me.prettyprint.hector.api.beans.HColumn;
@@ -101,7 +105,6 @@ import me.prettyprint.hector.api.beans.Row;
 import me.prettyprint.hector.api.beans.Rows;
 import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
-import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
 import me.prettyprint.hector.api.query.QueryResult;
 import me.prettyprint.hector.api.query.SliceCounterQuery;
 
@@ -143,7 +146,6 @@ import static org.apache.usergrid.persistence.SimpleEntityRef.getUuid;
 import static org.apache.usergrid.persistence.SimpleEntityRef.ref;
 import static org.apache.usergrid.persistence.SimpleRoleRef.getIdForGroupIdAndRoleName;
 import static org.apache.usergrid.persistence.SimpleRoleRef.getIdForRoleName;
-import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_COMPOSITE_DICTIONARIES;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_DICTIONARIES;
@@ -157,6 +159,7 @@ import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtil
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.toStorableBinaryValue;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.ALL_COUNT;
+import static org.apache.usergrid.persistence.cassandra.CassandraService.MANAGEMENT_APPLICATION_ID;
 import static org.apache.usergrid.utils.ClassUtils.cast;
 import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
 import static org.apache.usergrid.utils.ConversionUtils.getLong;
@@ -184,6 +187,12 @@ public class EntityManagerImpl implements EntityManager {
     public static final String APPLICATION_COLLECTION = "application.collection.";
     public static final String APPLICATION_ENTITIES = "application.entities";
     public static final long ONE_COUNT = 1L;
+
+    /**
+     * Written to the properties row of an entity that has been deleted but whose indexes, connections and dictionaries
+     * have not yet been cleaned up. Entities with a tombstone are not returned by reads.
+     */
+    public static final String PROPERTY_TOMBSTONE = "_tombstone";
     @Resource
     private EntityManagerFactoryImpl emf;
     @Resource
@@ -201,6 +210,8 @@ public class EntityManagerImpl implements EntityManager {
 
     private boolean skipAggregateCounters;
 
+    private boolean includeTombstones;
+
     public EntityManagerImpl() {
     }
 
@@ -230,6 +241,29 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    public void setIncludeTombstones( boolean includeTombstones ) {
+        this.includeTombstones = includeTombstones;
+    }
+
+
+    /** A new entity manager for this application that still sees tombstoned entities, used to clean them up */
+    public EntityManagerImpl withTombstones() {
+        EntityManagerImpl em = getApplicationContext().getBean( "entityManager", EntityManagerImpl.class );
+        em.init( emf, cass, counterUtils, applicationId, skipAggregateCounters );
+        em.setIncludeTombstones( true );
+        return em;
+    }
+
+
+    /** Returns null for the properties of a tombstoned entity unless this manager includes tombstones */
+    private Map<String, Object> hideTombstoned( Map<String, Object> properties ) {
+        if ( ( properties != null ) && !includeTombstones && properties.containsKey( PROPERTY_TOMBSTONE ) ) {
+            return null;
+        }
+        return properties;
+    }
+
+
     public ApplicationContext getApplicationContext() {
         return emf.applicationContext;
     }
@@ -412,6 +446,8 @@ public class EntityManagerImpl implements EntityManager {
             batch = batchSetProperty( batch, entity, propertyName, propertyValue, timestampUuid );
         }
 
+        batchLogChange( batch, entity, EntityChangeLog.UPSERT, timestampUuid );
+
         return batch;
     }
 
@@ -643,14 +679,60 @@ public class EntityManagerImpl implements EntityManager {
         Assert.notNull( collectionName, "collectionName is required" );
         Assert.notEmpty( aliases, "aliases are required" );
 
-
         String propertyName = Schema.getDefaultSchema().aliasProperty( collectionName );
 
+        return getUniqueRefs( ownerId, collectionName, propertyName, aliases );
+    }
+
+
+    @Override
+    @Metered( group = "core", name = "EntityManager_getUniqueRefs" )
+    public Map<String, EntityRef> getUniqueRefs( String collectionName, String propertyName, List<String> values )
+            throws Exception {
+
+        Assert.notNull( collectionName, "collectionName is required" );
+        Assert.notNull( propertyName, "propertyName is required" );
+        Assert.notEmpty( values, "values are required" );
+
+        return getUniqueRefs( applicationId, collectionName, propertyName, values );
+    }
+
+
+    /** Read the unique index rows of all the values with one multiget */
+    private Map<String, EntityRef> getUniqueRefs( UUID ownerId, String collectionName, String propertyName,
+                                                  List<String> values ) throws Exception {
+
+        String collectionNameInternal = defaultCollectionName( collectionName );
+
+        List<Object> keys = new ArrayList<Object>( values.size() );
+
+        for ( String value : values ) {
+            keys.add( createUniqueIndexKey( ownerId, collectionNameInternal, propertyName, value ) );
+        }
+
+        Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> rows =
+                cass.multiGetColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_UNIQUE, keys, null, null, 2,
+                        false );
+
         Map<String, EntityRef> results = new HashMap<String, EntityRef>();
 
-        for ( String alias : aliases ) {
-            for ( UUID id : getUUIDsForUniqueProperty( ownerId, collectionName, propertyName, alias ) ) {
-                results.put( alias, new SimpleEntityRef( collectionName, id ) );
+        for ( int i = 0; i < values.size(); i++ ) {
+            List<HColumn<ByteBuffer, ByteBuffer>> cols = rows.get( bytebuffer( keys.get( i ) ) );
+
+            if ( cols == null || cols.size() == 0 ) {
+                continue;
+            }
+
+            //shouldn't happen, but it's an error case
+            if ( cols.size() > 1 ) {
+                logger.error( "INDEX CORRUPTION: More than 1 unique value exists for entities in ownerId {} of type {} "
+                        + "on property {} with value {}",
+                        new Object[] { ownerId, collectionNameInternal, propertyName, values.get( i ) } );
+            }
+
+            for ( HColumn<ByteBuffer, ByteBuffer> col : cols ) {
+                UUID id = ue.fromByteBuffer( col.getName() );
+                results.put( values.get( i ), new SimpleEntityRef( collectionName, id ) );
             }
         }
 
@@ -726,6 +808,120 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    @Metered( group = "core", name = "EntityManager_createEntities" )
+    public List<Entity> createEntities( String entityType, List<Map<String, Object>> properties ) throws Exception {
+        if ( ( entityType != null ) && ( entityType.startsWith( TYPE_ENTITY ) || entityType
+                .startsWith( "entities" ) ) ) {
+            throw new IllegalArgumentException( "Invalid entity type" );
+        }
+
+        validateCreateEntities( entityType, properties );
+
+        // written in chunks of whole entities, so a large batch never makes a thrift frame too big to send
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = HFactory.createMutator( ko, be );
+
+        List<Entity> entities = new ArrayList<Entity>( properties.size() );
+        int written = 0;
+
+        for ( Map<String, Object> entityProperties : properties ) {
+            entities.add( batchCreate( m, entityType, null, entityProperties, null, newTimeUUID() ) );
+
+            if ( m.getPendingMutationCount() >= CountingMutator.MAX_SIZE ) {
+                executeCreateEntities( m, entities.subList( written, entities.size() ) );
+                written = entities.size();
+            }
+        }
+
+        executeCreateEntities( m, entities.subList( written, entities.size() ) );
+
+        return entities;
+    }
+
+
+    /**
+     * Write a chunk of created entities. Their collection counters were queued when they were added to the mutator,
+     * so if the write fails they are taken back out before the failure is thrown.
+     */
+    private void executeCreateEntities( Mutator<ByteBuffer> m, List<Entity> chunk ) {
+        if ( m.getPendingMutationCount() == 0 ) {
+            return;
+        }
+
+        try {
+            batchExecute( m, CassandraService.RETRY_COUNT );
+        }
+        catch ( RuntimeException e ) {
+            m.discardPendingMutations();
+
+            for ( Entity entity : chunk ) {
+                if ( entity != null ) {
+                    decrementEntityCollection( Schema.defaultCollectionName( entity.getType() ) );
+                }
+            }
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Check the required and unique properties of all the entities before any of them is added to a mutator, so an
+     * invalid entity fails the batch before its counters are queued or anything is written. Unique values are checked
+     * against each other as well as against the existing entities.
+     */
+    private void validateCreateEntities( String entityType, List<Map<String, Object>> properties ) throws Exception {
+        Schema schema = getDefaultSchema();
+
+        Set<String> required = schema.getRequiredProperties( entityType );
+        Map<String, Set<Object>> uniqueValues = new HashMap<String, Set<Object>>();
+
+        for ( Map<String, Object> entityProperties : properties ) {
+            if ( ( entityProperties == null ) || entityProperties.isEmpty() ) {
+                continue;
+            }
+
+            if ( required != null ) {
+                for ( String p : required ) {
+                    if ( PROPERTY_UUID.equals( p ) || PROPERTY_TYPE.equals( p ) || PROPERTY_CREATED.equals( p )
+                            || PROPERTY_MODIFIED.equals( p ) || schema.isPropertyTimestamp( entityType, p ) ) {
+                        continue;
+                    }
+                    Object v = entityProperties.get( p );
+                    if ( ( v == null ) || ( ( v instanceof String ) && isBlank( ( String ) v ) ) ) {
+                        throw new RequiredPropertyNotFoundException( entityType, p );
+                    }
+                }
+            }
+
+            for ( Map.Entry<String, Object> property : entityProperties.entrySet() ) {
+                String propertyName = property.getKey();
+                Object propertyValue = property.getValue();
+
+                if ( ( propertyValue == null ) || !schema.isPropertyUnique( entityType, propertyName ) ) {
+                    continue;
+                }
+
+                // unique index keys are case insensitive
+                Object value = ( propertyValue instanceof String ) ? ( ( String ) propertyValue ).toLowerCase() :
+                               propertyValue;
+
+                Set<Object> values = uniqueValues.get( propertyName );
+                if ( values == null ) {
+                    values = new HashSet<Object>();
+                    uniqueValues.put( propertyName, values );
+                }
+
+                if ( !values.add( value ) || !isPropertyValueUniqueForEntity( null, entityType, propertyName,
+                        propertyValue ) ) {
+                    throw new DuplicateUniquePropertyExistsException( entityType, propertyName, propertyValue );
+                }
+            }
+        }
+    }
+
+
     @SuppressWarnings( "unchecked" )
     @Metered( group = "core", name = "EntityManager_batchCreate" )
     public <A extends Entity> A batchCreate( Mutator<ByteBuffer> m, String entityType, Class<A> entityClass,
@@ -874,7 +1070,7 @@ public class EntityManagerImpl implements EntityManager {
                 }
             }
             Message message = storeEventAsMessage( m, event, timestamp );
-            incrementEntityCollection( "events", timestamp );
+            batchIncrementEntityCollection( m, "events", ONE_COUNT, timestamp );
 
             entity.setUuid( message.getUuid() );
             return entity;
@@ -899,26 +1095,46 @@ public class EntityManagerImpl implements EntityManager {
         }
 
         if ( !is_application ) {
-            incrementEntityCollection( collection_name, timestamp );
+            batchIncrementEntityCollection( m, collection_name, ONE_COUNT, timestamp );
         }
 
+        batchLogChange( m, entity, EntityChangeLog.UPSERT, timestampUuid );
+
         return entity;
     }
 
 
-    private void incrementEntityCollection( String collection_name, long cassandraTimestamp ) {
+    /** List the change of the entity for incremental exports, if the change log is enabled */
+    private void batchLogChange( Mutator<ByteBuffer> m, EntityRef entity, String operation, UUID timestampUuid ) {
+        if ( emf.isEntityChangeLog() && !TYPE_APPLICATION.equals( entity.getType() ) ) {
+            EntityChangeLog.addChangeToMutator( m, applicationId, entity, operation, timestampUuid,
+                    emf.getEntityChangeLogRetention() );
+        }
+    }
+
+
+    /**
+     * Add the application.collection and application.entities counter increments to the mutator of the entity write,
+     * so maintaining the collection size doesn't cost a separate round trip per entity
+     */
+    private void batchIncrementEntityCollection( Mutator<ByteBuffer> m, String collection_name, long value,
+                                                 long cassandraTimestamp ) {
+        if ( skipAggregateCounters ) {
+            return;
+        }
         try {
-            incrementAggregateCounters( null, null, null, APPLICATION_COLLECTION + collection_name,
-                    ONE_COUNT, cassandraTimestamp );
+            counterUtils.batchIncrementAggregateCounters( m, applicationId, null, null, null, null,
+                    APPLICATION_COLLECTION + collection_name, value, cassandraTimestamp / 1000, cassandraTimestamp );
         }
         catch ( Exception e ) {
-            logger.error( "Unable to increment counter application.collection: {}.", new Object[]{ collection_name, e} );
+            logger.error( "Unable to update counter application.collection: {}.", new Object[]{ collection_name, e} );
         }
         try {
-            incrementAggregateCounters( null, null, null, APPLICATION_ENTITIES, ONE_COUNT, cassandraTimestamp );
+            counterUtils.batchIncrementAggregateCounters( m, applicationId, null, null, null, null,
+                    APPLICATION_ENTITIES, value, cassandraTimestamp / 1000, cassandraTimestamp );
         }
         catch ( Exception e ) {
-            logger.error( "Unable to increment counter application.entities for collection: {} with timestamp: {}", new Object[]{collection_name, cassandraTimestamp,e} );
+            logger.error( "Unable to update counter application.entities for collection: {} with timestamp: {}", new Object[]{collection_name, cassandraTimestamp,e} );
         }
     }
 
@@ -931,19 +1147,10 @@ public class EntityManagerImpl implements EntityManager {
 
 
     public void decrementEntityCollection( String collection_name, long cassandraTimestamp ) {
-        try {
-            incrementAggregateCounters( null, null, null, APPLICATION_COLLECTION + collection_name, -ONE_COUNT,
-                    cassandraTimestamp );
-        }
-        catch ( Exception e ) {
-            logger.error( "Unable to decrement counter application.collection: {}.", new Object[]{collection_name, e} );
-        }
-        try {
-            incrementAggregateCounters( null, null, null, APPLICATION_ENTITIES, -ONE_COUNT, cassandraTimestamp );
-        }
-        catch ( Exception e ) {
-        	logger.error( "Unable to decrement counter application.entities for collection: {} with timestamp: {}", new Object[]{collection_name, cassandraTimestamp,e} );
-        }
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( cass.getApplicationKeyspace( applicationId ),
+                be );
+        batchIncrementEntityCollection( m, collection_name, -ONE_COUNT, cassandraTimestamp );
+        batchExecute( m, CassandraService.RETRY_COUNT );
     }
 
 
@@ -993,13 +1200,24 @@ public class EntityManagerImpl implements EntityManager {
     @Metered( group = "core", name = "EntityManager_getEntityType" )
     public String getEntityType( UUID entityId ) throws Exception {
 
-        HColumn<String, String> column =
-                cass.getColumn( cass.getApplicationKeyspace( applicationId ), ENTITY_PROPERTIES, key( entityId ),
-                        PROPERTY_TYPE, se, se );
-        if ( column != null ) {
-            return column.getValue();
+        Set<String> columnNames = new HashSet<String>( asList( PROPERTY_TYPE, PROPERTY_TOMBSTONE ) );
+
+        List<HColumn<String, ByteBuffer>> columns =
+                cass.getColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_PROPERTIES, key( entityId ),
+                        columnNames, se, be );
+
+        String type = null;
+        for ( HColumn<String, ByteBuffer> column : columns ) {
+            if ( PROPERTY_TOMBSTONE.equals( column.getName() ) ) {
+                if ( !includeTombstones ) {
+                    return null;
+                }
+            }
+            else {
+                type = string( column.getValue() );
+            }
         }
-        return null;
+        return type;
     }
 
 
@@ -1022,6 +1240,7 @@ public class EntityManagerImpl implements EntityManager {
 
             column_names.add( PROPERTY_TYPE );
             column_names.add( PROPERTY_UUID );
+            column_names.add( PROPERTY_TOMBSTONE );
 
             Collections.addAll(column_names, propertyNames);
 
@@ -1033,7 +1252,7 @@ public class EntityManagerImpl implements EntityManager {
                     key( entityId ) );
         }
 
-        Map<String, Object> entityProperties = deserializeEntityProperties( results );
+        Map<String, Object> entityProperties = hideTombstoned( deserializeEntityProperties( results ) );
         if ( entityProperties == null ) {
             return null;
         }
@@ -1061,8 +1280,8 @@ public class EntityManagerImpl implements EntityManager {
         Map<String, Object> results = null;
 
         // if (entityType == null) {
-        results = deserializeEntityProperties(
-                cass.getAllColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_PROPERTIES, entity_key ) );
+        results = hideTombstoned( deserializeEntityProperties(
+                cass.getAllColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_PROPERTIES, entity_key ) ) );
         // } else {
         // Set<String> columnNames = Schema.getPropertyNames(entityType);
         // results = getColumns(getApplicationKeyspace(applicationId),
@@ -1132,6 +1351,12 @@ public class EntityManagerImpl implements EntityManager {
                     continue;
                 }
 
+                // deleted entities stay listed in indexes until their cleanup has run, expected with async deletes
+                if ( hideTombstoned( properties ) == null ) {
+                    logger.debug( "Skipping deleted entity {}", key );
+                    continue;
+                }
+
                 UUID id = uuid( properties.get( PROPERTY_UUID ) );
                 String type = string( properties.get( PROPERTY_TYPE ) );
 
@@ -1312,26 +1537,33 @@ public class EntityManagerImpl implements EntityManager {
 
         entity = validate( entity );
 
-        Map<Object, Object> dictionary = new LinkedHashMap<Object, Object>();
+        List<HColumn<ByteBuffer, ByteBuffer>> results =
+                cass.getAllColumns( cass.getApplicationKeyspace( applicationId ), getDictionaryCf( entity,
+                        dictionaryName ), key( entity.getUuid(), dictionaryName ), be, be );
 
-        ApplicationCF dictionaryCf = null;
+        return toDictionary( entity, dictionaryName, results );
+    }
 
-        boolean entityHasDictionary = getDefaultSchema().hasDictionary( entity.getType(), dictionaryName );
 
-        if ( entityHasDictionary ) {
-            dictionaryCf = ENTITY_DICTIONARIES;
-        }
-        else {
-            dictionaryCf = ENTITY_COMPOSITE_DICTIONARIES;
-        }
+    /** The column family holding the dictionary, dictionaries the schema doesn't declare are composite */
+    private ApplicationCF getDictionaryCf( EntityRef entity, String dictionaryName ) {
+        return getDefaultSchema().hasDictionary( entity.getType(), dictionaryName ) ? ENTITY_DICTIONARIES :
+               ENTITY_COMPOSITE_DICTIONARIES;
+    }
+
+
+    /** Deserialize the columns of the dictionary row */
+    private Map<Object, Object> toDictionary( EntityRef entity, String dictionaryName,
+                                              List<HColumn<ByteBuffer, ByteBuffer>> results ) {
+
+        Map<Object, Object> dictionary = new LinkedHashMap<Object, Object>();
+
+        boolean entityHasDictionary = getDefaultSchema().hasDictionary( entity.getType(), dictionaryName );
 
         Class<?> setType = getDefaultSchema().getDictionaryKeyType( entity.getType(), dictionaryName );
         Class<?> setCoType = getDefaultSchema().getDictionaryValueType( entity.getType(), dictionaryName );
         boolean coTypeIsBasic = ClassUtils.isBasicType( setCoType );
 
-        List<HColumn<ByteBuffer, ByteBuffer>> results =
-                cass.getAllColumns( cass.getApplicationKeyspace( applicationId ), dictionaryCf,
-                        key( entity.getUuid(), dictionaryName ), be, be );
         for ( HColumn<ByteBuffer, ByteBuffer> result : results ) {
             Object name = null;
             if ( entityHasDictionary ) {
@@ -1362,6 +1594,35 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    @Metered( group = "core", name = "EntityManager_getDictionariesAsSets" )
+    public Map<String, Set<Object>> getDictionariesAsSets( EntityRef entity, Collection<String> dictionaryNames )
+            throws Exception {
+
+        entity = validate( entity );
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        // issue every read before waiting on any of them
+        Map<String, ListenableFuture<List<HColumn<ByteBuffer, ByteBuffer>>>> reads =
+                new LinkedHashMap<String, ListenableFuture<List<HColumn<ByteBuffer, ByteBuffer>>>>();
+
+        for ( String dictionaryName : dictionaryNames ) {
+            reads.put( dictionaryName, cass.getAllColumnsAsync( ko, getDictionaryCf( entity, dictionaryName ),
+                    key( entity.getUuid(), dictionaryName ), be, be ) );
+        }
+
+        Map<String, Set<Object>> dictionaries = new LinkedHashMap<String, Set<Object>>();
+
+        for ( Map.Entry<String, ListenableFuture<List<HColumn<ByteBuffer, ByteBuffer>>>> read : reads.entrySet() ) {
+            dictionaries.put( read.getKey(), new LinkedHashSet<Object>(
+                    toDictionary( entity, read.getKey(), getAsyncResult( read.getValue() ) ).keySet() ) );
+        }
+
+        return dictionaries;
+    }
+
+
     /**
      * Update properties.
      *
@@ -1390,6 +1651,58 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    /**
+     * Rewrite the index entries of the indexed properties of the entities without writing the properties, unique
+     * values or modified time. Used to rebuild the indexes of entities that are already stored.
+     *
+     * @param entities The entities as loaded, the properties are indexed with their current values
+     */
+    @Metered( group = "core", name = "EntityManager_reindexEntities" )
+    public void reindexEntities( Collection<Entity> entities ) throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+
+        UUID timestampUuid = newTimeUUID();
+
+        Schema schema = getDefaultSchema();
+
+        for ( Entity entity : entities ) {
+
+            RelationManagerImpl relationManager = getRelationManager( entity );
+
+            for ( String propertyName : entity.getProperties().keySet() ) {
+                Object propertyValue = entity.getProperty( propertyName );
+
+                if ( propertyValue == null || !schema.isPropertyIndexed( entity.getType(), propertyName ) ) {
+                    continue;
+                }
+
+                relationManager.batchUpdatePropertyIndexes( m, propertyName, propertyValue,
+                        schema.hasProperty( entity.getType(), propertyName ), false, timestampUuid );
+            }
+        }
+
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    /**
+     * The steps that remove a deleted entity from the graph, in the order they are run. {@link #ENTITY} removes the
+     * properties row itself and must come last.
+     */
+    public enum DeletePhase {
+        CONNECTIONS, PROPERTIES, DICTIONARIES, CONTAINERS, ENTITY;
+
+
+        /** The phase run after this one, or null if this is the last */
+        public DeletePhase next() {
+            DeletePhase[] phases = values();
+            return ordinal() + 1 < phases.length ? phases[ordinal() + 1] : null;
+        }
+    }
+
+
     @Metered( group = "core", name = "EntityManager_deleteEntity" )
     public void deleteEntity( UUID entityId ) throws Exception {
 
@@ -1402,62 +1715,227 @@ public class EntityManagerImpl implements EntityManager {
 
         logger.info( "deleteEntity: {} is of type {}", entityId, entity.getType() );
 
+        // scheduler bookkeeping lives in the management app and is deleted by the scheduler itself
+        if ( emf.isAsyncEntityDelete() && !MANAGEMENT_APPLICATION_ID.equals( applicationId ) ) {
+            tombstoneEntity( entity );
+            return;
+        }
+
         Keyspace ko = cass.getApplicationKeyspace( applicationId );
         Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
 
         UUID timestampUuid = newTimeUUID();
         long timestamp = getTimestampInMicros( timestampUuid );
 
-        // get all connections and disconnect them
-        getRelationManager( ref( entityId ) ).batchDisconnect( m, timestampUuid );
+        for ( DeletePhase phase : DeletePhase.values() ) {
+            m = batchDeleteEntity( m, entity, phase, timestampUuid );
+        }
 
-        // delete all core properties and any dynamic property that's ever been
-        // dictionary for this entity
-        Set<String> properties = getPropertyNames( entity );
-        if ( properties != null ) {
-            for ( String propertyName : properties ) {
-                m = batchSetProperty( m, entity, propertyName, null, true, false, timestampUuid );
-            }
+        //decrease entity count
+        if ( !TYPE_APPLICATION.equals( entity.getType() ) ) {
+            String collection_name = Schema.defaultCollectionName( entity.getType() );
+            batchIncrementEntityCollection( m, collection_name, -ONE_COUNT, timestamp );
         }
 
-        // delete any core dictionaries and dynamic dictionaries associated with
-        // this entity
-        Set<String> dictionaries = getDictionaryNames( entity );
-        if ( dictionaries != null ) {
-            for ( String dictionary : dictionaries ) {
-                Set<Object> values = getDictionaryAsSet( entity, dictionary );
-                if ( values != null ) {
-                    for ( Object value : values ) {
-                        batchUpdateDictionary( m, entity, dictionary, value, true, timestampUuid );
+        batchLogChange( m, entity, EntityChangeLog.DELETE, timestampUuid );
+
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    /**
+     * Add the deletes of one phase of removing the entity to the mutator. Each phase only reads what it removes, so it
+     * can be re-run if the mutation failed.
+     */
+    public Mutator<ByteBuffer> batchDeleteEntity( Mutator<ByteBuffer> m, EntityRef entity, DeletePhase phase,
+                                                  UUID timestampUuid ) throws Exception {
+
+        long timestamp = getTimestampInMicros( timestampUuid );
+
+        switch ( phase ) {
+            case CONNECTIONS:
+                // get all connections and disconnect them
+                getRelationManager( ref( entity.getUuid() ) ).batchDisconnect( m, timestampUuid );
+                break;
+
+            case PROPERTIES:
+                // delete all core properties and any dynamic property that's ever been
+                // dictionary for this entity
+                Set<String> properties = getPropertyNames( entity );
+                if ( properties != null ) {
+                    for ( String propertyName : properties ) {
+                        m = batchSetProperty( m, entity, propertyName, null, true, false, timestampUuid );
                     }
                 }
-            }
+                break;
+
+            case DICTIONARIES:
+                // delete any core dictionaries and dynamic dictionaries associated with
+                // this entity
+                Set<String> dictionaries = getDictionaryNames( entity );
+                if ( dictionaries != null ) {
+                    for ( String dictionary : dictionaries ) {
+                        Set<Object> values = getDictionaryAsSet( entity, dictionary );
+                        if ( values != null ) {
+                            for ( Object value : values ) {
+                                batchUpdateDictionary( m, entity, dictionary, value, true, timestampUuid );
+                            }
+                        }
+                    }
+
+                    for ( String dictionary : dictionaries ) {
+
+                        ApplicationCF cf =
+                                getDefaultSchema().hasDictionary( entity.getType(), dictionary ) ? ENTITY_DICTIONARIES :
+                                ENTITY_COMPOSITE_DICTIONARIES;
+
+                        addDeleteToMutator( m, cf, key( entity.getUuid(), dictionary ), timestamp + 1 );
+                    }
+                }
+                break;
+
+            case CONTAINERS:
+                // find all the containing collections
+                getRelationManager( entity ).batchRemoveFromContainers( m, timestampUuid );
+                break;
+
+            case ENTITY:
+                addDeleteToMutator( m, ENTITY_PROPERTIES, key( entity.getUuid() ), timestamp + 1 );
+                break;
         }
 
-        // find all the containing collections
-        getRelationManager( entity ).batchRemoveFromContainers( m, timestampUuid );
+        return m;
+    }
+
+
+    /**
+     * Hide the entity from reads and release its unique values and its collection count right away, leaving the rest
+     * of the delete to an {@link EntityDeleteJob}. If the job can't be scheduled the cleanup is done here instead.
+     */
+    private void tombstoneEntity( EntityRef entity ) throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+
+        UUID timestampUuid = newTimeUUID();
+        long timestamp = getTimestampInMicros( timestampUuid );
+
+        String collectionName = Schema.defaultCollectionName( entity.getType() );
+
+        EntityInfo entityInfo = getDefaultSchema().getEntityInfo( entity.getType() );
+        if ( ( entityInfo != null ) && entityInfo.hasProperties() ) {
+            for ( String propertyName : entityInfo.getProperties().keySet() ) {
+                if ( entityInfo.isPropertyUnique( propertyName ) ) {
+                    uniquePropertyDelete( m, collectionName, entity.getType(), propertyName, null, entity.getUuid(),
+                            timestamp );
+                }
+            }
+        }
 
-        //decrease entity count
         if ( !TYPE_APPLICATION.equals( entity.getType() ) ) {
-            String collection_name = Schema.defaultCollectionName( entity.getType() );
-            decrementEntityCollection( collection_name );
+            batchIncrementEntityCollection( m, collectionName, -ONE_COUNT, timestamp );
+        }
+
+        addPropertyToMutator( m, key( entity.getUuid() ), entity.getType(), PROPERTY_TOMBSTONE, timestamp / 1000,
+                timestamp );
+
+        batchLogChange( m, entity, EntityChangeLog.DELETE, timestampUuid );
+
+        batchExecute( m, CassandraService.RETRY_COUNT );
+
+        try {
+            SchedulerService scheduler = getApplicationContext().getBean( "schedulerService", SchedulerService.class );
+            scheduler.createJob( EntityDeleteJob.JOB_NAME, System.currentTimeMillis(),
+                    EntityDeleteJob.createJobData( applicationId, entity ) );
+        }
+        catch ( Exception e ) {
+            logger.error( "Unable to schedule cleanup of deleted entity {}, cleaning up now", entity.getUuid(), e );
+
+            EntityManagerImpl em = withTombstones();
+            for ( DeletePhase phase : DeletePhase.values() ) {
+                em.deleteEntityPhase( entity, phase );
+            }
+        }
+    }
+
+
+    /**
+     * Delete the entities in one mutation, or tombstone each of them when deletes are asynchronous. Used for bulk
+     * deletes, where a mutation per entity would dominate the cost.
+     */
+    public void deleteEntities( Collection<? extends EntityRef> entities ) throws Exception {
+
+        if ( emf.isAsyncEntityDelete() && !MANAGEMENT_APPLICATION_ID.equals( applicationId ) ) {
+            for ( EntityRef entity : entities ) {
+                if ( !TYPE_APPLICATION.equals( entity.getType() ) ) {
+                    tombstoneEntity( entity );
+                }
+            }
+            return;
+        }
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+
+        UUID timestampUuid = newTimeUUID();
+        long timestamp = getTimestampInMicros( timestampUuid );
+
+        for ( EntityRef entity : entities ) {
+            if ( TYPE_APPLICATION.equals( entity.getType() ) ) {
+                continue;
+            }
+
+            for ( DeletePhase phase : DeletePhase.values() ) {
+                m = batchDeleteEntity( m, entity, phase, timestampUuid );
+            }
+
+            batchIncrementEntityCollection( m, Schema.defaultCollectionName( entity.getType() ), -ONE_COUNT,
+                    timestamp );
         }
 
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
 
-        timestamp += 1;
 
-        if ( dictionaries != null ) {
-            for ( String dictionary : dictionaries ) {
+    /**
+     * Set the same properties on all the entities in one mutation. The properties are cleaned up for the type of each
+     * entity the way {@link #updateProperties(EntityRef, Map)} does.
+     */
+    public void updateEntities( Collection<? extends EntityRef> entities, Map<String, Object> properties )
+            throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
 
-                ApplicationCF cf =
-                        getDefaultSchema().hasDictionary( entity.getType(), dictionary ) ? ENTITY_DICTIONARIES :
-                        ENTITY_COMPOSITE_DICTIONARIES;
+        UUID timestampUuid = newTimeUUID();
 
-                addDeleteToMutator( m, cf, key( entity.getUuid(), dictionary ), timestamp );
+        Map<String, Map<String, Object>> propertiesByType = new HashMap<String, Map<String, Object>>();
+
+        for ( EntityRef entity : entities ) {
+            Map<String, Object> cleaned = propertiesByType.get( entity.getType() );
+            if ( cleaned == null ) {
+                // cleaning removes properties from the map it is given
+                cleaned = getDefaultSchema().cleanUpdatedProperties( entity.getType(),
+                        new HashMap<String, Object>( properties ), false );
+                propertiesByType.put( entity.getType(), cleaned );
             }
+
+            Map<String, Object> entityProperties = new HashMap<String, Object>( cleaned );
+            entityProperties.put( PROPERTY_MODIFIED, getTimestampInMillis( timestampUuid ) );
+
+            batchUpdateProperties( m, entity, entityProperties, timestampUuid );
         }
 
-        addDeleteToMutator( m, ENTITY_PROPERTIES, key( entityId ), timestamp );
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    /** Run one phase of removing a tombstoned entity in its own mutation */
+    public void deleteEntityPhase( EntityRef entity, DeletePhase phase ) throws Exception {
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+        Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+
+        batchDeleteEntity( m, entity, phase, newTimeUUID() );
 
         batchExecute( m, CassandraService.RETRY_COUNT );
     }
@@ -1577,15 +2055,11 @@ public class EntityManagerImpl implements EntityManager {
         finish = resolution.round( finish );
         long expected_time = start;
         Keyspace ko = cass.getApplicationKeyspace( applicationId );
-        SliceCounterQuery<String, Long> q = createCounterSliceQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
-        q.setRange( start, finish, false, ALL_COUNT );
-        QueryResult<CounterSlice<Long>> r = q.setKey(
-                counterUtils.getAggregateCounterRow( counterName, userId, groupId, queueId, category, resolution ) )
-                                             .execute();
+        String row = counterUtils.getAggregateCounterRow( counterName, userId, groupId, queueId, category, resolution );
         List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-        for ( HCounterColumn<Long> column : r.get().getColumns() ) {
-            AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
+        for ( AggregateCounter count : counterUtils
+                .getAggregateCounters( ko, applicationId, Collections.singletonList( row ), resolution, start, finish )
+                .get( row ) ) {
             if ( pad && !( resolution == CounterResolution.ALL ) ) {
                 while ( count.getTimestamp() != expected_time ) {
                     counters.add( new AggregateCounter( expected_time, 0 ) );
@@ -1647,17 +2121,15 @@ public class EntityManagerImpl implements EntityManager {
             selections.put( selection.getRow( resolution ), selection );
         }
 
-        MultigetSliceCounterQuery<String, Long> q = HFactory.createMultigetSliceCounterQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
-        q.setRange( start, finish, false, ALL_COUNT );
-        QueryResult<CounterRows<String, Long>> rows = q.setKeys( selections.keySet() ).execute();
+        Map<String, List<AggregateCounter>> rows = query.isDistinct() ?
+                counterUtils.getDistinctCounters( ko, selections.keySet(), resolution, start, finish ) :
+                counterUtils.getAggregateCounters( ko, applicationId, selections.keySet(), resolution, start, finish );
 
         List<AggregateCounterSet> countSets = new ArrayList<AggregateCounterSet>();
-        for ( CounterRow<String, Long> r : rows.get() ) {
+        for ( Map.Entry<String, List<AggregateCounter>> r : rows.entrySet() ) {
             expected_time = start;
             List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-            for ( HCounterColumn<Long> column : r.getColumnSlice().getColumns() ) {
-                AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
+            for ( AggregateCounter count : r.getValue() ) {
                 if ( pad && ( resolution != CounterResolution.ALL ) ) {
                     while ( count.getTimestamp() != expected_time ) {
                         counters.add( new AggregateCounter( expected_time, 0 ) );
@@ -1952,6 +2424,7 @@ public class EntityManagerImpl implements EntityManager {
 
         fields.add( PROPERTY_UUID );
         fields.add( PROPERTY_TYPE );
+        fields.add( PROPERTY_TOMBSTONE );
 
         Rows<UUID, String, ByteBuffer> results = null;
 
@@ -1969,12 +2442,18 @@ public class EntityManagerImpl implements EntityManager {
                     deserializeEntityProperties( results.getByKey( row.getKey() ).getColumnSlice().getColumns(), true,
                             false );
 
-            //Could get a tombstoned row if the index is behind, just ignore it
+            //Could get a missing row if the index is behind, just ignore it
             if ( properties == null ) {
                 logger.warn( "Received row key {} with no type or properties, skipping", row.getKey() );
                 continue;
             }
 
+            // deleted entities stay listed in indexes until their cleanup has run, expected with async deletes
+            if ( hideTombstoned( properties ) == null ) {
+                logger.debug( "Skipping deleted entity {}", row.getKey() );
+                continue;
+            }
+
             UUID id = uuid( properties.get( PROPERTY_UUID ) );
             String type = string( properties.get( PROPERTY_TYPE ) );
 
@@ -2020,6 +2499,7 @@ public class EntityManagerImpl implements EntityManager {
 
         entity.setProperty( propertyName, propertyValue );
         batch = batchSetProperty( batch, entity, propertyName, propertyValue, override, false, timestampUuid );
+        batchLogChange( batch, entity, EntityChangeLog.UPSERT, timestampUuid );
         batchExecute( batch, CassandraService.RETRY_COUNT );
     }
 
@@ -2348,6 +2828,51 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    @Metered( group = "core", name = "EntityManager_getRolesPermissions" )
+    public Map<String, Set<String>> getRolesPermissions( Collection<String> roleNames ) throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        // issue every read before waiting on any of them
+        Map<String, ListenableFuture<List<HColumn<String, ByteBuffer>>>> reads =
+                new LinkedHashMap<String, ListenableFuture<List<HColumn<String, ByteBuffer>>>>();
+
+        for ( String roleName : roleNames ) {
+            reads.put( roleName, cass.getAllColumnsAsync( ko, ApplicationCF.ENTITY_DICTIONARIES,
+                    getRolePermissionsKey( roleName.toLowerCase() ), se, be ) );
+        }
+
+        Map<String, Set<String>> permissions = new LinkedHashMap<String, Set<String>>();
+
+        for ( Map.Entry<String, ListenableFuture<List<HColumn<String, ByteBuffer>>>> read : reads.entrySet() ) {
+            Set<String> rolePermissions = new LinkedHashSet<String>();
+
+            for ( HColumn<String, ByteBuffer> column : getAsyncResult( read.getValue() ) ) {
+                rolePermissions.add( column.getName() );
+            }
+
+            permissions.put( read.getKey(), rolePermissions );
+        }
+
+        return permissions;
+    }
+
+
+    /** Wait for an async read, rethrowing the exception of a failed read */
+    private static <T> T getAsyncResult( ListenableFuture<T> future ) throws Exception {
+        try {
+            return future.get();
+        }
+        catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof Exception ) {
+                throw ( Exception ) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+
     @Override
     public void deleteRole( String roleName ) throws Exception {
         roleName = roleName.toLowerCase();
@@ -2583,6 +3108,13 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    public Set<UUID> getCollectionMembers( EntityRef owner, String collectionName, List<UUID> entityIds )
+            throws Exception {
+        return getRelationManager( owner ).getCollectionMembers( collectionName, entityIds );
+    }
+
+
     /* (non-Javadoc)
    * @see org.apache.usergrid.persistence.EntityManager#isConnectionMember(org.apache.usergrid.persistence.EntityRef,
    * java.lang.String, org.apache.usergrid.persistence.EntityRef)
@@ -2614,6 +3146,55 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    @Metered( group = "core", name = "EntityManager_getCollections" )
+    public Map<UUID, Results> getCollections( List<? extends EntityRef> entityRefs, String collectionName, int count,
+                                              Level resultsLevel ) throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        List<String> buckets = indexBucketLocator.getBuckets( applicationId, IndexType.COLLECTION, collectionName );
+
+        // issue the read of the buckets of every owner before waiting on any of them
+        Map<EntityRef, ListenableFuture<Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>>> reads =
+                new LinkedHashMap<EntityRef, ListenableFuture<Map<ByteBuffer, List<HColumn<ByteBuffer,
+                        ByteBuffer>>>>>();
+
+        for ( EntityRef entityRef : entityRefs ) {
+            Object keyPrefix = key( entityRef.getUuid(), DICTIONARY_COLLECTIONS, collectionName );
+
+            List<Object> keys = new ArrayList<Object>( buckets.size() );
+
+            for ( String bucket : buckets ) {
+                keys.add( key( keyPrefix, bucket ) );
+            }
+
+            reads.put( entityRef, cass.multiGetColumnsAsync( ko, ENTITY_ID_SETS, keys, null, null, count, false ) );
+        }
+
+        Map<UUID, Results> collections = new LinkedHashMap<UUID, Results>();
+
+        for ( Map.Entry<EntityRef, ListenableFuture<Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>>>> read :
+                reads.entrySet() ) {
+
+            EntityRef entityRef = read.getKey();
+
+            List<UUID> ids = new ArrayList<UUID>( count );
+
+            for ( HColumn<ByteBuffer, ByteBuffer> column : IndexMultiBucketSetLoader
+                    .merge( ENTITY_ID_SETS, getAsyncResult( read.getValue() ), count, false ) ) {
+                ids.add( ue.fromByteBuffer( column.getName() ) );
+            }
+
+            String type = getDefaultSchema().getCollectionType( entityRef.getType(), collectionName );
+
+            collections.put( entityRef.getUuid(), loadEntities( Results.fromIdList( ids, type ), resultsLevel, count ) );
+        }
+
+        return collections;
+    }
+
+
     @Override
     public Entity addToCollection( EntityRef entityRef, String collectionName, EntityRef itemRef ) throws Exception {
         return getRelationManager( entityRef ).addToCollection( collectionName, itemRef );
@@ -2729,6 +3310,20 @@ public class EntityManagerImpl implements EntityManager {
     }
 
 
+    @Override
+    public Results getConnectedEntities( List<UUID> entityIds, String connectionType, String connectedEntityType,
+                                         Level resultsLevel, int count ) throws Exception {
+        Results connections = getRelationManager( getApplicationRef() )
+                .getConnectedEntities( entityIds, connectionType, connectedEntityType, count );
+
+        if ( resultsLevel != Level.ALL_PROPERTIES && resultsLevel != Level.CORE_PROPERTIES ) {
+            return connections;
+        }
+
+        return get( connections.getIds(), resultsLevel );
+    }
+
+
     @Override
     public Results getConnectingEntities( UUID entityId, String connectionType, String connectedEntityType,
                                           Level resultsLevel ) throws Exception {
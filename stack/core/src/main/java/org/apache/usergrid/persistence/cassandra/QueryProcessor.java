@@ -32,8 +32,10 @@ import org.apache.usergrid.persistence.Identifier;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Query.SortDirection;
 import org.apache.usergrid.persistence.Query.SortPredicate;
+import org.apache.usergrid.persistence.QueryStats;
 import org.apache.usergrid.persistence.Results;
 import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.cassandra.util.OpLatencyTracker;
 import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.persistence.exceptions.NoFullTextIndexException;
 import org.apache.usergrid.persistence.exceptions.NoIndexException;
@@ -51,6 +53,7 @@ import org.apache.usergrid.persistence.query.ir.SearchVisitor;
 import org.apache.usergrid.persistence.query.ir.SliceNode;
 import org.apache.usergrid.persistence.query.ir.UuidIdentifierNode;
 import org.apache.usergrid.persistence.query.ir.WithinNode;
+import org.apache.usergrid.persistence.query.ir.result.IndexValueResultsLoader;
 import org.apache.usergrid.persistence.query.ir.result.ResultIterator;
 import org.apache.usergrid.persistence.query.ir.result.ResultsLoader;
 import org.apache.usergrid.persistence.query.ir.result.ResultsLoaderFactory;
@@ -74,6 +77,7 @@ import org.apache.usergrid.persistence.schema.CollectionInfo;
 
 import me.prettyprint.cassandra.serializers.UUIDSerializer;
 
+import static org.apache.usergrid.persistence.Schema.PROPERTY_UUID;
 import static org.apache.usergrid.persistence.Schema.getDefaultSchema;
 
 
@@ -98,6 +102,15 @@ public class QueryProcessor {
     private Query query;
     private int sliceCount;
 
+    private OpLatencyTracker opTracker;
+    private QueryStats stats;
+    private long planTime;
+    private boolean executed;
+
+    private boolean indexOnly;
+    private String coveringProperty;
+    private Class<?> coveringType;
+
 
     public QueryProcessor( Query query, CollectionInfo collectionInfo, EntityManager em,
                            ResultsLoaderFactory loaderFactory ) throws PersistenceException {
@@ -131,6 +144,7 @@ public class QueryProcessor {
 
     private void process() throws PersistenceException {
 
+        long startTime = System.nanoTime();
 
         sliceCount = 0;
 
@@ -148,8 +162,8 @@ public class QueryProcessor {
         }
 
         // see if we have sorts, if so, we can add them all as a single node at
-        // the root
-        if ( sorts.size() > 0 ) {
+        // the root. If the query already scans the index of the only sort, its order is the sort order
+        if ( sorts.size() > 0 && !isIndexOrdered() ) {
 
             OrderByNode order = generateSorts( sliceCount );
 
@@ -205,6 +219,10 @@ public class QueryProcessor {
                 rootNode = allNode;
             }
         }
+
+        indexOnly = isIndexCovered();
+
+        planTime = System.nanoTime() - startTime;
     }
 
 
@@ -266,6 +284,15 @@ public class QueryProcessor {
             return null;
         }
 
+        stats = new QueryStats();
+
+        //the query was parsed and planned for the first page only
+        if ( !executed ) {
+            stats.addNanos( QueryStats.Stage.PARSE, query.getParseTime() );
+            stats.addNanos( QueryStats.Stage.PLAN, planTime );
+            executed = true;
+        }
+
         rootNode.visit( visitor );
 
         ResultIterator itr = visitor.getResults();
@@ -274,10 +301,19 @@ public class QueryProcessor {
 
         CursorCache resultsCursor = new CursorCache();
 
+        long startTime = System.nanoTime();
+
         while ( entityIds.size() < size && itr.hasNext() ) {
             entityIds.addAll( itr.next() );
         }
 
+        //whatever wasn't spent reading the indexes or sorting was spent merging
+        stats.addNanos( QueryStats.Stage.MERGE,
+                System.nanoTime() - startTime - stats.getNanos( QueryStats.Stage.INDEX_SCAN ) - stats
+                        .getNanos( QueryStats.Stage.SORT ) );
+
+        stats.setCandidates( entityIds.size() );
+
         //set our cursor, we paged through more entities than we want to return
         if ( entityIds.size() > 0 ) {
             int resultSize = Math.min( entityIds.size(), size );
@@ -292,9 +328,29 @@ public class QueryProcessor {
                     entityIds.size() );
         }
 
-        final ResultsLoader loader = loaderFactory.getResultsLoader( em, query, query.getResultsLevel() );
+        startTime = System.nanoTime();
+
+        final Results.Level level = query.getResultsLevel();
+        final ResultsLoader loader;
+
+        if ( indexOnly && level != Results.Level.IDS && level != Results.Level.REFS ) {
+            loader = new IndexValueResultsLoader( em, coveringProperty, coveringType );
+            stats.setIndexOnly( true );
+        }
+        else {
+            loader = loaderFactory.getResultsLoader( em, query, level );
+        }
+
         final Results results = loader.getResults( entityIds );
 
+        stats.addTime( QueryStats.Stage.LOAD, startTime );
+
+        stats.setReturned( results != null ? results.size() : 0 );
+
+        if ( opTracker != null ) {
+            opTracker.record( query, stats );
+        }
+
         if ( results == null ) {
             return null;
         }
@@ -305,6 +361,7 @@ public class QueryProcessor {
         results.setQuery( query );
         results.setQueryProcessor( this );
         results.setSearchVisitor( visitor );
+        results.setQueryStats( stats );
 
         return results;
     }
@@ -641,6 +698,79 @@ public class QueryProcessor {
     }
 
 
+    /**
+     * True if the query is a single range of slices, one of them on the only sort property. That slice is moved first,
+     * so the intersection returns the results in its index order, and we don't need to scan the whole index of the
+     * sort property to order them
+     */
+    private boolean isIndexOrdered() throws NoIndexException {
+        if ( sorts.size() != 1 || !( rootNode instanceof SliceNode ) ) {
+            return false;
+        }
+
+        String propertyName = sorts.get( 0 ).getPropertyName();
+
+        SliceNode node = ( SliceNode ) rootNode;
+
+        if ( node.getSlice( propertyName ) == null ) {
+            return false;
+        }
+
+        checkIndexed( propertyName );
+
+        node.setFirstSlice( propertyName );
+
+        return true;
+    }
+
+
+    /**
+     * True if the select can be answered from the index columns alone. That's when it only reads the uuid, or the
+     * uuid and the property of the first slice of a single range, which is the one the results come from. Strings
+     * are normalized and other types are converted when they are indexed, so the property must be declared in the
+     * schema with a type the index stores as it is. A uuid identifier isn't read from anywhere, so it's not covered
+     */
+    private boolean isIndexCovered() {
+        if ( collectionInfo == null || !query.hasSelectSubjects() || rootNode instanceof UuidIdentifierNode ) {
+            return false;
+        }
+
+        String firstProperty = null;
+
+        if ( rootNode instanceof SliceNode ) {
+            Iterator<QuerySlice> slices = ( ( SliceNode ) rootNode ).getAllSlices().iterator();
+            firstProperty = slices.hasNext() ? slices.next().getPropertyName() : null;
+        }
+
+        for ( String property : query.getSelectProperties() ) {
+            if ( PROPERTY_UUID.equalsIgnoreCase( property ) ) {
+                continue;
+            }
+
+            if ( !property.equalsIgnoreCase( firstProperty ) ) {
+                return false;
+            }
+
+            Class<?> type = SCHEMA.getPropertyType( entityType, firstProperty );
+
+            if ( !IndexValueResultsLoader.isIndexFaithful( type ) ) {
+                return false;
+            }
+
+            coveringProperty = firstProperty;
+            coveringType = type;
+        }
+
+        return true;
+    }
+
+
+    /** True if the results are built from the index columns, without loading the entity properties */
+    public boolean isIndexOnly() {
+        return indexOnly;
+    }
+
+
     /**
      * Generate a slice node with scan ranges for all the properties in our sort cache
      */
@@ -681,4 +811,16 @@ public class QueryProcessor {
     public EntityManager getEntityManager() {
         return em;
     }
+
+
+    /** The stats of the execution in progress, or of the last one */
+    public QueryStats getStats() {
+        return stats;
+    }
+
+
+    /** Optional, the stats of every execution are aggregated into it */
+    public void setOpTracker( OpLatencyTracker opTracker ) {
+        this.opTracker = opTracker;
+    }
 }
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -135,6 +136,7 @@ import static org.apache.usergrid.persistence.cassandra.IndexUpdate.toIndexableV
 import static org.apache.usergrid.persistence.cassandra.IndexUpdate.validIndexableValue;
 import static org.apache.usergrid.utils.ClassUtils.cast;
 import static org.apache.usergrid.utils.CompositeUtils.setGreaterThanEqualityFlag;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
 import static org.apache.usergrid.utils.ConversionUtils.string;
 import static org.apache.usergrid.utils.InflectionUtils.singularize;
 import static org.apache.usergrid.utils.MapUtils.addMapSet;
@@ -1428,6 +1430,45 @@ public class RelationManagerImpl implements RelationManager {
     }
 
 
+    /**
+     * Get which of the entities are in the collection, reading the containers of all of them with one multiget
+     *
+     * @param collectionName The name of the collection
+     * @param entityIds The entities to check
+     *
+     * @return The ids of the entities in the collection
+     */
+    @Metered(group = "core", name = "RelationManager_getCollectionMembers")
+    public Set<UUID> getCollectionMembers( String collectionName, List<UUID> entityIds ) throws Exception {
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        ByteBuffer col = DynamicComposite
+                .toByteBuffer( asList( this.headEntity.getType(), collectionName, headEntity.getUuid() ) );
+
+        List<Object> keys = new ArrayList<Object>( entityIds.size() );
+
+        for ( UUID entityId : entityIds ) {
+            keys.add( key( entityId, Schema.DICTIONARY_CONTAINER_ENTITIES ) );
+        }
+
+        Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> rows =
+                cass.multiGetColumns( ko, ENTITY_COMPOSITE_DICTIONARIES, keys, col, col, 1, false );
+
+        Set<UUID> members = new LinkedHashSet<UUID>();
+
+        for ( int i = 0; i < entityIds.size(); i++ ) {
+            List<HColumn<ByteBuffer, ByteBuffer>> columns = rows.get( bytebuffer( keys.get( i ) ) );
+
+            if ( columns != null && !columns.isEmpty() ) {
+                members.add( entityIds.get( i ) );
+            }
+        }
+
+        return members;
+    }
+
+
     /** @param connectionName The name of hte connection */
     public boolean isConnectionMember( String connectionName, EntityRef entity ) throws Exception {
         Keyspace ko = cass.getApplicationKeyspace( applicationId );
@@ -1772,6 +1813,7 @@ public class RelationManagerImpl implements RelationManager {
         // we have something to search with, visit our tree and evaluate the
         // results
         QueryProcessor qp = new QueryProcessor( query, collection, em, factory );
+        qp.setOpTracker( cass.getOpTracker() );
         SearchCollectionVisitor visitor = new SearchCollectionVisitor( qp );
 
         return qp.getResults( visitor );
@@ -1966,12 +2008,95 @@ public class RelationManagerImpl implements RelationManager {
         final ConnectionResultsLoaderFactory factory = new ConnectionResultsLoaderFactory( connectionRef );
 
         QueryProcessor qp = new QueryProcessor( query, null, em, factory );
+        qp.setOpTracker( cass.getOpTracker() );
         SearchConnectionVisitor visitor = new SearchConnectionVisitor( qp, connectionRef, true );
 
         return qp.getResults( visitor );
     }
 
 
+    /**
+     * Get the edges of a connection type from each of the source entities at once, for walking the graph a hop at a
+     * time. The connected entities of all the sources are read with one multiget, and an entity connected from more
+     * than one source is returned once, connected from the first.
+     *
+     * @param sourceIds The entities to get the edges from
+     * @param connectionType The type of connection
+     * @param connectedEntityType The connected entity type, if not specified all types are returned
+     * @param count The most edges of the connected entity type to read from each source
+     *
+     * @return The connections, without the entities
+     */
+    @Metered(group = "core", name = "RelationManager_getConnectedEntitiesOfAll")
+    public Results getConnectedEntities( List<UUID> sourceIds, String connectionType, String connectedEntityType,
+                                         int count ) throws Exception {
+
+        List<Object> keys = new ArrayList<Object>( sourceIds.size() );
+
+        for ( UUID sourceId : sourceIds ) {
+            keys.add( key( sourceId, DICTIONARY_CONNECTED_ENTITIES, connectionType ) );
+        }
+
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        Map<ByteBuffer, List<HColumn<ByteBuffer, ByteBuffer>>> rows =
+                cass.multiGetColumns( ko, ENTITY_COMPOSITE_DICTIONARIES, keys, null, null, count, false );
+
+        Map<UUID, ConnectionRef> connections = new LinkedHashMap<UUID, ConnectionRef>();
+
+        for ( int i = 0; i < sourceIds.size(); i++ ) {
+            List<HColumn<ByteBuffer, ByteBuffer>> columns = rows.get( bytebuffer( keys.get( i ) ) );
+            EntityRef source = new SimpleEntityRef( sourceIds.get( i ) );
+
+            int matched = 0;
+            int limit = count;
+            ByteBuffer last = null;
+
+            while ( columns != null && matched < count ) {
+                boolean skipped = false;
+
+                for ( HColumn<ByteBuffer, ByteBuffer> column : columns ) {
+                    //the start of a following slice is inclusive, it was read already
+                    if ( column.getName().equals( last ) ) {
+                        continue;
+                    }
+
+                    last = column.getName().duplicate();
+
+                    DynamicComposite composite = DynamicComposite.fromByteBuffer( column.getName() );
+                    UUID connectedId = composite.get( 0, Serializers.ue );
+                    String connectedType = composite.get( 1, Serializers.se );
+
+                    if ( connectedEntityType != null && !connectedEntityType.equals( connectedType ) ) {
+                        skipped = true;
+                        continue;
+                    }
+
+                    if ( !connections.containsKey( connectedId ) ) {
+                        connections.put( connectedId, new ConnectionRefImpl( source, connectionType,
+                                new SimpleEntityRef( connectedType, connectedId ) ) );
+                    }
+
+                    if ( ++matched == count ) {
+                        break;
+                    }
+                }
+
+                // the row isn't ordered by type, a full slice that held other types may hide more of the type. Read on
+                // until the source has enough edges of the type, or has no more
+                if ( matched == count || !skipped || columns.size() < limit ) {
+                    break;
+                }
+
+                limit = count + 1;
+                columns = cass.getColumns( ko, ENTITY_COMPOSITE_DICTIONARIES, keys.get( i ), last, null, limit, false );
+            }
+        }
+
+        return Results.fromConnections( new ArrayList<ConnectionRef>( connections.values() ) );
+    }
+
+
     @Override
     @Metered(group = "core", name = "RelationManager_getConnectingEntities")
     public Results getConnectingEntities( String connectionType, String connectedEntityType,
@@ -2008,6 +2133,7 @@ public class RelationManagerImpl implements RelationManager {
         final ConnectionResultsLoaderFactory factory = new ConnectionResultsLoaderFactory( connectionRef );
 
         QueryProcessor qp = new QueryProcessor( query, null, em, factory );
+        qp.setOpTracker( cass.getOpTracker() );
         SearchConnectionVisitor visitor = new SearchConnectionVisitor( qp, connectionRef, false );
 
         return qp.getResults( visitor );
@@ -2047,6 +2173,7 @@ public class RelationManagerImpl implements RelationManager {
         final ConnectionResultsLoaderFactory factory = new ConnectionResultsLoaderFactory( connectionRef );
 
         QueryProcessor qp = new QueryProcessor( query, null, em, factory );
+        qp.setOpTracker( cass.getOpTracker() );
         SearchConnectionVisitor visitor = new SearchConnectionVisitor( qp, connectionRef, true );
 
         return qp.getResults( visitor );
@@ -2132,7 +2259,7 @@ public class RelationManagerImpl implements RelationManager {
                     queryProcessor.getPageSizeHint( node ), query.isReversed(), indexBucketLocator, applicationId,
                     collectionName, node.isForceKeepFirst() );
 
-            this.results.push( new SliceIterator( slice, indexScanner, UUID_PARSER ) );
+            this.results.push( new SliceIterator( slice, indexScanner, UUID_PARSER, queryProcessor.getStats() ) );
         }
 
 
@@ -2311,7 +2438,8 @@ public class RelationManagerImpl implements RelationManager {
                     new ConnectedIndexScanner( cass, dictionaryType, applicationId, entityIdToUse, connectionTypes,
                             start, slice.isReversed(), size, skipFirst );
 
-            this.results.push( new SliceIterator( slice, connectionScanner, connectionParser ) );
+            this.results.push(
+                    new SliceIterator( slice, connectionScanner, connectionParser, queryProcessor.getStats() ) );
         }
 
 
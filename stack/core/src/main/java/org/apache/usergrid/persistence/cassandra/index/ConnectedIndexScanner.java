@@ -72,6 +72,11 @@ public class ConnectedIndexScanner implements IndexScanner {
 
     private String currentConnectionType;
 
+    /**
+     * The number of connection type rows read
+     */
+    private int rowsRead;
+
 
     public ConnectedIndexScanner( CassandraService cass, String dictionaryType, UUID applicationId, UUID entityId,
                                   Iterator<String> connectionTypes, ByteBuffer start, boolean reversed, int pageSize,
@@ -155,6 +160,8 @@ public class ConnectedIndexScanner implements IndexScanner {
                     cass.getColumns( cass.getApplicationKeyspace( applicationId ), ENTITY_COMPOSITE_DICTIONARIES, key,
                             start, null, selectSize, reversed );
 
+            rowsRead++;
+
             final int resultSize = results.size();
 
             if(resultSize > 0){
@@ -279,4 +286,15 @@ public class ConnectedIndexScanner implements IndexScanner {
     public int getPageSize() {
         return pageSize;
     }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.usergrid.persistence.cassandra.index.IndexScanner#getRowsRead()
+     */
+    @Override
+    public int getRowsRead() {
+        return rowsRead;
+    }
 }
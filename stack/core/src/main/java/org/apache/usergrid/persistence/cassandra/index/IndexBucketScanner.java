@@ -70,6 +70,9 @@ public class IndexBucketScanner implements IndexScanner {
     /** True if our last load loaded a full page size. */
     private boolean hasMore = true;
 
+    /** The number of bucket rows read */
+    private int rowsRead;
+
 
 
     public IndexBucketScanner( CassandraService cass, IndexBucketLocator locator, ApplicationCF columnFamily,
@@ -141,6 +144,8 @@ public class IndexBucketScanner implements IndexScanner {
         TreeSet<HColumn<ByteBuffer, ByteBuffer>> resultsTree = IndexMultiBucketSetLoader
                 .load( cass, columnFamily, applicationId, cassKeys, start, finish, selectSize, reversed );
 
+        rowsRead += cassKeys.size();
+
         //remove the first element, it's from a cursor value and we don't want to retain it
 
 
@@ -237,4 +242,13 @@ public class IndexBucketScanner implements IndexScanner {
     public int getPageSize() {
         return pageSize;
     }
+
+
+    /* (non-Javadoc)
+     * @see org.apache.usergrid.persistence.cassandra.index.IndexScanner#getRowsRead()
+     */
+    @Override
+    public int getRowsRead() {
+        return rowsRead;
+    }
 }
@@ -56,6 +56,16 @@ public class IndexMultiBucketSetLoader {
                 cass.multiGetColumns( cass.getApplicationKeyspace( applicationId ), columnFamily, rowKeys, start,
                         finish, resultSize, reversed );
 
+        return merge( columnFamily, results, resultSize, reversed );
+    }
+
+
+    /** Sorts the columns read from each bucket into a contiguous set of at most resultSize columns */
+    public static TreeSet<HColumn<ByteBuffer, ByteBuffer>> merge( ApplicationCF columnFamily,
+                                                                  Map<ByteBuffer, List<HColumn<ByteBuffer,
+                                                                          ByteBuffer>>> results, int resultSize,
+                                                                  boolean reversed ) {
+
         final Comparator<ByteBuffer> comparator = reversed ? new DynamicCompositeReverseComparator( columnFamily ) :
                                                   new DynamicCompositeForwardComparator( columnFamily );
 
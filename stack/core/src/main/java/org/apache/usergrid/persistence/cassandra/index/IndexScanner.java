@@ -37,4 +37,7 @@ public interface IndexScanner
 
     public int getPageSize();
 
+    /** The number of index rows read since the scanner was created */
+    public int getRowsRead();
+
 }
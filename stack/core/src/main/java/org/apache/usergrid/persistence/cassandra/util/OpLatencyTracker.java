@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra.util;
+
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.usergrid.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.QueryStats;
+import org.apache.usergrid.persistence.hector.ApplicationKeyspace;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import me.prettyprint.hector.api.Keyspace;
+
+
+/**
+ * Records the latency distribution of every Cassandra operation by keyspace, column family, operation and application,
+ * and logs the operations slower than a threshold together with the trace or the code they were called from. The
+ * application is recovered from the virtual keyspace of the application the operation ran in. Unlike the
+ * {@link TraceTagManager}, it is always on and doesn't need a trace to be attached.
+ * <p/>
+ * Query executions are recorded the same way, with a timer for each stage of the query. Mutator executions are
+ * recorded by {@link org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils#batchExecute} under the
+ * "mutator" column family, since a batch can span several.
+ */
+public class OpLatencyTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger( OpLatencyTracker.class );
+
+    private static final Logger slowLogger =
+            LoggerFactory.getLogger( OpLatencyTracker.class.getPackage().getName() + ".SLOW" );
+
+    /** The number of frames of the calling code logged with a slow operation */
+    private static final int CALLER_FRAMES = 4;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+    private long slowOpThreshold = 0;
+
+    private MetricsFactory metricsFactory;
+
+    private TraceTagManager traceTagManager;
+
+
+    /** Operations that take at least this many milliseconds are logged. 0 disables the log */
+    public void setSlowOpThreshold( long slowOpThreshold ) {
+        this.slowOpThreshold = slowOpThreshold;
+    }
+
+
+    public long getSlowOpThreshold() {
+        return slowOpThreshold;
+    }
+
+
+    /** Optional, the timers are registered with it so they're reported with the other metrics */
+    public void setMetricsFactory( MetricsFactory metricsFactory ) {
+        this.metricsFactory = metricsFactory;
+    }
+
+
+    /** Optional, slow operations are logged with the name of the active trace */
+    public void setTraceTagManager( TraceTagManager traceTagManager ) {
+        this.traceTagManager = traceTagManager;
+    }
+
+
+    /**
+     * Record an operation that started at the given {@link System#nanoTime()}
+     *
+     * @param ko The keyspace, can be null
+     * @param columnFamily The column family, can be null for operations on a keyspace
+     * @param operation The CassandraService operation
+     * @param key The row key, only used in the slow operation log
+     */
+    public void record( Keyspace ko, Object columnFamily, String operation, Object key, long startNanos ) {
+        record( ko, ApplicationKeyspace.getApplicationId( ko ), columnFamily, operation, key, startNanos );
+    }
+
+
+    /**
+     * Record an operation of an application that started at the given {@link System#nanoTime()}
+     *
+     * @param applicationId The application, can be null for operations outside of an application
+     */
+    public void record( Keyspace ko, UUID applicationId, Object columnFamily, String operation, Object key,
+                        long startNanos ) {
+        long elapsed = System.nanoTime() - startNanos;
+
+        String name = ( ko != null ? ko.getKeyspaceName() : "-" ) + "." + columnFamily + "." + operation + (
+                applicationId != null ? "." + applicationId : "" );
+
+        getTimer( name ).update( elapsed, TimeUnit.NANOSECONDS );
+
+        if ( slowOpThreshold > 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos( slowOpThreshold ) ) {
+            slowLogger.warn( "{} took {} ms for key {} in {}", new Object[] {
+                    name, TimeUnit.NANOSECONDS.toMillis( elapsed ), formatKey( key ), getCaller()
+            } );
+        }
+    }
+
+
+    /** Record the stages of a query execution, and log it if it was slow */
+    public void record( Query query, QueryStats stats ) {
+        for ( QueryStats.Stage stage : QueryStats.Stage.values() ) {
+            getTimer( "query." + stage.getKey() ).update( stats.getNanos( stage ), TimeUnit.NANOSECONDS );
+        }
+
+        long total = stats.getTotalNanos();
+
+        getTimer( "query.totalTime" ).update( total, TimeUnit.NANOSECONDS );
+
+        if ( slowOpThreshold > 0 && total >= TimeUnit.MILLISECONDS.toNanos( slowOpThreshold ) ) {
+            slowLogger.warn( "Query {} on {} took {} ms {} in {}", new Object[] {
+                    query.getQl(), query.getEntityType(), TimeUnit.NANOSECONDS.toMillis( total ), stats.toMap(),
+                    getCaller()
+            } );
+        }
+    }
+
+
+    private Timer getTimer( String name ) {
+        Timer timer = timers.get( name );
+
+        if ( timer != null ) {
+            return timer;
+        }
+
+        timer = new Timer();
+        Timer existing = timers.putIfAbsent( name, timer );
+
+        if ( existing != null ) {
+            return existing;
+        }
+
+        if ( metricsFactory != null && metricsFactory.getRegistry() != null ) {
+            try {
+                metricsFactory.getRegistry().register( OpLatencyTracker.class.getName() + "." + name, timer );
+            }
+            catch ( IllegalArgumentException e ) {
+                logger.warn( "Timer {} is already registered", name );
+            }
+        }
+
+        return timer;
+    }
+
+
+    /** Get the latency percentiles of every operation in milliseconds, sorted by name */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<String, Map<String, Object>>();
+
+        for ( Map.Entry<String, Timer> entry : timers.entrySet() ) {
+            Timer timer = entry.getValue();
+            Snapshot snapshot = timer.getSnapshot();
+
+            Map<String, Object> timerStats = new LinkedHashMap<String, Object>();
+            timerStats.put( "count", timer.getCount() );
+            timerStats.put( "rate", timer.getOneMinuteRate() );
+            timerStats.put( "mean", toMillis( snapshot.getMean() ) );
+            timerStats.put( "p50", toMillis( snapshot.getMedian() ) );
+            timerStats.put( "p75", toMillis( snapshot.get75thPercentile() ) );
+            timerStats.put( "p95", toMillis( snapshot.get95thPercentile() ) );
+            timerStats.put( "p99", toMillis( snapshot.get99thPercentile() ) );
+            timerStats.put( "p999", toMillis( snapshot.get999thPercentile() ) );
+            timerStats.put( "max", toMillis( snapshot.getMax() ) );
+
+            stats.put( entry.getKey(), timerStats );
+        }
+
+        return stats;
+    }
+
+
+    private static double toMillis( double nanos ) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    private static String formatKey( Object key ) {
+        if ( key instanceof ByteBuffer ) {
+            return ByteBufferUtil.bytesToHex( ( ByteBuffer ) key );
+        }
+        return String.valueOf( key );
+    }
+
+
+    /** The active trace, or the first frames outside of the persistence layer. Only called for slow operations */
+    private String getCaller() {
+        if ( traceTagManager != null && traceTagManager.isActive() ) {
+            return traceTagManager.acquire().getTraceName();
+        }
+
+        StringBuilder caller = new StringBuilder();
+        int frames = 0;
+
+        for ( StackTraceElement element : Thread.currentThread().getStackTrace() ) {
+            String className = element.getClassName();
+
+            if ( !className.startsWith( "org.apache.usergrid" ) || className
+                    .startsWith( "org.apache.usergrid.persistence.cassandra.CassandraService" ) || className
+                    .startsWith( "org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils" ) || className
+                    .startsWith( "org.apache.usergrid.persistence.hector.CountingMutator" ) || className
+                    .equals( OpLatencyTracker.class.getName() ) ) {
+                continue;
+            }
+
+            if ( frames > 0 ) {
+                caller.append( " < " );
+            }
+
+            caller.append( element.getClassName() ).append( '.' ).append( element.getMethodName() ).append( ':' )
+                  .append( element.getLineNumber() );
+
+            if ( ++frames == CALLER_FRAMES ) {
+                break;
+            }
+        }
+
+        return caller.length() > 0 ? caller.toString() : Thread.currentThread().getName();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.entities;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import org.apache.usergrid.persistence.TypedEntity;
+import org.apache.usergrid.persistence.annotations.EntityProperty;
+
+
+/**
+ * The state and progress of a delete or update of every entity of a collection that matches a query. The cursor is the
+ * position reached in the collection, a restarted job continues from it.
+ */
+@XmlRootElement
+public class BulkMutation extends TypedEntity {
+
+    public static enum State {
+        CREATED, SCHEDULED, STARTED, FINISHED, FAILED
+    }
+
+    public static enum Operation {
+        DELETE, UPDATE
+    }
+
+    @EntityProperty
+    protected State curState;
+
+    @EntityProperty
+    protected Operation operation;
+
+    @EntityProperty
+    protected UUID applicationId;
+
+    @EntityProperty
+    protected String collectionName;
+
+    @EntityProperty
+    protected String ql;
+
+    /** The properties set on every matching entity of an update */
+    @EntityProperty
+    protected Map<String, Object> updates;
+
+    /** The most entities mutated per second */
+    @EntityProperty
+    protected Long rate;
+
+    /** The number of entities mutated so far */
+    @EntityProperty
+    protected Long processed;
+
+    @EntityProperty
+    protected String cursor;
+
+    @EntityProperty
+    protected Long started;
+
+    @EntityProperty
+    protected Long finished;
+
+    @EntityProperty
+    protected String errorMessage;
+
+
+    public BulkMutation() {
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    @EntityProperty
+    public State getState() {
+        return curState;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    @EntityProperty
+    public void setState( State state ) {
+        curState = state;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Operation getOperation() {
+        return operation;
+    }
+
+
+    public void setOperation( Operation operation ) {
+        this.operation = operation;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public UUID getApplicationId() {
+        return applicationId;
+    }
+
+
+    public void setApplicationId( UUID applicationId ) {
+        this.applicationId = applicationId;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+
+    public void setCollectionName( String collectionName ) {
+        this.collectionName = collectionName;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String getQl() {
+        return ql;
+    }
+
+
+    public void setQl( String ql ) {
+        this.ql = ql;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Map<String, Object> getUpdates() {
+        return updates;
+    }
+
+
+    public void setUpdates( Map<String, Object> updates ) {
+        this.updates = updates;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Long getRate() {
+        return rate;
+    }
+
+
+    public void setRate( Long rate ) {
+        this.rate = rate;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Long getProcessed() {
+        return processed;
+    }
+
+
+    public void setProcessed( Long processed ) {
+        this.processed = processed;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String getCursor() {
+        return cursor;
+    }
+
+
+    public void setCursor( String cursor ) {
+        this.cursor = cursor;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Long getStarted() {
+        return started;
+    }
+
+
+    public void setStarted( Long started ) {
+        this.started = started;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public Long getFinished() {
+        return finished;
+    }
+
+
+    public void setFinished( Long finished ) {
+        this.finished = finished;
+    }
+
+
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+
+    public void setErrorMessage( String errorMessage ) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -52,6 +52,10 @@ public class Event extends TypedEntity {
     @EntityProperty(indexed = false, required = false, mutable = false)
     Map<String, Integer> counters;
 
+    /** Values to count once each, by counter name */
+    @EntityProperty(indexed = false, required = false, mutable = false)
+    Map<String, String> distinctCounters;
+
     @EntityProperty(indexed = true, required = false, mutable = false)
     String message;
 
@@ -134,6 +138,25 @@ public class Event extends TypedEntity {
     }
 
 
+    @JsonSerialize(include = Inclusion.NON_NULL)
+    public Map<String, String> getDistinctCounters() {
+        return distinctCounters;
+    }
+
+
+    public void setDistinctCounters( Map<String, String> distinctCounters ) {
+        this.distinctCounters = distinctCounters;
+    }
+
+
+    public void addDistinctCounter( String name, String value ) {
+        if ( distinctCounters == null ) {
+            distinctCounters = new HashMap<String, String>();
+        }
+        distinctCounters.put( name, value );
+    }
+
+
     public String getMessage() {
         return message;
     }
@@ -35,6 +35,7 @@ import org.apache.usergrid.persistence.IndexBucketLocator.IndexType;
 import org.apache.usergrid.persistence.cassandra.CassandraService;
 import org.apache.usergrid.persistence.cassandra.GeoIndexManager;
 import org.apache.usergrid.persistence.cassandra.index.IndexMultiBucketSetLoader;
+import org.apache.usergrid.persistence.geo.model.BoundingBox;
 import org.apache.usergrid.persistence.geo.model.Point;
 import org.apache.usergrid.persistence.geo.model.Tuple;
 
@@ -94,6 +95,10 @@ public abstract class GeoIndexSearcher {
         List<String> curGeocells = new ArrayList<String>();
         String curContainingGeocell = null;
 
+        // the cell probed to choose where to start, kept when it holds all its locations so it isn't read again
+        String probedCell = null;
+        TreeSet<HColumn<ByteBuffer, ByteBuffer>> probed = null;
+
         // we have some cells used from last time, re-use them
         if ( geoCells != null && geoCells.size() > 0 ) {
             curGeocells.addAll( geoCells );
@@ -107,10 +112,44 @@ public abstract class GeoIndexSearcher {
        * Must always be of the same resolution. Must always form a rectangular
        * region. One of these must be equal to the cur_containing_geocell.
        */
-            curContainingGeocell = GeocellUtils.compute( searchPoint, MAX_GEOCELL_RESOLUTION );
+            int resolution = MAX_GEOCELL_RESOLUTION;
+
+            // within a distance, probe the cell the size of the distance for one more location than the results. If
+            // it holds no more than the results, start at the finest cell around the search point that holds them
+            // all, and use the probe as the read of the cell. Otherwise it's dense enough to start from the max
+            // resolution, as without a distance
+            if ( maxDistance > 0 ) {
+                // cells are indexed from the first resolution
+                int probedResolution =
+                        GeocellUtils.radiusResolution( searchPoint, maxDistance, MAX_GEOCELL_RESOLUTION );
+                int probeSize = Math.min( maxResults + 1, MAX_FETCH_SIZE );
+
+                probedCell = GeocellUtils.compute( searchPoint, Math.max( 1, probedResolution ) );
+                probed = doSearch( Collections.singletonList( probedCell ), null, searchPoint, propertyName,
+                        probeSize );
+
+                if ( probed.size() < probeSize ) {
+                    List<Point> locations = new ArrayList<Point>( probed.size() );
+
+                    for ( HColumn<ByteBuffer, ByteBuffer> column : probed ) {
+                        DynamicComposite composite = DynamicComposite.fromByteBuffer( column.getValue() );
+                        locations.add( new Point( composite.get( 0, de ), composite.get( 1, de ) ) );
+                    }
+
+                    resolution = getStartResolution( locations, searchPoint, probedCell.length(), maxResults );
+                }
+                else {
+                    probed = null;
+                }
+            }
+
+            curContainingGeocell = GeocellUtils.compute( searchPoint, resolution );
             curGeocells.add( curContainingGeocell );
         }
 
+        // locations outside the box are too far to match, and are skipped before their distance is calculated
+        BoundingBox radiusBox = maxDistance > 0 ? GeocellUtils.computeRadiusBox( searchPoint, maxDistance ) : null;
+
         if ( minMatch != null ) {
             minMatch.calcDistance( searchPoint );
         }
@@ -150,7 +189,15 @@ public abstract class GeoIndexSearcher {
             // any more results, then we'll have the closest points and can move on
             // do the next tiles
             do {
-                queryResults = doSearch( curGeocellsUnique, lastReturned, searchPoint, propertyName, MAX_FETCH_SIZE );
+                if ( probed != null && lastReturned == null && curGeocellsUnique
+                        .equals( Collections.singletonList( probedCell ) ) ) {
+                    queryResults = probed;
+                    probed = null;
+                }
+                else {
+                    queryResults =
+                            doSearch( curGeocellsUnique, lastReturned, searchPoint, propertyName, MAX_FETCH_SIZE );
+                }
 
                 if ( logger.isDebugEnabled() ) {
                     logger.debug( "fetch complete for: {}", StringUtils.join( curGeocellsUnique, ", " ) );
@@ -176,6 +223,10 @@ public abstract class GeoIndexSearcher {
                     Double latitude = composite.get( 0, de );
                     Double longitude = composite.get( 1, de );
 
+                    if ( radiusBox != null && !GeocellUtils.boxContains( radiusBox, latitude, longitude ) ) {
+                        continue;
+                    }
+
                     EntityLocationRef entityLocation =
                             new EntityLocationRef( type, uuid, timestampUuid, latitude, longitude );
 
@@ -316,6 +367,41 @@ public abstract class GeoIndexSearcher {
     }
 
 
+    /**
+     * The finest resolution, down to the min resolution, whose cell around the search point holds at least the count
+     * of the locations
+     */
+    static int getStartResolution( List<Point> locations, Point searchPoint, int minResolution, int count ) {
+        String searchCell = GeocellUtils.compute( searchPoint, MAX_GEOCELL_RESOLUTION );
+
+        // the number of locations whose cells share exactly each number of leading characters with the search cell
+        int[] shared = new int[MAX_GEOCELL_RESOLUTION + 1];
+
+        for ( Point location : locations ) {
+            String cell = GeocellUtils.compute( location, MAX_GEOCELL_RESOLUTION );
+            int length = 0;
+
+            while ( length < MAX_GEOCELL_RESOLUTION && cell.charAt( length ) == searchCell.charAt( length ) ) {
+                length++;
+            }
+
+            shared[length]++;
+        }
+
+        int inCell = 0;
+
+        for ( int resolution = MAX_GEOCELL_RESOLUTION; resolution > minResolution; resolution-- ) {
+            inCell += shared[resolution];
+
+            if ( inCell >= count ) {
+                return resolution;
+            }
+        }
+
+        return minResolution;
+    }
+
+
     protected TreeSet<HColumn<ByteBuffer, ByteBuffer>> query( Object key, List<String> curGeocellsUnique,
                                                               Point searchPoint, UUID startId, int count )
             throws Exception {
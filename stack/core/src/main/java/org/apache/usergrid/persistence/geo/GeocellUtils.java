@@ -485,6 +485,85 @@ public final class GeocellUtils {
     }
 
 
+    /**
+     * Returns the finest resolution, up to the maximum, whose cells are at least as tall and as wide as the radius at
+     * the latitude of the point.
+     *
+     * @return The resolution of the smallest geocells that still span the radius.
+     */
+    public static int radiusResolution( Point point, double radius, int maxResolution ) {
+        double cosLat = Math.cos( Math.toRadians( point.getLat() ) );
+        int resolution = 0;
+
+        while ( resolution < maxResolution ) {
+            double cells = Math.pow( GEOCELL_GRID_SIZE, resolution + 1 );
+            double height = Math.toRadians( ( MAX_LATITUDE - MIN_LATITUDE ) / cells ) * RADIUS;
+            double width = Math.toRadians( ( MAX_LONGITUDE - MIN_LONGITUDE ) / cells ) * RADIUS * cosLat;
+
+            if ( Math.min( height, width ) < radius ) {
+                break;
+            }
+
+            resolution++;
+        }
+
+        return resolution;
+    }
+
+
+    /**
+     * Returns a box around all the points within the radius of the center, so points can be discarded before their
+     * distance is calculated. The east of the box is less than its west when it crosses the antimeridian. The radius
+     * is widened by a meter, so the rounding of {@link #distance(Point, Point)} can't put a point outside the box.
+     *
+     * @return The box, or null if the radius reaches a pole and longitudes can't be bounded.
+     */
+    public static BoundingBox computeRadiusBox( Point center, double radius ) {
+        double angle = ( radius + 1 ) / RADIUS;
+        double latSpan = Math.toDegrees( angle );
+
+        double north = center.getLat() + latSpan;
+        double south = center.getLat() - latSpan;
+
+        if ( north >= MAX_LATITUDE || south <= MIN_LATITUDE ) {
+            return null;
+        }
+
+        double lonSpan =
+                Math.toDegrees( Math.asin( Math.sin( angle ) / Math.cos( Math.toRadians( center.getLat() ) ) ) );
+
+        double east = center.getLon() + lonSpan;
+        double west = center.getLon() - lonSpan;
+
+        if ( east > MAX_LONGITUDE ) {
+            east -= MAX_LONGITUDE - MIN_LONGITUDE;
+        }
+        if ( west < MIN_LONGITUDE ) {
+            west += MAX_LONGITUDE - MIN_LONGITUDE;
+        }
+
+        return new BoundingBox( north, east, south, west );
+    }
+
+
+    /**
+     * Returns whether the point is in the box, which may cross the antimeridian.
+     *
+     * @return Returns whether or not the box contains the point.
+     */
+    public static boolean boxContains( BoundingBox box, double lat, double lon ) {
+        if ( lat < box.getSouth() || lat > box.getNorth() ) {
+            return false;
+        }
+
+        if ( box.getWest() <= box.getEast() ) {
+            return box.getWest() <= lon && lon <= box.getEast();
+        }
+
+        return lon >= box.getWest() || lon <= box.getEast();
+    }
+
+
     /**
      * This function is used to fix issue 10: GeocellUtils.distance(...) uses Math.acos(arg) method. In some cases arg >
      * 1 (i.e 1.0000000002), so acos cannot be calculated and the method returns NaN.
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.hector;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import me.prettyprint.cassandra.model.ExecutingVirtualKeyspace;
+import me.prettyprint.cassandra.serializers.UUIDSerializer;
+import me.prettyprint.cassandra.service.FailoverPolicy;
+import me.prettyprint.hector.api.Cluster;
+import me.prettyprint.hector.api.ConsistencyLevelPolicy;
+import me.prettyprint.hector.api.Keyspace;
+
+
+/**
+ * The virtual keyspace of an application, the row keys are prefixed with the application id. Keeps the id, which the
+ * virtual keyspace doesn't expose, so operations can be attributed to their application.
+ */
+public class ApplicationKeyspace extends ExecutingVirtualKeyspace<UUID> {
+
+    private final UUID applicationId;
+
+
+    public ApplicationKeyspace( String keyspace, UUID applicationId, Cluster cluster,
+                                ConsistencyLevelPolicy consistencyLevelPolicy, FailoverPolicy failoverPolicy,
+                                Map<String, String> credentials ) {
+        super( keyspace, applicationId, UUIDSerializer.get(), cluster.getConnectionManager(), consistencyLevelPolicy,
+                failoverPolicy, credentials );
+        this.applicationId = applicationId;
+    }
+
+
+    public UUID getApplicationId() {
+        return applicationId;
+    }
+
+
+    /** Get the application of the keyspace, or null if it isn't the virtual keyspace of an application */
+    public static UUID getApplicationId( Keyspace ko ) {
+        return ko instanceof ApplicationKeyspace ? ( ( ApplicationKeyspace ) ko ).getApplicationId() : null;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.hector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils;
 
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.Serializer;
@@ -324,7 +325,14 @@ public class CountingMutator<K> implements Mutator<K> {
 
         if ( target.getPendingMutationCount() >= maxSize ) {
             logger.info( "Max mutation size of {} reached.  Flushing", maxSize);
-            target.execute();
+            int mutations = target.getPendingMutationCount();
+            long startTime = System.nanoTime();
+            try {
+                target.execute();
+            }
+            finally {
+                CassandraPersistenceUtils.recordExecute( "flush", mutations, startTime );
+            }
         }
     }
 
@@ -185,12 +185,12 @@ public abstract class SearchVisitor implements NodeVisitor {
             //only order by with no query, start scanning the first field
             if ( subResults == null ) {
                 QuerySlice firstFieldSlice = new QuerySlice( slice.getPropertyName(), -1 );
-                subResults =
-                        new SliceIterator( slice, secondaryIndexScan( orderByNode, firstFieldSlice ), COLLECTION_PARSER );
+                subResults = new SliceIterator( slice, secondaryIndexScan( orderByNode, firstFieldSlice ),
+                        COLLECTION_PARSER, queryProcessor.getStats() );
             }
 
             orderIterator = new OrderByIterator( slice, orderByNode.getSecondarySorts(), subResults, em,
-                    queryProcessor.getPageSizeHint( orderByNode ) );
+                    queryProcessor.getPageSizeHint( orderByNode ), queryProcessor.getStats() );
         }
 
         //we don't have multi field sorting, we can simply do intersection with a single scan range
@@ -205,7 +205,7 @@ public abstract class SearchVisitor implements NodeVisitor {
                 scanner = secondaryIndexScan( orderByNode, slice );
             }
 
-            SliceIterator joinSlice = new SliceIterator( slice, scanner, COLLECTION_PARSER);
+            SliceIterator joinSlice = new SliceIterator( slice, scanner, COLLECTION_PARSER, queryProcessor.getStats() );
 
             IntersectionIterator union = new IntersectionIterator( queryProcessor.getPageSizeHint( orderByNode ) );
             union.addIterator( joinSlice );
@@ -236,7 +236,8 @@ public abstract class SearchVisitor implements NodeVisitor {
         for ( QuerySlice slice : node.getAllSlices() ) {
             IndexScanner scanner = secondaryIndexScan( node, slice );
 
-            intersections.addIterator( new SliceIterator( slice, scanner, COLLECTION_PARSER) );
+            intersections.addIterator(
+                    new SliceIterator( slice, scanner, COLLECTION_PARSER, queryProcessor.getStats() ) );
         }
 
         results.push( intersections );
@@ -154,6 +154,22 @@ public class SliceNode extends QueryNode {
     }
 
 
+    /** Move the slice of the field first, so it's the one the other slices are joined to */
+    public void setFirstSlice( String fieldName ) {
+        QuerySlice first = this.pairs.remove( fieldName );
+
+        if ( first == null ) {
+            return;
+        }
+
+        Map<String, QuerySlice> reordered = new LinkedHashMap<String, QuerySlice>();
+        reordered.put( fieldName, first );
+        reordered.putAll( this.pairs );
+
+        this.pairs = reordered;
+    }
+
+
     /** Get all slices in our context */
     public Collection<QuerySlice> getAllSlices() {
         return this.pairs.values();
@@ -33,6 +33,9 @@ public class CollectionResultsLoaderFactory implements ResultsLoaderFactory {
             case REFS:
                 return new EntityRefLoader( query.getEntityType() );
             default:
+                if ( query.hasSelectSubjects() ) {
+                    return new PartialEntityResultsLoader( em, query.getSelectProperties() );
+                }
                 return new EntityResultsLoader( em );
         }
     }
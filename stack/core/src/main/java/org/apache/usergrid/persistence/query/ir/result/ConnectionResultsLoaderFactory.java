@@ -42,6 +42,9 @@ public class ConnectionResultsLoaderFactory implements ResultsLoaderFactory {
             case REFS:
                 return new ConnectionRefLoader( connection );
             default:
+                if ( query.hasSelectSubjects() ) {
+                    return new PartialEntityResultsLoader( em, query.getSelectProperties() );
+                }
                 return new EntityResultsLoader( em );
         }
     }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.query.ir.result;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.query.ir.result.SecondaryIndexSliceParser.SecondaryIndexColumn;
+
+
+/**
+ * Builds the entities of a select from the scanned index columns, reading only the uuid, type and tombstone columns
+ * of the entity rows. Each entity has its uuid, its type, and the value of the property the columns were scanned
+ * from, if any. Index entries of deleted entities, which stay until the cleanup of an async delete has run, and of
+ * entities that no longer exist are skipped, the same as when the entities are loaded. Entities whose index value
+ * can't be converted back to the property type are loaded in full.
+ */
+public class IndexValueResultsLoader implements ResultsLoader {
+
+    private final EntityManager em;
+    private final String propertyName;
+    private final Class<?> propertyType;
+
+
+    /**
+     * @param propertyName The property of the scanned index, null if only the uuid is selected
+     * @param propertyType The schema type of the property
+     */
+    public IndexValueResultsLoader( EntityManager em, String propertyName, Class<?> propertyType ) {
+        this.em = em;
+        this.propertyName = propertyName;
+        this.propertyType = propertyType;
+    }
+
+
+    /** True if values of the type are stored in the index as they are, so they can be returned from it */
+    public static boolean isIndexFaithful( Class<?> type ) {
+        return type == UUID.class || type == Long.class || type == long.class || type == Integer.class
+                || type == int.class;
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.apache.usergrid.persistence.query.ir.result.ResultsLoader#getResults(java.util.List)
+     */
+    @Override
+    public Results getResults( List<ScanColumn> entityIds ) throws Exception {
+        Map<UUID, Entity> loaded = new HashMap<UUID, Entity>( entityIds.size() );
+
+        //no property columns, this only leaves out the rows that are deleted or missing
+        for ( Entity entity : em.getPartialEntities( ScanColumnTransformer.getIds( entityIds ),
+                new ArrayList<String>() ) ) {
+            loaded.put( entity.getUuid(), entity );
+        }
+
+        List<UUID> missing = new ArrayList<UUID>();
+
+        if ( propertyName != null ) {
+            for ( ScanColumn column : entityIds ) {
+                Entity entity = loaded.get( column.getUUID() );
+
+                if ( entity == null ) {
+                    continue;
+                }
+
+                Object value = toPropertyValue( column );
+
+                if ( value == null ) {
+                    loaded.remove( column.getUUID() );
+                    missing.add( column.getUUID() );
+                    continue;
+                }
+
+                entity.setProperty( propertyName, value );
+            }
+        }
+
+        List<Entity> reloaded = missing.isEmpty() ? null : em.get( missing ).getEntities();
+
+        if ( reloaded != null ) {
+            for ( Entity entity : reloaded ) {
+                loaded.put( entity.getUuid(), entity );
+            }
+        }
+
+        //return them in the order of the index
+        List<Entity> entities = new ArrayList<Entity>( entityIds.size() );
+
+        for ( ScanColumn column : entityIds ) {
+            Entity entity = loaded.get( column.getUUID() );
+
+            if ( entity != null ) {
+                entities.add( entity );
+            }
+        }
+
+        return Results.fromEntities( entities );
+    }
+
+
+    private Object toPropertyValue( ScanColumn column ) {
+        if ( !( column instanceof SecondaryIndexColumn ) ) {
+            return null;
+        }
+
+        Object value = ( ( SecondaryIndexColumn ) column ).getValue();
+
+        if ( propertyType == UUID.class ) {
+            return value instanceof UUID ? value : null;
+        }
+
+        if ( !( value instanceof Number ) ) {
+            return null;
+        }
+
+        if ( propertyType == Integer.class || propertyType == int.class ) {
+            return ( ( Number ) value ).intValue();
+        }
+
+        return ( ( Number ) value ).longValue();
+    }
+}
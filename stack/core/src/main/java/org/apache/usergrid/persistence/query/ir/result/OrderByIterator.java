@@ -22,12 +22,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -37,6 +37,7 @@ import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityPropertyComparator;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Query.SortPredicate;
+import org.apache.usergrid.persistence.QueryStats;
 import org.apache.usergrid.persistence.cassandra.CursorCache;
 import org.apache.usergrid.persistence.query.ir.QuerySlice;
 
@@ -59,6 +60,7 @@ public class OrderByIterator extends MergeIterator {
     private final ComparatorChain subSortCompare;
     private final List<String> secondaryFields;
     private final EntityManager em;
+    private final QueryStats stats;
 
     //our last result from in memory sorting
     private SortedEntitySet entries;
@@ -66,12 +68,14 @@ public class OrderByIterator extends MergeIterator {
 
     /**
      * @param pageSize
+     * @param stats The stats of the query the sorting is recorded to
      */
     public OrderByIterator( QuerySlice slice, List<Query.SortPredicate> secondary, ResultIterator candidates,
-                            EntityManager em, int pageSize ) {
+                            EntityManager em, int pageSize, QueryStats stats ) {
         super( pageSize );
         this.slice = slice;
         this.em = em;
+        this.stats = stats;
         this.candidates = candidates;
         this.subSortCompare = new ComparatorChain();
         this.secondaryFields = new ArrayList<String>( 1 + secondary.size() );
@@ -121,7 +125,11 @@ public class OrderByIterator extends MergeIterator {
                 entries.add( id );
             }
 
-            entries.load();
+            long startTime = System.nanoTime();
+
+            stats.addSortEntities( entries.load() );
+
+            stats.addTime( QueryStats.Stage.SORT, startTime );
         }
 
 
@@ -149,99 +157,134 @@ public class OrderByIterator extends MergeIterator {
     }
 
 
-    /** A Sorted set with a max size. When a new entry is added, the max is removed */
-    public static final class SortedEntitySet extends TreeSet<Entity> {
+    /**
+     * The first entities in sort order, up to a max size. They're kept in a heap with the last of them on top, so a
+     * candidate that sorts after it is dropped without touching the others. Only the candidates added since the last
+     * load are read, with their sort properties only.
+     */
+    public static final class SortedEntitySet {
 
         private final int maxSize;
+        private final PriorityQueue<Entity> heap;
         private final Map<UUID, ScanColumn> cursorVal = new HashMap<UUID, ScanColumn>();
+        private final Map<UUID, ScanColumn> pending = new LinkedHashMap<UUID, ScanColumn>();
         private final EntityManager em;
         private final List<String> fields;
-        private final Entity minEntity;
         private final Comparator<Entity> comparator;
+        private final UUID minEntityId;
+        private Entity minEntity;
+        private boolean minEntityLoaded;
 
 
+        /**
+         * @param minEntityId The entity of the cursor, everything that doesn't sort after it is dropped. It's loaded
+         * with the first candidates
+         */
         public SortedEntitySet( Comparator<Entity> comparator, EntityManager em, List<String> fields, int maxSize,
                                 UUID minEntityId ) {
-            super( comparator );
             this.maxSize = maxSize;
             this.em = em;
             this.fields = fields;
             this.comparator = comparator;
-            this.minEntity = getPartialEntity( minEntityId );
+            this.minEntityId = minEntityId;
+            this.minEntityLoaded = minEntityId == null;
+            this.heap = new PriorityQueue<Entity>( Math.max( maxSize, 1 ), Collections.reverseOrder( comparator ) );
         }
 
 
-        @Override
-        public boolean add( Entity entity ) {
+        /** Add the loaded entity, if it sorts before the last one we have */
+        private void add( Entity entity ) {
+            UUID id = entity.getUuid();
 
             // don't add this entity.  We get it in our scan range, but it's <= the minimum value that
             //should be allowed in the result set
             if ( minEntity != null && comparator.compare( entity, minEntity ) <= 0 ) {
-                return false;
+                return;
+            }
+
+            //the same entity can be indexed more than once
+            if ( cursorVal.containsKey( id ) ) {
+                return;
             }
 
-            boolean added = super.add( entity );
+            if ( heap.size() >= maxSize ) {
+                if ( comparator.compare( entity, heap.peek() ) >= 0 ) {
+                    return;
+                }
 
-            while ( size() > maxSize ) {
                 //remove our last element, we're over size
-                Entity e = this.pollLast();
-                //remove it from the cursors as well
-                cursorVal.remove( e.getUuid() );
+                cursorVal.remove( heap.poll().getUuid() );
             }
 
-            return added;
+            heap.add( entity );
+            cursorVal.put( id, pending.get( id ) );
         }
 
 
         /** add the id to be loaded, and the dynamiccomposite column that belongs with it */
         public void add( ScanColumn col ) {
-            cursorVal.put( col.getUUID(), col );
+            pending.put( col.getUUID(), col );
         }
 
 
-        private Entity getPartialEntity( UUID minEntityId ) {
+        /** Load the candidates added since the last load and keep the first ones, returns the number loaded */
+        public int load() {
+            List<UUID> ids = new ArrayList<UUID>( pending.keySet() );
+
+            if ( !minEntityLoaded ) {
+                ids.add( minEntityId );
+            }
+
             List<Entity> entities;
 
             try {
-                entities = em.getPartialEntities( Collections.singletonList( minEntityId ), fields );
+                //copy the fields, the entity manager adds to them
+                entities = em.getPartialEntities( ids, new ArrayList<String>( fields ) );
             }
             catch ( Exception e ) {
                 logger.error( "Unable to load partial entities", e );
                 throw new RuntimeException( e );
             }
 
-            if ( entities == null || entities.size() == 0 ) {
-                return null;
+            if ( !minEntityLoaded ) {
+                for ( Entity entity : entities ) {
+                    if ( minEntityId.equals( entity.getUuid() ) ) {
+                        minEntity = entity;
+                    }
+                }
+
+                minEntityLoaded = true;
             }
 
-            return entities.get( 0 );
+            for ( Entity entity : entities ) {
+                if ( pending.containsKey( entity.getUuid() ) ) {
+                    add( entity );
+                }
+            }
+
+            int loaded = pending.size();
+
+            pending.clear();
+
+            return loaded;
         }
 
 
-        public void load() {
-            try {
-                for ( Entity e : em.getPartialEntities( cursorVal.keySet(), fields ) ) {
-                    add( e );
-                }
-            }
-            catch ( Exception e ) {
-                logger.error( "Unable to load partial entities", e );
-                throw new RuntimeException( e );
-            }
+        public int size() {
+            return heap.size();
         }
 
 
         /** Turn our sorted entities into a set of ids */
         public Set<ScanColumn> toIds() {
-            Iterator<Entity> itr = iterator();
-
-            Set<ScanColumn> columns = new LinkedHashSet<ScanColumn>( this.size() );
+            List<Entity> sorted = new ArrayList<Entity>( heap );
 
-            while ( itr.hasNext() ) {
+            Collections.sort( sorted, comparator );
 
-                UUID id = itr.next().getUuid();
+            Set<ScanColumn> columns = new LinkedHashSet<ScanColumn>( sorted.size() );
 
-                columns.add( cursorVal.get( id ) );
+            for ( Entity entity : sorted ) {
+                columns.add( cursorVal.get( entity.getUuid() ) );
             }
 
             return columns;
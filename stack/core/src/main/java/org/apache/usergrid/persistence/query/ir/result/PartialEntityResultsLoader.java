@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.query.ir.result;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Results;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+
+/**
+ * Loads only the properties a select reads. Property columns are stored with the case they were written with, while
+ * the select is lower cased by the parser and matched case insensitively, so the loader remembers every spelling of a
+ * property it has seen and reads all of them.
+ * <p/>
+ * An entity is only loaded again in full when it's missing a property no loaded entity of its application and type
+ * has had yet, which is how the spelling of a mixed case property is learned. Once a property has been seen in a type,
+ * entities of that type without it are returned without it, so sparse properties are read once.
+ */
+public class PartialEntityResultsLoader implements ResultsLoader {
+
+    /**
+     * The stored spellings of the properties seen so far by entity type, by application and lower cased property
+     * name. Every spelling of the application is read, since the results of a query can be of several types.
+     */
+    private static final Cache<String, ConcurrentMap<String, Set<String>>> SPELLINGS =
+            CacheBuilder.newBuilder().maximumSize( 10000 ).build();
+
+    private final EntityManager em;
+    private final Set<String> properties;
+    private final String applicationKey;
+
+
+    /**
+     * @param properties The properties to load
+     */
+    public PartialEntityResultsLoader( EntityManager em, Set<String> properties ) {
+        this.em = em;
+        this.properties = properties;
+        this.applicationKey = em.getApplicationRef().getUuid() + "/";
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.apache.usergrid.persistence.query.ir.result.ResultsLoader#getResults(java.util.List)
+     */
+    @Override
+    public Results getResults( List<ScanColumn> entityIds ) throws Exception {
+        List<UUID> ids = ScanColumnTransformer.getIds( entityIds );
+
+        Map<UUID, Entity> loaded = new HashMap<UUID, Entity>( ids.size() );
+
+        //a new list, the entity manager adds to it
+        List<Entity> partial = em.getPartialEntities( ids, new ArrayList<String>( getColumnNames() ) );
+
+        for ( Entity entity : partial ) {
+            learnSpellings( entity );
+        }
+
+        List<UUID> reload = new ArrayList<UUID>();
+
+        for ( Entity entity : partial ) {
+            if ( isMissingUnseenProperty( entity ) ) {
+                reload.add( entity.getUuid() );
+            }
+            else {
+                loaded.put( entity.getUuid(), entity );
+            }
+        }
+
+        if ( !reload.isEmpty() ) {
+            for ( Entity entity : em.get( reload ).getEntities() ) {
+                learnSpellings( entity );
+                loaded.put( entity.getUuid(), entity );
+            }
+        }
+
+        //return them in the order of the ids
+        List<Entity> entities = new ArrayList<Entity>( ids.size() );
+
+        for ( UUID id : ids ) {
+            Entity entity = loaded.get( id );
+
+            if ( entity != null ) {
+                entities.add( entity );
+            }
+        }
+
+        return Results.fromEntities( entities );
+    }
+
+
+    /** The selected properties and every spelling of them seen so far */
+    private Set<String> getColumnNames() {
+        Set<String> names = new LinkedHashSet<String>( properties );
+
+        for ( String property : properties ) {
+            Map<String, Set<String>> spellings = SPELLINGS.getIfPresent( applicationKey + property.toLowerCase() );
+
+            if ( spellings != null ) {
+                for ( Set<String> typeSpellings : spellings.values() ) {
+                    names.addAll( typeSpellings );
+                }
+            }
+        }
+
+        return names;
+    }
+
+
+    private void learnSpellings( Entity entity ) {
+        for ( String name : entity.getProperties().keySet() ) {
+            String key = name.toLowerCase();
+
+            if ( !isSelected( key ) ) {
+                continue;
+            }
+
+            ConcurrentMap<String, Set<String>> spellings = SPELLINGS.getIfPresent( applicationKey + key );
+
+            if ( spellings == null ) {
+                spellings = new ConcurrentHashMap<String, Set<String>>();
+                ConcurrentMap<String, Set<String>> existing =
+                        SPELLINGS.asMap().putIfAbsent( applicationKey + key, spellings );
+                spellings = existing != null ? existing : spellings;
+            }
+
+            Set<String> typeSpellings = spellings.get( entity.getType() );
+
+            if ( typeSpellings == null ) {
+                typeSpellings = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+                Set<String> existing = spellings.putIfAbsent( entity.getType(), typeSpellings );
+                typeSpellings = existing != null ? existing : typeSpellings;
+            }
+
+            typeSpellings.add( name );
+        }
+    }
+
+
+    private boolean isSelected( String lowerCaseName ) {
+        for ( String property : properties ) {
+            if ( property.equalsIgnoreCase( lowerCaseName ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private boolean isMissingUnseenProperty( Entity entity ) {
+        for ( String property : properties ) {
+            if ( entity.getProperty( property ) != null ) {
+                continue;
+            }
+
+            Map<String, Set<String>> spellings = SPELLINGS.getIfPresent( applicationKey + property.toLowerCase() );
+
+            if ( spellings == null || !spellings.containsKey( entity.getType() ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -26,6 +26,7 @@ import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.QueryStats;
 import org.apache.usergrid.persistence.cassandra.CursorCache;
 import org.apache.usergrid.persistence.cassandra.index.IndexScanner;
 import org.apache.usergrid.persistence.exceptions.QueryIterationException;
@@ -48,6 +49,7 @@ public class SliceIterator implements ResultIterator {
     private final SliceParser parser;
     private final IndexScanner scanner;
     private final int pageSize;
+    private final QueryStats stats;
 
     /**
      * Pointer to the uuid set until it's returned
@@ -74,11 +76,13 @@ public class SliceIterator implements ResultIterator {
      * @param scanner The scanner to use to read the cols
      * @param slice The slice used in the scanner
      * @param parser The parser for the scanner results
+     * @param stats The stats of the query the index reads are recorded to
      */
-    public SliceIterator( QuerySlice slice, IndexScanner scanner, SliceParser parser ) {
+    public SliceIterator( QuerySlice slice, IndexScanner scanner, SliceParser parser, QueryStats stats ) {
         this.slice = slice;
         this.parser = parser;
         this.scanner = scanner;
+        this.stats = stats;
         this.pageSize = scanner.getPageSize();
         this.cols = new LinkedHashMap<UUID, ScanColumn>( this.pageSize );
         this.parsedCols = new LinkedHashSet<ScanColumn>( this.pageSize );
@@ -112,11 +116,19 @@ public class SliceIterator implements ResultIterator {
 
 
     private boolean load() {
+        long startTime = System.nanoTime();
+        int rowsRead = scanner.getRowsRead();
+
         if ( !scanner.hasNext() ) {
+            stats.addTime( QueryStats.Stage.INDEX_SCAN, startTime );
             return false;
         }
 
-        Iterator<HColumn<ByteBuffer, ByteBuffer>> results = scanner.next().iterator();
+        Set<HColumn<ByteBuffer, ByteBuffer>> page = scanner.next();
+
+        stats.addIndexPage( scanner.getRowsRead() - rowsRead, page.size() );
+
+        Iterator<HColumn<ByteBuffer, ByteBuffer>> results = page.iterator();
 
         cols.clear();
 
@@ -143,6 +155,8 @@ public class SliceIterator implements ResultIterator {
 
         lastResult = parsedCols;
 
+        stats.addTime( QueryStats.Stage.INDEX_SCAN, startTime );
+
         return lastResult != null && lastResult.size() > 0;
     }
 
@@ -22,6 +22,7 @@ import org.junit.runners.Suite;
 import org.apache.usergrid.cassandra.Concurrent;
 import org.apache.usergrid.locking.zookeeper.ZookeeperLockManagerTest;
 import org.apache.usergrid.mq.QueuePathsTest;
+import org.apache.usergrid.mq.cassandra.QueueShardingTest;
 import org.apache.usergrid.persistence.EntityTest;
 import org.apache.usergrid.persistence.QueryTest;
 import org.apache.usergrid.persistence.QueryUtilsTest;
@@ -39,7 +40,7 @@ import org.apache.usergrid.persistence.query.tree.StringLiteralTest;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        ZookeeperLockManagerTest.class, QueuePathsTest.class, QueryProcessorTest.class,
+        ZookeeperLockManagerTest.class, QueuePathsTest.class, QueueShardingTest.class, QueryProcessorTest.class,
         SimpleIndexBucketLocatorImplTest.class, EntityTest.class, QueryTest.class, QueryUtilsTest.class,
         SchemaTest.class, UtilsTest.class, IntersectionIteratorTest.class, SubtractionIteratorTest.class,
         UnionIteratorTest.class, GrammarTreeTest.class, LongLiteralTest.class, StringLiteralTest.class
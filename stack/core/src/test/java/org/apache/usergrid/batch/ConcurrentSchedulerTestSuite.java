@@ -21,6 +21,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.apache.usergrid.batch.AppArgsTest;
 import org.apache.usergrid.batch.BulkJobExecutionUnitTest;
+import org.apache.usergrid.batch.JobLaneTest;
 import org.apache.usergrid.batch.UsergridJobFactoryTest;
 import org.apache.usergrid.cassandra.Concurrent;
 import org.apache.usergrid.cassandra.ConcurrentSuite;
@@ -30,6 +31,7 @@ import org.apache.usergrid.cassandra.ConcurrentSuite;
 @Suite.SuiteClasses(
         {
                 AppArgsTest.class, UsergridJobFactoryTest.class, BulkJobExecutionUnitTest.class,
+                JobLaneTest.class
         })
 @Concurrent()
 public class ConcurrentSchedulerTestSuite {}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.batch;
+
+
+import java.util.List;
+
+import org.junit.Test;
+import org.apache.usergrid.batch.service.JobLane;
+import org.apache.usergrid.cassandra.Concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Concurrent()
+public class JobLaneTest {
+
+    @Test
+    public void noLanes() {
+        assertTrue( JobLane.parse( null ).isEmpty() );
+        assertTrue( JobLane.parse( " " ).isEmpty() );
+    }
+
+
+    @Test
+    public void parseLanes() {
+        List<JobLane> lanes = JobLane.parse( "/jobs/long=1:-1:exportJob|bulkMutationJob, /jobs/fast=8:5:pushJob" );
+
+        assertEquals( 2, lanes.size() );
+
+        JobLane slow = lanes.get( 0 );
+        assertEquals( "/jobs/long", slow.getQueueName() );
+        assertEquals( 1, slow.getWorkers() );
+        assertEquals( -1, slow.getPriority() );
+        assertEquals( 2, slow.getJobNames().size() );
+        assertTrue( slow.getJobNames().contains( "exportJob" ) );
+        assertTrue( slow.getJobNames().contains( "bulkMutationJob" ) );
+
+        JobLane fast = lanes.get( 1 );
+        assertEquals( "/jobs/fast", fast.getQueueName() );
+        assertEquals( 8, fast.getWorkers() );
+        assertEquals( 5, fast.getPriority() );
+        assertTrue( fast.getJobNames().contains( "pushJob" ) );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingPriority() {
+        JobLane.parse( "/jobs/long=1:exportJob" );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noWorkers() {
+        JobLane.parse( "/jobs/long=0:1:exportJob" );
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.apache.usergrid.batch.AppArgsTest;
 import org.apache.usergrid.batch.BulkJobExecutionUnitTest;
+import org.apache.usergrid.batch.JobLaneTest;
 import org.apache.usergrid.batch.UsergridJobFactoryTest;
 import org.apache.usergrid.cassandra.Concurrent;
 
@@ -29,6 +30,7 @@ import org.apache.usergrid.cassandra.Concurrent;
 @Suite.SuiteClasses(
         {
                 AppArgsTest.class, UsergridJobFactoryTest.class, BulkJobExecutionUnitTest.class,
+                JobLaneTest.class
         })
 @Concurrent()
 public class SchedulerTestSuite {}
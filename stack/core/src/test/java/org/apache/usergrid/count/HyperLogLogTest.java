@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.count;
+
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.CounterResolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimate() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        for ( int i = 0; i < 100000; i++ ) {
+            sketch.add( "user" + i );
+        }
+
+        //well within four standard errors
+        assertEquals( 100000, sketch.estimate(), 10000 );
+    }
+
+
+    @Test
+    public void duplicates() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        for ( int i = 0; i < 1000; i++ ) {
+            sketch.add( "user" + ( i % 100 ) );
+        }
+
+        assertEquals( 100, sketch.estimate(), 5 );
+    }
+
+
+    @Test
+    public void merge() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+
+        for ( int i = 0; i < 5000; i++ ) {
+            first.add( "user" + i );
+            second.add( "user" + ( i + 2500 ) );
+        }
+
+        first.merge( second );
+
+        assertEquals( 7500, first.estimate(), 750 );
+    }
+
+
+    @Test
+    public void columns() {
+        long bucket = CounterResolution.DAY.round( System.currentTimeMillis() );
+        long column = HyperLogLog.toColumn( bucket, HyperLogLog.hash( "user" ) );
+
+        assertEquals( bucket, HyperLogLog.getTime( column ) );
+        assertTrue( HyperLogLog.firstColumn( bucket ) <= column );
+        assertTrue( column <= HyperLogLog.lastColumn( bucket ) );
+        long next = CounterResolution.DAY.next( bucket );
+        assertTrue( HyperLogLog.lastColumn( bucket ) < HyperLogLog.firstColumn( next ) );
+    }
+}
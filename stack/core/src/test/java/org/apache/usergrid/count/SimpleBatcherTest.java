@@ -48,4 +48,32 @@ public class SimpleBatcherTest {
         simpleBatcher.add( new Count( "Counter", "k1", "c4", 1 ) );
         assertEquals( 1, simpleBatcher.getBatchSubmissionCount() );
     }
+
+
+    @Test
+    public void testBatchIntervalTrigger() throws Exception {
+        SimpleBatcher simpleBatcher = new SimpleBatcher();
+        simpleBatcher.setBatchSubmitter( new Slf4JBatchSubmitter() );
+        simpleBatcher.setBatchSize( 100 );
+        simpleBatcher.setBatchInterval( 1 );
+        simpleBatcher.start();
+
+        try {
+            simpleBatcher.add( new Count( "Counter", "k1", "counter1", 1 ) );
+            assertEquals( 0, simpleBatcher.getBatchSubmissionCount() );
+
+            // the batch isn't full, it's submitted by the interval
+            for ( int i = 0; i < 50 && simpleBatcher.getBatchSubmissionCount() == 0; i++ ) {
+                Thread.sleep( 100 );
+            }
+            assertEquals( 1, simpleBatcher.getBatchSubmissionCount() );
+
+            // nothing queued, nothing submitted
+            Thread.sleep( 1500 );
+            assertEquals( 1, simpleBatcher.getBatchSubmissionCount() );
+        }
+        finally {
+            simpleBatcher.stop();
+        }
+    }
 }
@@ -17,8 +17,12 @@
 package org.apache.usergrid.mq;
 
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
@@ -26,8 +30,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.AbstractCoreIT;
 import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.mq.cassandra.QueueManagerFactoryImpl;
+import org.apache.usergrid.mq.cassandra.QueueSharding;
 import org.apache.usergrid.utils.JsonUtils;
 
+import me.prettyprint.hector.api.factory.HFactory;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.apache.usergrid.mq.cassandra.CassandraMQUtils.getQueueId;
+import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
+import static org.apache.usergrid.mq.cassandra.QueuesCF.QUEUE_SHARDS;
+import static org.apache.usergrid.mq.cassandra.io.QueueShardDirectory.SHARD_NEWEST;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+import static org.apache.usergrid.persistence.cassandra.Serializers.le;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -276,4 +294,108 @@ public class MessagesIT extends AbstractCoreIT {
         assertFalse( "Both transactions have been removed", qm.hasOutstandingTransactions( queuePath, null ) );
         assertFalse( "Both messages and transactions have been returned", qm.hasPendingReads( queuePath, null ) );
     }
+
+
+    /**
+     * A node older than the shard directory posts to the day row without adding it to the directory, after the
+     * directory already has a shard of the queue. The message is still read.
+     */
+    @Test
+    public void testPostsFromOlderNodes() throws Exception {
+        String queuePath = "/legacy/upgrade";
+        long now = System.currentTimeMillis();
+
+        QueueManager qm = app.getQm();
+
+        List<UUID> posted = new ArrayList<UUID>();
+
+        for ( int days = 2; days >= 0; days-- ) {
+            Message message = new Message();
+            message.setUuid( newTimeUUID( now - days * QUEUE_SHARD_INTERVAL ) );
+            posted.add( qm.postToQueue( queuePath, message ).getUuid() );
+        }
+
+        // take yesterday out of the directory, the way an older node leaves it. Readers page through the newest row.
+        long yesterday = QueueSharding.DEFAULT_SETTINGS.getShardTimestamp( now - QUEUE_SHARD_INTERVAL );
+        UUID queueId = getQueueId( queuePath );
+
+        Mutator<ByteBuffer> m = HFactory.createMutator( setup.getCassSvc().getApplicationKeyspace( app.getId() ), be );
+        m.addDeletion( bytebuffer( key( queueId, SHARD_NEWEST ) ), QUEUE_SHARDS.getColumnFamily(), yesterday, le );
+        m.execute();
+
+        List<UUID> read = new ArrayList<UUID>();
+
+        QueueResults results = qm.getFromQueue( queuePath, new QueueQuery().withConsumer( "upgraded" ) );
+
+        for ( Message message : results.getMessages() ) {
+            read.add( message.getUuid() );
+        }
+
+        assertEquals( "Every message read once, in order", posted, read );
+    }
+
+
+    /**
+     * Posts to and reads from a single hot queue, once with the default daily shard and once with minute shards
+     * split into 8 sub shards, and logs the throughput of each.
+     */
+    @Test
+    public void testHotQueueThroughput() throws Exception {
+        QueueManagerFactoryImpl qmf = ( QueueManagerFactoryImpl ) setup.getQmf();
+        qmf.setShardOverrides( "/hot/sharded=60000:8" );
+
+        try {
+            hotQueueThroughput( "/hot/default" );
+            hotQueueThroughput( "/hot/sharded" );
+        }
+        finally {
+            qmf.setShardOverrides( null );
+        }
+    }
+
+
+    private void hotQueueThroughput( String queuePath ) throws Exception {
+        final int count = 1000;
+
+        QueueManager qm = app.getQm();
+
+        List<UUID> posted = new ArrayList<UUID>( count );
+
+        long start = System.currentTimeMillis();
+
+        for ( int i = 0; i < count; i++ ) {
+            Message message = new Message();
+            message.setIntProperty( "index", i );
+            posted.add( qm.postToQueue( queuePath, message ).getUuid() );
+        }
+
+        long postMillis = Math.max( System.currentTimeMillis() - start, 1 );
+
+        List<UUID> read = new ArrayList<UUID>( count );
+
+        start = System.currentTimeMillis();
+
+        QueueQuery query = new QueueQuery().withConsumer( "bench" );
+        query.setLimit( 100 );
+
+        while ( true ) {
+            QueueResults results = qm.getFromQueue( queuePath, query );
+
+            if ( results.size() == 0 ) {
+                break;
+            }
+
+            for ( Message message : results.getMessages() ) {
+                read.add( message.getUuid() );
+            }
+        }
+
+        long getMillis = Math.max( System.currentTimeMillis() - start, 1 );
+
+        LOG.info( "Queue {}: posted {} messages/s, read {} messages/s", new Object[] {
+                queuePath, count * 1000 / postMillis, count * 1000 / getMillis
+        } );
+
+        assertEquals( "Every message read once, in order", posted, read );
+    }
 }
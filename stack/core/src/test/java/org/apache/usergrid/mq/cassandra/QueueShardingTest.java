@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.mq.cassandra;
+
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.apache.usergrid.cassandra.Concurrent;
+
+import static org.apache.usergrid.mq.cassandra.QueueManagerImpl.QUEUE_SHARD_INTERVAL;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+@Concurrent()
+public class QueueShardingTest {
+
+    @Test
+    public void defaults() {
+        QueueSharding sharding = QueueSharding.parse( "" );
+
+        assertSame( QueueSharding.DEFAULT_SETTINGS, sharding.getSettings( "/foo/bar" ) );
+        assertEquals( QUEUE_SHARD_INTERVAL, QueueSharding.DEFAULT_SETTINGS.getInterval() );
+        assertEquals( 1, QueueSharding.DEFAULT_SETTINGS.getSubShards() );
+    }
+
+
+    @Test
+    public void overrides() {
+        QueueSharding sharding = QueueSharding.parse( "/jobs=3600000:4, foo/bar=60000" );
+
+        QueueSharding.Settings jobs = sharding.getSettings( "/jobs/" );
+        assertEquals( 3600000, jobs.getInterval() );
+        assertEquals( 4, jobs.getSubShards() );
+
+        QueueSharding.Settings foo = sharding.getSettings( "/foo/bar" );
+        assertEquals( 60000, foo.getInterval() );
+        assertEquals( 1, foo.getSubShards() );
+
+        assertSame( QueueSharding.DEFAULT_SETTINGS, sharding.getSettings( "/foo" ) );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intervalLongerThanADay() {
+        QueueSharding.parse( "/jobs=" + ( QUEUE_SHARD_INTERVAL * 2L ) );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intervalNotWholeSeconds() {
+        QueueSharding.parse( "/jobs=1500" );
+    }
+
+
+    @Test
+    public void subShardsStayInTheShard() {
+        QueueSharding.Settings settings = new QueueSharding.Settings( 60000, 8 );
+
+        long shard = settings.getShardTimestamp( System.currentTimeMillis() );
+        assertEquals( 0, shard % 60000 );
+
+        Set<Long> used = new HashSet<Long>();
+
+        for ( int i = 0; i < 1000; i++ ) {
+            UUID id = newTimeUUID();
+            long subShard = settings.getSubShardTimestamp( shard, id );
+
+            assertTrue( subShard >= shard && subShard < shard + 8 );
+            used.add( subShard );
+        }
+
+        assertEquals( "Messages are spread over every sub shard", 8, used.size() );
+    }
+}
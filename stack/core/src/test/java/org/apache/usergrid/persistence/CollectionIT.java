@@ -207,6 +207,8 @@ public class CollectionIT extends AbstractCoreIT {
         Results r = em.searchCollection( em.getApplicationRef(), "users", query );
 
         assertTrue( r.size() > 0 );
+        assertEquals( r.size(), r.getQueryStats().getReturned() );
+        assertTrue( r.getQueryStats().getIndexColumns() > 0 );
 
         Entity returned = r.getEntities().get( 0 );
 
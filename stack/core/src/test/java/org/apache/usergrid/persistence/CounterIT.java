@@ -38,6 +38,7 @@ import org.apache.usergrid.count.SimpleBatcher;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.MANAGEMENT_APPLICATION_ID;
 
 
@@ -176,6 +177,38 @@ public class CounterIT extends AbstractCoreIT {
     }
 
 
+    @Test
+    public void testDistinctCounters() throws Exception {
+        LOG.info( "CounterIT.testDistinctCounters" );
+
+        UUID applicationId = setup.createApplication( "testOrganization", "testDistinctCounters" );
+        assertNotNull( applicationId );
+
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+        assertNotNull( em );
+
+        //each visitor twice
+        for ( int i = 0; i < 20; i++ ) {
+            Event event = new Event();
+            event.setTimestamp( ts + ( i * 60 * 1000 ) );
+            event.addDistinctCounter( "visitors", "visitor" + ( i % 10 ) );
+            em.create( event );
+        }
+
+        Query query = new Query();
+        query.addCounterFilter( "visitors:*:*:*" );
+        query.setStartTime( ts );
+        query.setFinishTime( System.currentTimeMillis() );
+        query.setDistinct( true );
+        Results r = em.getAggregateCounters( query );
+        LOG.info( JsonUtils.mapToJsonString( r.getCounters() ) );
+
+        //a collision of two visitors in a register counts them once
+        long visitors = r.getCounters().get( 0 ).getValues().get( 0 ).getValue();
+        assertTrue( visitors == 9 || visitors == 10 );
+    }
+
+
     @Test
     public void testCommunityCounters() throws Exception {
         EntityManager em = setup.getEmf().getEntityManager( MANAGEMENT_APPLICATION_ID );
@@ -131,4 +131,37 @@ public class CountingMutatorIT extends AbstractCoreIT {
         em.updateProperties( returned, properties );
 
     }
+
+
+    @Test
+    public void testCreateEntitiesInChunks() throws Exception {
+
+        //a few entities fill a mutation, so the batch has to be written in several
+        CountingMutator.MAX_SIZE = 10;
+
+        UUID applicationId = setup.createApplication( "testOrganization", "testCreateEntitiesInChunks" );
+
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>();
+
+        for ( int i = 0; i < 25; i++ ) {
+            Map<String, Object> properties = new LinkedHashMap<String, Object>();
+            properties.put( "name", "item" + i );
+            properties.put( "index", i );
+            batch.add( properties );
+        }
+
+        List<Entity> created = em.createEntities( "item", batch );
+        assertEquals( 25, created.size() );
+
+        for ( int i = 0; i < created.size(); i++ ) {
+            Entity returned = em.get( created.get( i ).getUuid() );
+            assertNotNull( returned );
+            assertEquals( "item" + i, returned.getName() );
+        }
+
+        Results results = em.searchCollection( em.getApplicationRef(), "items", new Query().withLimit( 100 ) );
+        assertEquals( 25, results.size() );
+    }
 }
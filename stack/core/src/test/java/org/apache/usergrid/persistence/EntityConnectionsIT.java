@@ -17,10 +17,14 @@
 package org.apache.usergrid.persistence;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -290,4 +294,68 @@ public class EntityConnectionsIT extends AbstractCoreIT {
         assertTrue( em.isConnectionMember( secondUserEntity, "likes", arrogantbutcher ) );
         assertFalse( em.isConnectionMember( secondUserEntity, "likes", fourpeaks ) );
     }
+
+
+    @Test
+    public void testConnectedEntitiesOfAll() throws Exception {
+        UUID applicationId = setup.createApplication( "EntityConnectionsIT", "testConnectedEntitiesOfAll" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        Entity first = createNamed( em, "owner", "first" );
+        Entity second = createNamed( em, "owner", "second" );
+
+        // created first, so they're read first from the connections of the first owner
+        for ( int i = 0; i < 3; i++ ) {
+            em.createConnection( first, "likes", createNamed( em, "thing", "thing" + i ) );
+        }
+
+        List<Entity> cats = new ArrayList<Entity>();
+        for ( int i = 0; i < 3; i++ ) {
+            Entity cat = createNamed( em, "cat", "cat" + i );
+            em.createConnection( first, "likes", cat );
+            cats.add( cat );
+        }
+
+        Entity own = createNamed( em, "cat", "own" );
+        em.createConnection( second, "likes", cats.get( 0 ) );
+        em.createConnection( second, "likes", own );
+
+        List<UUID> owners = Arrays.asList( first.getUuid(), second.getUuid() );
+
+        // the other types don't count against the limit of an owner, and the shared cat is returned once
+        List<ConnectionRef> connections = em.getConnectedEntities( owners, "likes", "cat", Level.REFS, 3 )
+                                            .getConnections();
+
+        assertEquals( 4, connections.size() );
+        for ( int i = 0; i < 3; i++ ) {
+            assertEquals( cats.get( i ).getUuid(), connections.get( i ).getConnectedEntity().getUuid() );
+            assertEquals( first.getUuid(), connections.get( i ).getConnectingEntity().getUuid() );
+        }
+        assertEquals( own.getUuid(), connections.get( 3 ).getConnectedEntity().getUuid() );
+        assertEquals( second.getUuid(), connections.get( 3 ).getConnectingEntity().getUuid() );
+
+        // the limit is per owner
+        connections = em.getConnectedEntities( owners, "likes", "cat", Level.REFS, 1 ).getConnections();
+        assertEquals( 2, connections.size() );
+        assertEquals( cats.get( 0 ).getUuid(), connections.get( 0 ).getConnectedEntity().getUuid() );
+        assertEquals( own.getUuid(), connections.get( 1 ).getConnectedEntity().getUuid() );
+
+        Results r = em.getConnectedEntities( owners, "likes", null, Level.ALL_PROPERTIES, 10 );
+        assertEquals( 7, r.size() );
+
+        Set<String> names = new HashSet<String>();
+        for ( Entity entity : r.getEntities() ) {
+            names.add( entity.getName() );
+        }
+        assertEquals( new HashSet<String>(
+                Arrays.asList( "thing0", "thing1", "thing2", "cat0", "cat1", "cat2", "own" ) ), names );
+    }
+
+
+    private Entity createNamed( EntityManager em, String type, String name ) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", name );
+
+        return em.create( type, properties );
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.usergrid.persistence;
 
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -165,6 +166,16 @@ public class PermissionsIT extends AbstractCoreIT {
         assertEquals( "proper number of role permissions not set", 1, permissions.size() );
         dump( "permissions", permissions );
 
+        em.grantRolePermission( "manager", "users:access:*" );
+        em.grantRolePermission( "manager", "assets:access:*" );
+
+        Map<String, Set<String>> rolePermissions =
+                em.getRolesPermissions( Arrays.asList( "admin", "Manager", "fakerole" ) );
+        assertEquals( "proper number of role permissions not set", 1, rolePermissions.get( "admin" ).size() );
+        assertEquals( "proper number of role permissions not set", 2, rolePermissions.get( "Manager" ).size() );
+        assertEquals( "proper number of role permissions not set", 0, rolePermissions.get( "fakerole" ).size() );
+        dump( "role permissions", rolePermissions );
+
         em.grantGroupRolePermission( group.getUuid(), "admin", "users:access:*" );
         em.grantGroupRolePermission( group.getUuid(), "admin", "groups:access:*" );
 
@@ -188,5 +199,20 @@ public class PermissionsIT extends AbstractCoreIT {
         permissions = em.getUserPermissions( user.getUuid() );
         assertEquals( "proper number of user permissions not set", 2, permissions.size() );
         dump( "user permissions", permissions );
+
+        em.addUserToRole( user.getUuid(), "manager" );
+
+        Map<String, Set<Object>> dictionaries = em.getDictionariesAsSets( user,
+                Arrays.asList( Schema.DICTIONARY_PERMISSIONS, Schema.DICTIONARY_ROLENAMES ) );
+        assertEquals( 2, dictionaries.get( Schema.DICTIONARY_PERMISSIONS ).size() );
+        assertEquals( 1, dictionaries.get( Schema.DICTIONARY_ROLENAMES ).size() );
+
+        Map<UUID, Results> groupRoles =
+                em.getCollections( Arrays.asList( group ), "roles", 10, Results.Level.CORE_PROPERTIES );
+        assertEquals( 1, groupRoles.size() );
+        assertEquals( 1, groupRoles.get( group.getUuid() ).size() );
+        assertEquals( em.getCollection( group, "roles", null, 10, Results.Level.IDS, false ).getIds(),
+                groupRoles.get( group.getUuid() ).getIds() );
+        assertNotNull( groupRoles.get( group.getUuid() ).getEntity().getName() );
     }
 }
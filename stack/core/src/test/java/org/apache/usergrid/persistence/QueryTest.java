@@ -43,6 +43,7 @@ import org.apache.usergrid.persistence.query.tree.WithinOperand;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.fail;
 
 
@@ -309,4 +310,49 @@ public class QueryTest {
         assertEquals( "name", sorts.get( 0 ).getPropertyName() );
         assertEquals( SortDirection.DESCENDING, sorts.get( 0 ).getDirection() );
     }
+
+
+    @Test
+    public void parsedQlIsCopied() throws QueryParseException {
+        String s = "select * where name = 'bob' order by created desc";
+
+        Query first = Query.fromQL( s );
+        first.addSort( "name" );
+        first.addEqualityFilter( "age", 5 );
+
+        Query second = Query.fromQL( s );
+
+        assertNotSame( first, second );
+        assertEquals( s, second.getQl() );
+        assertEquals( 1, second.getSortPredicates().size() );
+        assertEquals( "bob", ( ( StringLiteral ) ( ( Equal ) second.getRootOperand() ).getLiteral() ).getValue() );
+    }
+
+
+    @Test
+    public void parsedQlBenchmark() throws QueryParseException {
+        int count = 1000;
+
+        // every query is different, so each one is parsed
+        long start = System.nanoTime();
+
+        for ( int i = 0; i < count; i++ ) {
+            Query.fromQL( "select * where name = 'bob" + i + "' and age > " + i + " order by created desc" );
+        }
+
+        long parsed = System.nanoTime() - start;
+
+        // the same query each time, only the first one is parsed
+        start = System.nanoTime();
+
+        for ( int i = 0; i < count; i++ ) {
+            Query.fromQL( "select * where name = 'bob' and age > 5 order by created desc" );
+        }
+
+        long cached = System.nanoTime() - start;
+
+        LOG.info( "Parsed {} queries in {} us, {} cache hits in {} us", new Object[] {
+                count, parsed / 1000, count, cached / 1000
+        } );
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.apache.usergrid.AbstractCoreIT;
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.locking.noop.NoOpLockManagerImpl;
+import org.apache.usergrid.persistence.AggregateCounter;
+import org.apache.usergrid.persistence.CounterResolution;
+import org.apache.usergrid.persistence.cassandra.CounterUtils.AggregateCounterSelection;
+
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.factory.HFactory;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.junit.Assert.assertEquals;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+
+
+@Concurrent()
+public class CounterRollupIT extends AbstractCoreIT {
+
+    private static final long MINUTE = CounterResolution.MINUTE.interval();
+    private static final long HOUR = CounterResolution.HOUR.interval();
+
+
+    @Test
+    public void rollupKeepsTotals() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "counterRollupKeepsTotals" );
+        CassandraService cass = setup.getCassSvc();
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        long now = System.currentTimeMillis();
+
+        CounterUtils counterUtils = new CounterUtils();
+        counterUtils.setCacheSize( 0 );
+        counterUtils.setRollupDelay( MINUTE );
+        counterUtils.setRollupSince( CounterResolution.MINUTE.round( now - 3 * HOUR ) );
+
+        Mutator<ByteBuffer> m = HFactory.createMutator( ko, be );
+        // recent, only written to the minutes and rolled up
+        increment( counterUtils, cass, m, applicationId, 1, now - 1000 );
+        // late, after the watermark
+        increment( counterUtils, cass, m, applicationId, 10, now - 2 * HOUR );
+        // late, before the watermark
+        increment( counterUtils, cass, m, applicationId, 100, now - 4 * HOUR );
+        batchExecute( m, CassandraService.RETRY_COUNT );
+
+        long start = now - 5 * HOUR;
+
+        // the readers add the minutes the rollup hasn't reached, and the minutes of the late increments
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.MINUTE, start, now ) );
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.HOUR, start, now ) );
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.DAY, start, now ) );
+
+        CounterRollupService rollups =
+                new CounterRollupService( cass, setup.getEmf(), counterUtils, new NoOpLockManagerImpl() );
+
+        long later = now + 10 * MINUTE;
+        rollups.rollup( applicationId, later );
+
+        // the watermark moved past the recent increment with the rolled up counts
+        assertEquals( CounterResolution.MINUTE.round( later - 2 * MINUTE ),
+                counterUtils.getRolledUpTo( ko, applicationId ) );
+
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.MINUTE, start, now ) );
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.HOUR, start, now ) );
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.DAY, start, now ) );
+
+        // nothing left to roll up
+        rollups.rollup( applicationId, later );
+
+        assertEquals( 111, total( counterUtils, ko, applicationId, CounterResolution.HOUR, start, now ) );
+    }
+
+
+    @Test
+    public void readsMergeMinutesPastTheWatermark() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "counterRollupMerge" );
+        CassandraService cass = setup.getCassSvc();
+        Keyspace ko = cass.getApplicationKeyspace( applicationId );
+
+        long now = System.currentTimeMillis();
+        long hour = CounterResolution.HOUR.round( now );
+
+        CounterUtils counterUtils = new CounterUtils();
+        counterUtils.setCacheSize( 0 );
+        counterUtils.setRollupDelay( MINUTE );
+        counterUtils.setRollupSince( hour - HOUR );
+
+        Mutator<ByteBuffer> m = HFactory.createMutator( ko, be );
+        increment( counterUtils, cass, m, applicationId, 3, now - 1000 );
+        increment( counterUtils, cass, m, applicationId, 4, now - 2000 );
+        batchExecute( m, CassandraService.RETRY_COUNT );
+
+        // nothing is rolled up, the hour buckets are built from the minutes
+        List<AggregateCounter> hours =
+                read( counterUtils, ko, applicationId, CounterResolution.HOUR, hour - HOUR, now );
+
+        long total = 0;
+
+        for ( AggregateCounter counter : hours ) {
+            assertEquals( 0, counter.getTimestamp() % HOUR );
+            total += counter.getValue();
+        }
+
+        assertEquals( 7, total );
+    }
+
+
+    private static void increment( CounterUtils counterUtils, CassandraService cass, Mutator<ByteBuffer> m,
+                                   UUID applicationId, long value, long timestamp ) {
+        counterUtils.batchIncrementAggregateCounters( m, applicationId, null, null, null, null, "rollups", value,
+                timestamp, cass.createTimestamp() );
+    }
+
+
+    private static List<AggregateCounter> read( CounterUtils counterUtils, Keyspace ko, UUID applicationId,
+                                                CounterResolution resolution, long start, long finish ) {
+        String row = AggregateCounterSelection.rowBuilder( "rollups", null, null, null, null, resolution );
+
+        Map<String, List<AggregateCounter>> counters =
+                counterUtils.getAggregateCounters( ko, applicationId, Collections.singletonList( row ), resolution,
+                        resolution.round( start ), resolution.round( finish ) );
+
+        return counters.get( row );
+    }
+
+
+    private static long total( CounterUtils counterUtils, Keyspace ko, UUID applicationId,
+                               CounterResolution resolution, long start, long finish ) {
+        long total = 0;
+
+        for ( AggregateCounter counter : read( counterUtils, ko, applicationId, resolution, start, finish ) ) {
+            total += counter.getValue();
+        }
+
+        return total;
+    }
+}
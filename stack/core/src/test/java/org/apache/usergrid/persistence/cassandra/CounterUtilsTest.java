@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.persistence.CounterResolution;
+import org.apache.usergrid.persistence.cassandra.CounterUtils.AggregateCounterSelection;
+import org.apache.usergrid.persistence.cassandra.CounterUtils.CachedCounts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Concurrent()
+public class CounterUtilsTest {
+
+    @Test
+    public void resolutionRow() {
+        UUID userId = UUID.randomUUID();
+
+        String minutes = AggregateCounterSelection.rowBuilder( "visits", userId, null, null, "web:mobile",
+                CounterResolution.MINUTE );
+        String days = AggregateCounterSelection.rowBuilder( "visits", userId, null, null, "web:mobile",
+                CounterResolution.DAY );
+
+        assertEquals( days, CounterUtils.toResolutionRow( minutes, CounterResolution.DAY ) );
+        assertEquals( minutes, CounterUtils.toResolutionRow( days, CounterResolution.MINUTE ) );
+    }
+
+
+    @Test
+    public void rolledUpResolutions() {
+        assertFalse( CounterUtils.isRolledUp( CounterResolution.ALL ) );
+        assertFalse( CounterUtils.isRolledUp( CounterResolution.MINUTE ) );
+        assertTrue( CounterUtils.isRolledUp( CounterResolution.FIVE_MINUTES ) );
+        assertTrue( CounterUtils.isRolledUp( CounterResolution.MONTH ) );
+    }
+
+
+    @Test
+    public void rollupMode() {
+        CounterUtils counterUtils = new CounterUtils();
+        assertFalse( counterUtils.isRollup() );
+
+        counterUtils.setRollupSince( CounterResolution.MINUTE.round( System.currentTimeMillis() ) );
+        assertTrue( counterUtils.isRollup() );
+    }
+
+
+    @Test
+    public void closedBuckets() {
+        long hour = CounterResolution.HOUR.interval();
+        long now = 10 * hour + 5;
+
+        assertEquals( 10 * hour, CounterUtils.getClosedBefore( CounterResolution.HOUR, now, Long.MAX_VALUE ) );
+
+        //in rollup mode, the buckets after the watermark aren't closed
+        assertEquals( 7 * hour, CounterUtils.getClosedBefore( CounterResolution.HOUR, now, 7 * hour + 3 ) );
+    }
+
+
+    @Test
+    public void mergeCachedCounts() {
+        SortedMap<Long, Long> first = new TreeMap<Long, Long>();
+        first.put( 1L, 10L );
+        SortedMap<Long, Long> second = new TreeMap<Long, Long>();
+        second.put( 3L, 30L );
+
+        CachedCounts counts = new CachedCounts( 0, 2, first, 100 ).merge( new CachedCounts( 2, 4, second, 200 ) );
+
+        assertEquals( 0, counts.start );
+        assertEquals( 4, counts.end );
+        assertEquals( 2, counts.buckets.size() );
+        assertTrue( counts.covers( 4 ) );
+        assertFalse( counts.covers( 5 ) );
+
+        //the merged counts expire with the oldest of them
+        assertEquals( 100, counts.cachedAt );
+        assertTrue( counts.isFresh( 150, 100 ) );
+        assertFalse( counts.isFresh( 200, 100 ) );
+
+        //ranges that don't touch aren't merged
+        CachedCounts apart = counts.merge( new CachedCounts( 6, 8, second, 300 ) );
+        assertEquals( 6, apart.start );
+        assertEquals( 1, apart.buckets.size() );
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.usergrid.AbstractCoreIT;
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.cassandra.EntityChangeLog.Change;
+
+import me.prettyprint.hector.api.factory.HFactory;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+import static org.apache.usergrid.utils.UUIDUtils.minTimeUUID;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Concurrent()
+public class EntityChangeLogIT extends AbstractCoreIT {
+
+    @BeforeClass
+    public static void enableChangeLog() {
+        ( ( EntityManagerFactoryImpl ) setup.getEmf() ).setEntityChangeLog( true );
+    }
+
+
+    @AfterClass
+    public static void disableChangeLog() {
+        ( ( EntityManagerFactoryImpl ) setup.getEmf() ).setEntityChangeLog( false );
+    }
+
+
+    @Test
+    public void changesInOrder() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "changesInOrder" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        long start = System.currentTimeMillis();
+
+        Entity first = createItem( em, "first" );
+        Entity second = createItem( em, "second" );
+        em.setProperty( first, "color", "red" );
+        em.delete( second );
+
+        List<Change> changes = EntityChangeLog
+                .getChanges( setup.getCassSvc(), applicationId, "items", minTimeUUID( start ),
+                        System.currentTimeMillis(), 100 );
+
+        assertEquals( 4, changes.size() );
+        assertChange( changes.get( 0 ), first, EntityChangeLog.UPSERT );
+        assertChange( changes.get( 1 ), second, EntityChangeLog.UPSERT );
+        assertChange( changes.get( 2 ), first, EntityChangeLog.UPSERT );
+        assertChange( changes.get( 3 ), second, EntityChangeLog.DELETE );
+        assertTrue( changes.get( 3 ).isDelete() );
+    }
+
+
+    @Test
+    public void pagesFollowTheLastChange() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "pagesFollowTheLastChange" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        long start = System.currentTimeMillis();
+
+        List<UUID> created = new ArrayList<UUID>();
+        for ( int i = 0; i < 7; i++ ) {
+            created.add( createItem( em, "item" + i ).getUuid() );
+        }
+
+        long until = System.currentTimeMillis();
+
+        // read the way an export does, from the last change of the previous page
+        List<UUID> read = new ArrayList<UUID>();
+        UUID last = minTimeUUID( start );
+
+        while ( true ) {
+            List<Change> changes =
+                    EntityChangeLog.getChanges( setup.getCassSvc(), applicationId, "items", last, until, 3 );
+
+            if ( changes.isEmpty() ) {
+                break;
+            }
+
+            assertTrue( changes.size() <= 3 );
+
+            for ( Change change : changes ) {
+                read.add( change.getEntityId() );
+            }
+
+            last = changes.get( changes.size() - 1 ).getId();
+        }
+
+        assertEquals( created, read );
+    }
+
+
+    @Test
+    public void changesExpire() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "changesExpire" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+        CassandraService cass = setup.getCassSvc();
+
+        long start = System.currentTimeMillis();
+
+        Entity kept = createItem( em, "kept" );
+        Entity expired = createItem( em, "expired" );
+
+        Mutator<ByteBuffer> m = HFactory.createMutator( cass.getApplicationKeyspace( applicationId ), be );
+        EntityChangeLog.addChangeToMutator( m, applicationId, expired, EntityChangeLog.UPSERT, newTimeUUID(), 1 );
+        m.execute();
+
+        Thread.sleep( 2000 );
+
+        // only the changes of the creates are left, they were written without the 1 second ttl
+        List<Change> changes = EntityChangeLog
+                .getChanges( cass, applicationId, "items", minTimeUUID( start ), System.currentTimeMillis(), 100 );
+
+        assertEquals( 2, changes.size() );
+        assertChange( changes.get( 0 ), kept, EntityChangeLog.UPSERT );
+        assertChange( changes.get( 1 ), expired, EntityChangeLog.UPSERT );
+    }
+
+
+    private void assertChange( Change change, Entity entity, String operation ) {
+        assertEquals( entity.getUuid(), change.getEntityId() );
+        assertEquals( entity.getType(), change.getEntityType() );
+        assertEquals( operation, change.getOperation() );
+    }
+
+
+    private Entity createItem( EntityManager em, String name ) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", name );
+
+        return em.create( "item", properties );
+    }
+}
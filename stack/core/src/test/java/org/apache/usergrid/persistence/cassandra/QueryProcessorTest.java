@@ -27,6 +27,9 @@ import org.junit.Test;
 
 import org.apache.usergrid.cassandra.Concurrent;
 import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.entities.Application;
+import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.persistence.exceptions.PersistenceException;
 import org.apache.usergrid.persistence.query.ir.AndNode;
 import org.apache.usergrid.persistence.query.ir.NotNode;
@@ -38,6 +41,7 @@ import org.apache.usergrid.persistence.query.ir.SliceNode;
 import org.apache.usergrid.persistence.query.ir.WithinNode;
 import org.apache.usergrid.persistence.query.tree.QueryFilterLexer;
 import org.apache.usergrid.persistence.query.tree.QueryFilterParser;
+import org.apache.usergrid.persistence.schema.CollectionInfo;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -765,6 +769,59 @@ public class QueryProcessorTest {
     }
 
 
+    @Test
+    public void orderByIndexedRange() throws Exception {
+        String queryString = "select * where a > 5 and b = 'foo' order by b desc";
+
+        ANTLRStringStream in = new ANTLRStringStream( queryString );
+        QueryFilterLexer lexer = new QueryFilterLexer( in );
+        TokenRewriteStream tokens = new TokenRewriteStream( lexer );
+        QueryFilterParser parser = new QueryFilterParser( tokens );
+
+        Query query = parser.ql().query;
+
+        QueryProcessor processor = new QueryProcessor( query, null, null, null );
+
+        // the slice of the sort is scanned first, there's no need for a scan of the whole index
+        SliceNode node = ( SliceNode ) processor.getFirstNode();
+
+        Iterator<QuerySlice> slices = node.getAllSlices().iterator();
+
+        assertEquals( "b", slices.next().getPropertyName() );
+        assertEquals( "a", slices.next().getPropertyName() );
+        assertFalse( slices.hasNext() );
+    }
+
+
+    @Test
+    public void indexOnlySelect() throws Exception {
+        CollectionInfo users = Schema.getDefaultSchema().getCollection( Application.ENTITY_TYPE, "users" );
+
+        // the values of created are read from the index of the range
+        assertTrue( isIndexOnly( "select uuid, created where created > 5 and username = 'foo'", users ) );
+        assertTrue( isIndexOnly( "select uuid where username = 'foo'", users ) );
+
+        // username is lowercased in the index, and the range isn't on it
+        assertFalse( isIndexOnly( "select username where username = 'foo'", users ) );
+        assertFalse( isIndexOnly( "select created where username = 'foo' and created > 5", users ) );
+        assertFalse( isIndexOnly( "select * where created > 5", users ) );
+        assertFalse( isIndexOnly( "select uuid where created > 5", null ) );
+    }
+
+
+    private boolean isIndexOnly( String queryString, CollectionInfo collection ) throws Exception {
+        ANTLRStringStream in = new ANTLRStringStream( queryString );
+        QueryFilterLexer lexer = new QueryFilterLexer( in );
+        TokenRewriteStream tokens = new TokenRewriteStream( lexer );
+        QueryFilterParser parser = new QueryFilterParser( tokens );
+
+        Query query = parser.ql().query;
+        query.setEntityType( User.ENTITY_TYPE );
+
+        return new QueryProcessor( query, collection, null, null ).isIndexOnly();
+    }
+
+
     @Test
     public void validateHintSizeForEquality() throws Exception {
         String queryString = "select * where X = 'Foo'";
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra.util;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.QueryStats;
+import org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class OpLatencyTrackerTest {
+
+    @Test
+    public void recordByColumnFamilyAndOperation() {
+        OpLatencyTracker tracker = new OpLatencyTracker();
+        tracker.setSlowOpThreshold( 100 );
+
+        long now = System.nanoTime();
+
+        tracker.record( null, "Entity_Properties", "getColumns", "key", now - TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        tracker.record( null, "Entity_Properties", "getColumns", "key", now - TimeUnit.MILLISECONDS.toNanos( 20 ) );
+        // slow, logged with the calling test
+        tracker.record( null, "Entity_Dictionaries", "getAllColumns", "key",
+                now - TimeUnit.MILLISECONDS.toNanos( 200 ) );
+
+        Map<String, Map<String, Object>> stats = tracker.getStats();
+        assertEquals( 2, stats.size() );
+
+        Map<String, Object> getColumns = stats.get( "-.Entity_Properties.getColumns" );
+        assertEquals( 2L, getColumns.get( "count" ) );
+        assertTrue( ( Double ) getColumns.get( "p50" ) >= 10 );
+        assertTrue( ( Double ) getColumns.get( "max" ) >= 20 );
+
+        Map<String, Object> getAllColumns = stats.get( "-.Entity_Dictionaries.getAllColumns" );
+        assertEquals( 1L, getAllColumns.get( "count" ) );
+        assertTrue( ( Double ) getAllColumns.get( "p99" ) >= 200 );
+    }
+
+
+    @Test
+    public void recordByApplication() {
+        OpLatencyTracker tracker = new OpLatencyTracker();
+
+        UUID app1 = UUIDUtils.newTimeUUID();
+        UUID app2 = UUIDUtils.newTimeUUID();
+
+        long now = System.nanoTime();
+
+        tracker.record( null, app1, "Entity_Properties", "getColumns", "key", now );
+        tracker.record( null, app1, "Entity_Properties", "getColumns", "key", now );
+        tracker.record( null, app2, "Entity_Properties", "getColumns", "key", now );
+
+        Map<String, Map<String, Object>> stats = tracker.getStats();
+        assertEquals( 2, stats.size() );
+        assertEquals( 2L, stats.get( "-.Entity_Properties.getColumns." + app1 ).get( "count" ) );
+        assertEquals( 1L, stats.get( "-.Entity_Properties.getColumns." + app2 ).get( "count" ) );
+    }
+
+
+    @Test
+    public void recordQueryStages() throws Exception {
+        OpLatencyTracker tracker = new OpLatencyTracker();
+
+        Query query = Query.fromQL( "select * where name = 'fred' order by created desc" );
+        assertTrue( query.getParseTime() > 0 );
+
+        QueryStats stats = new QueryStats();
+        stats.addNanos( QueryStats.Stage.PARSE, query.getParseTime() );
+        stats.addNanos( QueryStats.Stage.INDEX_SCAN, TimeUnit.MILLISECONDS.toNanos( 30 ) );
+        stats.addNanos( QueryStats.Stage.LOAD, TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        stats.addIndexPage( 2, 11 );
+        stats.setCandidates( 11 );
+        stats.setReturned( 10 );
+
+        tracker.record( query, stats );
+
+        Map<String, Map<String, Object>> trackerStats = tracker.getStats();
+        assertEquals( 1L, trackerStats.get( "query.indexScanTime" ).get( "count" ) );
+        assertTrue( ( Double ) trackerStats.get( "query.totalTime" ).get( "max" ) >= 40 );
+
+        Map<String, Object> queryStats = stats.toMap();
+        assertEquals( 30.0, queryStats.get( "indexScanTime" ) );
+        assertEquals( 2L, queryStats.get( "indexRows" ) );
+        assertEquals( 11L, queryStats.get( "indexColumns" ) );
+        assertEquals( 10L, queryStats.get( "returned" ) );
+    }
+
+
+    @Test
+    public void recordBatchExecute() {
+        OpLatencyTracker tracker = new OpLatencyTracker();
+        CassandraPersistenceUtils.setOpTracker( tracker );
+
+        try {
+            // a mutator with 5 pending mutations that does nothing on execute
+            Mutator<?> mutator = ( Mutator<?> ) Proxy.newProxyInstance( getClass().getClassLoader(), new Class[] {
+                    Mutator.class
+            }, new InvocationHandler() {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args ) {
+                    return "getPendingMutationCount".equals( method.getName() ) ? 5 : null;
+                }
+            } );
+
+            CassandraPersistenceUtils.batchExecute( mutator, 1 );
+            CassandraPersistenceUtils.batchExecute( mutator, 1 );
+
+            assertEquals( 2L, tracker.getStats().get( "-.mutator.batchExecute" ).get( "count" ) );
+        }
+        finally {
+            CassandraPersistenceUtils.setOpTracker( new OpLatencyTracker() );
+        }
+    }
+}
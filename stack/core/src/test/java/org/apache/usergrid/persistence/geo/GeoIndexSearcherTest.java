@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.geo;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.apache.usergrid.persistence.cassandra.GeoIndexManager;
+import org.apache.usergrid.persistence.geo.GeoIndexSearcher.SearchResults;
+import org.apache.usergrid.persistence.geo.model.BoundingBox;
+import org.apache.usergrid.persistence.geo.model.Point;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import me.prettyprint.hector.api.beans.HColumn;
+
+import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class GeoIndexSearcherTest {
+
+    @Test
+    public void startResolution() {
+        Point center = new Point( 37.776753, -122.407846 );
+        List<Point> locations = new ArrayList<Point>();
+
+        //a few next to the center, the rest about a degree away
+        for ( int i = 0; i < 5; i++ ) {
+            locations.add( new Point( center.getLat() + i * 0.000001, center.getLon() ) );
+        }
+        for ( int i = 0; i < 20; i++ ) {
+            locations.add( new Point( center.getLat() + 1, center.getLon() + i * 0.01 ) );
+        }
+
+        assertEquals( GeoIndexManager.MAX_RESOLUTION,
+                GeoIndexSearcher.getStartResolution( locations, center, 2, 5 ) );
+
+        //not enough near the center, start in the cell that was read
+        assertEquals( 2, GeoIndexSearcher.getStartResolution( locations, center, 2, 26 ) );
+
+        int resolution = GeoIndexSearcher.getStartResolution( locations, center, 2, 6 );
+        assertTrue( resolution > 2 && resolution < GeoIndexManager.MAX_RESOLUTION );
+    }
+
+
+    @Test
+    public void radiusResolution() {
+        Point center = new Point( 37.776753, -122.407846 );
+
+        int resolution = GeocellUtils.radiusResolution( center, 10000, GeoIndexManager.MAX_RESOLUTION );
+        String cell = GeocellUtils.compute( center, resolution );
+        BoundingBox box = GeocellUtils.computeBox( cell );
+
+        assertTrue( GeocellUtils.distance( new Point( box.getSouth(), center.getLon() ),
+                new Point( box.getNorth(), center.getLon() ) ) >= 10000 );
+
+        assertEquals( GeoIndexManager.MAX_RESOLUTION,
+                GeocellUtils.radiusResolution( center, 1, GeoIndexManager.MAX_RESOLUTION ) );
+    }
+
+
+    @Test
+    public void radiusBox() {
+        Point center = new Point( 37.776753, -122.407846 );
+        BoundingBox box = GeocellUtils.computeRadiusBox( center, 10000 );
+
+        assertTrue( GeocellUtils.boxContains( box, center.getLat(), center.getLon() ) );
+        assertFalse( GeocellUtils.boxContains( box, center.getLat() + 1, center.getLon() ) );
+        assertFalse( GeocellUtils.boxContains( box, center.getLat(), center.getLon() + 1 ) );
+
+        //a point just inside the radius to the east is in the box
+        Point east = new Point( center.getLat(), center.getLon() + 0.11 );
+        assertTrue( GeocellUtils.distance( center, east ) < 10000 );
+        assertTrue( GeocellUtils.boxContains( box, east.getLat(), east.getLon() ) );
+    }
+
+
+    @Test
+    public void radiusBoxAcrossAntimeridian() {
+        BoundingBox box = GeocellUtils.computeRadiusBox( new Point( 0, 179.99 ), 10000 );
+
+        assertTrue( box.getEast() < box.getWest() );
+        assertTrue( GeocellUtils.boxContains( box, 0, -179.99 ) );
+        assertFalse( GeocellUtils.boxContains( box, 0, 0 ) );
+
+        //around a pole longitudes aren't bounded
+        assertNull( GeocellUtils.computeRadiusBox( new Point( 89.99, 0 ), 10000 ) );
+    }
+
+
+    @Test
+    public void sparseProbeReused() throws Exception {
+        Point center = new Point( 37.776753, -122.407846 );
+        FakeSearcher searcher = new FakeSearcher();
+
+        for ( int i = 0; i < 3; i++ ) {
+            searcher.add( center.getLat() + i * 0.0001, center.getLon() );
+        }
+
+        SearchResults results = searcher.proximitySearch( null, null, center, "location", 0, 1000, 10 );
+
+        assertEquals( 3, results.entityLocations.size() );
+
+        //one more than the results is enough to tell the cell holds them all
+        assertEquals( 11, searcher.pageSizes.get( 0 ).intValue() );
+
+        //the probed cell isn't read again
+        String probedCell = searcher.cells.get( 0 ).get( 0 );
+        for ( int i = 1; i < searcher.cells.size(); i++ ) {
+            assertFalse( searcher.cells.get( i ).size() == 1 && searcher.cells.get( i ).get( 0 ).equals( probedCell )
+                    && searcher.startIds.get( i ) == null );
+        }
+    }
+
+
+    @Test
+    public void denseProbeLimited() throws Exception {
+        Point center = new Point( 37.776753, -122.407846 );
+        FakeSearcher searcher = new FakeSearcher();
+
+        for ( int i = 0; i < 50; i++ ) {
+            searcher.add( center.getLat() + i * 0.00001, center.getLon() );
+        }
+
+        SearchResults results = searcher.proximitySearch( null, null, center, "location", 0, 1000, 5 );
+
+        assertEquals( 5, results.entityLocations.size() );
+        assertEquals( 6, searcher.pageSizes.get( 0 ).intValue() );
+
+        //the location at the center is the closest
+        assertEquals( center.getLat(), results.entityLocations.get( 0 ).getLatitude(), 0 );
+    }
+
+
+    /** Serves the locations it holds instead of reading the index, and records each read */
+    private static class FakeSearcher extends GeoIndexSearcher {
+
+        private final List<EntityLocationRef> locations = new ArrayList<EntityLocationRef>();
+
+        private final List<List<String>> cells = new ArrayList<List<String>>();
+        private final List<UUID> startIds = new ArrayList<UUID>();
+        private final List<Integer> pageSizes = new ArrayList<Integer>();
+
+
+        private FakeSearcher() {
+            super( null, null, null );
+        }
+
+
+        private void add( double latitude, double longitude ) {
+            locations.add( new EntityLocationRef( "item", UUIDUtils.newTimeUUID(), UUIDUtils.newTimeUUID(), latitude,
+                    longitude ) );
+        }
+
+
+        @Override
+        protected TreeSet<HColumn<ByteBuffer, ByteBuffer>> doSearch( List<String> geoCells, UUID startId,
+                                                                     Point searchPoint, String propertyName,
+                                                                     int pageSize ) throws Exception {
+            cells.add( geoCells );
+            startIds.add( startId );
+            pageSizes.add( pageSize );
+
+            TreeSet<HColumn<ByteBuffer, ByteBuffer>> columns =
+                    new TreeSet<HColumn<ByteBuffer, ByteBuffer>>( new Comparator<HColumn<ByteBuffer, ByteBuffer>>() {
+                        @Override
+                        public int compare( HColumn<ByteBuffer, ByteBuffer> a, HColumn<ByteBuffer, ByteBuffer> b ) {
+                            return a.getName().compareTo( b.getName() );
+                        }
+                    } );
+
+            // the index is ordered by uuid, and a page starts at the last one read
+            List<EntityLocationRef> sorted = new ArrayList<EntityLocationRef>( locations );
+            Collections.sort( sorted, new Comparator<EntityLocationRef>() {
+                @Override
+                public int compare( EntityLocationRef a, EntityLocationRef b ) {
+                    return UUIDUtils.compare( a.getUuid(), b.getUuid() );
+                }
+            } );
+
+            for ( EntityLocationRef location : sorted ) {
+                if ( columns.size() == pageSize ) {
+                    break;
+                }
+
+                if ( startId != null && UUIDUtils.compare( location.getUuid(), startId ) < 0 ) {
+                    continue;
+                }
+
+                String cell = GeocellUtils
+                        .compute( new Point( location.getLatitude(), location.getLongitude() ),
+                                GeoIndexManager.MAX_RESOLUTION );
+
+                for ( String geoCell : geoCells ) {
+                    if ( cell.startsWith( geoCell ) ) {
+                        columns.add( createColumn( location.getColumnName().serialize(),
+                                location.getColumnValue().serialize(), be, be ) );
+                        break;
+                    }
+                }
+            }
+
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.query;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.apache.usergrid.AbstractCoreIT;
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl;
+import org.apache.usergrid.persistence.query.ir.result.IndexValueResultsLoader;
+import org.apache.usergrid.persistence.query.ir.result.ScanColumn;
+import org.apache.usergrid.persistence.query.ir.result.UUIDIndexSliceParser.UUIDColumn;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.junit.Assert.assertEquals;
+
+
+@Concurrent()
+public class IndexValueResultsLoaderIT extends AbstractCoreIT {
+
+    @Test
+    public void deletedAndMissingEntitiesSkipped() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "indexValueResultsLoader" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        Entity live = createItem( em, "live" );
+        Entity deleted = createItem( em, "deleted" );
+
+        // an async delete that hasn't been cleaned up yet, its index entries are still there
+        em.setProperty( deleted, EntityManagerImpl.PROPERTY_TOMBSTONE, System.currentTimeMillis() );
+
+        List<ScanColumn> columns = new ArrayList<ScanColumn>();
+        columns.add( new UUIDColumn( deleted.getUuid(), null ) );
+        columns.add( new UUIDColumn( UUIDUtils.newTimeUUID(), null ) );
+        columns.add( new UUIDColumn( live.getUuid(), null ) );
+
+        List<Entity> entities = new IndexValueResultsLoader( em, null, null ).getResults( columns ).getEntities();
+
+        assertEquals( 1, entities.size() );
+        assertEquals( live.getUuid(), entities.get( 0 ).getUuid() );
+        assertEquals( "item", entities.get( 0 ).getType() );
+    }
+
+
+    private Entity createItem( EntityManager em, String name ) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", name );
+
+        return em.create( "item", properties );
+    }
+}
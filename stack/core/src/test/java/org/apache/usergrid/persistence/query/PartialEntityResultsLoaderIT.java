@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.query;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.apache.usergrid.AbstractCoreIT;
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.query.ir.result.PartialEntityResultsLoader;
+import org.apache.usergrid.persistence.query.ir.result.ScanColumn;
+import org.apache.usergrid.persistence.query.ir.result.UUIDIndexSliceParser.UUIDColumn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+@Concurrent()
+public class PartialEntityResultsLoaderIT extends AbstractCoreIT {
+
+    @Test
+    public void sparseAndMixedCaseProperties() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "partialEntityResultsLoader" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        Entity first = createWidget( em, "first", "Ann", "red" );
+        Entity second = createWidget( em, "second", null, "blue" );
+        Entity third = createWidget( em, "third", "Cid", null );
+
+        // the parser lower cases the select
+        PartialEntityResultsLoader loader =
+                new PartialEntityResultsLoader( em, new LinkedHashSet<String>( Arrays.asList( "loadernickname",
+                        "loadercolor" ) ) );
+
+        List<ScanColumn> columns = new ArrayList<ScanColumn>();
+        columns.add( new UUIDColumn( third.getUuid(), null ) );
+        columns.add( new UUIDColumn( first.getUuid(), null ) );
+        columns.add( new UUIDColumn( second.getUuid(), null ) );
+
+        // no entity has had loaderNickName yet, the entities without it are loaded in full to find its spelling
+        List<Entity> entities = loader.getResults( columns ).getEntities();
+
+        assertEquals( 3, entities.size() );
+        assertEquals( third.getUuid(), entities.get( 0 ).getUuid() );
+        assertEquals( "Cid", entities.get( 0 ).getProperty( "loadernickname" ) );
+        assertEquals( "Ann", entities.get( 1 ).getProperty( "loadernickname" ) );
+        assertEquals( "red", entities.get( 1 ).getProperty( "loadercolor" ) );
+        assertEquals( "blue", entities.get( 2 ).getProperty( "loadercolor" ) );
+
+        // the spelling is known now, so the sparse properties are simply missing
+        entities = loader.getResults( columns ).getEntities();
+
+        assertEquals( 3, entities.size() );
+        assertEquals( "Cid", entities.get( 0 ).getProperty( "loadernickname" ) );
+        assertNull( entities.get( 0 ).getProperty( "loadercolor" ) );
+        assertNull( entities.get( 0 ).getProperty( "name" ) );
+        assertEquals( "Ann", entities.get( 1 ).getProperty( "loadernickname" ) );
+        assertNull( entities.get( 2 ).getProperty( "loadernickname" ) );
+        assertEquals( "blue", entities.get( 2 ).getProperty( "loadercolor" ) );
+        assertNull( entities.get( 2 ).getProperty( "name" ) );
+    }
+
+
+    @Test
+    public void spellingsOfEachType() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "partialEntityResultsLoaderTypes" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "loaderScore", "one" );
+        Entity widget = em.create( "widget", properties );
+
+        properties = new LinkedHashMap<String, Object>();
+        properties.put( "LoaderScore", "two" );
+        Entity gadget = em.create( "gadget", properties );
+
+        PartialEntityResultsLoader loader =
+                new PartialEntityResultsLoader( em, new LinkedHashSet<String>( Arrays.asList( "loaderscore" ) ) );
+
+        // learn the spelling of the widgets first
+        List<ScanColumn> columns = new ArrayList<ScanColumn>();
+        columns.add( new UUIDColumn( widget.getUuid(), null ) );
+        assertEquals( "one", loader.getResults( columns ).getEntity().getProperty( "loaderscore" ) );
+
+        // the gadgets spell it differently, which is learned from the gadget
+        columns = new ArrayList<ScanColumn>();
+        columns.add( new UUIDColumn( gadget.getUuid(), null ) );
+        columns.add( new UUIDColumn( widget.getUuid(), null ) );
+
+        List<Entity> entities = loader.getResults( columns ).getEntities();
+
+        assertEquals( 2, entities.size() );
+        assertEquals( "two", entities.get( 0 ).getProperty( "loaderscore" ) );
+        assertEquals( "one", entities.get( 1 ).getProperty( "loaderscore" ) );
+    }
+
+
+    @Test
+    public void deletedEntitiesSkipped() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "partialEntityResultsLoaderDeleted" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        Entity kept = createWidget( em, "kept", "Kim", "green" );
+        Entity deleted = createWidget( em, "deleted", "Dan", "green" );
+
+        em.delete( deleted );
+
+        PartialEntityResultsLoader loader =
+                new PartialEntityResultsLoader( em, new LinkedHashSet<String>( Arrays.asList( "loadercolor" ) ) );
+
+        List<ScanColumn> columns = new ArrayList<ScanColumn>();
+        columns.add( new UUIDColumn( deleted.getUuid(), null ) );
+        columns.add( new UUIDColumn( kept.getUuid(), null ) );
+
+        Results results = loader.getResults( columns );
+
+        assertEquals( 1, results.size() );
+        assertNotNull( results.getEntity() );
+        assertEquals( kept.getUuid(), results.getEntity().getUuid() );
+    }
+
+
+    private Entity createWidget( EntityManager em, String name, String nickName, String color ) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", name );
+
+        if ( nickName != null ) {
+            properties.put( "loaderNickName", nickName );
+        }
+
+        if ( color != null ) {
+            properties.put( "loaderColor", color );
+        }
+
+        return em.create( "widget", properties );
+    }
+}
@@ -427,6 +427,8 @@ public class GrammarTreeTest {
         Set<String> identifiers = query.getSelectSubjects();
 
         assertTrue( identifiers.contains( "c" ) );
+
+        assertEquals( identifiers, query.getSelectProperties() );
     }
 
 
@@ -445,6 +447,10 @@ public class GrammarTreeTest {
         Map<String, String> identifiers = query.getSelectAssignments();
 
         assertEquals( "target", identifiers.get( "source" ) );
+
+        // the renamed property is the one loaded
+        assertTrue( query.getSelectProperties().contains( "target" ) );
+        assertEquals( 1, query.getSelectProperties().size() );
     }
 
 
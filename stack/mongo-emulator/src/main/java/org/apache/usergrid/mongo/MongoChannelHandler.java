@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.management.ManagementService;
 import org.apache.usergrid.mongo.protocol.Message;
 import org.apache.usergrid.mongo.protocol.OpCrud;
+import org.apache.usergrid.mongo.protocol.OpKillCursors;
 import org.apache.usergrid.mongo.protocol.OpReply;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.services.ServiceManagerFactory;
@@ -139,6 +140,14 @@ public class MongoChannelHandler extends SimpleChannelUpstreamHandler {
             return ( ( OpCrud ) message ).doOp( this, ctx, e );
         }
 
+        // kill cursors never gets a reply
+        if ( message instanceof OpKillCursors ) {
+            for ( Long cursorID : ( ( OpKillCursors ) message ).getCursorIDs() ) {
+                MongoCursorRegistry.get().kill( cursorID );
+            }
+            return null;
+        }
+
         OpReply reply = new OpReply( message );
         return reply;
     }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.mongo;
+
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.usergrid.persistence.Query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+
+/**
+ * Server side cursors handed out to mongo drivers. A mongo cursor id maps to the usergrid query and the usergrid
+ * cursor of the last batch returned, so OP_GET_MORE can continue the query where the previous batch ended. Cursors
+ * that are not used for {@link #DEFAULT_IDLE_MINUTES} are dropped, as mongod does.
+ */
+public class MongoCursorRegistry {
+
+    public static final long DEFAULT_IDLE_MINUTES = 10;
+
+    private static final MongoCursorRegistry INSTANCE = new MongoCursorRegistry( DEFAULT_IDLE_MINUTES );
+
+    private final Random random = new SecureRandom();
+
+    private final Cache<Long, MongoCursor> cursors;
+
+
+    MongoCursorRegistry( long idleMinutes ) {
+        cursors = CacheBuilder.newBuilder().expireAfterAccess( idleMinutes, TimeUnit.MINUTES ).build();
+    }
+
+
+    public static MongoCursorRegistry get() {
+        return INSTANCE;
+    }
+
+
+    /** Register the cursor, returning the id to hand to the driver */
+    public long register( MongoCursor cursor ) {
+        while ( true ) {
+            // 0 means "no cursor" on the wire, and negative ids confuse some drivers
+            long id = random.nextLong() & Long.MAX_VALUE;
+            if ( id == 0 ) {
+                continue;
+            }
+            if ( cursors.asMap().putIfAbsent( id, cursor ) == null ) {
+                return id;
+            }
+        }
+    }
+
+
+    /** Get the cursor for the id, or null if it was killed, exhausted or expired */
+    public MongoCursor getCursor( long id ) {
+        return cursors.getIfPresent( id );
+    }
+
+
+    public void kill( long id ) {
+        cursors.invalidate( id );
+    }
+
+
+    public long size() {
+        return cursors.size();
+    }
+
+
+    /** The state of an open query */
+    public static class MongoCursor {
+
+        private final UUID applicationId;
+        private final String collectionName;
+        private final Query query;
+        private final int batchSize;
+        private volatile int returned;
+
+
+        public MongoCursor( UUID applicationId, String collectionName, Query query, int batchSize, int returned ) {
+            this.applicationId = applicationId;
+            this.collectionName = collectionName;
+            this.query = query;
+            this.batchSize = batchSize;
+            this.returned = returned;
+        }
+
+
+        public UUID getApplicationId() {
+            return applicationId;
+        }
+
+
+        public String getCollectionName() {
+            return collectionName;
+        }
+
+
+        /** The query, with the usergrid cursor positioned after the last document returned */
+        public Query getQuery() {
+            return query;
+        }
+
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+
+        /** The number of documents returned so far, the starting position of the next batch */
+        public int getReturned() {
+            return returned;
+        }
+
+
+        public void addReturned( int count ) {
+            returned += count;
+        }
+    }
+}
@@ -23,11 +23,27 @@ import java.nio.ByteBuffer;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.apache.usergrid.mongo.MongoChannelHandler;
+import org.apache.usergrid.mongo.MongoCursorRegistry;
+import org.apache.usergrid.mongo.MongoCursorRegistry.MongoCursor;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Identifier;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.security.shiro.utils.SubjectUtils;
+
+import org.apache.shiro.subject.Subject;
 
 
 public class OpGetMore extends OpCrud {
 
+    private static final Logger logger = LoggerFactory.getLogger( OpGetMore.class );
+
+    /** Reply flag telling the driver the cursor id is no longer valid */
+    public static final int CURSOR_NOT_FOUND = 1;
+
     int numberToReturn;
     long cursorID;
 
@@ -97,7 +113,67 @@ public class OpGetMore extends OpCrud {
      */
     @Override
     public OpReply doOp( MongoChannelHandler handler, ChannelHandlerContext ctx, MessageEvent messageEvent ) {
-        return new OpReply( this );
+        OpReply reply = new OpReply( this );
+
+        MongoCursorRegistry registry = MongoCursorRegistry.get();
+        MongoCursor cursor = registry.getCursor( cursorID );
+
+        if ( ( cursor == null ) || !isPermitted( cursor ) ) {
+            reply.setResponseFlags( reply.getResponseFlags() | CURSOR_NOT_FOUND );
+            return reply;
+        }
+
+        reply.setStartingFrom( cursor.getReturned() );
+
+        Query query = cursor.getQuery();
+        query.setLimit( numberToReturn > 0 ? numberToReturn : cursor.getBatchSize() );
+
+        EntityManager em = handler.getEmf().getEntityManager( cursor.getApplicationId() );
+
+        try {
+            Results results = em.searchCollection( em.getApplicationRef(), cursor.getCollectionName(), query );
+
+            OpQuery.addEntities( reply, results );
+            cursor.addReturned( reply.getNumberReturned() );
+
+            if ( results.getCursor() == null ) {
+                registry.kill( cursorID );
+            }
+            else {
+                query.setCursor( results.getCursor() );
+                reply.setCursorID( cursorID );
+            }
+        }
+        catch ( Exception ex ) {
+            logger.error( "Unable to retrieve next batch for cursor {}", cursorID, ex );
+            registry.kill( cursorID );
+        }
+
+        return reply;
+    }
+
+
+    /**
+     * The cursor id alone doesn't grant anything, the caller must still be allowed to read the collection the cursor
+     * was opened on, and ask for it by the same name.
+     */
+    private boolean isPermitted( MongoCursor cursor ) {
+        Subject subject = SubjectUtils.getSubject();
+        if ( ( subject == null ) || !subject.isAuthenticated() ) {
+            return false;
+        }
+
+        if ( !cursor.getCollectionName().equalsIgnoreCase( getCollectionName() ) ) {
+            return false;
+        }
+
+        if ( SubjectUtils.getApplication( Identifier.fromUUID( cursor.getApplicationId() ) ) == null ) {
+            return false;
+        }
+
+        String path = "/" + cursor.getCollectionName();
+
+        return subject.isPermitted( SubjectUtils.getPermissionFromPath( cursor.getApplicationId(), "get", path ) );
     }
 
 
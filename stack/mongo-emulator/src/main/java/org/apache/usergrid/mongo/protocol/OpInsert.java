@@ -146,22 +146,27 @@ public class OpInsert extends OpCrud {
 
         EntityManager em = handler.getEmf().getEntityManager( application.getId() );
 
+        List<Map<String, Object>> properties = new ArrayList<Map<String, Object>>( documents.size() );
 
         for ( BSONObject document : documents ) {
-            try {
-                //special case to serialize mongo ObjectId if required
-                Object id = document.get( "_id" );
+            //special case to serialize mongo ObjectId if required
+            Object id = document.get( "_id" );
 
-                if ( id instanceof ObjectId ) {
-                    document.put( "_id", ( ( ObjectId ) id ).toStringMongod() );
-                }
-
-                em.create( getCollectionName(), document.toMap() );
-            }
-            catch ( Exception e ) {
-                logger.error( "Unable to insert mongo document {}", document, e );
-                ctx.setAttachment( e );
+            if ( id instanceof ObjectId ) {
+                document.put( "_id", ( ( ObjectId ) id ).toStringMongod() );
             }
+
+            properties.add( document.toMap() );
+        }
+
+        try {
+            // every document is validated before anything is written, so a rejected batch inserts nothing. It is
+            // never replayed, the documents of a batch that failed while writing may already be stored
+            em.createEntities( getCollectionName(), properties );
+        }
+        catch ( Exception e ) {
+            logger.error( "Unable to insert {} mongo documents", documents.size(), e );
+            ctx.setAttachment( e );
         }
 
         //insert never returns a response in mongo
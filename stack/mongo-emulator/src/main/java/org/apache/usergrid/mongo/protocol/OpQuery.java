@@ -37,6 +37,8 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.mongo.MongoChannelHandler;
+import org.apache.usergrid.mongo.MongoCursorRegistry;
+import org.apache.usergrid.mongo.MongoCursorRegistry.MongoCursor;
 import org.apache.usergrid.mongo.commands.MongoCommand;
 import org.apache.usergrid.mongo.query.MongoQueryParser;
 import org.apache.usergrid.mongo.utils.BSONUtils;
@@ -68,6 +70,9 @@ public class OpQuery extends OpCrud {
     BSONObject query;
     BSONObject returnFieldSelector;
 
+    /** The batch size used when the driver leaves it up to the server */
+    public static final int DEFAULT_BATCH_SIZE = 30;
+
     static Set<String> operators = new HashSet<String>();
 
 
@@ -386,46 +391,30 @@ public class OpQuery extends OpCrud {
             return reply;
         }
 
-        int count = getNumberToReturn();
-        if ( count <= 0 ) {
-            count = 30;
+        int count = Math.abs( getNumberToReturn() );
+        if ( count == 0 ) {
+            count = DEFAULT_BATCH_SIZE;
         }
 
         EntityManager em = handler.getEmf().getEntityManager( application.getId() );
 
         try {
-            Results results = null;
-            Query q = MongoQueryParser.toNativeQuery( query, returnFieldSelector, numberToReturn );
-            if ( q != null ) {
-                results = em.searchCollection( em.getApplicationRef(), getCollectionName(), q );
-            }
-            else {
-                results = em.getCollection( em.getApplicationRef(), getCollectionName(), null, count,
-                        Results.Level.ALL_PROPERTIES, false );
+            Query q = MongoQueryParser.toNativeQuery( query, returnFieldSelector, count );
+            if ( q == null ) {
+                q = new Query();
             }
-            if ( !results.isEmpty() ) {
-                for ( Entity entity : results.getEntities() ) {
-
-                    Object savedId = entity.getProperty( "_id" );
-                    Object mongoId = null;
-
-                    //try to parse it into an ObjectId
-                    if ( savedId == null ) {
-                        mongoId = entity.getUuid();
-                    }
-                    else {
-                        try {
-                            mongoId = new ObjectId( savedId.toString() );
-                            //it's not a mongo Id, use it as is
-                        }
-                        catch ( IllegalArgumentException iae ) {
-                            mongoId = savedId;
-                        }
-                    }
-
-                    reply.addDocument( map( entry( "_id", mongoId ), toJsonMap( entity ),
-                            entry( Schema.PROPERTY_UUID, entity.getUuid().toString() ) ) );
-                }
+            q.setLimit( count );
+
+            Results results = em.searchCollection( em.getApplicationRef(), getCollectionName(), q );
+
+            addEntities( reply, results );
+
+            // a negative number to return asks for a single batch and no cursor, as does a limit of 1
+            if ( ( results.getCursor() != null ) && ( getNumberToReturn() >= 0 ) && ( getNumberToReturn() != 1 ) ) {
+                q.setCursor( results.getCursor() );
+                reply.setCursorID( MongoCursorRegistry.get().register(
+                        new MongoCursor( application.getId(), getCollectionName(), q, count,
+                                reply.getNumberReturned() ) ) );
             }
         }
         catch ( Exception ex ) {
@@ -435,6 +424,37 @@ public class OpQuery extends OpCrud {
     }
 
 
+    /** Add the entities of the results to the reply as mongo documents */
+    static void addEntities( OpReply reply, Results results ) {
+        if ( results.isEmpty() ) {
+            return;
+        }
+
+        for ( Entity entity : results.getEntities() ) {
+
+            Object savedId = entity.getProperty( "_id" );
+            Object mongoId = null;
+
+            //try to parse it into an ObjectId
+            if ( savedId == null ) {
+                mongoId = entity.getUuid();
+            }
+            else {
+                try {
+                    mongoId = new ObjectId( savedId.toString() );
+                    //it's not a mongo Id, use it as is
+                }
+                catch ( IllegalArgumentException iae ) {
+                    mongoId = savedId;
+                }
+            }
+
+            reply.addDocument( map( entry( "_id", mongoId ), toJsonMap( entity ),
+                    entry( Schema.PROPERTY_UUID, entity.getUuid().toString() ) ) );
+        }
+    }
+
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
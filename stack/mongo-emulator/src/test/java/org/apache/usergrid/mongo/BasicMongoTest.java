@@ -26,6 +26,7 @@ import org.bson.types.ObjectId;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.apache.usergrid.mongo.protocol.OpDelete;
+import org.apache.usergrid.mongo.protocol.OpQuery;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.Query;
@@ -353,4 +354,71 @@ public class BasicMongoTest extends AbstractMongoTest {
 
         assertEquals( 0, results.size() );
     }
+
+
+    @Test
+    public void batchInsertGetMoreTest() throws Exception {
+
+        DB db = getDb();
+
+        int count = OpQuery.DEFAULT_BATCH_SIZE * 3 + 5;
+
+        List<DBObject> docs = new ArrayList<DBObject>( count );
+
+        for ( int i = 0; i < count; i++ ) {
+            BasicDBObject doc = new BasicDBObject();
+
+            doc.put( "index", i );
+
+            docs.add( doc );
+        }
+
+        // all documents go to the server in a single OP_INSERT
+        WriteResult result = db.getCollection( "getmoretests" ).insert( docs );
+
+        assertNull( result.getLastError().getErrorMessage() );
+
+        // the driver has to issue OP_GET_MORE to read past the first batch
+        DBCursor cursor = db.getCollection( "getmoretests" ).find();
+
+        int read = 0;
+
+        while ( cursor.hasNext() ) {
+            int index = new BasicDBObject( cursor.next().toMap() ).getInt( "index" );
+
+            assertEquals( read, index );
+
+            read++;
+        }
+
+        assertEquals( count, read );
+    }
+
+
+    @Test
+    public void batchInsertDuplicateTest() throws Exception {
+
+        DB db = getDb();
+
+        List<DBObject> docs = new ArrayList<DBObject>();
+
+        for ( String username : new String[] { "batchinsert1", "batchinsert2", "BatchInsert1" } ) {
+            BasicDBObject doc = new BasicDBObject();
+
+            doc.put( "username", username );
+
+            docs.add( doc );
+        }
+
+        // the last document repeats the unique username of the first one
+        WriteResult result = db.getCollection( "users" ).insert( docs );
+
+        assertNotNull( result.getLastError().getErrorMessage() );
+
+        // the batch is rejected as a whole
+        BasicDBObject query = new BasicDBObject();
+        query.put( "username", "batchinsert2" );
+
+        assertNull( db.getCollection( "users" ).findOne( query ) );
+    }
 }
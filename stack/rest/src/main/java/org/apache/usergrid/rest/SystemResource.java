@@ -28,8 +28,10 @@ import javax.ws.rs.core.UriInfo;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.apache.usergrid.persistence.cassandra.util.OpLatencyTracker;
 import org.apache.usergrid.rest.security.annotations.RequireSystemAccess;
 
 import com.sun.jersey.api.json.JSONWithPadding;
@@ -46,6 +48,9 @@ public class SystemResource extends AbstractContextResource {
 
     private static final Logger logger = LoggerFactory.getLogger( SystemResource.class );
 
+    @Autowired
+    private OpLatencyTracker opLatencyTracker;
+
 
     public SystemResource() {
         logger.info( "SystemResource initialized" );
@@ -108,4 +113,23 @@ public class SystemResource extends AbstractContextResource {
 
         return new JSONWithPadding( response, callback );
     }
+
+
+    @RequireSystemAccess
+    @GET
+    @Path("database/stats")
+    public JSONWithPadding getDatabaseStats( @Context UriInfo ui,
+                                             @QueryParam("callback") @DefaultValue("callback") String callback )
+            throws Exception {
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "cassandra stats" );
+
+        response.setProperty( "slowOpThreshold", opLatencyTracker.getSlowOpThreshold() );
+        response.setData( opLatencyTracker.getStats() );
+
+        response.setSuccess();
+
+        return new JSONWithPadding( response, callback );
+    }
 }
@@ -236,6 +236,7 @@ public class ServiceResource extends AbstractContextResource {
         LOG.debug( "ServiceResource.executeServiceRequest" );
 
         boolean tree = "true".equalsIgnoreCase( ui.getQueryParameters().getFirst( "tree" ) );
+        boolean debug = "true".equalsIgnoreCase( ui.getQueryParameters().getFirst( "debug" ) );
         boolean collectionGet = false;
         if ( action == ServiceAction.GET ) {
             collectionGet = (getServiceParameters().size() == 1 && InflectionUtils
@@ -246,6 +247,9 @@ public class ServiceResource extends AbstractContextResource {
         response.setServiceRequest( r );
         ServiceResults results = r.execute();
         if ( results != null ) {
+            if ( debug && results.getQueryStats() != null ) {
+                response.setProperty( "queryStats", results.getQueryStats().toMap() );
+            }
             if ( results.hasData() ) {
                 response.setData( results.getData() );
             }
@@ -45,7 +45,10 @@ import org.apache.commons.lang.StringUtils;
 
 import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.OrganizationInfo;
+import org.apache.usergrid.management.bulk.BulkMutationService;
 import org.apache.usergrid.management.export.ExportService;
+import org.apache.usergrid.persistence.entities.BulkMutation;
+import org.apache.usergrid.persistence.exceptions.EntityNotFoundException;
 import org.apache.usergrid.rest.AbstractContextResource;
 import org.apache.usergrid.rest.ApiResponse;
 import org.apache.usergrid.rest.applications.ServiceResource;
@@ -75,6 +78,8 @@ public class ApplicationResource extends AbstractContextResource {
 
     @Autowired
     protected ExportService exportService;
+    @Autowired
+    protected BulkMutationService bulkMutationService;
     OrganizationInfo organization;
     UUID applicationId;
     ApplicationInfo application;
@@ -342,4 +347,74 @@ public class ApplicationResource extends AbstractContextResource {
 
         return Response.status( SC_ACCEPTED ).entity( uuidRet ).build();
     }
+
+
+    /**
+     * Delete or update every entity of the collection matching "ql" in the background, at most "rate" entities a
+     * second. An update sets "properties" on each entity.
+     */
+    @POST
+    @Path("collection/{collection_name}/bulk")
+    @Consumes(APPLICATION_JSON)
+    @RequireOrganizationAccess
+    @SuppressWarnings("unchecked")
+    public Response bulkMutationPostJson( @Context UriInfo ui, @PathParam("collection_name") String collection_name,
+                                          Map<String, Object> json,
+                                          @QueryParam("callback") @DefaultValue("") String callback )
+            throws Exception {
+
+        Map<String, String> uuidRet = new HashMap<String, String>();
+
+        try {
+            Preconditions.checkArgument( json != null, "A JSON body is required" );
+
+            Object operation = json.get( "operation" );
+            Preconditions.checkArgument( operation instanceof String, "Could not find field 'operation'" );
+
+            Object ql = json.get( "ql" );
+            Preconditions.checkArgument( ( ql == null ) || ( ql instanceof String ), "Field 'ql' must be a string" );
+
+            Object properties = json.get( "properties" );
+            Preconditions.checkArgument( ( properties == null ) || ( properties instanceof Map ),
+                    "Field 'properties' must be an object" );
+
+            Object rate = json.get( "rate" );
+            Preconditions.checkArgument( ( rate == null ) || ( rate instanceof Number ),
+                    "Field 'rate' must be a number" );
+
+            UUID mutationId = bulkMutationService.schedule( applicationId, collection_name,
+                    BulkMutation.Operation.valueOf( ( ( String ) operation ).toUpperCase() ), ( String ) ql,
+                    ( Map<String, Object> ) properties, rate != null ? ( ( Number ) rate ).longValue() : null );
+
+            uuidRet.put( "Bulk Mutation", mutationId.toString() );
+        }
+        catch ( IllegalArgumentException e ) {
+            return Response.status( SC_BAD_REQUEST ).type( JSONPUtils.jsonMediaType( callback ) )
+                           .entity( ServiceResource.wrapWithCallback( e.getMessage(), callback ) ).build();
+        }
+
+        return Response.status( SC_ACCEPTED ).entity( uuidRet ).build();
+    }
+
+
+    @GET
+    @Path("collection/{collection_name}/bulk/{bulk_mutation_id}")
+    @RequireOrganizationAccess
+    public JSONWithPadding getBulkMutation( @Context UriInfo ui, @PathParam("collection_name") String collection_name,
+                                            @PathParam("bulk_mutation_id") String bulkMutationId,
+                                            @QueryParam("callback") @DefaultValue("callback") String callback )
+            throws Exception {
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "get bulk mutation" );
+
+        BulkMutation mutation = bulkMutationService.getBulkMutation( applicationId, UUID.fromString( bulkMutationId ) );
+
+        if ( ( mutation == null ) || !collection_name.equalsIgnoreCase( mutation.getCollectionName() ) ) {
+            throw new EntityNotFoundException( "Bulk mutation " + bulkMutationId + " not found" );
+        }
+
+        response.setData( mutation );
+        return new JSONWithPadding( response, callback );
+    }
 }
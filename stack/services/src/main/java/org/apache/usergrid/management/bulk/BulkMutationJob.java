@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.management.bulk;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.batch.job.OnlyOnceJob;
+
+
+/**
+ * Runs a scheduled {@link BulkMutationService} mutation
+ */
+@Component("bulkMutationJob")
+public class BulkMutationJob extends OnlyOnceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger( BulkMutationJob.class );
+
+    @Autowired
+    BulkMutationService bulkMutationService;
+
+
+    public BulkMutationJob() {
+    }
+
+
+    @Override
+    public void doJob( JobExecution jobExecution ) throws Exception {
+        logger.info( "execute BulkMutationJob {}", jobExecution );
+
+        if ( jobExecution.getJobData() == null ) {
+            logger.error( "jobData cannot be null" );
+            return;
+        }
+
+        bulkMutationService.doMutation( jobExecution );
+    }
+
+
+    @Override
+    protected long getDelay( JobExecution jobExecution ) throws Exception {
+        return BulkMutationServiceImpl.PAUSE_MILLIS;
+    }
+
+
+    public void setBulkMutationService( BulkMutationService bulkMutationService ) {
+        this.bulkMutationService = bulkMutationService;
+    }
+
+
+    @Override
+    public void dead( JobExecution execution ) throws Exception {
+        bulkMutationService.failMutation( execution );
+    }
+}
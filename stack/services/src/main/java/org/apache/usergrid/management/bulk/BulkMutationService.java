@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.management.bulk;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.persistence.entities.BulkMutation;
+
+
+/**
+ * Deletes or updates every entity of a collection that matches a query in the background
+ */
+public interface BulkMutationService {
+
+    /**
+     * Schedule the mutation to execute
+     *
+     * @param applicationId The application of the collection
+     * @param collectionName The collection to mutate
+     * @param operation Delete or update the matching entities
+     * @param ql The query selecting the entities, null for all of them
+     * @param updates The properties set on each entity of an update
+     * @param rate The most entities mutated per second, null for the default
+     *
+     * @return The id of the {@link BulkMutation} tracking the progress
+     */
+    UUID schedule( UUID applicationId, String collectionName, BulkMutation.Operation operation, String ql,
+                   Map<String, Object> updates, Long rate ) throws Exception;
+
+    /**
+     * Get the state and progress of the mutation, or null if it doesn't belong to the application
+     */
+    BulkMutation getBulkMutation( UUID applicationId, UUID bulkMutationId ) throws Exception;
+
+    /**
+     * Mutate the next pages of the collection, continuing from the saved cursor
+     */
+    void doMutation( JobExecution jobExecution ) throws Exception;
+
+    /**
+     * Mark the mutation as failed, once the job has given up on it
+     */
+    void failMutation( JobExecution jobExecution ) throws Exception;
+}
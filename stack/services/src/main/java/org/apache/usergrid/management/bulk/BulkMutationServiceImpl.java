@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.management.bulk;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.batch.service.SchedulerService;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.Results.Level;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl;
+import org.apache.usergrid.persistence.entities.Application;
+import org.apache.usergrid.persistence.entities.BulkMutation;
+import org.apache.usergrid.persistence.entities.JobData;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+
+import static org.apache.usergrid.persistence.cassandra.CassandraService.MANAGEMENT_APPLICATION_ID;
+import static org.apache.usergrid.utils.ConversionUtils.uuid;
+
+
+/**
+ * Pages through the collection with cursors and deletes or updates each page in a single mutation, throttled to the
+ * rate of the mutation. The cursor and the count of processed entities are saved on the {@link BulkMutation} after
+ * every page. Each job execution runs for at most {@link #setMaxRunMillis(long)} and then delays itself, so the
+ * scheduler's heartbeat timeout is never reached and a job restarted after a crash continues from the last saved
+ * page.
+ * <p/>
+ * An update that changes a property used by the query or its sort order moves entities within the index, such
+ * entities may be updated twice or skipped.
+ */
+public class BulkMutationServiceImpl implements BulkMutationService {
+
+    private static final Logger logger = LoggerFactory.getLogger( BulkMutationServiceImpl.class );
+
+    public static final String BULK_MUTATION_ID = "bulkMutationId";
+    public static final String BULK_MUTATION_JOB_NAME = "bulkMutationJob";
+
+    /** How long a job waits before running its next slice */
+    public static final long PAUSE_MILLIS = 100;
+
+    private SchedulerService sch;
+
+    private EntityManagerFactory emf;
+
+    /** Entities mutated per second when the request doesn't set a rate */
+    private long defaultRate = 100;
+
+    /** Entities read and mutated per page */
+    private int pageSize = 100;
+
+    /** How long one job execution runs before yielding, must be well below the scheduler's job timeout */
+    private long maxRunMillis = 30000;
+
+
+    @Override
+    public UUID schedule( UUID applicationId, String collectionName, BulkMutation.Operation operation, String ql,
+                          Map<String, Object> updates, Long rate ) throws Exception {
+
+        Preconditions.checkArgument( applicationId != null, "applicationId is required" );
+        Preconditions.checkArgument( collectionName != null, "collection name is required" );
+        Preconditions.checkArgument( operation != null, "operation is required" );
+        Preconditions.checkArgument( !Schema.isAssociatedEntityType( collectionName ),
+                "Collection " + collectionName + " can't be mutated in bulk" );
+        Preconditions.checkArgument( ( rate == null ) || ( rate > 0 ), "rate must be positive" );
+
+        if ( ql != null ) {
+            // fail now on a bad query rather than in the job
+            Query.fromQL( ql );
+        }
+
+        if ( operation == BulkMutation.Operation.UPDATE ) {
+            Preconditions.checkArgument( ( updates != null ) && !updates.isEmpty(), "properties are required" );
+
+            String entityType = Schema.getDefaultSchema().getCollectionType( Application.ENTITY_TYPE, collectionName );
+            for ( String propertyName : updates.keySet() ) {
+                // every matching entity would get the same value
+                Preconditions.checkArgument( !Schema.getDefaultSchema().isPropertyUnique( entityType, propertyName ),
+                        "Unique property " + propertyName + " can't be updated in bulk" );
+            }
+        }
+
+        EntityManager rootEm = emf.getEntityManager( MANAGEMENT_APPLICATION_ID );
+
+        BulkMutation mutation = new BulkMutation();
+        mutation.setApplicationId( applicationId );
+        mutation.setCollectionName( collectionName );
+        mutation.setOperation( operation );
+        mutation.setQl( ql );
+        mutation.setUpdates( updates );
+        mutation.setRate( rate != null ? rate : defaultRate );
+        mutation.setProcessed( 0L );
+        mutation.setState( BulkMutation.State.CREATED );
+
+        mutation = rootEm.create( mutation );
+
+        JobData jobData = new JobData();
+        jobData.setProperty( BULK_MUTATION_ID, mutation.getUuid() );
+
+        sch.createJob( BULK_MUTATION_JOB_NAME, System.currentTimeMillis(), jobData );
+
+        mutation.setState( BulkMutation.State.SCHEDULED );
+        rootEm.update( mutation );
+
+        return mutation.getUuid();
+    }
+
+
+    @Override
+    public BulkMutation getBulkMutation( UUID applicationId, UUID bulkMutationId ) throws Exception {
+        EntityManager rootEm = emf.getEntityManager( MANAGEMENT_APPLICATION_ID );
+
+        BulkMutation mutation = rootEm.get( bulkMutationId, BulkMutation.class );
+
+        if ( ( mutation == null ) || !applicationId.equals( mutation.getApplicationId() ) ) {
+            return null;
+        }
+
+        return mutation;
+    }
+
+
+    @Override
+    public void doMutation( JobExecution jobExecution ) throws Exception {
+        UUID mutationId = uuid( jobExecution.getJobData().getProperty( BULK_MUTATION_ID ) );
+
+        EntityManager rootEm = emf.getEntityManager( MANAGEMENT_APPLICATION_ID );
+        BulkMutation mutation = rootEm.get( mutationId, BulkMutation.class );
+
+        if ( mutation == null ) {
+            logger.error( "Bulk mutation {} no longer exists", mutationId );
+            return;
+        }
+
+        if ( ( mutation.getState() == BulkMutation.State.FINISHED ) || ( mutation.getState()
+                == BulkMutation.State.FAILED ) ) {
+            return;
+        }
+
+        if ( mutation.getStarted() == null ) {
+            mutation.setStarted( System.currentTimeMillis() );
+        }
+        mutation.setState( BulkMutation.State.STARTED );
+        rootEm.update( mutation );
+
+        EntityManagerImpl em = ( EntityManagerImpl ) emf.getEntityManager( mutation.getApplicationId() );
+
+        Query query = mutation.getQl() != null ? Query.fromQL( mutation.getQl() ) : new Query();
+        query.setLimit( pageSize );
+        query.setResultsLevel( Level.REFS );
+
+        RateLimiter rateLimiter = RateLimiter.create( mutation.getRate() );
+
+        long processed = mutation.getProcessed() != null ? mutation.getProcessed() : 0;
+        String cursor = mutation.getCursor();
+        long deadline = System.currentTimeMillis() + maxRunMillis;
+
+        try {
+            do {
+                query.setCursor( cursor );
+
+                Results results = em.searchCollection( em.getApplicationRef(), mutation.getCollectionName(), query );
+                List<EntityRef> refs = results.getRefs();
+
+                if ( !refs.isEmpty() ) {
+                    rateLimiter.acquire( refs.size() );
+
+                    if ( mutation.getOperation() == BulkMutation.Operation.DELETE ) {
+                        em.deleteEntities( refs );
+                    }
+                    else {
+                        em.updateEntities( refs, mutation.getUpdates() );
+                    }
+
+                    processed += refs.size();
+                }
+
+                cursor = results.getCursor();
+
+                mutation.setProcessed( processed );
+                mutation.setCursor( cursor );
+
+                if ( cursor == null ) {
+                    logger.info( "Bulk mutation {} finished after {} entities", mutationId, processed );
+                    mutation.setState( BulkMutation.State.FINISHED );
+                    mutation.setFinished( System.currentTimeMillis() );
+                    rootEm.update( mutation );
+                    return;
+                }
+
+                rootEm.update( mutation );
+                jobExecution.heartbeat();
+            }
+            while ( System.currentTimeMillis() < deadline );
+        }
+        catch ( Exception e ) {
+            // the job is retried from the saved cursor, keep the error for the status
+            mutation.setErrorMessage( e.getMessage() );
+            rootEm.update( mutation );
+            throw e;
+        }
+
+        // continue from the saved cursor in the next execution
+        jobExecution.delay( PAUSE_MILLIS );
+    }
+
+
+    @Override
+    public void failMutation( JobExecution jobExecution ) throws Exception {
+        UUID mutationId = uuid( jobExecution.getJobData().getProperty( BULK_MUTATION_ID ) );
+
+        EntityManager rootEm = emf.getEntityManager( MANAGEMENT_APPLICATION_ID );
+        BulkMutation mutation = rootEm.get( mutationId, BulkMutation.class );
+
+        if ( mutation == null ) {
+            return;
+        }
+
+        mutation.setState( BulkMutation.State.FAILED );
+        mutation.setErrorMessage( "Gave up after " + jobExecution.getJobStats().getTotalAttempts() + " attempts" );
+        rootEm.update( mutation );
+    }
+
+
+    public void setSch( SchedulerService sch ) {
+        this.sch = sch;
+    }
+
+
+    public void setEmf( EntityManagerFactory emf ) {
+        this.emf = emf;
+    }
+
+
+    public void setDefaultRate( long defaultRate ) {
+        this.defaultRate = defaultRate;
+    }
+
+
+    public void setPageSize( int pageSize ) {
+        this.pageSize = pageSize;
+    }
+
+
+    public void setMaxRunMillis( long maxRunMillis ) {
+        this.maxRunMillis = maxRunMillis;
+    }
+}
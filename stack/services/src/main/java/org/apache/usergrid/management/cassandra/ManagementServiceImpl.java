@@ -27,6 +27,7 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,6 +97,8 @@ import org.apache.usergrid.utils.MailUtils;
 import org.apache.usergrid.utils.StringUtils;
 import org.apache.usergrid.utils.UUIDUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
@@ -231,6 +234,14 @@ public class ManagementServiceImpl implements ManagementService {
 
     protected EncryptionService encryptionService;
 
+    public static final String PROPERTIES_APPLICATION_CACHE_TTL_SECONDS = "usergrid.application.cache.ttl.seconds";
+
+    /**
+     * Application infos by id. Kept briefly since they are read on every request routed by application id, and
+     * application names do not change once created. Ids that are not found are not cached.
+     */
+    private Cache<UUID, ApplicationInfo> applicationInfoCache = createApplicationInfoCache( 30 );
+
 
     /** Must be constructed with a CassandraClientPool. */
     public ManagementServiceImpl() {
@@ -247,6 +258,17 @@ public class ManagementServiceImpl implements ManagementService {
     @Autowired
     public void setProperties( Properties properties ) {
         this.properties = new AccountCreationPropsImpl( properties );
+
+        String ttl = properties.getProperty( PROPERTIES_APPLICATION_CACHE_TTL_SECONDS );
+        if ( ttl != null ) {
+            applicationInfoCache = createApplicationInfoCache( Long.parseLong( ttl.trim() ) );
+        }
+    }
+
+
+    private static Cache<UUID, ApplicationInfo> createApplicationInfoCache( long ttlSeconds ) {
+        return CacheBuilder.newBuilder().maximumSize( 10000 ).expireAfterWrite( ttlSeconds, TimeUnit.SECONDS )
+                           .build();
     }
 
 
@@ -654,6 +676,10 @@ public class ManagementServiceImpl implements ManagementService {
                 .plainTextCredentials( generateOAuthSecretKey( AuthPrincipalType.APPLICATION ), null, applicationId ) );
 
         addApplicationToOrganization( organizationId, applicationId );
+
+        // the imported id may have been looked up, and cached as missing, before the import
+        applicationInfoCache.invalidate( applicationId );
+
         return applicationId;
     }
 
@@ -1618,6 +1644,8 @@ public class ManagementServiceImpl implements ManagementService {
                         MANAGEMENT_APPLICATION_ID ) );
         addApplicationToOrganization( organizationId, applicationId );
 
+        applicationInfoCache.invalidate( applicationId );
+
         UserInfo user = null;
         // if we call this method before the full stack is initialized
         // we'll get an exception
@@ -1718,6 +1746,8 @@ public class ManagementServiceImpl implements ManagementService {
     public void deleteOrganizationApplication( UUID organizationId, UUID applicationId ) throws Exception {
         // TODO Auto-generated method stub
 
+        // whatever ends up deleting the application, its info must not outlive it in the cache
+        applicationInfoCache.invalidate( applicationId );
     }
 
 
@@ -1746,6 +1776,18 @@ public class ManagementServiceImpl implements ManagementService {
         if ( applicationId == null ) {
             return null;
         }
+        ApplicationInfo application = applicationInfoCache.getIfPresent( applicationId );
+        if ( application == null ) {
+            application = loadApplicationInfo( applicationId );
+            if ( application != null ) {
+                applicationInfoCache.put( applicationId, application );
+            }
+        }
+        return application;
+    }
+
+
+    private ApplicationInfo loadApplicationInfo( UUID applicationId ) throws Exception {
         EntityManager em = emf.getEntityManager( MANAGEMENT_APPLICATION_ID );
         Entity entity = em.get( applicationId );
 
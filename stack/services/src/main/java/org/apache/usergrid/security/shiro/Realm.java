@@ -17,7 +17,10 @@
 package org.apache.usergrid.security.shiro;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -34,6 +37,7 @@ import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.EntityRef;
 import org.apache.usergrid.persistence.Results;
 import org.apache.usergrid.persistence.Results.Level;
 import org.apache.usergrid.persistence.SimpleEntityRef;
@@ -80,8 +84,11 @@ import com.google.common.collect.HashBiMap;
 import static org.apache.commons.lang.StringUtils.isBlank;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.apache.usergrid.management.AccountCreationProps.PROPERTIES_SYSADMIN_LOGIN_ALLOWED;
+import static org.apache.usergrid.persistence.Schema.DICTIONARY_PERMISSIONS;
+import static org.apache.usergrid.persistence.Schema.DICTIONARY_ROLENAMES;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.MANAGEMENT_APPLICATION_ID;
 import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.apache.usergrid.utils.ClassUtils.cast;
 import static org.apache.usergrid.utils.StringUtils.stringOrSubstringAfterFirst;
 import static org.apache.usergrid.utils.StringUtils.stringOrSubstringBeforeFirst;
 
@@ -381,6 +388,19 @@ public class Realm extends AuthorizingRealm {
                 catch ( Exception e ) {
                 }
 
+                UserInfo user = principal.getUser();
+
+                // the user's own permissions and roles are two dictionaries of the user, read them together
+                Map<String, Set<Object>> userDictionaries = null;
+                try {
+                    userDictionaries =
+                            em.getDictionariesAsSets( new SimpleEntityRef( User.ENTITY_TYPE, user.getUuid() ),
+                                    Arrays.asList( DICTIONARY_PERMISSIONS, DICTIONARY_ROLENAMES ) );
+                }
+                catch ( Exception e ) {
+                    logger.warn( "Unable to get user permissions and roles together, reading them one at a time", e );
+                }
+
                 try {
                     Set<String> permissions = em.getRolePermissions( "default" );
                     grant( info, principal, applicationId, permissions );
@@ -389,9 +409,10 @@ public class Realm extends AuthorizingRealm {
                     logger.error( "Unable to get user default role permissions", e );
                 }
 
-                UserInfo user = principal.getUser();
                 try {
-                    Set<String> permissions = em.getUserPermissions( user.getUuid() );
+                    Set<String> permissions = userDictionaries != null ?
+                                              cast( userDictionaries.get( DICTIONARY_PERMISSIONS ) ) :
+                                              em.getUserPermissions( user.getUuid() );
                     grant( info, principal, applicationId, permissions );
                 }
                 catch ( Exception e ) {
@@ -399,7 +420,9 @@ public class Realm extends AuthorizingRealm {
                 }
 
                 try {
-                    Set<String> rolenames = em.getUserRoles( user.getUuid() );
+                    Set<String> rolenames = userDictionaries != null ?
+                                            cast( userDictionaries.get( DICTIONARY_ROLENAMES ) ) :
+                                            em.getUserRoles( user.getUuid() );
                     grantAppRoles( info, em, applicationId, token, principal, rolenames );
                 }
                 catch ( Exception e ) {
@@ -417,12 +440,16 @@ public class Realm extends AuthorizingRealm {
 
                         Set<String> rolenames = new HashSet<String>();
 
+                        List<EntityRef> groups = new ArrayList<EntityRef>();
                         for ( UUID groupId : r.getIds() ) {
+                            groups.add( new SimpleEntityRef( Group.ENTITY_TYPE, groupId ) );
+                        }
 
-                            Results roleResults =
-                                    em.getCollection( new SimpleEntityRef( Group.ENTITY_TYPE, groupId ), "roles", null,
-                                            1000, Level.CORE_PROPERTIES, false );
+                        // the roles of all the groups are read in parallel
+                        Map<UUID, Results> groupRoles =
+                                em.getCollections( groups, "roles", 1000, Level.CORE_PROPERTIES );
 
+                        for ( Results roleResults : groupRoles.values() ) {
                             for ( Entity entity : roleResults.getEntities() ) {
                                 rolenames.add( entity.getName() );
                             }
@@ -485,6 +512,8 @@ public class Realm extends AuthorizingRealm {
                                 PrincipalIdentifier principal, Set<String> rolenames ) throws Exception {
         Map<String, Role> app_roles = em.getRolesWithTitles( rolenames );
 
+        Map<String, Set<String>> rolePermissions = em.getRolesPermissions( rolenames );
+
         for ( String rolename : rolenames ) {
             if ( ( app_roles != null ) && ( token != null ) ) {
                 Role role = app_roles.get( rolename );
@@ -493,7 +522,7 @@ public class Realm extends AuthorizingRealm {
                     continue;
                 }
             }
-            Set<String> permissions = em.getRolePermissions( rolename );
+            Set<String> permissions = rolePermissions.get( rolename );
             grant( info, principal, applicationId, permissions );
             role( info, principal,
                     "application-role:".concat( applicationId.toString() ).concat( ":" ).concat( rolename ) );
@@ -17,6 +17,7 @@
 package org.apache.usergrid.security.shiro.utils;
 
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -429,6 +430,20 @@ public class SubjectUtils {
     }
 
 
+    public static void checkPermissions( List<String> permissions ) {
+        Subject currentUser = getSubject();
+        if ( currentUser == null ) {
+            return;
+        }
+        try {
+            currentUser.checkPermissions( permissions.toArray( new String[permissions.size()] ) );
+        }
+        catch ( org.apache.shiro.authz.UnauthenticatedException e ) {
+            logger.error( "checkPermissions(): Subject is anonymous" );
+        }
+    }
+
+
     public static void loginApplicationGuest( ApplicationInfo application ) {
         if ( application == null ) {
             logger.error( "loginApplicationGuest(): Null application" );
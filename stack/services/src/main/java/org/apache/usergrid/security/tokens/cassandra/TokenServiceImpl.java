@@ -50,6 +50,7 @@ import static me.prettyprint.hector.api.factory.HFactory.createMutator;
 import static org.apache.commons.codec.binary.Base64.decodeBase64;
 import static org.apache.commons.codec.binary.Base64.encodeBase64URLSafeString;
 import static org.apache.commons.codec.digest.DigestUtils.sha;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.getColumnMap;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.PRINCIPAL_TOKEN_CF;
 import static org.apache.usergrid.persistence.cassandra.CassandraService.TOKENS_CF;
@@ -276,7 +277,7 @@ public class TokenServiceImpl implements TokenService {
             tokenInfo.setInactive( inactive );
         }
 
-        batch.execute();
+        batchExecute( batch, CassandraService.RETRY_COUNT );
 
         return tokenInfo;
     }
@@ -334,7 +335,7 @@ public class TokenServiceImpl implements TokenService {
 
         batch.addDeletion( principalKey( principal ), PRINCIPAL_TOKEN_CF );
 
-        batch.execute();
+        batchExecute( batch, CassandraService.RETRY_COUNT );
     }
 
 
@@ -371,7 +372,7 @@ public class TokenServiceImpl implements TokenService {
         // remove the token from the tokens cf
         batch.addDeletion( bytebuffer( tokenId ), TOKENS_CF );
 
-        batch.execute();
+        batchExecute( batch, CassandraService.RETRY_COUNT );
     }
 
 
@@ -463,7 +464,7 @@ public class TokenServiceImpl implements TokenService {
                             be ) );
         }
 
-        m.execute();
+        batchExecute( m, CassandraService.RETRY_COUNT );
     }
 
 
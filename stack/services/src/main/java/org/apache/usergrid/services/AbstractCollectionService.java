@@ -18,6 +18,10 @@ package org.apache.usergrid.services;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Identifier;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Results;
 import org.apache.usergrid.persistence.Results.Level;
@@ -194,6 +199,11 @@ public class AbstractCollectionService extends AbstractService {
 
         checkPermissionsForCollection( context );
 
+        List<Identifier> identifiers = query.getIdentifiers();
+        if ( !query.hasQueryPredicates() && ( identifiers != null ) && ( identifiers.size() > 1 ) ) {
+            return getItemsByIdentifiers( context, identifiers );
+        }
+
         int count = 1;
         Results.Level level = Results.Level.REFS;
 
@@ -237,6 +247,100 @@ public class AbstractCollectionService extends AbstractService {
     }
 
 
+    /**
+     * Gets the entities of a query listing their uuids and names, like /users?{uuid}&fred, instead of a request for
+     * each. The names are resolved together, then the membership and the entities of all of them are read with one
+     * multiget each. Identifiers that aren't an entity of the collection are left out of the results.
+     */
+    public ServiceResults getItemsByIdentifiers( ServiceContext context, List<Identifier> identifiers )
+            throws Exception {
+
+        if ( identifiers.size() > Query.MAX_LIMIT ) {
+            throw new IllegalArgumentException(
+                    "At most " + Query.MAX_LIMIT + " entities can be read at once, " + identifiers.size()
+                            + " were requested" );
+        }
+
+        List<String> names = new ArrayList<String>();
+        for ( Identifier identifier : identifiers ) {
+            if ( !identifier.isUUID() ) {
+                names.add( identifier.toString() );
+            }
+        }
+
+        Map<String, UUID> named = Collections.emptyMap();
+        if ( !names.isEmpty() ) {
+            named = getIdsForNames( context, names );
+        }
+
+        //in the order they were asked for, uuids and names mixed
+        Set<UUID> ids = new LinkedHashSet<UUID>();
+        for ( Identifier identifier : identifiers ) {
+            UUID id = identifier.isUUID() ? identifier.getUUID() : named.get( identifier.toString() );
+            if ( id != null ) {
+                ids.add( id );
+            }
+        }
+
+        List<Entity> entities = new ArrayList<Entity>();
+
+        if ( !ids.isEmpty() ) {
+            Set<UUID> members = em.getCollectionMembers( context.getOwner(), context.getCollectionName(),
+                    new ArrayList<UUID>( ids ) );
+
+            Map<UUID, Entity> loaded = new HashMap<UUID, Entity>();
+            if ( !members.isEmpty() ) {
+                for ( Entity entity : em.get( members ).getEntities() ) {
+                    loaded.put( entity.getUuid(), entity );
+                }
+            }
+
+            //in the order they were asked for
+            for ( UUID id : members ) {
+                Entity entity = loaded.get( id );
+                if ( ( entity != null ) && getEntityType().equalsIgnoreCase( entity.getType() ) ) {
+                    entities.add( entity );
+                }
+            }
+        }
+
+        checkPermissionsForEntities( context, entities );
+
+        Results r = Results.fromEntities( entities );
+
+        List<ServiceRequest> nextRequests = null;
+        if ( !r.isEmpty() ) {
+
+            if ( !context.moreParameters() ) {
+                importEntities( context, r );
+            }
+
+            nextRequests = context.getNextServiceRequests( r.getRefs() );
+        }
+
+        return new ServiceResults( this, context, Type.COLLECTION, r, null, nextRequests );
+    }
+
+
+    /**
+     * Resolves the names of a request for several entities, with one read of their aliases. Names that aren't found
+     * are left out of the returned map.
+     */
+    protected Map<String, UUID> getIdsForNames( ServiceContext context, List<String> names ) throws Exception {
+        Map<String, EntityRef> aliases = em.getAlias( getEntityType(), names );
+
+        Map<String, UUID> ids = new LinkedHashMap<String, UUID>();
+        for ( String name : names ) {
+            EntityRef ref = aliases.get( name );
+            if ( ref != null ) {
+                ids.put( name, ref.getUuid() );
+            }
+        }
+
+        return ids;
+    }
+
+
     @Override
     public ServiceResults getCollection( ServiceContext context ) throws Exception {
 
@@ -17,7 +17,11 @@
 package org.apache.usergrid.services;
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -42,6 +46,7 @@ import static org.apache.usergrid.utils.ClassUtils.cast;
 import static org.apache.usergrid.utils.InflectionUtils.pluralize;
 import static org.apache.usergrid.utils.ListUtils.dequeue;
 import static org.apache.usergrid.utils.ListUtils.initCopy;
+import static org.apache.usergrid.utils.ListUtils.isEmpty;
 
 
 public class AbstractConnectionsService extends AbstractService {
@@ -321,6 +326,143 @@ public class AbstractConnectionsService extends AbstractService {
     }
 
 
+    /**
+     * Gets the connections of all the owners of a path that fans out, like /users/{a,b}/likes, reading the connections
+     * of every owner at once and loading each connected entity once instead of a request per owner. Returns null when
+     * the requests need more than a plain listing of the connections, they're then run one at a time.
+     */
+    public ServiceResults getItemsOfAll( List<ServiceRequest> requests, ServiceResults previousResults )
+            throws Exception {
+
+        if ( connecting() ) {
+            return null;
+        }
+
+        Map<UUID, ServiceContext> owners = new LinkedHashMap<UUID, ServiceContext>();
+
+        for ( ServiceRequest request : requests ) {
+            if ( request.getAction() != ServiceAction.GET ) {
+                return null;
+            }
+
+            ServiceContext context = getContext( ServiceAction.GET, request, previousResults, null );
+            if ( !isListing( context ) ) {
+                return null;
+            }
+
+            owners.put( context.getOwner().getUuid(), context );
+        }
+
+        if ( owners.isEmpty() ) {
+            return null;
+        }
+
+        ServiceContext first = owners.values().iterator().next();
+        Query query = first.getQuery();
+
+        for ( ServiceContext context : owners.values() ) {
+            checkPermissionsForCollection( context );
+        }
+
+        //the limit and level of each owner are the ones getItemsByQuery would use
+        int count = query.getLimit();
+        Level level = Level.REFS;
+        if ( !first.moreParameters() ) {
+            count = Query.MAX_LIMIT;
+            level = Level.ALL_PROPERTIES;
+        }
+
+        if ( first.getRequest().isReturnsTree() ) {
+            level = Level.ALL_PROPERTIES;
+        }
+
+        Results r = em.getConnectedEntities( new ArrayList<UUID>( owners.keySet() ), query.getConnectionType(),
+                query.getEntityType(), Level.REFS, query.getLimit( count ) );
+
+        //the owner each connected entity was reached from
+        Map<UUID, ServiceContext> reachedFrom = new HashMap<UUID, ServiceContext>();
+        if ( r.getConnections() != null ) {
+            for ( ConnectionRef connection : r.getConnections() ) {
+                reachedFrom.put( connection.getConnectedEntity().getUuid(),
+                        owners.get( connection.getConnectingEntity().getUuid() ) );
+            }
+        }
+
+        if ( level == Level.ALL_PROPERTIES && !r.isEmpty() ) {
+            Map<UUID, ServiceRequest> ownerRequests = new HashMap<UUID, ServiceRequest>();
+            for ( Map.Entry<UUID, ServiceContext> entry : reachedFrom.entrySet() ) {
+                ownerRequests.put( entry.getKey(), entry.getValue().getRequest() );
+            }
+
+            r = em.get( r.getIds(), level );
+
+            //the path of each entity is under the owner it was reached from
+            List<Entity> entities = r.getEntities();
+            if ( entities != null ) {
+                for ( Entity entity : new ArrayList<Entity>( entities ) ) {
+                    Entity imported = importEntity( ownerRequests.get( entity.getUuid() ), entity );
+                    if ( imported != entity ) {
+                        r.replace( imported );
+                    }
+                }
+            }
+        }
+
+        return new ServiceResults( this, first, Type.CONNECTION, r, null,
+                getNextServiceRequests( owners, reachedFrom, r.getRefs() ) );
+    }
+
+
+    /**
+     * The requests for the next part of the path, made from the context of the owner each entity was reached from, as
+     * the request of each owner would have
+     */
+    private List<ServiceRequest> getNextServiceRequests( Map<UUID, ServiceContext> owners,
+                                                         Map<UUID, ServiceContext> reachedFrom, List<EntityRef> refs ) {
+        if ( isEmpty( refs ) ) {
+            return null;
+        }
+
+        Map<ServiceContext, List<EntityRef>> refsByOwner = new LinkedHashMap<ServiceContext, List<EntityRef>>();
+        for ( ServiceContext context : owners.values() ) {
+            refsByOwner.put( context, new ArrayList<EntityRef>() );
+        }
+
+        for ( EntityRef ref : refs ) {
+            ServiceContext owner = reachedFrom.get( ref.getUuid() );
+            if ( owner != null ) {
+                refsByOwner.get( owner ).add( ref );
+            }
+        }
+
+        List<ServiceRequest> nextRequests = null;
+
+        for ( Map.Entry<ServiceContext, List<EntityRef>> owner : refsByOwner.entrySet() ) {
+            List<ServiceRequest> requests = owner.getKey().getNextServiceRequests( owner.getValue() );
+
+            if ( requests != null ) {
+                if ( nextRequests == null ) {
+                    nextRequests = new ArrayList<ServiceRequest>();
+                }
+                nextRequests.addAll( requests );
+            }
+        }
+
+        return nextRequests;
+    }
+
+
+    /** A context that only lists the connections of its owner, without a query, ids, names or commands */
+    private boolean isListing( ServiceContext context ) {
+        Query query = context.getQuery();
+
+        return ( query != null ) && ( query.getConnectionType() != null ) && ( context.getServiceMetadata() == null )
+                && ( context.getServiceCommand() == null ) && !query.hasQueryPredicates()
+                && isEmpty( query.getIdentifiers() ) && !query.isSortSet() && ( query.getCursor() == null )
+                && ( checkForEntityDictionaries( context ) == null ) && ( checkForEntityCommands( context ) == null );
+    }
+
+
     @Override
     public ServiceResults postItemById( ServiceContext context, UUID id ) throws Exception {
 
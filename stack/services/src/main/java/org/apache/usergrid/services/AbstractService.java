@@ -1242,6 +1242,24 @@ public abstract class AbstractService implements Service {
     }
 
 
+    /** Check the permissions for the paths of all the entities at once, failing on the first that isn't permitted */
+    public void checkPermissionsForEntities( ServiceContext context, List<? extends EntityRef> entities ) {
+        if ( SubjectUtils.getSubject() == null || entities.isEmpty() ) {
+            return;
+        }
+        UUID applicationId = em.getApplicationRef().getUuid();
+        String operation = context.getAction().toString().toLowerCase();
+        List<String> perms = new ArrayList<String>( entities.size() );
+        for ( EntityRef entity : entities ) {
+            perms.add( getPermissionFromPath( applicationId, operation, context.getPath( entity ) ) );
+        }
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "Checking subject for {} perms {}", perms.size(), perms );
+        }
+        SubjectUtils.checkPermissions( perms );
+    }
+
+
     public void checkPermissionsForEntitySubPath( ServiceContext context, UUID entityId, String subPath ) {
         String path = context.getPath( entityId, subPath );
         checkPermissionsForPath( context, path );
@@ -20,6 +20,7 @@ package org.apache.usergrid.services;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
@@ -42,8 +43,8 @@ public class ServiceManagerFactory implements ApplicationContextAware {
     private LockManager lockManager;
     private QueueManagerFactory qmf;
 
-    private List<ServiceExecutionEventListener> eventListeners;
-    private List<ServiceCollectionEventListener> collectionListeners;
+    private volatile List<ServiceExecutionEventListener> eventListeners;
+    private volatile List<ServiceCollectionEventListener> collectionListeners;
 
 
     public ServiceManagerFactory( EntityManagerFactory emf, Properties properties, SchedulerService schedulerService,
@@ -77,7 +78,35 @@ public class ServiceManagerFactory implements ApplicationContextAware {
 
 
     public void setExecutionEventListeners( List<ServiceExecutionEventListener> eventListeners ) {
-        this.eventListeners = eventListeners;
+        this.eventListeners = ( eventListeners == null ) ? null :
+                              new CopyOnWriteArrayList<ServiceExecutionEventListener>( eventListeners );
+    }
+
+
+    public synchronized void addExecutionEventListener( ServiceExecutionEventListener listener ) {
+        if ( eventListeners == null ) {
+            eventListeners = new CopyOnWriteArrayList<ServiceExecutionEventListener>();
+        }
+        eventListeners.add( listener );
+    }
+
+
+    public List<ServiceCollectionEventListener> getCollectionEventListeners() {
+        return collectionListeners;
+    }
+
+
+    public void setCollectionEventListeners( List<ServiceCollectionEventListener> collectionListeners ) {
+        this.collectionListeners = ( collectionListeners == null ) ? null :
+                                   new CopyOnWriteArrayList<ServiceCollectionEventListener>( collectionListeners );
+    }
+
+
+    public synchronized void addCollectionEventListener( ServiceCollectionEventListener listener ) {
+        if ( collectionListeners == null ) {
+            collectionListeners = new CopyOnWriteArrayList<ServiceCollectionEventListener>();
+        }
+        collectionListeners.add( listener );
     }
 
 
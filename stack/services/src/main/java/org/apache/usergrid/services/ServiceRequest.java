@@ -190,7 +190,14 @@ public class ServiceRequest {
 
     public ServiceResults execute() throws Exception {
         try {
-            return execute( null );
+            ServiceResults results = execute( null );
+
+            if ( ( action == ServiceAction.POST ) || ( action == ServiceAction.PUT )
+                    || ( action == ServiceAction.DELETE ) ) {
+                services.notifyExecutionEventListeners( action, this, results, payload );
+            }
+
+            return results;
         }
         catch ( Exception e ) {
             // don't log as error because some exceptions are not actually errors, e.g. resource not found
@@ -255,7 +262,10 @@ public class ServiceRequest {
             return previousResults;
         }
         else {
-            ServiceResults aggregate_results = null;
+            ServiceResults aggregate_results = invokeAll( requests, previousResults );
+            if ( aggregate_results != null ) {
+                return aggregate_results;
+            }
 
             for ( ServiceRequest request : requests ) {
 
@@ -275,6 +285,36 @@ public class ServiceRequest {
     }
 
 
+    /**
+     * When the path fans out into the connections of several owners, get them all with one request. Returns null if
+     * the service can't, the requests are then executed one at a time.
+     */
+    private ServiceResults invokeAll( List<ServiceRequest> requests, ServiceResults previousResults )
+            throws Exception {
+
+        if ( requests.size() < 2 ) {
+            return null;
+        }
+
+        Service s = services.getService( requests.get( 0 ).getServiceName() );
+        if ( !( s instanceof AbstractConnectionsService ) ) {
+            return null;
+        }
+
+        ServiceResults results = ( ( AbstractConnectionsService ) s ).getItemsOfAll( requests, previousResults );
+        if ( ( results != null ) && results.hasMoreRequests() ) {
+            results = invokeMultiple( results );
+
+            if ( results == null ) {
+                results = new ServiceResults( null, requests.get( 0 ), previousResults, null, Type.GENERIC, null, null,
+                        null );
+            }
+        }
+
+        return results;
+    }
+
+
     public List<ServiceParameter> getParameters() {
         return parameters;
     }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.DynamicEntity;
+
+import static org.apache.usergrid.utils.ConversionUtils.bytes;
+
+
+/**
+ * A transient stand-in entity used by {@link DeduplicatingBinaryStore} to address a content blob in the delegate
+ * store. Its uuid is derived from the content hash so the delegate's {@link AssetUtils#buildAssetKey(UUID,
+ * org.apache.usergrid.persistence.Entity)} yields one key per distinct content. It is never persisted.
+ */
+public class ContentBlob extends DynamicEntity {
+
+    public static final String ENTITY_TYPE = "blob";
+
+
+    public ContentBlob( String contentHash ) {
+        super( ENTITY_TYPE, UUID.nameUUIDFromBytes( bytes( contentHash ) ) );
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.usergrid.locking.Lock;
+import org.apache.usergrid.locking.LockManager;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * A {@link BinaryStore} decorator that stores each distinct content only once. The upload is hashed while it is
+ * spooled to a temp file, the blob is written to the delegate under a key derived from the hash (see {@link
+ * ContentBlob}) only if no other asset references it yet, and the asset's file-metadata records the hash so reads
+ * resolve to the shared blob.
+ * <p/>
+ * Reference counts are kept per application in the {@link #DICTIONARY_BINARY_REFERENCES} dictionary of the
+ * application entity and are only modified while holding a lock on the content hash. When the last reference is
+ * deleted the blob is removed from the delegate.
+ * <p/>
+ * Assets written before this store was enabled carry no hash and are passed straight through to the delegate. While
+ * it's disabled with usergrid.binary.deduplicate=false, new content is written straight to the delegate too, and the
+ * assets that have a hash are still read and released through their shared blob.
+ */
+public class DeduplicatingBinaryStore implements BinaryStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger( DeduplicatingBinaryStore.class );
+
+    public static final String CONTENT_HASH = "content-hash";
+
+    public static final String DICTIONARY_BINARY_REFERENCES = "binary_references";
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final String LOCK_PATH = "binaries";
+
+    private final BinaryStore delegate;
+    private final EntityManagerFactory emf;
+    private final LockManager lockManager;
+
+    private boolean enabled = true;
+
+
+    public DeduplicatingBinaryStore( BinaryStore delegate, EntityManagerFactory emf, LockManager lockManager ) {
+        this.delegate = delegate;
+        this.emf = emf;
+        this.lockManager = lockManager;
+    }
+
+
+    public void setEnabled( boolean enabled ) {
+        this.enabled = enabled;
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    @Override
+    public void write( UUID appId, Entity entity, InputStream inputStream ) throws IOException {
+
+        Map<String, Object> fileMetadata = AssetUtils.getFileMetadata( entity );
+        String previousHash = ( String ) fileMetadata.get( CONTENT_HASH );
+
+        if ( !enabled ) {
+            delegate.write( appId, entity, inputStream );
+
+            //the asset no longer reads from the shared blob
+            if ( previousHash != null ) {
+                fileMetadata.remove( CONTENT_HASH );
+                removeReference( appId, previousHash );
+            }
+            return;
+        }
+
+        File tempFile = File.createTempFile( entity.getUuid().toString(), "tmp" );
+        tempFile.deleteOnExit();
+
+        try {
+            String hash = spool( inputStream, tempFile );
+
+            if ( !hash.equals( previousHash ) ) {
+                addReference( appId, hash, tempFile );
+
+                if ( previousHash != null ) {
+                    removeReference( appId, previousHash );
+                }
+            }
+
+            fileMetadata.put( CONTENT_HASH, hash );
+            fileMetadata.put( AssetUtils.CHECKSUM, hash );
+            fileMetadata.put( AssetUtils.E_TAG, hash );
+            fileMetadata.put( AssetUtils.CONTENT_LENGTH, FileUtils.sizeOf( tempFile ) );
+            fileMetadata.put( AssetUtils.LAST_MODIFIED, System.currentTimeMillis() );
+
+            AssetMimeHandler.get().getMimeType( entity, tempFile );
+        }
+        finally {
+            FileUtils.deleteQuietly( tempFile );
+        }
+    }
+
+
+    @Override
+    public InputStream read( UUID appId, Entity entity ) throws IOException {
+        String hash = getContentHash( entity );
+        if ( hash == null ) {
+            return delegate.read( appId, entity );
+        }
+        return delegate.read( appId, new ContentBlob( hash ) );
+    }
+
+
+    @Override
+    public InputStream read( UUID appId, Entity entity, long offset, long length ) throws IOException {
+        String hash = getContentHash( entity );
+        if ( hash == null ) {
+            return delegate.read( appId, entity, offset, length );
+        }
+        return delegate.read( appId, new ContentBlob( hash ), offset, length );
+    }
+
+
+    @Override
+    public void delete( UUID appId, Entity entity ) {
+        String hash = getContentHash( entity );
+        if ( hash == null ) {
+            delegate.delete( appId, entity );
+            return;
+        }
+
+        try {
+            removeReference( appId, hash );
+        }
+        catch ( IOException e ) {
+            LOG.error( "Unable to release binary {} for entity {}", hash, entity.getUuid(), e );
+        }
+    }
+
+
+    /** Copy the stream to the file, returning the hex encoded hash of everything copied */
+    private String spool( InputStream inputStream, File file ) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( HASH_ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e ) {
+            throw new IOException( "Hash algorithm " + HASH_ALGORITHM + " is not available", e );
+        }
+
+        FileUtils.copyInputStreamToFile( new DigestInputStream( inputStream, digest ), file );
+
+        return Hex.encodeHexString( digest.digest() );
+    }
+
+
+    /** Increment the reference count of the blob, uploading the content if this is the first reference */
+    private void addReference( UUID appId, String hash, File content ) throws IOException {
+        Lock lock = lockManager.createLock( appId, LOCK_PATH, hash );
+        try {
+            lock.lock();
+
+            EntityManager em = emf.getEntityManager( appId );
+            long references = getReferenceCount( em, hash );
+
+            if ( references == 0 ) {
+                InputStream is = new BufferedInputStream( new FileInputStream( content ) );
+                try {
+                    delegate.write( appId, new ContentBlob( hash ), is );
+                }
+                finally {
+                    IOUtils.closeQuietly( is );
+                }
+            }
+
+            em.addToDictionary( em.getApplicationRef(), DICTIONARY_BINARY_REFERENCES, hash, references + 1 );
+        }
+        catch ( IOException e ) {
+            throw e;
+        }
+        catch ( Exception e ) {
+            throw new IOException( "Unable to add reference to binary " + hash, e );
+        }
+        finally {
+            unlock( lock );
+        }
+    }
+
+
+    /** Decrement the reference count of the blob, removing the content once nothing references it */
+    private void removeReference( UUID appId, String hash ) throws IOException {
+        Lock lock = lockManager.createLock( appId, LOCK_PATH, hash );
+        try {
+            lock.lock();
+
+            EntityManager em = emf.getEntityManager( appId );
+            long references = getReferenceCount( em, hash ) - 1;
+
+            if ( references > 0 ) {
+                em.addToDictionary( em.getApplicationRef(), DICTIONARY_BINARY_REFERENCES, hash, references );
+                return;
+            }
+
+            em.removeFromDictionary( em.getApplicationRef(), DICTIONARY_BINARY_REFERENCES, hash );
+            delegate.delete( appId, new ContentBlob( hash ) );
+        }
+        catch ( Exception e ) {
+            throw new IOException( "Unable to remove reference to binary " + hash, e );
+        }
+        finally {
+            unlock( lock );
+        }
+    }
+
+
+    private long getReferenceCount( EntityManager em, String hash ) throws Exception {
+        Object value = em.getDictionaryElementValue( em.getApplicationRef(), DICTIONARY_BINARY_REFERENCES, hash );
+        if ( value instanceof Number ) {
+            return ( ( Number ) value ).longValue();
+        }
+        return 0;
+    }
+
+
+    private void unlock( Lock lock ) {
+        try {
+            lock.unlock();
+        }
+        catch ( Exception e ) {
+            LOG.error( "Unable to release binary lock", e );
+        }
+    }
+
+
+    private static String getContentHash( Entity entity ) {
+        return ( String ) AssetUtils.getFileMetadata( entity ).get( CONTENT_HASH );
+    }
+}
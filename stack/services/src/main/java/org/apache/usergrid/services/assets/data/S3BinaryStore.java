@@ -168,8 +168,11 @@ public class S3BinaryStore implements BinaryStore {
                     try {
                         String eTag = future.get();
                         fileMetadata.put( AssetUtils.E_TAG, eTag );
-                        EntityManager em = emf.getEntityManager( appId );
-                        em.update( entity );
+                        // content blobs are transient, their owning asset is updated by the decorator
+                        if ( !( entity instanceof ContentBlob ) ) {
+                            EntityManager em = emf.getEntityManager( appId );
+                            em.update( entity );
+                        }
                         finalTempFile.delete();
                     }
                     catch ( Exception e ) {
@@ -17,9 +17,11 @@
 package org.apache.usergrid.services.roles;
 
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +61,19 @@ public class RolesService extends AbstractCollectionService {
     }
 
 
+    @Override
+    protected Map<String, UUID> getIdsForNames( ServiceContext context, List<String> names ) throws Exception {
+        if ( ( context.getOwner() != null ) && Group.ENTITY_TYPE.equals( context.getOwner().getType() ) ) {
+            Map<String, UUID> ids = new LinkedHashMap<String, UUID>();
+            for ( String name : names ) {
+                ids.put( name, SimpleRoleRef.getIdForGroupIdAndRoleName( context.getOwner().getUuid(), name ) );
+            }
+            return ids;
+        }
+        return super.getIdsForNames( context, names );
+    }
+
+
     /*
      * (non-Javadoc)
      * 
@@ -17,8 +17,11 @@
 package org.apache.usergrid.services.users;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -106,6 +109,35 @@ public class UsersService extends AbstractCollectionService {
     }
 
 
+    /** Emails that aren't a username are looked up together in the unique index of the email property */
+    @Override
+    protected Map<String, UUID> getIdsForNames( ServiceContext context, List<String> names ) throws Exception {
+        Map<String, EntityRef> aliases = em.getAlias( getEntityType(), names );
+
+        List<String> emails = new ArrayList<String>();
+        for ( String name : names ) {
+            Identifier id = Identifier.from( name );
+            if ( !aliases.containsKey( name ) && ( id != null ) && id.isEmail() ) {
+                emails.add( name );
+            }
+        }
+
+        Map<String, EntityRef> byEmail = emails.isEmpty() ? Collections.<String, EntityRef>emptyMap() :
+                                         em.getUniqueRefs( getEntityType(), "email", emails );
+
+        Map<String, UUID> ids = new LinkedHashMap<String, UUID>();
+        for ( String name : names ) {
+            EntityRef entity = aliases.containsKey( name ) ? aliases.get( name ) : byEmail.get( name );
+
+            if ( entity != null ) {
+                ids.put( name, entity.getUuid() );
+            }
+        }
+
+        return ids;
+    }
+
+
     @Override
     public ServiceResults invokeItemWithName( ServiceContext context, String name ) throws Exception {
         if ( "me".equals( name ) ) {
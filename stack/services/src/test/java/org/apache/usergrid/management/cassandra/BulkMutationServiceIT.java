@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.management.cassandra;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.usergrid.ServiceITSetup;
+import org.apache.usergrid.ServiceITSetupImpl;
+import org.apache.usergrid.ServiceITSuite;
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.batch.service.SchedulerService;
+import org.apache.usergrid.cassandra.CassandraResource;
+import org.apache.usergrid.cassandra.ClearShiroSubject;
+import org.apache.usergrid.cassandra.Concurrent;
+import org.apache.usergrid.management.OrganizationInfo;
+import org.apache.usergrid.management.UserInfo;
+import org.apache.usergrid.management.bulk.BulkMutationServiceImpl;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.entities.BulkMutation;
+import org.apache.usergrid.persistence.entities.JobData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@Concurrent
+public class BulkMutationServiceIT {
+
+    private static CassandraResource cassandraResource = ServiceITSuite.cassandraResource;
+
+    private static UUID applicationId;
+
+    @Rule
+    public ClearShiroSubject clearShiroSubject = new ClearShiroSubject();
+
+    @ClassRule
+    public static final ServiceITSetup setup = new ServiceITSetupImpl( cassandraResource );
+
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        UserInfo adminUser =
+                setup.getMgmtSvc().createAdminUser( "bulkadmin", "Bulk Admin", "bulkadmin@test.com", "test", false,
+                        false );
+        OrganizationInfo organization = setup.getMgmtSvc().createOrganization( "bulk-organization", adminUser, true );
+        applicationId = setup.getMgmtSvc().createApplication( organization.getUuid(), "bulk-application" ).getId();
+    }
+
+
+    @Test
+    public void updateByQuery() throws Exception {
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        UUID[] ids = createItems( em, "bulkupdates", 25 );
+
+        Map<String, Object> updates = new HashMap<String, Object>();
+        updates.put( "color", "red" );
+        // not mutable, must be cleaned out of the update
+        updates.put( "type", "somethingelse" );
+
+        BulkMutationServiceImpl service = newService();
+
+        UUID mutationId = service.schedule( applicationId, "bulkupdates", BulkMutation.Operation.UPDATE,
+                "select * where index >= 10", updates, 1000L );
+
+        runToCompletion( service, mutationId );
+
+        for ( int i = 0; i < ids.length; i++ ) {
+            Entity entity = em.get( ids[i] );
+
+            assertEquals( "bulkupdate", entity.getType() );
+            assertEquals( i >= 10 ? "red" : "blue", entity.getProperty( "color" ) );
+        }
+
+        BulkMutation mutation = service.getBulkMutation( applicationId, mutationId );
+        assertEquals( BulkMutation.State.FINISHED, mutation.getState() );
+        assertEquals( 15L, mutation.getProcessed().longValue() );
+    }
+
+
+    @Test
+    public void deleteByQuery() throws Exception {
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        UUID[] ids = createItems( em, "bulkdeletes", 25 );
+
+        BulkMutationServiceImpl service = newService();
+
+        UUID mutationId = service.schedule( applicationId, "bulkdeletes", BulkMutation.Operation.DELETE,
+                "select * where index < 20", null, 1000L );
+
+        runToCompletion( service, mutationId );
+
+        for ( int i = 0; i < 20; i++ ) {
+            assertNull( em.get( ids[i] ) );
+        }
+
+        Results remaining = em.searchCollection( em.getApplicationRef(), "bulkdeletes", new Query() );
+        assertEquals( 5, remaining.size() );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uniquePropertiesRejected() throws Exception {
+        Map<String, Object> updates = new HashMap<String, Object>();
+        updates.put( "username", "everyone" );
+
+        newService().schedule( applicationId, "users", BulkMutation.Operation.UPDATE, null, updates, null );
+    }
+
+
+    private BulkMutationServiceImpl newService() {
+        BulkMutationServiceImpl service = new BulkMutationServiceImpl();
+        service.setEmf( setup.getEmf() );
+        service.setSch( mock( SchedulerService.class ) );
+        // small pages so the job has to follow its cursor
+        service.setPageSize( 4 );
+        return service;
+    }
+
+
+    /** Run the job the way the scheduler would, until it stops delaying itself */
+    private void runToCompletion( BulkMutationServiceImpl service, UUID mutationId ) throws Exception {
+        JobData jobData = new JobData();
+        jobData.setProperty( BulkMutationServiceImpl.BULK_MUTATION_ID, mutationId );
+
+        for ( int i = 0; i < 100; i++ ) {
+            JobExecution execution = mock( JobExecution.class );
+            when( execution.getJobData() ).thenReturn( jobData );
+
+            service.doMutation( execution );
+
+            if ( service.getBulkMutation( applicationId, mutationId ).getState() == BulkMutation.State.FINISHED ) {
+                return;
+            }
+
+            verify( execution ).delay( anyLong() );
+        }
+    }
+
+
+    private UUID[] createItems( EntityManager em, String collectionName, int count ) throws Exception {
+        UUID[] ids = new UUID[count];
+
+        for ( int i = 0; i < count; i++ ) {
+            Map<String, Object> properties = new HashMap<String, Object>();
+            properties.put( "index", i );
+            properties.put( "color", "blue" );
+
+            ids[i] = em.create( collectionName, properties ).getUuid();
+        }
+
+        return ids;
+    }
+}
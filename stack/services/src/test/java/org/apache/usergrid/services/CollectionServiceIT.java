@@ -17,10 +17,13 @@
 package org.apache.usergrid.services;
 
 
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.apache.usergrid.cassandra.Concurrent;
 import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Schema;
 import org.apache.usergrid.persistence.exceptions.RequiredPropertyNotFoundException;
 import org.apache.usergrid.persistence.exceptions.UnexpectedEntityTypeException;
@@ -288,4 +291,47 @@ public class CollectionServiceIT extends AbstractServiceIT {
             //ok
         }
     }
+
+
+    @Test
+    public void testGetUsersByIdentifiers() throws Exception {
+        app.put( "username", "cst-batch-one" );
+        app.put( "email", "cst-batch-one@usergrid.com" );
+
+        Entity one = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+        assertNotNull( one );
+
+        app.put( "username", "cst-batch-two" );
+        app.put( "email", "cst-batch-two@usergrid.com" );
+
+        Entity two = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+        assertNotNull( two );
+
+        app.put( "path", "cst-batch-group" );
+
+        Entity group = app.testRequest( ServiceAction.POST, 1, "groups" ).getEntity();
+        assertNotNull( group );
+
+        // a missing name and an entity that isn't a user are left out
+        ServiceResults results = app.testRequest( ServiceAction.GET, 2, "users", Query.fromIdentifiers(
+                Arrays.asList( one.getUuid(), "cst-batch-two", "cst-batch-none", group.getUuid() ) ) );
+
+        assertEquals( one.getUuid(), results.getEntities().get( 0 ).getUuid() );
+        assertEquals( two.getUuid(), results.getEntities().get( 1 ).getUuid() );
+
+        // a user by email, names and uuids mixed in the order they were asked for
+        results = app.testRequest( ServiceAction.GET, 2, "users",
+                Query.fromIdentifiers( Arrays.asList( "cst-batch-one@usergrid.com", two.getUuid() ) ) );
+
+        assertEquals( one.getUuid(), results.getEntities().get( 0 ).getUuid() );
+        assertEquals( two.getUuid(), results.getEntities().get( 1 ).getUuid() );
+
+        // emails are read together and in any case
+        results = app.testRequest( ServiceAction.GET, 2, "users", Query.fromIdentifiers(
+                Arrays.asList( "CST-Batch-Two@usergrid.com", "cst-none@usergrid.com",
+                        "cst-batch-one@usergrid.com" ) ) );
+
+        assertEquals( two.getUuid(), results.getEntities().get( 0 ).getUuid() );
+        assertEquals( one.getUuid(), results.getEntities().get( 1 ).getUuid() );
+    }
 }
@@ -17,14 +17,17 @@
 package org.apache.usergrid.services;
 
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.apache.usergrid.cassandra.Concurrent;
 import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.exceptions.EntityNotFoundException;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -107,4 +110,66 @@ public class ConnectionsServiceIT extends AbstractServiceIT {
         // ok
       }
   }
+
+
+    @Test
+    public void testConnectionsOfSeveralOwners() throws Exception {
+        Entity alice = createUser( "fanout-alice" );
+        Entity bob = createUser( "fanout-bob" );
+
+        Entity carol = createUser( "fanout-carol" );
+        Entity dave = createUser( "fanout-dave" );
+
+        app.createConnection( alice, "mentors", carol );
+        app.createConnection( bob, "mentors", dave );
+
+        Entity felix = app.doCreate( "cat", "fanout-felix" );
+        Entity tom = app.doCreate( "cat", "fanout-tom" );
+
+        app.createConnection( carol, "likes", felix );
+        app.createConnection( dave, "likes", tom );
+
+        Query owners = Query.fromQL( "select * where username='fanout-alice' or username='fanout-bob'" );
+
+        // the connections of both owners are read at once, each under the path of its owner
+        ServiceResults results = app.testRequest( ServiceAction.GET, 2, "users", owners, "mentors" );
+
+        Map<String, String> paths = getPaths( results );
+        assertEquals( "/users/" + alice.getUuid() + "/mentors/" + carol.getUuid(), paths.get( "fanout-carol" ) );
+        assertEquals( "/users/" + bob.getUuid() + "/mentors/" + dave.getUuid(), paths.get( "fanout-dave" ) );
+
+        // the next hop goes on from the owner each entity was reached from
+        results = app.testRequest( ServiceAction.GET, 2, "users", owners, "mentors", "likes" );
+
+        paths = getPaths( results );
+        assertEquals( "/users/" + alice.getUuid() + "/mentors/" + carol.getUuid() + "/likes/" + felix.getUuid(),
+                paths.get( "fanout-felix" ) );
+        assertEquals( "/users/" + bob.getUuid() + "/mentors/" + dave.getUuid() + "/likes/" + tom.getUuid(),
+                paths.get( "fanout-tom" ) );
+
+        // filtered by the type of the connected entities
+        app.testRequest( ServiceAction.GET, 2, "users", owners, "mentors", "likes", "cats" );
+        app.testRequest( ServiceAction.GET, 0, "users", owners, "mentors", "likes", "dogs" );
+    }
+
+
+    private Entity createUser( String username ) throws Exception {
+        app.put( "username", username );
+        app.put( "email", username + "@apigee.com" );
+
+        return app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+    }
+
+
+    /** The path of each entity in the results, by name */
+    private Map<String, String> getPaths( ServiceResults results ) {
+        Map<String, String> paths = new HashMap<String, String>();
+
+        for ( Entity entity : results.getEntities() ) {
+            String name = entity.getName() != null ? entity.getName() : ( String ) entity.getProperty( "username" );
+            paths.put( name, ( String ) entity.getMetadata( "path" ) );
+        }
+
+        return paths;
+    }
 }
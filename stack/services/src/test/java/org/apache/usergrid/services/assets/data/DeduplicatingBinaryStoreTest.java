@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.apache.usergrid.locking.singlenode.SingleNodeLockManagerImpl;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.entities.Asset;
+
+import org.apache.commons.io.IOUtils;
+
+import static org.apache.usergrid.utils.ConversionUtils.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class DeduplicatingBinaryStoreTest {
+
+    private static UUID appId = new UUID( 0, 1 );
+
+    private Map<String, byte[]> blobs;
+    private Map<Object, Object> references;
+    private DeduplicatingBinaryStore store;
+
+
+    @Before
+    public void setup() throws Exception {
+        blobs = new HashMap<String, byte[]>();
+        references = new HashMap<Object, Object>();
+
+        EntityManager em = mock( EntityManager.class );
+        EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        when( emf.getEntityManager( appId ) ).thenReturn( em );
+
+        when( em.getDictionaryElementValue( any( EntityRef.class ), anyString(), anyString() ) )
+                .thenAnswer( new Answer<Object>() {
+                    @Override
+                    public Object answer( InvocationOnMock invocation ) {
+                        return references.get( invocation.getArguments()[2] );
+                    }
+                } );
+
+        doAnswer( new Answer<Object>() {
+            @Override
+            public Object answer( InvocationOnMock invocation ) {
+                references.put( invocation.getArguments()[2], invocation.getArguments()[3] );
+                return null;
+            }
+        } ).when( em ).addToDictionary( any( EntityRef.class ), anyString(), any(), any() );
+
+        doAnswer( new Answer<Object>() {
+            @Override
+            public Object answer( InvocationOnMock invocation ) {
+                references.remove( invocation.getArguments()[2] );
+                return null;
+            }
+        } ).when( em ).removeFromDictionary( any( EntityRef.class ), eq(
+                DeduplicatingBinaryStore.DICTIONARY_BINARY_REFERENCES ), any() );
+
+        store = new DeduplicatingBinaryStore( new MemoryBinaryStore(), emf, new SingleNodeLockManagerImpl() );
+    }
+
+
+    @Test
+    public void identicalContentStoredOnce() throws Exception {
+        Asset first = newAsset();
+        Asset second = newAsset();
+
+        store.write( appId, first, stream( "same bytes" ) );
+        store.write( appId, second, stream( "same bytes" ) );
+
+        assertEquals( 1, blobs.size() );
+        assertEquals( 1, references.size() );
+        assertEquals( 2L, references.values().iterator().next() );
+
+        assertEquals( "same bytes", IOUtils.toString( store.read( appId, second ) ) );
+    }
+
+
+    @Test
+    public void lastDeleteRemovesBlob() throws Exception {
+        Asset first = newAsset();
+        Asset second = newAsset();
+
+        store.write( appId, first, stream( "shared" ) );
+        store.write( appId, second, stream( "shared" ) );
+
+        store.delete( appId, first );
+        assertEquals( 1, blobs.size() );
+        assertEquals( "shared", IOUtils.toString( store.read( appId, second ) ) );
+
+        store.delete( appId, second );
+        assertEquals( 0, blobs.size() );
+        assertEquals( 0, references.size() );
+    }
+
+
+    @Test
+    public void overwriteReleasesPreviousContent() throws Exception {
+        Asset asset = newAsset();
+
+        store.write( appId, asset, stream( "version one" ) );
+        store.write( appId, asset, stream( "version two" ) );
+
+        assertEquals( 1, blobs.size() );
+        assertEquals( "version two", IOUtils.toString( store.read( appId, asset ) ) );
+        assertNotNull( AssetUtils.getFileMetadata( asset ).get( DeduplicatingBinaryStore.CONTENT_HASH ) );
+    }
+
+
+    @Test
+    public void disabledWritesThrough() throws Exception {
+        Asset shared = newAsset();
+        store.write( appId, shared, stream( "before" ) );
+
+        store.setEnabled( false );
+
+        Asset plain = newAsset();
+        store.write( appId, plain, stream( "after" ) );
+        assertNull( AssetUtils.getFileMetadata( plain ).get( DeduplicatingBinaryStore.CONTENT_HASH ) );
+        assertEquals( "after", IOUtils.toString( store.read( appId, plain ) ) );
+
+        //written before it was disabled, still read from the shared blob
+        assertEquals( "before", IOUtils.toString( store.read( appId, shared ) ) );
+
+        //overwritten while disabled, the shared blob is released
+        store.write( appId, shared, stream( "rewritten" ) );
+        assertNull( AssetUtils.getFileMetadata( shared ).get( DeduplicatingBinaryStore.CONTENT_HASH ) );
+        assertEquals( 0, references.size() );
+        assertEquals( 2, blobs.size() );
+    }
+
+
+    private static Asset newAsset() {
+        Asset asset = new Asset();
+        asset.setUuid( UUID.randomUUID() );
+        return asset;
+    }
+
+
+    private static InputStream stream( String content ) {
+        return new ByteArrayInputStream( bytes( content ) );
+    }
+
+
+    /** Keeps blobs in the enclosing test's map keyed the same way the real stores are */
+    private class MemoryBinaryStore implements BinaryStore {
+
+        @Override
+        public void write( UUID appId, Entity entity, InputStream inputStream ) throws IOException {
+            blobs.put( AssetUtils.buildAssetKey( appId, entity ), IOUtils.toByteArray( inputStream ) );
+        }
+
+
+        @Override
+        public InputStream read( UUID appId, Entity entity ) throws IOException {
+            return new ByteArrayInputStream( blobs.get( AssetUtils.buildAssetKey( appId, entity ) ) );
+        }
+
+
+        @Override
+        public InputStream read( UUID appId, Entity entity, long offset, long length ) throws IOException {
+            return read( appId, entity );
+        }
+
+
+        @Override
+        public void delete( UUID appId, Entity entity ) {
+            blobs.remove( AssetUtils.buildAssetKey( appId, entity ) );
+        }
+    }
+}
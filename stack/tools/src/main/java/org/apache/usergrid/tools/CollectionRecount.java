@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.tools;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.Results.Level;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.cassandra.CassandraService;
+import org.apache.usergrid.persistence.entities.Application;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static me.prettyprint.hector.api.factory.HFactory.createCounterColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createMutator;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_COUNTERS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
+import static org.apache.usergrid.persistence.cassandra.EntityManagerImpl.APPLICATION_COLLECTION;
+import static org.apache.usergrid.persistence.cassandra.EntityManagerImpl.APPLICATION_ENTITIES;
+import static org.apache.usergrid.persistence.cassandra.Serializers.ue;
+
+
+/**
+ * Counts the entities in application collections and compares them with the application.collection counters that
+ * back getApplicationCollectionSize. The counters are updated in the same batch as the entity writes, so a failed
+ * batch or a replayed hint can leave them off by a few. With -fix the counters are corrected by the difference.
+ * <p/>
+ * Increments queued in the counter batchers of live nodes aren't in the counters yet, so a collection that is off is
+ * counted again after -settle seconds, longer than the counter batch interval. It is only corrected if neither its
+ * counter nor its entities changed in between. The corrections are written to the counters directly, not queued in
+ * a batcher that the tool would exit before flushing.
+ * <p/>
+ * Events are stored as messages, not collection entities, so their counter is left alone.
+ */
+public class CollectionRecount extends ToolBase {
+
+    private static final String APPLICATION_ARG = "app";
+
+    private static final String COLLECTION_ARG = "col";
+
+    private static final String FIX_ARG = "fix";
+
+    private static final String SETTLE_ARG = "settle";
+
+    private static final int DEFAULT_SETTLE_SECONDS = 60;
+
+    private static final int PAGE_SIZE = 1000;
+
+
+    private static final Logger logger = LoggerFactory.getLogger( CollectionRecount.class );
+
+
+    @Override
+    @SuppressWarnings("static-access")
+    public Options createOptions() {
+
+        Option hostOption =
+                OptionBuilder.withArgName( "host" ).hasArg().isRequired( true ).withDescription( "Cassandra host" )
+                             .create( "host" );
+
+        Option appOption = OptionBuilder.withArgName( APPLICATION_ARG ).hasArg().isRequired( false )
+                                        .withDescription( "application id or app name" ).create( APPLICATION_ARG );
+
+        Option collectionOption = OptionBuilder.withArgName( COLLECTION_ARG ).hasArg().isRequired( false )
+                                               .withDescription( "collection name" ).create( COLLECTION_ARG );
+
+        Option fixOption = OptionBuilder.isRequired( false )
+                                        .withDescription( "correct counters that don't match the collection" )
+                                        .create( FIX_ARG );
+
+        Option settleOption = OptionBuilder.withArgName( SETTLE_ARG ).hasArg().isRequired( false ).withDescription(
+                "seconds to wait before counting a collection that is off again, default " + DEFAULT_SETTLE_SECONDS )
+                                           .create( SETTLE_ARG );
+
+        Options options = new Options();
+        options.addOption( hostOption );
+        options.addOption( appOption );
+        options.addOption( collectionOption );
+        options.addOption( fixOption );
+        options.addOption( settleOption );
+
+        return options;
+    }
+
+
+    @Override
+    public void runTool( CommandLine line ) throws Exception {
+        startSpring();
+
+        boolean fix = line.hasOption( FIX_ARG );
+        long settleMillis = Integer.parseInt(
+                line.getOptionValue( SETTLE_ARG, String.valueOf( DEFAULT_SETTLE_SECONDS ) ) ) * 1000L;
+
+        logger.info( "Starting collection recount, fix is {}", fix );
+
+        for ( UUID appId : getAppIds( line ) ) {
+
+            EntityManager em = emf.getEntityManager( appId );
+
+            // the counter and the count of each collection that is off
+            Map<String, long[]> mismatched = new LinkedHashMap<String, long[]>();
+
+            for ( String collection : getCollections( line, em ) ) {
+
+                if ( Schema.isAssociatedEntityType( collection ) || "events".equals( collection ) ) {
+                    continue;
+                }
+
+                long stored = em.getApplicationCollectionSize( collection );
+                long actual = count( em, collection );
+
+                if ( stored == actual ) {
+                    logger.info( "Collection {} in app {} has {} entities",
+                            new Object[] { collection, appId, actual } );
+                    continue;
+                }
+
+                logger.warn( "Collection {} in app {} has {} entities but its counter is {}", new Object[] {
+                        collection, appId, actual, stored
+                } );
+
+                mismatched.put( collection, new long[] { stored, actual } );
+            }
+
+            if ( fix && !mismatched.isEmpty() ) {
+                fix( em, appId, mismatched, settleMillis );
+            }
+        }
+
+        logger.info( "Finished collection recount" );
+    }
+
+
+    /** Correct the counters of the collections that are still off, and by as much, after the settle time */
+    private void fix( EntityManager em, UUID appId, Map<String, long[]> mismatched, long settleMillis )
+            throws Exception {
+
+        logger.info( "Waiting {} ms for queued counter increments before counting again", settleMillis );
+        Thread.sleep( settleMillis );
+
+        Mutator<UUID> m = createMutator( cass.getApplicationKeyspace( appId ), ue );
+
+        long totalDelta = 0;
+
+        for ( Map.Entry<String, long[]> entry : mismatched.entrySet() ) {
+            String collection = entry.getKey();
+
+            long stored = em.getApplicationCollectionSize( collection );
+            long actual = count( em, collection );
+
+            if ( ( stored != entry.getValue()[0] ) || ( actual != entry.getValue()[1] ) ) {
+                logger.warn( "Collection {} in app {} is being written to, not correcting it", collection, appId );
+                continue;
+            }
+
+            logger.info( "Adjusting {} for app {} by {}",
+                    new Object[] { APPLICATION_COLLECTION + collection, appId, actual - stored } );
+
+            m.addCounter( appId, ENTITY_COUNTERS.toString(),
+                    createCounterColumn( APPLICATION_COLLECTION + collection, actual - stored ) );
+            totalDelta += actual - stored;
+        }
+
+        if ( totalDelta != 0 ) {
+            logger.info( "Adjusting {} for app {} by {}", new Object[] { APPLICATION_ENTITIES, appId, totalDelta } );
+            m.addCounter( appId, ENTITY_COUNTERS.toString(), createCounterColumn( APPLICATION_ENTITIES, totalDelta ) );
+        }
+
+        if ( m.getPendingMutationCount() > 0 ) {
+            batchExecute( m, CassandraService.RETRY_COUNT );
+        }
+    }
+
+
+    /** Page through the ids of the collection */
+    private long count( EntityManager em, String collectionName ) throws Exception {
+        Application app = em.getApplication();
+
+        Query query = new Query();
+        query.setLimit( PAGE_SIZE );
+        query.setResultsLevel( Level.IDS );
+
+        long count = 0;
+        Results r;
+
+        do {
+            r = em.searchCollection( app, collectionName, query );
+            count += r.size();
+            query.setCursor( r.getCursor() );
+        }
+        while ( r.getCursor() != null );
+
+        return count;
+    }
+
+
+    private Collection<UUID> getAppIds( CommandLine line ) throws Exception {
+        String appId = line.getOptionValue( APPLICATION_ARG );
+
+        if ( appId != null ) {
+
+            UUID id = UUIDUtils.tryExtractUUID( appId );
+
+            if ( id == null ) {
+                id = emf.lookupApplication( appId );
+            }
+
+            if ( id == null ) {
+                throw new IllegalArgumentException( "Application " + appId + " not found" );
+            }
+
+            return Collections.singleton( id );
+        }
+
+        return emf.getApplications().values();
+    }
+
+
+    private Set<String> getCollections( CommandLine line, EntityManager em ) throws Exception {
+
+        String passedName = line.getOptionValue( COLLECTION_ARG );
+
+        if ( passedName != null ) {
+            return Collections.singleton( passedName );
+        }
+
+        return em.getApplicationCollections();
+    }
+}
@@ -229,6 +229,15 @@ public class Import extends ToolBase {
         }
 
 
+        importEntities( jp, em );
+
+        logger.info( "----- End of application:" + application.getName() );
+        jp.close();
+    }
+
+
+    /** Create the entities read from the parser, up to the end of the array they're in */
+    protected void importEntities( JsonParser jp, EntityManager em ) throws Exception {
         while ( jp.nextValue() != JsonToken.END_ARRAY ) {
             @SuppressWarnings("unchecked") Map<String, Object> entityProps = jp.readValueAs( HashMap.class );
             // Import/create the entity
@@ -253,18 +262,15 @@ public class Import extends ToolBase {
 
             echo( entityProps );
         }
-
-        logger.info( "----- End of application:" + application.getName() );
-        jp.close();
     }
 
 
-    private String getType( Map<String, Object> entityProps ) {
+    protected String getType( Map<String, Object> entityProps ) {
         return ( String ) entityProps.get( PROPERTY_TYPE );
     }
 
 
-    private UUID getId( Map<String, Object> entityProps ) {
+    protected UUID getId( Map<String, Object> entityProps ) {
         return UUID.fromString( ( String ) entityProps.get( PROPERTY_UUID ) );
     }
 
@@ -340,7 +346,7 @@ public class Import extends ToolBase {
     }
 
 
-    private JsonParser getJsonParserForFile( File organizationFile ) throws Exception {
+    protected JsonParser getJsonParserForFile( File organizationFile ) throws Exception {
         JsonParser jp = jsonFactory.createJsonParser( organizationFile );
         jp.setCodec( new ObjectMapper() );
         return jp;
@@ -430,15 +436,21 @@ public class Import extends ToolBase {
 
         EntityManager em = emf.getEntityManager( appId );
 
-        while ( jp.nextToken() != JsonToken.END_OBJECT ) {
-            importEntitysStuff( jp, em );
-        }
+        importEntitiesStuff( jp, em );
 
         logger.info( "----- End of collections -----" );
         jp.close();
     }
 
 
+    /** Import the collections, connections and dictionaries of the entities read from the parser, up to its end */
+    protected void importEntitiesStuff( JsonParser jp, EntityManager em ) throws Exception {
+        while ( jp.nextToken() != JsonToken.END_OBJECT ) {
+            importEntitysStuff( jp, em );
+        }
+    }
+
+
     /**
      * Imports the entity's connecting references (collections and connections)
      *
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.tools;
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.usergrid.management.OrganizationInfo;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.cassandra.EntityChangeLog;
+import org.apache.usergrid.persistence.cassandra.EntityChangeLog.Change;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+
+import com.google.common.collect.BiMap;
+
+import static org.apache.usergrid.utils.ConversionUtils.uuid;
+import static org.apache.usergrid.utils.UUIDUtils.maxTimeUUID;
+import static org.apache.usergrid.utils.UUIDUtils.minTimeUUID;
+
+
+/**
+ * Exports the entities that changed since the last run, read from the entity change log that's written when
+ * usergrid.entity.changelog is set, instead of scanning the collections. Each collection with changes gets a file with
+ * a json object on each line, an upsert with the entity or a delete with its uuid and type. The time exported up to is
+ * kept for each collection in the output directory. A collection without one is exported from -startTime, or is only
+ * marked as exported up to now if it's not given, so the first incremental export follows a full {@link Export}.
+ * Changes newer than -lag milliseconds are left to the next run, so writes still in flight aren't skipped. Changes
+ * expire after usergrid.entity.changelog.retention.seconds, so runs further apart than that miss changes.
+ */
+public class IncrementalExport extends ExportingToolBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger( IncrementalExport.class );
+
+    private static final String WATERMARKS_FILE = "changes.watermarks";
+
+    private static final String START_TIME = "startTime";
+    private static final String LAG = "lag";
+    private static final String THREADS = "threads";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+
+    @Override
+    @SuppressWarnings("static-access")
+    public Options createOptions() {
+
+        Options options = super.createOptions();
+
+        Option startTime = OptionBuilder.hasArg()
+                                        .withDescription( "export collections without a watermark from -startTime" )
+                                        .create( START_TIME );
+
+        Option lag = OptionBuilder.hasArg().withDescription( "milliseconds of recent changes to leave -lag" )
+                                  .create( LAG );
+
+        Option threads = OptionBuilder.hasArg().withDescription( "collections exported at once -threads" )
+                                      .create( THREADS );
+
+        options.addOption( startTime );
+        options.addOption( lag );
+        options.addOption( threads );
+
+        return options;
+    }
+
+
+    @Override
+    public void runTool( CommandLine line ) throws Exception {
+
+        startSpring();
+        setVerbose( line );
+
+        applyOrgId( line );
+        prepareBaseOutputFileName( line );
+        outputDir = createOutputParentDir();
+        LOG.info( "Export directory: {}", outputDir.getAbsolutePath() );
+
+        Long startTime = line.hasOption( START_TIME ) ? Long.parseLong( line.getOptionValue( START_TIME ) ) : null;
+        long lag = line.hasOption( LAG ) ? Long.parseLong( line.getOptionValue( LAG ) ) : 60 * 1000;
+        int threads = line.hasOption( THREADS ) ? Integer.parseInt( line.getOptionValue( THREADS ) ) : 4;
+
+        long until = System.currentTimeMillis() - lag;
+        String watermark = maxTimeUUID( until ).toString();
+
+        Properties watermarks = loadWatermarks();
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        Map<String, Future<Long>> exports = new LinkedHashMap<String, Future<Long>>();
+
+        try {
+            for ( Entry<UUID, String> organization : getOrganizations().entrySet() ) {
+
+                BiMap<UUID, String> applications =
+                        managementService.getApplicationsForOrganization( organization.getKey() );
+
+                for ( Entry<UUID, String> application : applications.entrySet() ) {
+
+                    EntityManager em = emf.getEntityManager( application.getKey() );
+
+                    for ( String collectionName : em.getApplicationCollections() ) {
+                        String key = application.getKey() + "/" + collectionName;
+                        String after = watermarks.getProperty( key );
+
+                        if ( after == null && startTime == null ) {
+                            watermarks.setProperty( key, watermark );
+                            continue;
+                        }
+
+                        exports.put( key, executor.submit(
+                                new CollectionExport( em, application.getKey(), application.getValue(), collectionName,
+                                        after != null ? uuid( after ) : minTimeUUID( startTime ), until ) ) );
+                    }
+                }
+            }
+
+            //a collection's watermark only moves once all its changes until now are written
+            for ( Entry<String, Future<Long>> export : exports.entrySet() ) {
+                try {
+                    long count = export.getValue().get();
+                    watermarks.setProperty( export.getKey(), watermark );
+                    LOG.info( "Exported {} changes of {}", count, export.getKey() );
+                }
+                catch ( ExecutionException e ) {
+                    LOG.error( "Unable to export the changes of " + export.getKey(), e.getCause() );
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            saveWatermarks( watermarks );
+        }
+    }
+
+
+    /** @return Map of Organization UUID -> Name */
+    private Map<UUID, String> getOrganizations() throws Exception {
+
+        if ( orgId == null ) {
+            return managementService.getOrganizations();
+        }
+
+        OrganizationInfo info = managementService.getOrganizationByUuid( orgId );
+
+        if ( info == null ) {
+            LOG.error( "Organization info is null!" );
+            System.exit( 1 );
+        }
+
+        Map<UUID, String> organizationNames = new HashMap<UUID, String>();
+        organizationNames.put( orgId, info.getName() );
+
+        return organizationNames;
+    }
+
+
+    private Properties loadWatermarks() throws Exception {
+        Properties watermarks = new Properties();
+        File file = new File( outputDir, WATERMARKS_FILE );
+
+        if ( file.exists() ) {
+            InputStream in = new FileInputStream( file );
+            try {
+                watermarks.load( in );
+            }
+            finally {
+                in.close();
+            }
+        }
+
+        return watermarks;
+    }
+
+
+    /** Write the watermarks next to the old ones first, so a failed write keeps the old ones */
+    private void saveWatermarks( Properties watermarks ) throws Exception {
+        File file = new File( outputDir, WATERMARKS_FILE );
+        File temp = new File( outputDir, WATERMARKS_FILE + ".tmp" );
+
+        OutputStream out = new FileOutputStream( temp );
+        try {
+            watermarks.store( out, "The time uuid each collection is exported up to" );
+        }
+        finally {
+            out.close();
+        }
+
+        if ( !temp.renameTo( file ) && !( file.delete() && temp.renameTo( file ) ) ) {
+            throw new RuntimeException( "Unable to save the watermarks to " + file.getAbsolutePath() );
+        }
+    }
+
+
+    /** Writes the changes of a collection after the watermark, returns the number of changes written */
+    class CollectionExport implements Callable<Long> {
+
+        private final EntityManager em;
+        private final UUID applicationId;
+        private final String applicationName;
+        private final String collectionName;
+        private final UUID after;
+        private final long until;
+
+
+        CollectionExport( EntityManager em, UUID applicationId, String applicationName, String collectionName,
+                          UUID after, long until ) {
+            this.em = em;
+            this.applicationId = applicationId;
+            this.applicationName = applicationName;
+            this.collectionName = collectionName;
+            this.after = after;
+            this.until = until;
+        }
+
+
+        @Override
+        public Long call() throws Exception {
+            File file = createOutputFile( "changes", applicationName + "." + collectionName );
+            Writer out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ) );
+
+            long count = 0;
+
+            try {
+                UUID last = after;
+
+                while ( true ) {
+                    List<Change> changes = EntityChangeLog
+                            .getChanges( cass, applicationId, collectionName, last, until, MAX_ENTITY_FETCH );
+
+                    if ( changes.isEmpty() ) {
+                        break;
+                    }
+
+                    count += write( out, changes );
+                    last = changes.get( changes.size() - 1 ).getId();
+                }
+            }
+            finally {
+                out.close();
+            }
+
+            if ( count == 0 && !file.delete() ) {
+                LOG.warn( "Unable to delete the empty export {}", file.getAbsolutePath() );
+            }
+
+            return count;
+        }
+
+
+        /** Write the last change of each entity in the page, with the entities as they are now */
+        private long write( Writer out, List<Change> changes ) throws Exception {
+            Map<UUID, Change> latest = new LinkedHashMap<UUID, Change>();
+
+            for ( Change change : changes ) {
+                latest.remove( change.getEntityId() );
+                latest.put( change.getEntityId(), change );
+            }
+
+            List<UUID> upserts = new ArrayList<UUID>();
+
+            for ( Change change : latest.values() ) {
+                if ( !change.isDelete() ) {
+                    upserts.add( change.getEntityId() );
+                }
+            }
+
+            Map<UUID, Entity> entities = new HashMap<UUID, Entity>();
+
+            if ( !upserts.isEmpty() ) {
+                for ( Entity entity : em.get( upserts ).getEntities() ) {
+                    entities.put( entity.getUuid(), entity );
+                }
+            }
+
+            long count = 0;
+
+            for ( Change change : latest.values() ) {
+                Map<String, Object> line = new LinkedHashMap<String, Object>();
+                line.put( "op", change.getOperation() );
+
+                if ( change.isDelete() ) {
+                    line.put( "uuid", change.getEntityId() );
+                    line.put( "type", change.getEntityType() );
+                }
+                else {
+                    Entity entity = entities.get( change.getEntityId() );
+
+                    //deleted since, and its delete is later in the log
+                    if ( entity == null ) {
+                        continue;
+                    }
+
+                    line.put( "entity", entity );
+                }
+
+                out.write( mapper.writeValueAsString( line ) );
+                out.write( '\n' );
+                count++;
+            }
+
+            echo( "Wrote " + count + " changes of " + applicationName + "/" + collectionName );
+
+            return count;
+        }
+    }
+}
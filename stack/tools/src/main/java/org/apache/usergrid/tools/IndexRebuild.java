@@ -17,33 +17,62 @@
 package org.apache.usergrid.tools;
 
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
-import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.IndexBucketLocator.IndexType;
 import org.apache.usergrid.persistence.Results;
-import org.apache.usergrid.persistence.entities.Application;
-import org.apache.usergrid.persistence.exceptions.DuplicateUniquePropertyExistsException;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl;
 import org.apache.usergrid.utils.UUIDUtils;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
+import org.apache.commons.io.IOUtils;
 
+import com.google.common.util.concurrent.RateLimiter;
+
+import me.prettyprint.hector.api.beans.HColumn;
+
+import static org.apache.usergrid.persistence.Schema.DICTIONARY_COLLECTIONS;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_ID_SETS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 
 
 /**
- * This is a utility to load all entities in an application and re-save them, this forces the secondary indexing to be
- * updated.
+ * This is a utility to rebuild the secondary indexes of all entities in an application. Every index bucket of a
+ * collection is read by its own worker, and only the index entries of the loaded entities are rewritten, the properties
+ * themselves are left alone. The number of entities reindexed per second is capped so the rebuild can run against a
+ * live cluster.
+ * <p/>
+ * When a checkpoint file is given, the last entity of every bucket is recorded in it after each page, and a rebuild
+ * started with the same file resumes from there.
+ * <p/>
+ * IndexRebuild -host 127.0.0.1:9160 -app myapp -col users -workers 8 -rate 1000 -checkpoint rebuild.properties
  *
  * @author tnine
  */
@@ -59,14 +88,38 @@ public class IndexRebuild extends ToolBase {
      */
     private static final String COLLECTION_ARG = "col";
 
+    /** The number of buckets rebuilt at the same time */
+    private static final String WORKERS_ARG = "workers";
+
+    /** The max number of entities reindexed per second */
+    private static final String RATE_ARG = "rate";
+
+    /** The file progress is recorded in */
+    private static final String CHECKPOINT_ARG = "checkpoint";
+
     /**
      *
      */
     private static final int PAGE_SIZE = 100;
 
+    private static final int DEFAULT_WORKERS = 4;
+
+    private static final int DEFAULT_RATE = 500;
+
+    /** Checkpoint value of a bucket that has been rebuilt completely */
+    private static final String DONE = "done";
+
 
     private static final Logger logger = LoggerFactory.getLogger( IndexRebuild.class );
 
+    private RateLimiter rateLimiter;
+
+    private File checkpointFile;
+
+    private final Properties checkpoints = new Properties();
+
+    private final AtomicLong count = new AtomicLong();
+
 
     @Override
     @SuppressWarnings("static-access")
@@ -82,11 +135,27 @@ public class IndexRebuild extends ToolBase {
         Option collectionOption = OptionBuilder.withArgName( COLLECTION_ARG ).hasArg().isRequired( false )
                                                .withDescription( "colleciton name" ).create( COLLECTION_ARG );
 
+        Option workersOption = OptionBuilder.withArgName( WORKERS_ARG ).hasArg().isRequired( false )
+                                            .withDescription( "index buckets rebuilt in parallel, default "
+                                                    + DEFAULT_WORKERS ).create( WORKERS_ARG );
+
+        Option rateOption = OptionBuilder.withArgName( RATE_ARG ).hasArg().isRequired( false )
+                                         .withDescription(
+                                                 "max entities reindexed per second, default " + DEFAULT_RATE )
+                                         .create( RATE_ARG );
+
+        Option checkpointOption = OptionBuilder.withArgName( CHECKPOINT_ARG ).hasArg().isRequired( false )
+                                               .withDescription( "file to record progress in and resume from" )
+                                               .create( CHECKPOINT_ARG );
+
 
         Options options = new Options();
         options.addOption( hostOption );
         options.addOption( appOption );
         options.addOption( collectionOption );
+        options.addOption( workersOption );
+        options.addOption( rateOption );
+        options.addOption( checkpointOption );
 
         return options;
     }
@@ -102,24 +171,41 @@ public class IndexRebuild extends ToolBase {
     public void runTool( CommandLine line ) throws Exception {
         startSpring();
 
-        logger.info( "Starting index rebuild" );
+        int workers = Integer.parseInt( line.getOptionValue( WORKERS_ARG, String.valueOf( DEFAULT_WORKERS ) ) );
+        double rate = Double.parseDouble( line.getOptionValue( RATE_ARG, String.valueOf( DEFAULT_RATE ) ) );
+
+        rateLimiter = RateLimiter.create( rate );
 
-        /**
-         * Goes through each app id specified
-         */
-        for ( UUID appId : getAppIds( line ) ) {
+        if ( line.hasOption( CHECKPOINT_ARG ) ) {
+            checkpointFile = new File( line.getOptionValue( CHECKPOINT_ARG ) );
+            loadCheckpoints();
+        }
+
+        logger.info( "Starting index rebuild with {} workers at {} entities per second", workers, rate );
+
+        ExecutorService executor = Executors.newFixedThreadPool( workers );
 
-            logger.info( "Reindexing for app id: {}", appId );
+        try {
+            /**
+             * Goes through each app id specified
+             */
+            for ( UUID appId : getAppIds( line ) ) {
 
-            Set<String> collections = getCollections( line, appId );
+                logger.info( "Reindexing for app id: {}", appId );
 
-            for ( String collection : collections ) {
+                Set<String> collections = getCollections( line, appId );
 
-                reindex( appId, collection );
+                for ( String collection : collections ) {
+
+                    reindex( executor, appId, collection );
+                }
             }
         }
+        finally {
+            executor.shutdown();
+        }
 
-        logger.info( "Finished index rebuild" );
+        logger.info( "Finished index rebuild.  Reindexed {} entities", count.get() );
     }
 
 
@@ -165,41 +251,171 @@ public class IndexRebuild extends ToolBase {
     }
 
 
-    /** The application id. The collection name. */
-    private void reindex( UUID appId, String collectionName ) throws Exception {
+    /** The application id. The collection name. Rebuild every bucket of the collection in parallel */
+    private void reindex( ExecutorService executor, UUID appId, String collectionName ) throws Exception {
         logger.info( "Reindexing collection: {} for app id: {}", collectionName, appId );
 
-        EntityManager em = emf.getEntityManager( appId );
-        Application app = em.getApplication();
+        EntityManagerImpl em = ( EntityManagerImpl ) emf.getEntityManager( appId );
 
-        // search for all orgs
+        List<String> buckets =
+                em.getIndexBucketLocator().getBuckets( appId, IndexType.COLLECTION, collectionName );
 
-        Query query = new Query();
-        query.setLimit( PAGE_SIZE );
-        Results r = null;
+        List<Future<Long>> results = new ArrayList<Future<Long>>( buckets.size() );
 
-        do {
+        for ( String bucket : buckets ) {
+            results.add( executor.submit( new BucketRebuild( em, appId, collectionName, bucket ) ) );
+        }
 
-            r = em.searchCollection( app, collectionName, query );
+        long reindexed = 0;
 
-            for ( Entity entity : r.getEntities() ) {
-                logger.info( "Updating entity type: {} with id: {} for app id: {}", new Object[] {
-                        entity.getType(), entity.getUuid(), appId
+        // wait for every bucket, a failed bucket is rebuilt again from its checkpoint on the next run
+        for ( Future<Long> result : results ) {
+            try {
+                reindexed += result.get();
+            }
+            catch ( Exception e ) {
+                logger.error( "Unable to rebuild a bucket of collection {} for app id {}", new Object[] {
+                        collectionName, appId, e
                 } );
+            }
+        }
+
+        logger.info( "Reindexed {} entities in collection: {} for app id: {}", new Object[] {
+                reindexed, collectionName, appId
+        } );
+    }
+
+
+    private static String getCheckpointKey( UUID appId, String collectionName, String bucket ) {
+        return appId + "/" + collectionName + "/" + bucket;
+    }
+
+
+    private void loadCheckpoints() throws Exception {
+        if ( !checkpointFile.exists() ) {
+            return;
+        }
+
+        InputStream in = new FileInputStream( checkpointFile );
+
+        try {
+            checkpoints.load( in );
+        }
+        finally {
+            IOUtils.closeQuietly( in );
+        }
+
+        logger.info( "Resuming from {} checkpoints in {}", checkpoints.size(), checkpointFile );
+    }
+
 
-                try {
-                    em.update( entity );
+    private synchronized String getCheckpoint( String key ) {
+        return checkpoints.getProperty( key );
+    }
+
+
+    /** Record the progress of a bucket and write every checkpoint to the file */
+    private synchronized void setCheckpoint( String key, String value ) throws Exception {
+        checkpoints.setProperty( key, value );
+
+        if ( checkpointFile == null ) {
+            return;
+        }
+
+        OutputStream out = new FileOutputStream( checkpointFile );
+
+        try {
+            checkpoints.store( out, "Index rebuild progress" );
+        }
+        finally {
+            IOUtils.closeQuietly( out );
+        }
+    }
+
+
+    /** Pages through the ids in one index bucket of a collection and reindexes the entities */
+    private class BucketRebuild implements Callable<Long> {
+
+        private final EntityManagerImpl em;
+        private final UUID appId;
+        private final String collectionName;
+        private final String bucket;
+
+
+        private BucketRebuild( EntityManagerImpl em, UUID appId, String collectionName, String bucket ) {
+            this.em = em;
+            this.appId = appId;
+            this.collectionName = collectionName;
+            this.bucket = bucket;
+        }
+
+
+        @Override
+        public Long call() throws Exception {
+
+            String checkpointKey = getCheckpointKey( appId, collectionName, bucket );
+            String checkpoint = getCheckpoint( checkpointKey );
+
+            if ( DONE.equals( checkpoint ) ) {
+                logger.info( "Bucket {} of collection {} for app id {} already rebuilt, skipping", new Object[] {
+                        bucket, collectionName, appId
+                } );
+                return 0L;
+            }
+
+            UUID start = checkpoint != null ? UUID.fromString( checkpoint ) : null;
+
+            Object rowKey = key( appId, DICTIONARY_COLLECTIONS, collectionName, bucket );
+
+            long reindexed = 0;
+
+            while ( true ) {
+
+                List<HColumn<ByteBuffer, ByteBuffer>> columns =
+                        em.getCass().getColumns( em.getCass().getApplicationKeyspace( appId ), ENTITY_ID_SETS, rowKey,
+                                start, null, PAGE_SIZE + 1, false );
+
+                List<UUID> ids = new ArrayList<UUID>( columns.size() );
+
+                for ( HColumn<ByteBuffer, ByteBuffer> column : columns ) {
+                    UUID id = ue.fromByteBuffer( column.getName().duplicate() );
+
+                    // the start is inclusive, and was reindexed with the previous page
+                    if ( !id.equals( start ) ) {
+                        ids.add( id );
+                    }
+                }
+
+                if ( ids.isEmpty() ) {
+                    break;
                 }
-                catch ( DuplicateUniquePropertyExistsException dupee ) {
-                    logger.error( "duplicate property for type: {} with id: {} for app id: {}.  Property name: {} , "
-                            + "value: {}", new Object[] {
-                            entity.getType(), entity.getUuid(), appId, dupee.getPropertyName(), dupee.getPropertyValue()
-                    } );
+
+                rateLimiter.acquire( ids.size() );
+
+                Results results = em.get( ids );
+
+                // ids without an entity are orphans in the index, the EntityCleanup tool removes those
+                em.reindexEntities( results.getEntities() );
+
+                reindexed += results.size();
+                count.addAndGet( results.size() );
+
+                start = ids.get( ids.size() - 1 );
+
+                setCheckpoint( checkpointKey, start.toString() );
+
+                logger.info( "Reindexed {} entities in bucket {} of collection {} for app id {}, {} in total",
+                        new Object[] { reindexed, bucket, collectionName, appId, count.get() } );
+
+                // a short page is the end of the bucket
+                if ( columns.size() <= PAGE_SIZE ) {
+                    break;
                 }
             }
 
-            query.setCursor( r.getCursor() );
+            setCheckpoint( checkpointKey, DONE );
+
+            return reindexed;
         }
-        while ( r != null && r.size() == PAGE_SIZE );
     }
 }
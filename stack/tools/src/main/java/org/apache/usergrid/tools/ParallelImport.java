@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.tools;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.cassandra.CassandraService;
+import org.apache.usergrid.persistence.cassandra.EntityManagerImpl;
+import org.apache.usergrid.persistence.exceptions.DuplicateUniquePropertyExistsException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.factory.HFactory;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+
+
+/**
+ * Imports an {@link Export} like {@link Import}, with the entities and the relations of each file written by a pool of
+ * -threads threads. The file is read by one thread into batches of -batchSize entities, and the entities of a batch are
+ * created in one mutation. The relations are imported once all the entities are, as in {@link Import}. A batch that
+ * can't be written is logged with its entities and fails the run once everything else is imported.
+ */
+public class ParallelImport extends Import {
+
+    private static final Logger logger = LoggerFactory.getLogger( ParallelImport.class );
+
+    private static final String THREADS = "threads";
+    private static final String BATCH_SIZE = "batchSize";
+
+    private int threads;
+    private int batchSize;
+
+    private ExecutorService executor;
+
+    private final AtomicLong entities = new AtomicLong();
+    private final AtomicLong relations = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /** The entity that claimed each unique value in this run, by type, property and value */
+    private final ConcurrentMap<String, UUID> uniqueValues = new ConcurrentHashMap<String, UUID>();
+
+
+    @Override
+    @SuppressWarnings("static-access")
+    public Options createOptions() {
+
+        Options options = super.createOptions();
+
+        Option threads = OptionBuilder.hasArg().withDescription( "number of writing threads -threads" )
+                                      .create( THREADS );
+
+        Option batchSize = OptionBuilder.hasArg().withDescription( "entities written at once -batchSize" )
+                                        .create( BATCH_SIZE );
+
+        options.addOption( threads );
+        options.addOption( batchSize );
+
+        return options;
+    }
+
+
+    @Override
+    public void runTool( CommandLine line ) throws Exception {
+        threads = line.hasOption( THREADS ) ? Integer.parseInt( line.getOptionValue( THREADS ) ) :
+                  Runtime.getRuntime().availableProcessors();
+        batchSize = line.hasOption( BATCH_SIZE ) ? Integer.parseInt( line.getOptionValue( BATCH_SIZE ) ) : 100;
+
+        executor = Executors.newFixedThreadPool( threads );
+
+        long start = System.currentTimeMillis();
+
+        try {
+            super.runTool( line );
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        long seconds = Math.max( 1, ( System.currentTimeMillis() - start ) / 1000 );
+        long imported = entities.get() + relations.get();
+
+        logger.info( "Imported {} entities and {} relations in {} seconds, {} per second",
+                new Object[] { entities.get(), relations.get(), seconds, imported / seconds } );
+
+        if ( failedBatches.get() > 0 ) {
+            throw new IllegalStateException(
+                    "Unable to import " + failedBatches.get() + " batches, the log lists what they contained" );
+        }
+    }
+
+
+    @Override
+    protected void importEntities( JsonParser jp, EntityManager em ) throws Exception {
+        Pass pass = new Pass( "entities" );
+        List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>( batchSize );
+
+        while ( jp.nextValue() != JsonToken.END_ARRAY ) {
+            @SuppressWarnings("unchecked") Map<String, Object> entityProps = jp.readValueAs( HashMap.class );
+            batch.add( entityProps );
+
+            if ( batch.size() == batchSize ) {
+                pass.submit( new EntityBatch( ( EntityManagerImpl ) em, batch ) );
+                batch = new ArrayList<Map<String, Object>>( batchSize );
+            }
+        }
+
+        if ( !batch.isEmpty() ) {
+            pass.submit( new EntityBatch( ( EntityManagerImpl ) em, batch ) );
+        }
+
+        pass.await( entities );
+    }
+
+
+    @Override
+    protected void importEntitiesStuff( JsonParser jp, EntityManager em ) throws Exception {
+        Pass pass = new Pass( "relations" );
+        Map<UUID, Map<String, Object>> batch = new LinkedHashMap<UUID, Map<String, Object>>();
+
+        while ( jp.nextToken() != JsonToken.END_OBJECT ) {
+            UUID ownerId = UUID.fromString( jp.getCurrentName() );
+
+            jp.nextToken(); // START_OBJECT
+            @SuppressWarnings("unchecked") Map<String, Object> stuff = jp.readValueAs( HashMap.class );
+            batch.put( ownerId, stuff );
+
+            if ( batch.size() == batchSize ) {
+                pass.submit( new RelationBatch( em, batch ) );
+                batch = new LinkedHashMap<UUID, Map<String, Object>>();
+            }
+        }
+
+        if ( !batch.isEmpty() ) {
+            pass.submit( new RelationBatch( em, batch ) );
+        }
+
+        pass.await( relations );
+    }
+
+
+    /** The batches read from a file, at most two for each thread are waiting to be written */
+    private class Pass {
+
+        private final String name;
+        private final Semaphore permits = new Semaphore( threads * 2 );
+        private final List<Future<Long>> batches = new ArrayList<Future<Long>>();
+        private final long start = System.currentTimeMillis();
+
+
+        private Pass( String name ) {
+            this.name = name;
+        }
+
+
+        private void submit( final Callable<Long> batch ) throws InterruptedException {
+            permits.acquire();
+
+            batches.add( executor.submit( new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    try {
+                        return batch.call();
+                    }
+                    finally {
+                        permits.release();
+                    }
+                }
+            } ) );
+        }
+
+
+        /** Wait for the batches to be written, and add the number written to the total */
+        private void await( AtomicLong total ) throws InterruptedException {
+            long count = 0;
+
+            for ( Future<Long> batch : batches ) {
+                try {
+                    count += batch.get();
+                }
+                catch ( ExecutionException e ) {
+                    failedBatches.incrementAndGet();
+                    logger.error( "Unable to import a batch of " + name, e.getCause() );
+                }
+            }
+
+            total.addAndGet( count );
+
+            long millis = Math.max( 1, System.currentTimeMillis() - start );
+            logger.info( "Imported {} {} in {} ms, {} per second",
+                    new Object[] { count, name, millis, count * 1000 / millis } );
+        }
+    }
+
+
+    /**
+     * Creates the entities of a batch in one mutation, nothing is written until the whole batch is. The collection
+     * counters are queued as each entity is added, so when a batch is dropped they're taken back before it's rebuilt
+     * without a duplicate, or given up on.
+     */
+    private class EntityBatch implements Callable<Long> {
+
+        private final EntityManagerImpl em;
+        private final List<Map<String, Object>> batch;
+
+
+        private EntityBatch( EntityManagerImpl em, List<Map<String, Object>> batch ) {
+            this.em = em;
+            this.batch = batch;
+        }
+
+
+        @Override
+        public Long call() throws Exception {
+            Keyspace ko = cass.getApplicationKeyspace( em.getApplicationId() );
+            Set<Integer> duplicates = new HashSet<Integer>();
+
+            while ( true ) {
+                Mutator<ByteBuffer> m = HFactory.createMutator( ko, be );
+                List<String> counted = new ArrayList<String>();
+                int i = 0;
+
+                try {
+                    for ( ; i < batch.size(); i++ ) {
+                        if ( duplicates.contains( i ) ) {
+                            continue;
+                        }
+
+                        Map<String, Object> entityProps = batch.get( i );
+                        UUID uuid = getId( entityProps );
+                        String type = getType( entityProps );
+
+                        if ( !claimUniqueValues( uuid, type, entityProps ) ) {
+                            logger.error( "Unable to create entity {} of type {}.  It appears to be a duplicate", uuid,
+                                    type );
+                            duplicates.add( i );
+                            continue;
+                        }
+
+                        em.batchCreate( m, type, null, entityProps, uuid, newTimeUUID() );
+                        counted.add( Schema.defaultCollectionName( type ) );
+                    }
+
+                    batchExecute( m, CassandraService.RETRY_COUNT );
+                }
+                catch ( DuplicateUniquePropertyExistsException e ) {
+                    //a stored entity has the value, drop it and build the batch again without it
+                    drop( m, counted );
+
+                    Map<String, Object> entityProps = batch.get( i );
+                    logger.error( "Unable to create entity {} of type {}.  It appears to be a duplicate",
+                            getId( entityProps ), getType( entityProps ) );
+                    releaseUniqueValues( getId( entityProps ), getType( entityProps ), entityProps );
+                    duplicates.add( i );
+                    continue;
+                }
+                catch ( Exception e ) {
+                    drop( m, counted );
+
+                    for ( Map<String, Object> entityProps : batch ) {
+                        logger.error( "Entity {} of type {} was not imported", getId( entityProps ),
+                                getType( entityProps ) );
+                    }
+
+                    throw e;
+                }
+
+                for ( i = 0; i < batch.size(); i++ ) {
+                    if ( !duplicates.contains( i ) ) {
+                        echo( batch.get( i ) );
+                    }
+                }
+
+                return ( long ) counted.size();
+            }
+        }
+
+
+        /** Discard the batch and take back the collection counters queued for its entities */
+        private void drop( Mutator<ByteBuffer> m, List<String> counted ) {
+            m.discardPendingMutations();
+
+            for ( String collectionName : counted ) {
+                em.decrementEntityCollection( collectionName );
+            }
+        }
+
+
+        /**
+         * Claim the unique values of the entity for this run, so duplicates in the same batch or in batches written
+         * at the same time are found before they're added. Values stored before the run are checked when the entity
+         * is added to the batch.
+         */
+        private boolean claimUniqueValues( UUID uuid, String type, Map<String, Object> entityProps ) {
+            List<String> claimed = new ArrayList<String>();
+
+            for ( Entry<String, Object> property : entityProps.entrySet() ) {
+                String key = getUniqueKey( type, property.getKey(), property.getValue() );
+
+                if ( key == null ) {
+                    continue;
+                }
+
+                UUID owner = uniqueValues.putIfAbsent( key, uuid );
+
+                if ( owner != null && !owner.equals( uuid ) ) {
+                    for ( String claim : claimed ) {
+                        uniqueValues.remove( claim, uuid );
+                    }
+                    return false;
+                }
+
+                claimed.add( key );
+            }
+
+            return true;
+        }
+
+
+        private void releaseUniqueValues( UUID uuid, String type, Map<String, Object> entityProps ) {
+            for ( Entry<String, Object> property : entityProps.entrySet() ) {
+                String key = getUniqueKey( type, property.getKey(), property.getValue() );
+
+                if ( key != null ) {
+                    uniqueValues.remove( key, uuid );
+                }
+            }
+        }
+
+
+        /** Unique values are case insensitive, as in the unique index */
+        private String getUniqueKey( String type, String propertyName, Object value ) {
+            if ( value == null || !Schema.getDefaultSchema().isPropertyUnique( type, propertyName ) ) {
+                return null;
+            }
+
+            return type + ":" + propertyName.toLowerCase() + ":" + value.toString().toLowerCase();
+        }
+    }
+
+
+    /** Adds the collections, connections and dictionaries of the owners in a batch */
+    private class RelationBatch implements Callable<Long> {
+
+        private final EntityManager em;
+        private final Map<UUID, Map<String, Object>> batch;
+
+
+        private RelationBatch( EntityManager em, Map<UUID, Map<String, Object>> batch ) {
+            this.em = em;
+            this.batch = batch;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Long call() throws Exception {
+            long count = 0;
+            Exception failure = null;
+
+            for ( Entry<UUID, Map<String, Object>> owner : batch.entrySet() ) {
+                try {
+                    EntityRef ownerEntityRef = em.getRef( owner.getKey() );
+
+                    for ( Entry<String, Object> stuff : owner.getValue().entrySet() ) {
+
+                        if ( stuff.getKey().equals( "connections" ) ) {
+                            Map<String, List<String>> connections = ( Map<String, List<String>> ) stuff.getValue();
+
+                            for ( Entry<String, List<String>> connection : connections.entrySet() ) {
+                                for ( String entryId : connection.getValue() ) {
+                                    EntityRef entryRef = em.getRef( UUID.fromString( entryId ) );
+                                    em.createConnection( ownerEntityRef, connection.getKey(), entryRef );
+                                    count++;
+                                }
+                            }
+                        }
+                        else if ( stuff.getKey().equals( "dictionaries" ) ) {
+                            Map<String, Map<String, Object>> dictionaries =
+                                    ( Map<String, Map<String, Object>> ) stuff.getValue();
+
+                            for ( Entry<String, Map<String, Object>> dictionary : dictionaries.entrySet() ) {
+                                em.addMapToDictionary( ownerEntityRef, dictionary.getKey(), dictionary.getValue() );
+                                count++;
+                            }
+                        }
+                        else {
+                            for ( String entryId : ( List<String> ) stuff.getValue() ) {
+                                EntityRef entryRef = em.getRef( UUID.fromString( entryId ) );
+                                em.addToCollection( ownerEntityRef, stuff.getKey(), entryRef );
+                                count++;
+                            }
+                        }
+                    }
+                }
+                catch ( Exception e ) {
+                    logger.error( "The relations of entity {} were not all imported", owner.getKey(), e );
+                    failure = e;
+                }
+            }
+
+            //the other owners are still imported, the batch is reported as failed
+            if ( failure != null ) {
+                throw failure;
+            }
+
+            return count;
+        }
+    }
+}
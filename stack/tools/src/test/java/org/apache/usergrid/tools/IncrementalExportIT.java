@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.tools;
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.usergrid.AbstractCoreIT;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.cassandra.EntityChangeLog;
+import org.apache.usergrid.persistence.cassandra.EntityManagerFactoryImpl;
+
+import static org.apache.usergrid.utils.UUIDUtils.minTimeUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class IncrementalExportIT extends AbstractCoreIT {
+
+    @BeforeClass
+    public static void enableChangeLog() {
+        ( ( EntityManagerFactoryImpl ) setup.getEmf() ).setEntityChangeLog( true );
+    }
+
+
+    @AfterClass
+    public static void disableChangeLog() {
+        ( ( EntityManagerFactoryImpl ) setup.getEmf() ).setEntityChangeLog( false );
+    }
+
+
+    @Test
+    public void lastChangeOfEachEntityExported() throws Exception {
+        UUID applicationId = setup.createApplication( "testOrganization", "incrementalExport" );
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        long start = System.currentTimeMillis();
+
+        Entity updated = createItem( em, "updated" );
+        Entity deleted = createItem( em, "deleted" );
+        Entity created = createItem( em, "created" );
+        em.setProperty( updated, "color", "red" );
+        em.delete( deleted );
+
+        long until = System.currentTimeMillis();
+
+        File dir = new File( "target", "incremental-export-" + start );
+        assertTrue( dir.mkdirs() );
+
+        IncrementalExport tool = new IncrementalExport();
+        tool.setCassandraService( setup.getCassSvc() );
+        ExportingToolBase.outputDir = dir;
+
+        long count = tool.new CollectionExport( em, applicationId, "incrementalExport", "items", minTimeUUID( start ),
+                until ).call();
+
+        assertEquals( 3, count );
+
+        List<Map<String, Object>> lines = readLines( dir );
+        assertEquals( 3, lines.size() );
+
+        // in the order of each entity's last change
+        assertEntity( lines.get( 0 ), created, null );
+        assertEntity( lines.get( 1 ), updated, "red" );
+
+        assertEquals( EntityChangeLog.DELETE, lines.get( 2 ).get( "op" ) );
+        assertEquals( deleted.getUuid().toString(), lines.get( 2 ).get( "uuid" ) );
+        assertEquals( "item", lines.get( 2 ).get( "type" ) );
+        assertNull( lines.get( 2 ).get( "entity" ) );
+    }
+
+
+    private void assertEntity( Map<String, Object> line, Entity expected, String color ) {
+        assertEquals( EntityChangeLog.UPSERT, line.get( "op" ) );
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> entity = ( Map<String, Object> ) line.get( "entity" );
+
+        assertEquals( expected.getUuid().toString(), entity.get( "uuid" ) );
+        assertEquals( expected.getName(), entity.get( "name" ) );
+        assertEquals( color, entity.get( "color" ) );
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> readLines( File dir ) throws Exception {
+        File[] files = dir.listFiles();
+        assertEquals( 1, files.length );
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<Map<String, Object>> lines = new ArrayList<Map<String, Object>>();
+
+        BufferedReader in = new BufferedReader( new InputStreamReader( new FileInputStream( files[0] ), "UTF-8" ) );
+        try {
+            String line;
+            while ( ( line = in.readLine() ) != null ) {
+                lines.add( mapper.readValue( line, Map.class ) );
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return lines;
+    }
+
+
+    private Entity createItem( EntityManager em, String name ) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", name );
+
+        return em.create( "item", properties );
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelLocal;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.handler.codec.http.websocket.DefaultWebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.services.ServiceAction;
+import org.apache.usergrid.services.ServiceExecutionEvent;
+import org.apache.usergrid.services.ServiceExecutionEventListener;
+import org.apache.usergrid.services.ServiceResults;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Histogram;
+import com.yammer.metrics.core.Meter;
+
+import static org.apache.usergrid.persistence.Schema.defaultCollectionName;
+import static org.apache.usergrid.utils.JsonUtils.mapToJsonString;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.ALL_ENTITIES;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.getSubscribers;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.getSubscriptionPath;
+
+
+/**
+ * Publishes entity changes made through the service layer to the websocket channels subscribed to the entity or to
+ * its collection. Each frame is a small JSON document naming the operation and the entity, clients fetch the entity
+ * itself if they need more than that.
+ * <p/>
+ * Every channel may have at most {@link #setMaxPendingFrames(int)} frames that have not yet been flushed to the
+ * socket. A subscriber that falls that far behind is disconnected rather than letting its backlog grow without
+ * bound in server memory.
+ * <p/>
+ * Only changes executed in this JVM are seen, so the websocket server must run alongside the service tier.
+ */
+public class EntityChangeFeed implements ServiceExecutionEventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger( EntityChangeFeed.class );
+
+    public static final String OP_CREATE = "create";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_DELETE = "delete";
+    public static final String OP_CONNECT = "connect";
+    public static final String OP_DISCONNECT = "disconnect";
+
+    public static final int DEFAULT_MAX_PENDING_FRAMES = 1000;
+
+    /** Frames written to a channel but not yet flushed */
+    private final ChannelLocal<AtomicInteger> pendingFrames = new ChannelLocal<AtomicInteger>();
+
+    private final Meter framesSent =
+            Metrics.newMeter( EntityChangeFeed.class, "frames_sent", "frames", TimeUnit.SECONDS );
+    private final Meter changesPublished =
+            Metrics.newMeter( EntityChangeFeed.class, "changes_published", "changes", TimeUnit.SECONDS );
+    private final Histogram fanOut = Metrics.newHistogram( EntityChangeFeed.class, "fan_out" );
+    private final Counter slowConsumerDisconnects =
+            Metrics.newCounter( EntityChangeFeed.class, "slow_consumer_disconnects" );
+
+    private int maxPendingFrames = DEFAULT_MAX_PENDING_FRAMES;
+
+
+    public void setMaxPendingFrames( int maxPendingFrames ) {
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+
+    public int getMaxPendingFrames() {
+        return maxPendingFrames;
+    }
+
+
+    @Override
+    public void serviceExecuted( ServiceExecutionEvent event ) {
+        ServiceResults results = event.getResults();
+        if ( ( results == null ) || ( event.getRequest() == null ) ) {
+            return;
+        }
+
+        List<Entity> entities = results.getEntities();
+        if ( ( entities == null ) || entities.isEmpty() ) {
+            return;
+        }
+
+        String op = getOperation( event.getAction(), results.getResultsType() );
+        UUID applicationId = event.getRequest().getServices().getApplicationId();
+
+        for ( Entity entity : entities ) {
+            publish( applicationId, op, entity, event.getRequest().getPath() );
+        }
+    }
+
+
+    static String getOperation( ServiceAction action, ServiceResults.Type resultsType ) {
+        boolean connection = resultsType == ServiceResults.Type.CONNECTION;
+
+        switch ( action ) {
+            case POST:
+                return connection ? OP_CONNECT : OP_CREATE;
+            case DELETE:
+                return connection ? OP_DISCONNECT : OP_DELETE;
+            default:
+                return OP_UPDATE;
+        }
+    }
+
+
+    /** Send the change to the subscribers of the entity and of its collection */
+    public void publish( UUID applicationId, String op, Entity entity, String path ) {
+        String collectionName = defaultCollectionName( entity.getType() );
+
+        ChannelGroup entitySubscribers =
+                getSubscribers( getSubscriptionPath( applicationId, collectionName, entity.getUuid().toString() ) );
+        ChannelGroup collectionSubscribers =
+                getSubscribers( getSubscriptionPath( applicationId, collectionName, ALL_ENTITIES ) );
+
+        if ( ( entitySubscribers == null ) && ( collectionSubscribers == null ) ) {
+            return;
+        }
+
+        Map<String, Object> frame = new LinkedHashMap<String, Object>();
+        frame.put( "op", op );
+        frame.put( "type", entity.getType() );
+        frame.put( "uuid", entity.getUuid() );
+        frame.put( "modified", entity.getModified() );
+        frame.put( "path", path );
+
+        String json = mapToJsonString( frame );
+
+        int sent = send( entitySubscribers, json ) + send( collectionSubscribers, json );
+
+        changesPublished.mark();
+        fanOut.update( sent );
+    }
+
+
+    private int send( ChannelGroup group, String json ) {
+        if ( group == null ) {
+            return 0;
+        }
+
+        int sent = 0;
+
+        for ( Channel channel : group ) {
+            if ( !channel.isConnected() ) {
+                continue;
+            }
+
+            final AtomicInteger pending = getPendingFrames( channel );
+
+            if ( pending.get() >= maxPendingFrames ) {
+                LOG.info( "Disconnecting slow websocket consumer {} with {} pending frames", channel.getRemoteAddress(),
+                        pending.get() );
+                slowConsumerDisconnects.inc();
+                channel.close();
+                continue;
+            }
+
+            pending.incrementAndGet();
+
+            channel.write( new DefaultWebSocketFrame( json ) ).addListener( new ChannelFutureListener() {
+                @Override
+                public void operationComplete( ChannelFuture future ) {
+                    pending.decrementAndGet();
+                }
+            } );
+
+            sent++;
+        }
+
+        framesSent.mark( sent );
+
+        return sent;
+    }
+
+
+    private AtomicInteger getPendingFrames( Channel channel ) {
+        AtomicInteger pending = pendingFrames.get( channel );
+        if ( pending != null ) {
+            return pending;
+        }
+
+        pending = new AtomicInteger();
+        AtomicInteger existing = pendingFrames.setIfAbsent( channel, pending );
+        if ( existing != null ) {
+            return existing;
+        }
+
+        channel.getCloseFuture().addListener( new ChannelFutureListener() {
+            @Override
+            public void operationComplete( ChannelFuture future ) {
+                pendingFrames.remove( future.getChannel() );
+            }
+        } );
+
+        return pending;
+    }
+}
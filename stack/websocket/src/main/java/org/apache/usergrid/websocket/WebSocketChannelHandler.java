@@ -19,6 +19,7 @@ package org.apache.usergrid.websocket;
 
 import java.security.MessageDigest;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -49,9 +50,18 @@ import org.jboss.netty.handler.codec.http.websocket.WebSocketFrameEncoder;
 import org.jboss.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.ManagementService;
+import org.apache.usergrid.management.OrganizationInfo;
+import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.security.AuthPrincipalInfo;
+import org.apache.usergrid.security.AuthPrincipalType;
+import org.apache.usergrid.security.shiro.PrincipalCredentialsToken;
+import org.apache.usergrid.security.tokens.TokenInfo;
+import org.apache.usergrid.security.tokens.TokenService;
 import org.apache.usergrid.services.ServiceManagerFactory;
+import org.apache.usergrid.utils.UUIDUtils;
 
 import org.apache.shiro.mgt.SessionsSecurityManager;
 import org.apache.shiro.subject.Subject;
@@ -59,6 +69,7 @@ import org.apache.shiro.subject.Subject;
 import static org.apache.commons.lang.StringUtils.isEmpty;
 import static org.apache.commons.lang.StringUtils.removeEnd;
 import static org.apache.commons.lang.StringUtils.split;
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.ORIGIN;
@@ -76,6 +87,7 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.setContentLength;
 import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
 import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 
@@ -86,6 +98,7 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
     private final EntityManagerFactory emf;
     private final ServiceManagerFactory smf;
     private final ManagementService management;
+    private final TokenService tokens;
     private final SessionsSecurityManager securityManager;
     private final boolean ssl;
 
@@ -93,18 +106,24 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
     Subject subject = null;
 
+    /** Subscribe to changes of every entity in a collection */
+    public static final String ALL_ENTITIES = "*";
+
     private static ConcurrentHashMap<String, ChannelGroup> subscribers = new ConcurrentHashMap<String, ChannelGroup>();
 
     List<String> subscriptions;
 
+    String subscriptionPath;
+
 
     public WebSocketChannelHandler( EntityManagerFactory emf, ServiceManagerFactory smf, ManagementService management,
-                                    SessionsSecurityManager securityManager, boolean ssl ) {
+                                    TokenService tokens, SessionsSecurityManager securityManager, boolean ssl ) {
         super();
 
         this.emf = emf;
         this.smf = smf;
         this.management = management;
+        this.tokens = tokens;
         this.securityManager = securityManager;
         this.ssl = ssl;
 
@@ -182,6 +201,10 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
         if ( websocket ) {
             LOG.info( "Websocket disconnected" );
         }
+        if ( subscriptionPath != null ) {
+            removeSubscription( subscriptionPath, ctx.getChannel() );
+            subscriptionPath = null;
+        }
     }
 
 
@@ -259,6 +282,31 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
                     return;
                 }
 
+                UUID applicationId = UUIDUtils.tryExtractUUID( nsStr );
+                if ( ( applicationId == null ) && ( emf != null ) ) {
+                    applicationId = emf.lookupApplication( nsStr );
+                }
+
+                if ( applicationId == null ) {
+                    LOG.info( "Unknown application " + nsStr );
+                    sendHttpResponse( ctx, req, FORBIDDEN );
+                    return;
+                }
+
+                if ( !login( getAccessToken( qs ) ) ) {
+                    LOG.info( "Missing or bad access token for " + path );
+                    sendHttpResponse( ctx, req, UNAUTHORIZED );
+                    return;
+                }
+
+                if ( !isPermitted( applicationId, collStr, idStr ) ) {
+                    LOG.info( "Subscription to " + path + " not permitted" );
+                    sendHttpResponse( ctx, req, FORBIDDEN );
+                    return;
+                }
+
+                subscriptionPath = getSubscriptionPath( applicationId, collStr, idStr );
+
                 // New handshake method with a challenge:
                 res.addHeader( SEC_WEBSOCKET_ORIGIN, req.getHeader( ORIGIN ) );
                 res.addHeader( SEC_WEBSOCKET_LOCATION, getWebSocketLocation( req ) );
@@ -302,6 +350,10 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
             p.replace( "encoder", "wsencoder", new WebSocketFrameEncoder() );
 
+            if ( subscriptionPath != null ) {
+                addSubscription( subscriptionPath, ctx.getChannel() );
+            }
+
             return;
         }
 
@@ -310,6 +362,90 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
     }
 
 
+    private static String getAccessToken( QueryStringDecoder qs ) {
+        List<String> values = qs.getParameters().get( "access_token" );
+        return ( values != null ) && !values.isEmpty() ? values.get( 0 ) : null;
+    }
+
+
+    /** Authenticate the subject of the channel with an access token, the way the REST tier does for each request */
+    boolean login( String accessToken ) {
+        if ( isEmpty( accessToken ) || ( subject == null ) || ( tokens == null ) || ( management == null ) ) {
+            return false;
+        }
+
+        try {
+            PrincipalCredentialsToken token = getCredentialsToken( accessToken );
+            if ( token == null ) {
+                return false;
+            }
+
+            subject.login( token );
+        }
+        catch ( Exception e ) {
+            LOG.info( "Unable to authenticate websocket access token: " + e.getMessage() );
+            return false;
+        }
+
+        return subject.isAuthenticated();
+    }
+
+
+    private PrincipalCredentialsToken getCredentialsToken( String accessToken ) throws Exception {
+        TokenInfo tokenInfo = tokens.getTokenInfo( accessToken );
+        AuthPrincipalInfo principal = ( tokenInfo != null ) ? tokenInfo.getPrincipal() : null;
+
+        if ( principal == null ) {
+            return null;
+        }
+
+        if ( AuthPrincipalType.ADMIN_USER.equals( principal.getType() ) ) {
+            UserInfo user = management.getAdminUserInfoFromAccessToken( accessToken );
+            if ( user != null ) {
+                return PrincipalCredentialsToken.getFromAdminUserInfoAndAccessToken( user, accessToken );
+            }
+        }
+        else if ( AuthPrincipalType.APPLICATION_USER.equals( principal.getType() ) ) {
+            UserInfo user = management.getAppUserFromAccessToken( accessToken );
+            if ( user != null ) {
+                return PrincipalCredentialsToken.getFromAppUserInfoAndAccessToken( user, accessToken );
+            }
+        }
+        else if ( AuthPrincipalType.ORGANIZATION.equals( principal.getType() ) ) {
+            OrganizationInfo organization = management.getOrganizationInfoFromAccessToken( accessToken );
+            if ( organization != null ) {
+                return PrincipalCredentialsToken.getFromOrganizationInfoAndAccessToken( organization, accessToken );
+            }
+        }
+        else if ( AuthPrincipalType.APPLICATION.equals( principal.getType() ) ) {
+            ApplicationInfo application = management.getApplicationInfoFromAccessToken( accessToken );
+            if ( application != null ) {
+                return PrincipalCredentialsToken.getFromApplicationInfoAndAccessToken( application, accessToken );
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Subscribers only receive changes they could read, the entity or, for {@link #ALL_ENTITIES}, the collection
+     * listing.
+     */
+    boolean isPermitted( UUID applicationId, String collectionName, String id ) {
+        if ( ( subject == null ) || !subject.isAuthenticated() ) {
+            return false;
+        }
+
+        String path = "/" + collectionName.toLowerCase();
+        if ( !ALL_ENTITIES.equals( id ) ) {
+            path += "/" + id;
+        }
+
+        return subject.isPermitted( getPermissionFromPath( applicationId, "get", path ) );
+    }
+
+
     private void handleWebSocketFrame( ChannelHandlerContext ctx, WebSocketFrame frame ) {
         // Send the uppercased string back.
         ctx.getChannel().write( new DefaultWebSocketFrame( frame.getTextData().toUpperCase() ) );
@@ -326,7 +462,11 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
         ChannelGroup group = subscribers.get( path );
 
         if ( group == null ) {
-            group = subscribers.putIfAbsent( path, new DefaultChannelGroup() );
+            ChannelGroup created = new DefaultChannelGroup( path );
+            group = subscribers.putIfAbsent( path, created );
+            if ( group == null ) {
+                group = created;
+            }
         }
 
         return group;
@@ -334,15 +474,24 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
 
     public void addSubscription( String path, Channel channel ) {
-        ChannelGroup group = subscribers.get( path );
-        synchronized ( group ) {
-            group.add( channel );
+        while ( true ) {
+            ChannelGroup group = getChannelGroupWithDefault( path );
+            synchronized ( group ) {
+                // the group may have been emptied and dropped while we waited on it
+                if ( subscribers.get( path ) == group ) {
+                    group.add( channel );
+                    return;
+                }
+            }
         }
     }
 
 
     public void removeSubscription( String path, Channel channel ) {
         ChannelGroup group = subscribers.get( path );
+        if ( group == null ) {
+            return;
+        }
         synchronized ( group ) {
             group.remove( channel );
             if ( group.isEmpty() ) {
@@ -353,6 +502,21 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
 
     public ChannelGroup getSubscriptionGroup( String path ) {
+        return getSubscribers( path );
+    }
+
+
+    /** Get the channels subscribed to the path, or null if there are none */
+    public static ChannelGroup getSubscribers( String path ) {
         return subscribers.get( path );
     }
+
+
+    /**
+     * Build the subscription path for an entity or, when the id is {@link #ALL_ENTITIES}, for every entity of the
+     * collection. Publishers and subscribers must agree on this format.
+     */
+    public static String getSubscriptionPath( UUID applicationId, String collectionName, String id ) {
+        return "/" + applicationId + "/" + collectionName.toLowerCase() + "/" + id.toLowerCase();
+    }
 }
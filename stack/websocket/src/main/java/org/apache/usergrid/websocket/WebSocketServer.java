@@ -35,6 +35,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.apache.usergrid.management.ManagementService;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.persistence.cassandra.EntityManagerFactoryImpl;
+import org.apache.usergrid.security.tokens.TokenService;
 import org.apache.usergrid.services.ServiceManagerFactory;
 
 import org.apache.shiro.mgt.DefaultSecurityManager;
@@ -60,6 +61,7 @@ public class WebSocketServer {
     EntityManagerFactory emf;
     ServiceManagerFactory smf;
     ManagementService management;
+    TokenService tokens;
     Realm realm;
     SessionsSecurityManager securityManager;
     boolean ssl = false;
@@ -96,6 +98,12 @@ public class WebSocketServer {
     }
 
 
+    @Autowired
+    public void setTokenService( TokenService tokens ) {
+        this.tokens = tokens;
+    }
+
+
     public void setSsl( boolean ssl ) {
         this.ssl = ssl;
     }
@@ -161,7 +169,22 @@ public class WebSocketServer {
 
         // Set up the event pipeline factory.
         bootstrap.setPipelineFactory(
-                new WebSocketServerPipelineFactory( emf, smf, management, securityManager, executionHandler, ssl ) );
+                new WebSocketServerPipelineFactory( emf, smf, management, tokens, securityManager, executionHandler,
+                        ssl ) );
+
+        // Keep subscribers that stop reading from piling frames up in memory
+        bootstrap.setOption( "child.writeBufferHighWaterMark", 64 * 1024 );
+
+        // Push entity changes made by the service tier to subscribed channels
+        if ( smf != null ) {
+            EntityChangeFeed changeFeed = new EntityChangeFeed();
+            if ( properties != null ) {
+                changeFeed.setMaxPendingFrames( Integer.parseInt(
+                        properties.getProperty( "usergrid.websocket.feed.max.pending.frames",
+                                String.valueOf( EntityChangeFeed.DEFAULT_MAX_PENDING_FRAMES ) ) ) );
+            }
+            smf.addExecutionEventListener( changeFeed );
+        }
 
         // Bind and start to accept incoming connections.
         channel = bootstrap.bind( new InetSocketAddress( 8088 ) );
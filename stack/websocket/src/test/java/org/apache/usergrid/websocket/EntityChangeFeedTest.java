@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.handler.codec.http.websocket.WebSocketFrame;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.services.ServiceAction;
+import org.apache.usergrid.services.ServiceResults;
+import org.apache.usergrid.utils.JsonUtils;
+
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.ALL_ENTITIES;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.getSubscriptionPath;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class EntityChangeFeedTest {
+
+    @Test
+    public void operations() {
+        assertEquals( EntityChangeFeed.OP_CREATE,
+                EntityChangeFeed.getOperation( ServiceAction.POST, ServiceResults.Type.COLLECTION ) );
+        assertEquals( EntityChangeFeed.OP_UPDATE,
+                EntityChangeFeed.getOperation( ServiceAction.PUT, ServiceResults.Type.COLLECTION ) );
+        assertEquals( EntityChangeFeed.OP_DELETE,
+                EntityChangeFeed.getOperation( ServiceAction.DELETE, ServiceResults.Type.COLLECTION ) );
+        assertEquals( EntityChangeFeed.OP_CONNECT,
+                EntityChangeFeed.getOperation( ServiceAction.POST, ServiceResults.Type.CONNECTION ) );
+        assertEquals( EntityChangeFeed.OP_DISCONNECT,
+                EntityChangeFeed.getOperation( ServiceAction.DELETE, ServiceResults.Type.CONNECTION ) );
+    }
+
+
+    @Test
+    public void subscriptionPathIsCaseInsensitive() {
+        UUID appId = new UUID( 0, 1 );
+
+        assertEquals( getSubscriptionPath( appId, "users", ALL_ENTITIES ), getSubscriptionPath( appId, "Users", "*" ) );
+    }
+
+
+    @Test
+    public void publishToEntityAndCollectionSubscribers() {
+        UUID appId = newTimeUUID();
+        User user = new User();
+        user.setUuid( newTimeUUID() );
+
+        Channel entitySubscriber = mockChannel( 1 );
+        Channel collectionSubscriber = mockChannel( 2 );
+        Channel otherSubscriber = mockChannel( 3 );
+
+        String entityPath = getSubscriptionPath( appId, "users", user.getUuid().toString() );
+        String collectionPath = getSubscriptionPath( appId, "users", ALL_ENTITIES );
+        String otherPath = getSubscriptionPath( appId, "users", newTimeUUID().toString() );
+
+        WebSocketChannelHandler handler = new WebSocketChannelHandler( null, null, null, null, null, false );
+        handler.addSubscription( entityPath, entitySubscriber );
+        handler.addSubscription( collectionPath, collectionSubscriber );
+        handler.addSubscription( otherPath, otherSubscriber );
+
+        try {
+            new EntityChangeFeed().publish( appId, EntityChangeFeed.OP_UPDATE, user, "/users/" + user.getUuid() );
+
+            ArgumentCaptor<Object> frame = ArgumentCaptor.forClass( Object.class );
+            verify( entitySubscriber ).write( frame.capture() );
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> json =
+                    ( Map<String, Object> ) JsonUtils.parse( ( ( WebSocketFrame ) frame.getValue() ).getTextData() );
+
+            assertEquals( EntityChangeFeed.OP_UPDATE, json.get( "op" ) );
+            assertEquals( "user", json.get( "type" ) );
+            assertEquals( user.getUuid().toString(), json.get( "uuid" ) );
+            assertEquals( "/users/" + user.getUuid(), json.get( "path" ) );
+
+            verify( collectionSubscriber ).write( any() );
+            verify( otherSubscriber, never() ).write( any() );
+        }
+        finally {
+            handler.removeSubscription( entityPath, entitySubscriber );
+            handler.removeSubscription( collectionPath, collectionSubscriber );
+            handler.removeSubscription( otherPath, otherSubscriber );
+        }
+    }
+
+
+    @Test
+    public void slowConsumerDisconnected() {
+        UUID appId = newTimeUUID();
+        User user = new User();
+        user.setUuid( newTimeUUID() );
+
+        // none of the writes to the subscriber are ever flushed
+        Channel subscriber = mockChannel( 4 );
+
+        String path = getSubscriptionPath( appId, "users", ALL_ENTITIES );
+
+        WebSocketChannelHandler handler = new WebSocketChannelHandler( null, null, null, null, null, false );
+        handler.addSubscription( path, subscriber );
+
+        try {
+            EntityChangeFeed feed = new EntityChangeFeed();
+            feed.setMaxPendingFrames( 2 );
+
+            for ( int i = 0; i < 3; i++ ) {
+                feed.publish( appId, EntityChangeFeed.OP_UPDATE, user, "/users" );
+            }
+
+            verify( subscriber, times( 2 ) ).write( any() );
+            verify( subscriber ).close();
+        }
+        finally {
+            handler.removeSubscription( path, subscriber );
+        }
+    }
+
+
+    /** A connected channel whose writes never complete */
+    static Channel mockChannel( int id ) {
+        Channel channel = mock( Channel.class );
+        when( channel.getId() ).thenReturn( id );
+        when( channel.isConnected() ).thenReturn( true );
+        when( channel.getCloseFuture() ).thenReturn( mock( ChannelFuture.class ) );
+        when( channel.write( any() ) ).thenReturn( mock( ChannelFuture.class ) );
+        return channel;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpHeaders.Names;
+import org.jboss.netty.handler.codec.http.HttpHeaders.Values;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.apache.usergrid.management.ManagementService;
+import org.apache.usergrid.management.UserInfo;
+import org.apache.usergrid.security.AuthPrincipalInfo;
+import org.apache.usergrid.security.AuthPrincipalType;
+import org.apache.usergrid.security.shiro.PrincipalCredentialsToken;
+import org.apache.usergrid.security.tokens.TokenInfo;
+import org.apache.usergrid.security.tokens.TokenService;
+
+import org.apache.shiro.subject.Subject;
+
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.apache.usergrid.utils.UUIDUtils.newTimeUUID;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.ALL_ENTITIES;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.getSubscribers;
+import static org.apache.usergrid.websocket.WebSocketChannelHandler.getSubscriptionPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WebSocketChannelHandlerTest {
+
+    private static final String ACCESS_TOKEN = "YWMt-token";
+
+
+    @Test
+    public void subscriptionWithoutTokenRefused() throws Exception {
+        UUID appId = newTimeUUID();
+        Subject subject = mock( Subject.class );
+
+        Channel channel = handshake( newHandler( appId, subject ), "/" + appId + "/users/" + ALL_ENTITIES );
+
+        assertEquals( HttpResponseStatus.UNAUTHORIZED, getResponseStatus( channel ) );
+        verify( subject, never() ).login( any( PrincipalCredentialsToken.class ) );
+        assertNull( getSubscribers( getSubscriptionPath( appId, "users", ALL_ENTITIES ) ) );
+    }
+
+
+    @Test
+    public void subscriptionNotPermittedRefused() throws Exception {
+        UUID appId = newTimeUUID();
+        Subject subject = mock( Subject.class );
+        when( subject.isAuthenticated() ).thenReturn( true );
+        when( subject.isPermitted( anyString() ) ).thenReturn( false );
+
+        Channel channel = handshake( newHandler( appId, subject ),
+                "/" + appId + "/users/" + ALL_ENTITIES + "?access_token=" + ACCESS_TOKEN );
+
+        assertEquals( HttpResponseStatus.FORBIDDEN, getResponseStatus( channel ) );
+        verify( subject ).login( any( PrincipalCredentialsToken.class ) );
+        verify( subject ).isPermitted( getPermissionFromPath( appId, "get", "/users" ) );
+        assertNull( getSubscribers( getSubscriptionPath( appId, "users", ALL_ENTITIES ) ) );
+    }
+
+
+    @Test
+    public void permittedSubscriptionAdded() throws Exception {
+        UUID appId = newTimeUUID();
+        UUID entityId = newTimeUUID();
+        Subject subject = mock( Subject.class );
+        when( subject.isAuthenticated() ).thenReturn( true );
+        when( subject.isPermitted( getPermissionFromPath( appId, "get", "/users/" + entityId ) ) ).thenReturn( true );
+
+        WebSocketChannelHandler handler = newHandler( appId, subject );
+        String path = getSubscriptionPath( appId, "users", entityId.toString() );
+
+        Channel channel = handshake( handler, "/" + appId + "/users/" + entityId + "?access_token=" + ACCESS_TOKEN );
+
+        try {
+            assertEquals( 101, getResponseStatus( channel ).getCode() );
+            assertTrue( getSubscribers( path ).contains( channel ) );
+        }
+        finally {
+            handler.removeSubscription( path, channel );
+        }
+    }
+
+
+    /** A handler that knows one application user token and checks permissions with the subject */
+    private WebSocketChannelHandler newHandler( UUID appId, Subject subject ) throws Exception {
+        UUID userId = newTimeUUID();
+
+        TokenService tokens = mock( TokenService.class );
+        when( tokens.getTokenInfo( ACCESS_TOKEN ) ).thenReturn(
+                new TokenInfo( newTimeUUID(), "access", 0, 0, 0, 0,
+                        new AuthPrincipalInfo( AuthPrincipalType.APPLICATION_USER, userId, appId ), null ) );
+
+        ManagementService management = mock( ManagementService.class );
+        when( management.getAppUserFromAccessToken( ACCESS_TOKEN ) ).thenReturn(
+                new UserInfo( appId, userId, "edanuff", "Ed Anuff", "ed@anuff.com", true, true, false,
+                        new HashMap<String, Object>() ) );
+
+        WebSocketChannelHandler handler = new WebSocketChannelHandler( null, null, management, tokens, null, false );
+        handler.subject = subject;
+        return handler;
+    }
+
+
+    /** Send the challenge handshake for a subscription, returning the channel it was made on */
+    private Channel handshake( WebSocketChannelHandler handler, String uri ) throws Exception {
+        HttpRequest req = new DefaultHttpRequest( HttpVersion.HTTP_1_1, HttpMethod.GET, uri );
+        req.setHeader( Names.CONNECTION, Values.UPGRADE );
+        req.setHeader( Names.UPGRADE, Values.WEBSOCKET );
+        req.setHeader( Names.HOST, "localhost:8088" );
+        req.setHeader( Names.ORIGIN, "http://localhost" );
+        req.setHeader( Names.SEC_WEBSOCKET_KEY1, "1 2" );
+        req.setHeader( Names.SEC_WEBSOCKET_KEY2, "3 4" );
+        req.setContent( ChannelBuffers.wrappedBuffer( new byte[8] ) );
+
+        Channel channel = EntityChangeFeedTest.mockChannel( 5 );
+        when( channel.getPipeline() ).thenReturn( mock( ChannelPipeline.class ) );
+
+        ChannelHandlerContext ctx = mock( ChannelHandlerContext.class );
+        when( ctx.getChannel() ).thenReturn( channel );
+
+        MessageEvent event = mock( MessageEvent.class );
+        when( event.getMessage() ).thenReturn( req );
+
+        handler.messageReceived( ctx, event );
+
+        return channel;
+    }
+
+
+    private HttpResponseStatus getResponseStatus( Channel channel ) {
+        ArgumentCaptor<Object> response = ArgumentCaptor.forClass( Object.class );
+        verify( channel ).write( response.capture() );
+        return ( ( HttpResponse ) response.getValue() ).getStatus();
+    }
+}